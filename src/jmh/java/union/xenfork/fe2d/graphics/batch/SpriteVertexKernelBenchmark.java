@@ -0,0 +1,113 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.batch;
+
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.*;
+import union.xenfork.fe2d.graphics.sprite.Sprite;
+import union.xenfork.fe2d.graphics.texture.Texture;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Compares writing the vertices of {@link SpriteBatch#drawAll(SpriteSource, int, ForkJoinPool)} serially on the
+ * calling thread and in parallel on the common pool. The score is in sprites per second.
+ * <p>
+ * The sprites are spread over twice the cull rectangle in x, so about {@code culledPercent} of them are culled.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@OperationsPerInvocation(SpriteVertexKernelBenchmark.COUNT)
+@State(Scope.Benchmark)
+public class SpriteVertexKernelBenchmark {
+    static final int COUNT = 65536;
+    private static final float WIDTH = 1920f;
+    private static final float HEIGHT = 1080f;
+    @Param({"0", "50"})
+    public int culledPercent;
+    private ByteBuffer buffer;
+    private SpriteVertexKernel kernel;
+    private SpriteSource source;
+
+    @Setup
+    public void setup() {
+        buffer = memAlloc(COUNT * Sprite.SPRITE_SIZE);
+        kernel = new SpriteVertexKernel(buffer,
+            Sprite.LAYOUT.stride(),
+            false,
+            false,
+            0f,
+            false,
+            true,
+            0f, 0f, WIDTH, HEIGHT);
+        float[] x = new float[COUNT];
+        float[] y = new float[COUNT];
+        float[] rotation = new float[COUNT];
+        Random random = new Random(0L);
+        for (int i = 0; i < COUNT; i++) {
+            boolean culled = random.nextInt(100) < culledPercent;
+            x[i] = culled ? WIDTH + 64f + random.nextFloat() * WIDTH : random.nextFloat() * WIDTH;
+            y[i] = random.nextFloat() * HEIGHT;
+            rotation[i] = random.nextFloat() * 6.2831855f;
+        }
+        source = new SpriteSource() {
+            @Override
+            public @Nullable Texture texture() {
+                return null;
+            }
+
+            @Override
+            public void get(int index, Params params) {
+                params.x = x[index];
+                params.y = y[index];
+                params.originX = 8f;
+                params.originY = 8f;
+                params.width = 16f;
+                params.height = 16f;
+                params.rotation = rotation[index];
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        memFree(buffer);
+    }
+
+    @Benchmark
+    public int serial() {
+        return kernel.writeRange(source, 0, COUNT, 0);
+    }
+
+    @Benchmark
+    public int parallel() {
+        return ForkJoinPool.commonPool().invoke(kernel.task(source, 0, COUNT, 0));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.sprite;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar and the vector sprite kernels. The score is in sprites per second.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@OperationsPerInvocation(SpriteKernelBenchmark.COUNT)
+@State(Scope.Thread)
+public class SpriteKernelBenchmark {
+    static final int COUNT = 4096;
+    @Param({"scalar", "best"})
+    public String kernelName;
+    private SpriteKernel kernel;
+    private SpriteArrays arrays;
+
+    @Setup
+    public void setup() {
+        kernel = "scalar".equals(kernelName) ? SpriteKernel.scalar() : SpriteKernel.best();
+        arrays = new SpriteArrays(COUNT);
+        Random random = new Random(0L);
+        for (int i = 0; i < COUNT; i++) {
+            arrays.x[i] = random.nextFloat() * 1920f;
+            arrays.y[i] = random.nextFloat() * 1080f;
+            arrays.originX[i] = 8f;
+            arrays.originY[i] = 8f;
+            arrays.width[i] = 16f;
+            arrays.height[i] = 16f;
+            arrays.scaleX[i] = 1f + random.nextFloat();
+            arrays.scaleY[i] = 1f + random.nextFloat();
+            arrays.rotation[i] = random.nextFloat() * 6.2831855f;
+            arrays.m00[i] = 1f;
+            arrays.m11[i] = 1f;
+            arrays.red[i] = random.nextFloat();
+            arrays.green[i] = random.nextFloat();
+            arrays.blue[i] = random.nextFloat();
+            arrays.alpha[i] = random.nextFloat();
+        }
+    }
+
+    @Benchmark
+    public void transform(Blackhole blackhole) {
+        kernel.transform(arrays, COUNT);
+        blackhole.consume(arrays.x4);
+    }
+
+    @Benchmark
+    public void transformAffine(Blackhole blackhole) {
+        kernel.transformAffine(arrays, COUNT);
+        blackhole.consume(arrays.x4);
+    }
+
+    @Benchmark
+    public void packColors(Blackhole blackhole) {
+        kernel.packColors(arrays, COUNT);
+        blackhole.consume(arrays.colors);
+    }
+}
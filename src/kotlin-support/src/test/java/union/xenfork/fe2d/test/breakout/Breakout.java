@@ -153,7 +153,7 @@ public final class Breakout extends Game {
     @Override
     public void init() {
         super.init();
-        glClearColor(0f, 0f, 0f, 1f);
+        clearColor(0f, 0f, 0f, 1f);
         GLStateManager.enableBlend();
         GLStateManager.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 
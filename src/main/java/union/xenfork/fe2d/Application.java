@@ -20,20 +20,23 @@ package union.xenfork.fe2d;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.joml.Matrix4f;
 import org.lwjgl.glfw.Callbacks;
 import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.glfw.GLFWErrorCallbackI;
 import org.lwjgl.glfw.GLFWVidMode;
 import org.lwjgl.opengl.GL;
-import org.lwjgl.opengl.GL11C;
 import org.lwjgl.system.APIUtil;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import union.xenfork.fe2d.graphics.batch.SpriteBatch;
+import union.xenfork.fe2d.graphics.GLStateManager;
+import union.xenfork.fe2d.graphics.ShaderCache;
+import union.xenfork.fe2d.graphics.batch.Batch;
 
 import java.nio.IntBuffer;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Objects;
 
@@ -118,11 +121,12 @@ public class Application implements Updatable, Disposable {
                     // Sets callbacks
                     glfwSetFramebufferSizeCallback(window, (handle, width, height) -> {
                         Fe2D.graphics.setSize(width, height);
+                        Fe2D.graphics.setProjectionMatrix(new Matrix4f().setOrtho2D(0, width, 0, height));
                         if (Fe2D.hasTextRenderer()) {
                             Fe2D.textRenderer().resize(width, height);
                         }
                         if (Fe2D.hasSpriteBatch()) {
-                            SpriteBatch oldBatch = Fe2D.spriteRenderer();
+                            Batch oldBatch = Fe2D.spriteRenderer();
                             // reset to null to get sprite batch
                             Fe2D.setSpriteRenderer(null);
                             Fe2D.spriteRenderer()
@@ -166,12 +170,18 @@ public class Application implements Updatable, Disposable {
                     if (config.vsync) {
                         glfwSwapInterval(1);
                     }
+                    if (config.shaderCacheDirectory != null) {
+                        ShaderCache.enable(Path.of(config.shaderCacheDirectory));
+                    }
                     try (MemoryStack stack = MemoryStack.stackPush()) {
                         IntBuffer pw = stack.callocInt(1);
                         IntBuffer ph = stack.callocInt(1);
                         glfwGetFramebufferSize(window, pw, ph);
                         Fe2D.graphics.setSize(pw.get(0), ph.get(0));
-                        GL11C.glViewport(0, 0, pw.get(0), ph.get(0));
+                        GLStateManager.viewport(0, 0, pw.get(0), ph.get(0));
+                        // created before the builtin programs, so that they are bound to the block on linking
+                        Fe2D.graphics.frameBlock();
+                        Fe2D.graphics.setProjectionMatrix(new Matrix4f().setOrtho2D(0, pw.get(0), 0, ph.get(0)));
                     }
                     init();
 
@@ -185,8 +195,10 @@ public class Application implements Updatable, Disposable {
                         double delta = Fe2D.timer.advanceTime(this::fixedUpdate);
                         update();
                         lateUpdate();
+                        Fe2D.graphics.uploadFrameBlock();
                         render(delta);
                         glfwSwapBuffers(window);
+                        Fe2D.graphics.renderStats().endFrame();
                         frames++;
                         double currTime = glfwGetTime();
                         Fe2D.graphics.setDeltaFrameTime(currTime - time);
@@ -222,7 +234,7 @@ public class Application implements Updatable, Disposable {
      * @param height the new height, in pixels, of the framebuffer.
      */
     public void onResize(int width, int height) {
-        GL11C.glViewport(0, 0, width, height);
+        GLStateManager.viewport(0, 0, width, height);
     }
 
     /**
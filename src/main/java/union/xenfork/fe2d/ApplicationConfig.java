@@ -54,4 +54,9 @@ public final class ApplicationConfig {
      * Set to {@code true} to allow users resize the window. Defaults to {@code true}.
      */
     public boolean resizable = true;
+    /**
+     * The directory of the {@linkplain union.xenfork.fe2d.graphics.ShaderCache program binary cache}.
+     * The cache is disabled if {@code null}. Defaults to {@code null}.
+     */
+    public String shaderCacheDirectory = null;
 }
@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import union.xenfork.fe2d.file.FileLoader;
 import union.xenfork.fe2d.graphics.Graphics;
+import union.xenfork.fe2d.graphics.batch.Batch;
 import union.xenfork.fe2d.graphics.batch.SpriteBatch;
 import union.xenfork.fe2d.graphics.font.Font;
 import union.xenfork.fe2d.graphics.font.TextRenderer;
@@ -71,7 +72,7 @@ public final class Fe2D {
     private static Font defaultFont;
     private static Unifont unifont;
     private static SpriteBatch spriteBatch;
-    private static SpriteBatch spriteRenderer;
+    private static Batch spriteRenderer;
 
     /**
      * Returns {@code true} if the text renderer is created.
@@ -104,11 +105,11 @@ public final class Fe2D {
     }
 
     /**
-     * Sets the current sprite batch.
+     * Sets the current sprite batch, which can be any implementation of {@link Batch}.
      *
      * @param batch the sprite batch.
      */
-    public static void setSpriteRenderer(@Nullable SpriteBatch batch) {
+    public static void setSpriteRenderer(@Nullable Batch batch) {
         spriteRenderer = batch;
     }
 
@@ -117,7 +118,7 @@ public final class Fe2D {
      *
      * @return the sprite batch.
      */
-    public static SpriteBatch spriteRenderer() {
+    public static Batch spriteRenderer() {
         if (spriteRenderer != null) {
             return spriteRenderer;
         }
@@ -167,5 +168,6 @@ public final class Fe2D {
         if (spriteBatch != null) {
             spriteBatch.dispose();
         }
+        graphics.disposeFrameBlock();
     }
 }
@@ -253,6 +253,25 @@ public final class Color {
         return rgbaPackABGR(floatToByte(r), floatToByte(g), floatToByte(b), floatToByte(a));
     }
 
+    /**
+     * Premultiplies the RGB components of the packed color by its alpha.
+     *
+     * @param color the packed value in ABGR.
+     * @return the premultiplied packed value in ABGR.
+     */
+    public static int premultiplyABGR(int color) {
+        int a = color >>> 24;
+        if (a == 0xff) return color;
+        int b = ((color >>> 16) & 0xff) * a;
+        int g = ((color >>> 8) & 0xff) * a;
+        int r = (color & 0xff) * a;
+        // x / 255 with rounding
+        return (a << 24) |
+               (((b + 128 + ((b + 128) >>> 8)) >>> 8) << 16) |
+               (((g + 128 + ((g + 128) >>> 8)) >>> 8) << 8) |
+               ((r + 128 + ((r + 128) >>> 8)) >>> 8);
+    }
+
     /**
      * Gets the red value from packed integer that is ordered in ABGR.
      *
@@ -302,6 +321,15 @@ public final class Color {
         return rgbaPackABGR(r, g, b, a);
     }
 
+    /**
+     * Packs this color into an integer with the RGB components premultiplied by alpha.
+     *
+     * @return the premultiplied packed value in ABGR.
+     */
+    public int packPremultipliedABGR() {
+        return premultiplyABGR(packABGR());
+    }
+
     /**
      * Gets the red component.
      *
@@ -19,6 +19,7 @@
 package union.xenfork.fe2d.graphics;
 
 import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.opengl.GL30C.GL_HALF_FLOAT;
 
 /**
  * The GL data types.
@@ -33,6 +34,7 @@ public enum DataType {
     UNSIGNED_SHORT("Unsigned Short", GL_UNSIGNED_SHORT, 2),
     INT("Int", GL_INT, 4),
     UNSIGNED_INT("Unsigned Int", GL_UNSIGNED_INT, 4),
+    HALF_FLOAT("Half Float", GL_HALF_FLOAT, 2),
     FLOAT("Float", GL_FLOAT, 4),
     DOUBLE("Double", GL_DOUBLE, 8);
 
@@ -19,16 +19,37 @@
 package union.xenfork.fe2d.graphics;
 
 import org.lwjgl.opengl.GL11C;
+import org.lwjgl.opengl.GL15C;
+import org.lwjgl.opengl.GL30C;
+
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.lwjgl.opengl.GL30C.*;
 
 /**
  * The GL state manager.
+ * <p>
+ * The manager shadows the GL state, and only issues a GL call when the state changes. The issued and elided calls
+ * are counted in {@link RenderStats} as {@link RenderStats.Counter#STATE_CALLS_ISSUED STATE_CALLS_ISSUED} and
+ * {@link RenderStats.Counter#STATE_CALLS_ELIDED STATE_CALLS_ELIDED}.
+ * <p>
+ * The shadowed state is only valid if it is not changed by other GL calls. The buffers, textures and vertex arrays
+ * should be deleted with {@link #deleteBuffer(int)}, {@link #deleteTexture(int)} and {@link #deleteVertexArray(int)},
+ * since their names might be reused.
  *
  * @author squid233
  * @since 0.1.0
  */
 public final class GLStateManager {
+    private static void issued() {
+        Graphics.getInstance().renderStats().stateCallIssued();
+    }
+
+    private static void elided() {
+        Graphics.getInstance().renderStats().stateCallElided();
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Pixel store
     ///////////////////////////////////////////////////////////////////////////
@@ -56,6 +77,9 @@ public final class GLStateManager {
         if (unpackAlignment != param) {
             unpackAlignment = param;
             glPixelStorei(GL_UNPACK_ALIGNMENT, param);
+            issued();
+        } else {
+            elided();
         }
     }
 
@@ -121,6 +145,9 @@ public final class GLStateManager {
         if (!blend) {
             blend = true;
             glEnable(GL_BLEND);
+            issued();
+        } else {
+            elided();
         }
     }
 
@@ -131,6 +158,9 @@ public final class GLStateManager {
         if (blend) {
             blend = false;
             glDisable(GL_BLEND);
+            issued();
+        } else {
+            elided();
         }
     }
 
@@ -152,6 +182,9 @@ public final class GLStateManager {
             blendSrcAlpha = sfactorAlpha;
             blendDstAlpha = dfactorAlpha;
             glBlendFuncSeparate(sfactorRGB, dfactorRGB, sfactorAlpha, dfactorAlpha);
+            issued();
+        } else {
+            elided();
         }
     }
 
@@ -165,6 +198,383 @@ public final class GLStateManager {
         blendFuncSeparate(sfactor, dfactor, sfactor, dfactor);
     }
 
+    ///////////////////////////////////////////////////////////////////////////
+    // Depth
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static boolean depthTest = false;
+    private static boolean depthMask = true;
+    private static int depthFunc = GL_LESS;
+
+    /**
+     * Determines if {@link GL11C#GL_DEPTH_TEST GL_DEPTH_TEST} is currently enabled (as with {@link #enableDepthTest() Enable}) or disabled.
+     *
+     * @return If enabled, do depth comparisons and update the depth buffer.
+     */
+    public static boolean isDepthTestEnabled() {
+        return depthTest;
+    }
+
+    /**
+     * Enables depth test.
+     */
+    public static void enableDepthTest() {
+        if (!depthTest) {
+            depthTest = true;
+            glEnable(GL_DEPTH_TEST);
+            issued();
+        } else {
+            elided();
+        }
+    }
+
+    /**
+     * Disables depth test.
+     */
+    public static void disableDepthTest() {
+        if (depthTest) {
+            depthTest = false;
+            glDisable(GL_DEPTH_TEST);
+            issued();
+        } else {
+            elided();
+        }
+    }
+
+    /**
+     * Returns a single boolean value indicating if the depth buffer is enabled for writing. The initial value is {@code true}.
+     *
+     * @return a single boolean value indicating if the depth buffer is enabled for writing. The initial value is {@code true}.
+     */
+    public static boolean depthMask() {
+        return depthMask;
+    }
+
+    /**
+     * Enables or disables writing into the depth buffer.
+     *
+     * @param flag whether the depth buffer is enabled for writing.
+     */
+    public static void depthMask(boolean flag) {
+        if (depthMask != flag) {
+            depthMask = flag;
+            glDepthMask(flag);
+            issued();
+        } else {
+            elided();
+        }
+    }
+
+    /**
+     * Returns one value, the symbolic constant that indicates the depth comparison function. The initial value is {@code GL_LESS}.
+     *
+     * @return one value, the symbolic constant that indicates the depth comparison function. The initial value is {@code GL_LESS}.
+     */
+    public static int depthFunc() {
+        return depthFunc;
+    }
+
+    /**
+     * Specifies the function used to compare each incoming pixel depth value with the depth value present in the depth buffer.
+     *
+     * @param func the depth comparison function. The initial value is {@code GL_LESS}.
+     */
+    public static void depthFunc(int func) {
+        if (depthFunc != func) {
+            depthFunc = func;
+            glDepthFunc(func);
+            issued();
+        } else {
+            elided();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Cull face
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static boolean cullFace = false;
+    private static int cullFaceMode = GL_BACK;
+
+    /**
+     * Determines if {@link GL11C#GL_CULL_FACE GL_CULL_FACE} is currently enabled (as with {@link #enableCullFace() Enable}) or disabled.
+     *
+     * @return If enabled, cull polygons based on their winding in window coordinates.
+     */
+    public static boolean isCullFaceEnabled() {
+        return cullFace;
+    }
+
+    /**
+     * Enables face culling.
+     */
+    public static void enableCullFace() {
+        if (!cullFace) {
+            cullFace = true;
+            glEnable(GL_CULL_FACE);
+            issued();
+        } else {
+            elided();
+        }
+    }
+
+    /**
+     * Disables face culling.
+     */
+    public static void disableCullFace() {
+        if (cullFace) {
+            cullFace = false;
+            glDisable(GL_CULL_FACE);
+            issued();
+        } else {
+            elided();
+        }
+    }
+
+    /**
+     * Returns a single value indicating which polygon faces are to be culled. The initial value is {@code GL_BACK}.
+     *
+     * @return a single value indicating which polygon faces are to be culled. The initial value is {@code GL_BACK}.
+     */
+    public static int cullFaceMode() {
+        return cullFaceMode;
+    }
+
+    /**
+     * Specifies which polygon faces are culled if {@link GL11C#GL_CULL_FACE GL_CULL_FACE} is enabled.
+     *
+     * @param mode whether front- or back-facing facets are candidates for culling. The initial value is {@code GL_BACK}.
+     */
+    public static void cullFace(int mode) {
+        if (cullFaceMode != mode) {
+            cullFaceMode = mode;
+            glCullFace(mode);
+            issued();
+        } else {
+            elided();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Viewport and scissor
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static int viewportX = 0, viewportY = 0, viewportWidth = 0, viewportHeight = 0;
+    private static boolean scissorTest = false;
+    private static int scissorX = 0, scissorY = 0, scissorWidth = 0, scissorHeight = 0;
+
+    /**
+     * Returns the x of the viewport.
+     *
+     * @return the x of the viewport.
+     */
+    public static int viewportX() {
+        return viewportX;
+    }
+
+    /**
+     * Returns the y of the viewport.
+     *
+     * @return the y of the viewport.
+     */
+    public static int viewportY() {
+        return viewportY;
+    }
+
+    /**
+     * Returns the width of the viewport.
+     *
+     * @return the width of the viewport.
+     */
+    public static int viewportWidth() {
+        return viewportWidth;
+    }
+
+    /**
+     * Returns the height of the viewport.
+     *
+     * @return the height of the viewport.
+     */
+    public static int viewportHeight() {
+        return viewportHeight;
+    }
+
+    /**
+     * Sets the viewport.
+     *
+     * @param x      the left viewport coordinate.
+     * @param y      the bottom viewport coordinate.
+     * @param width  the viewport width.
+     * @param height the viewport height.
+     */
+    public static void viewport(int x, int y, int width, int height) {
+        if (viewportX != x || viewportY != y || viewportWidth != width || viewportHeight != height) {
+            viewportX = x;
+            viewportY = y;
+            viewportWidth = width;
+            viewportHeight = height;
+            glViewport(x, y, width, height);
+            issued();
+        } else {
+            elided();
+        }
+    }
+
+    /**
+     * Determines if {@link GL11C#GL_SCISSOR_TEST GL_SCISSOR_TEST} is currently enabled (as with {@link #enableScissorTest() Enable}) or disabled.
+     *
+     * @return If enabled, discard fragments that are outside the scissor rectangle.
+     */
+    public static boolean isScissorTestEnabled() {
+        return scissorTest;
+    }
+
+    /**
+     * Enables scissor test.
+     */
+    public static void enableScissorTest() {
+        if (!scissorTest) {
+            scissorTest = true;
+            glEnable(GL_SCISSOR_TEST);
+            issued();
+        } else {
+            elided();
+        }
+    }
+
+    /**
+     * Disables scissor test.
+     */
+    public static void disableScissorTest() {
+        if (scissorTest) {
+            scissorTest = false;
+            glDisable(GL_SCISSOR_TEST);
+            issued();
+        } else {
+            elided();
+        }
+    }
+
+    /**
+     * Returns the x of the scissor box.
+     *
+     * @return the x of the scissor box.
+     */
+    public static int scissorX() {
+        return scissorX;
+    }
+
+    /**
+     * Returns the y of the scissor box.
+     *
+     * @return the y of the scissor box.
+     */
+    public static int scissorY() {
+        return scissorY;
+    }
+
+    /**
+     * Returns the width of the scissor box.
+     *
+     * @return the width of the scissor box.
+     */
+    public static int scissorWidth() {
+        return scissorWidth;
+    }
+
+    /**
+     * Returns the height of the scissor box.
+     *
+     * @return the height of the scissor box.
+     */
+    public static int scissorHeight() {
+        return scissorHeight;
+    }
+
+    /**
+     * Defines the scissor box.
+     *
+     * @param x      the left scissor box coordinate.
+     * @param y      the bottom scissor box coordinate.
+     * @param width  the scissor box width.
+     * @param height the scissor box height.
+     */
+    public static void scissor(int x, int y, int width, int height) {
+        if (scissorX != x || scissorY != y || scissorWidth != width || scissorHeight != height) {
+            scissorX = x;
+            scissorY = y;
+            scissorWidth = width;
+            scissorHeight = height;
+            glScissor(x, y, width, height);
+            issued();
+        } else {
+            elided();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Clear color
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static float clearRed = 0f, clearGreen = 0f, clearBlue = 0f, clearAlpha = 0f;
+
+    /**
+     * Returns the red value used to clear the color buffers. The initial value is 0.
+     *
+     * @return the red value used to clear the color buffers.
+     */
+    public static float clearRed() {
+        return clearRed;
+    }
+
+    /**
+     * Returns the green value used to clear the color buffers. The initial value is 0.
+     *
+     * @return the green value used to clear the color buffers.
+     */
+    public static float clearGreen() {
+        return clearGreen;
+    }
+
+    /**
+     * Returns the blue value used to clear the color buffers. The initial value is 0.
+     *
+     * @return the blue value used to clear the color buffers.
+     */
+    public static float clearBlue() {
+        return clearBlue;
+    }
+
+    /**
+     * Returns the alpha value used to clear the color buffers. The initial value is 0.
+     *
+     * @return the alpha value used to clear the color buffers.
+     */
+    public static float clearAlpha() {
+        return clearAlpha;
+    }
+
+    /**
+     * Sets the clear value for fixed-point and floating-point color buffers in RGBA mode.
+     *
+     * @param red   the value to which to clear the R channel of the color buffer.
+     * @param green the value to which to clear the G channel of the color buffer.
+     * @param blue  the value to which to clear the B channel of the color buffer.
+     * @param alpha the value to which to clear the A channel of the color buffer.
+     */
+    public static void clearColor(float red, float green, float blue, float alpha) {
+        if (clearRed != red || clearGreen != green || clearBlue != blue || clearAlpha != alpha) {
+            clearRed = red;
+            clearGreen = green;
+            clearBlue = blue;
+            clearAlpha = alpha;
+            glClearColor(red, green, blue, alpha);
+            issued();
+        } else {
+            elided();
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Texture
     ///////////////////////////////////////////////////////////////////////////
@@ -181,6 +591,17 @@ public final class GLStateManager {
         return textureBinding2D[activeTexture];
     }
 
+    /**
+     * Returns a single value, the name of the texture currently bound to the target {@link GL11C#GL_TEXTURE_2D GL_TEXTURE_2D}
+     * of the given texture unit.
+     *
+     * @param unit the texture unit.
+     * @return a single value, the name of the texture currently bound to the target {@link GL11C#GL_TEXTURE_2D GL_TEXTURE_2D}.
+     */
+    public static int textureBinding2D(int unit) {
+        return textureBinding2D[unit];
+    }
+
     /**
      * Returns a single value indicating the active multitexture unit.
      *
@@ -202,6 +623,9 @@ public final class GLStateManager {
         if (activeTexture != texture) {
             activeTexture = texture;
             glActiveTexture(GL_TEXTURE0 + texture);
+            issued();
+        } else {
+            elided();
         }
     }
 
@@ -219,9 +643,111 @@ public final class GLStateManager {
         if (textureBinding2D[activeTexture] != texture) {
             textureBinding2D[activeTexture] = texture;
             glBindTexture(GL_TEXTURE_2D, texture);
+            Graphics.getInstance().renderStats().textureBind();
+            issued();
+        } else {
+            elided();
+        }
+    }
+
+    private static final int[] TEXTURE_PARAMETER_NAMES = {
+        GL_TEXTURE_MIN_FILTER,
+        GL_TEXTURE_MAG_FILTER,
+        GL_TEXTURE_WRAP_S,
+        GL_TEXTURE_WRAP_T,
+        GL_TEXTURE_BASE_LEVEL,
+        GL_TEXTURE_MAX_LEVEL,
+        GL_TEXTURE_MIN_LOD,
+        GL_TEXTURE_MAX_LOD
+    };
+    private static final float[] DEFAULT_TEXTURE_PARAMETERS = {
+        GL_NEAREST_MIPMAP_LINEAR,
+        GL_LINEAR,
+        GL_REPEAT,
+        GL_REPEAT,
+        0,
+        1000,
+        -1000,
+        1000
+    };
+    // the shadowed parameters of each texture, which start from the initial values
+    private static final Map<Integer, float[]> textureParameters = new HashMap<>();
+
+    /**
+     * Shadows the given parameter of the texture bound to {@link GL11C#GL_TEXTURE_2D GL_TEXTURE_2D}.
+     *
+     * @param pname the parameter name.
+     * @param value the parameter value.
+     * @return {@code true} if the parameter changes or is not shadowed.
+     */
+    private static boolean textureParameterChanged(int pname, float value) {
+        int texture = textureBinding2D[activeTexture];
+        if (texture == 0) return true;
+        for (int i = 0; i < TEXTURE_PARAMETER_NAMES.length; i++) {
+            if (TEXTURE_PARAMETER_NAMES[i] == pname) {
+                float[] parameters = textureParameters.get(texture);
+                if (parameters == null) {
+                    parameters = DEFAULT_TEXTURE_PARAMETERS.clone();
+                    textureParameters.put(texture, parameters);
+                }
+                if (parameters[i] == value) return false;
+                parameters[i] = value;
+                return true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets an integer parameter of the texture bound to {@link GL11C#GL_TEXTURE_2D GL_TEXTURE_2D}.
+     * <p>
+     * The filters, wrap modes, levels and LODs are shadowed per texture.
+     *
+     * @param pname the parameter to set.
+     * @param param the parameter value.
+     */
+    public static void texParameter2D(int pname, int param) {
+        if (textureParameterChanged(pname, param)) {
+            glTexParameteri(GL_TEXTURE_2D, pname, param);
+            issued();
+        } else {
+            elided();
+        }
+    }
+
+    /**
+     * Sets a float parameter of the texture bound to {@link GL11C#GL_TEXTURE_2D GL_TEXTURE_2D}.
+     * <p>
+     * The filters, wrap modes, levels and LODs are shadowed per texture.
+     *
+     * @param pname the parameter to set.
+     * @param param the parameter value.
+     */
+    public static void texParameter2D(int pname, float param) {
+        if (textureParameterChanged(pname, param)) {
+            glTexParameterf(GL_TEXTURE_2D, pname, param);
+            issued();
+        } else {
+            elided();
         }
     }
 
+    /**
+     * Deletes a texture, and resets the bindings of it to 0.
+     *
+     * @param texture the texture to delete.
+     */
+    public static void deleteTexture(int texture) {
+        if (texture == 0) return;
+        for (int i = 0; i < textureBinding2D.length; i++) {
+            if (textureBinding2D[i] == texture) {
+                textureBinding2D[i] = 0;
+            }
+        }
+        textureParameters.remove(texture);
+        glDeleteTextures(texture);
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     // Vertex array
     ///////////////////////////////////////////////////////////////////////////
@@ -245,7 +771,130 @@ public final class GLStateManager {
     public static void bindVertexArray(int array) {
         if (vertexArrayBinding != array) {
             vertexArrayBinding = array;
+            // the element array buffer binding is a part of the vertex array state
+            elementArrayBufferBinding = -1;
             glBindVertexArray(array);
+            issued();
+        } else {
+            elided();
+        }
+    }
+
+    /**
+     * Deletes a vertex array, and resets the binding of it to 0.
+     *
+     * @param array the vertex array to delete.
+     */
+    public static void deleteVertexArray(int array) {
+        if (array == 0) return;
+        if (vertexArrayBinding == array) {
+            vertexArrayBinding = 0;
+            elementArrayBufferBinding = -1;
+        }
+        glDeleteVertexArrays(array);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Buffer
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static int arrayBufferBinding = 0;
+    private static int elementArrayBufferBinding = 0;
+
+    /**
+     * Returns a single value, the name of the buffer object currently bound to the target {@link GL15C#GL_ARRAY_BUFFER GL_ARRAY_BUFFER}. The initial value is 0.
+     *
+     * @return a single value, the name of the buffer object currently bound to the target {@link GL15C#GL_ARRAY_BUFFER GL_ARRAY_BUFFER}.
+     */
+    public static int arrayBufferBinding() {
+        return arrayBufferBinding;
+    }
+
+    /**
+     * Binds a buffer object to the target {@link GL15C#GL_ARRAY_BUFFER GL_ARRAY_BUFFER}.
+     *
+     * @param buffer the name of a buffer object.
+     */
+    public static void bindArrayBuffer(int buffer) {
+        if (arrayBufferBinding != buffer) {
+            arrayBufferBinding = buffer;
+            glBindBuffer(GL_ARRAY_BUFFER, buffer);
+            issued();
+        } else {
+            elided();
+        }
+    }
+
+    /**
+     * Returns a single value, the name of the buffer object currently bound to the target
+     * {@link GL15C#GL_ELEMENT_ARRAY_BUFFER GL_ELEMENT_ARRAY_BUFFER} of the current vertex array.
+     *
+     * @return the name of the buffer object, or -1 if unknown since the vertex array binding changed.
+     */
+    public static int elementArrayBufferBinding() {
+        return elementArrayBufferBinding;
+    }
+
+    /**
+     * Binds a buffer object to the target {@link GL15C#GL_ELEMENT_ARRAY_BUFFER GL_ELEMENT_ARRAY_BUFFER}
+     * of the current vertex array.
+     *
+     * @param buffer the name of a buffer object.
+     */
+    public static void bindElementArrayBuffer(int buffer) {
+        if (elementArrayBufferBinding != buffer) {
+            elementArrayBufferBinding = buffer;
+            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, buffer);
+            issued();
+        } else {
+            elided();
+        }
+    }
+
+    /**
+     * Deletes a buffer object, and resets the bindings of it to 0.
+     *
+     * @param buffer the buffer object to delete.
+     */
+    public static void deleteBuffer(int buffer) {
+        if (buffer == 0) return;
+        if (arrayBufferBinding == buffer) {
+            arrayBufferBinding = 0;
+        }
+        if (elementArrayBufferBinding == buffer) {
+            elementArrayBufferBinding = 0;
+        }
+        glDeleteBuffers(buffer);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Framebuffer
+    ///////////////////////////////////////////////////////////////////////////
+
+    private static int framebufferBinding = 0;
+
+    /**
+     * Returns a single value, the name of the framebuffer object currently bound to the target
+     * {@link GL30C#GL_FRAMEBUFFER GL_FRAMEBUFFER}. The initial value is 0, indicating the default framebuffer.
+     *
+     * @return a single value, the name of the framebuffer object currently bound to the target {@link GL30C#GL_FRAMEBUFFER GL_FRAMEBUFFER}.
+     */
+    public static int framebufferBinding() {
+        return framebufferBinding;
+    }
+
+    /**
+     * Binds a framebuffer object to both the read and draw framebuffer targets.
+     *
+     * @param framebuffer the name of the framebuffer object to bind.
+     */
+    public static void bindFramebuffer(int framebuffer) {
+        if (framebufferBinding != framebuffer) {
+            framebufferBinding = framebuffer;
+            glBindFramebuffer(GL_FRAMEBUFFER, framebuffer);
+            issued();
+        } else {
+            elided();
         }
     }
 
@@ -273,6 +922,9 @@ public final class GLStateManager {
         if (currentProgram != program) {
             currentProgram = program;
             glUseProgram(program);
+            issued();
+        } else {
+            elided();
         }
     }
 }
@@ -19,9 +19,17 @@
 package union.xenfork.fe2d.graphics;
 
 import org.jetbrains.annotations.ApiStatus;
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
 
 /**
  * The graphics mode.
+ * <p>
+ * The graphics holds the {@linkplain UniformBlock#createFrameBlock() frame block}, which carries the projection and
+ * view matrices of the application camera to every program declaring {@value UniformBlock#FRAME_BLOCK}.
+ * The block is {@linkplain #uploadFrameBlock() uploaded} once per frame by the application, and only when the
+ * matrices change. The batches keep their own projection matrices out of the block; see
+ * {@link ShaderProgram#setMatrices(Matrix4fc, Matrix4fc)}.
  *
  * @author squid233
  * @since 0.1.0
@@ -31,6 +39,15 @@ public final class Graphics {
     private int width, height;
     private double deltaFrameTime;
     private double framesPerSecond;
+    private final RenderStats renderStats = new RenderStats();
+    private final Matrix4f projectionMatrix = new Matrix4f();
+    private final Matrix4f viewMatrix = new Matrix4f();
+    private final Matrix4f projectionViewMatrix = new Matrix4f();
+    private final Matrix4f uploadedProjectionViewMatrix = new Matrix4f();
+    private final Matrix4f uploadedInverseMatrix = new Matrix4f();
+    private UniformBlock frameBlock;
+    private int projectionMember, viewMember, projectionViewMember;
+    private boolean frameDirty = true;
 
     private Graphics() {
     }
@@ -102,6 +119,133 @@ public final class Graphics {
         return framesPerSecond;
     }
 
+    /**
+     * Gets the per-frame rendering statistics.
+     *
+     * @return the rendering statistics.
+     */
+    public RenderStats renderStats() {
+        return renderStats;
+    }
+
+    /**
+     * Gets the frame block. The block is created at the first call, which requires the GL context.
+     *
+     * @return the frame block.
+     */
+    public UniformBlock frameBlock() {
+        if (frameBlock == null) {
+            frameBlock = UniformBlock.createFrameBlock();
+            projectionMember = frameBlock.member(ShaderProgram.U_PROJECTION_MATRIX);
+            viewMember = frameBlock.member(ShaderProgram.U_VIEW_MATRIX);
+            projectionViewMember = frameBlock.member(ShaderProgram.U_PROJECTION_VIEW_MATRIX);
+            frameDirty = true;
+        }
+        return frameBlock;
+    }
+
+    /**
+     * Sets the projection matrix of the frame block. Does nothing if it is not changed.
+     *
+     * @param projectionMatrix the projection matrix.
+     */
+    public void setProjectionMatrix(Matrix4fc projectionMatrix) {
+        if (!this.projectionMatrix.equals(projectionMatrix)) {
+            this.projectionMatrix.set(projectionMatrix);
+            frameDirty = true;
+        }
+    }
+
+    /**
+     * Sets the view matrix of the frame block. Does nothing if it is not changed.
+     *
+     * @param viewMatrix the view matrix.
+     */
+    public void setViewMatrix(Matrix4fc viewMatrix) {
+        if (!this.viewMatrix.equals(viewMatrix)) {
+            this.viewMatrix.set(viewMatrix);
+            frameDirty = true;
+        }
+    }
+
+    /**
+     * Gets the projection matrix of the frame block.
+     *
+     * @return the projection matrix.
+     */
+    public Matrix4fc projectionMatrix() {
+        return projectionMatrix;
+    }
+
+    /**
+     * Gets the view matrix of the frame block.
+     *
+     * @return the view matrix.
+     */
+    public Matrix4fc viewMatrix() {
+        return viewMatrix;
+    }
+
+    /**
+     * Gets the product of the projection matrix and the view matrix.
+     *
+     * @return the projection view matrix.
+     */
+    public Matrix4fc projectionViewMatrix() {
+        if (frameDirty) {
+            projectionMatrix.mul(viewMatrix, projectionViewMatrix);
+        }
+        return projectionViewMatrix;
+    }
+
+    /**
+     * Uploads the frame block if the matrices are changed since the last upload.
+     * This is called by the application once before rendering each frame, so the matrices set during a frame
+     * take effect in the next frame.
+     */
+    public void uploadFrameBlock() {
+        UniformBlock block = frameBlock();
+        if (frameDirty) {
+            block.set(projectionMember, projectionMatrix)
+                .set(viewMember, viewMatrix)
+                .set(projectionViewMember, projectionViewMatrix());
+            uploadedProjectionViewMatrix.set(projectionViewMatrix);
+            uploadedProjectionViewMatrix.invert(uploadedInverseMatrix);
+            frameDirty = false;
+        }
+        block.upload();
+    }
+
+    /**
+     * Gets the projection view matrix which is last uploaded, that is, the one the programs read in this frame.
+     *
+     * @return the uploaded projection view matrix.
+     */
+    public Matrix4fc uploadedProjectionViewMatrix() {
+        return uploadedProjectionViewMatrix;
+    }
+
+    /**
+     * Gets the inverse of the {@linkplain #uploadedProjectionViewMatrix() uploaded projection view matrix}.
+     *
+     * @return the inverse matrix.
+     */
+    @ApiStatus.Internal
+    public Matrix4fc uploadedInverseMatrix() {
+        return uploadedInverseMatrix;
+    }
+
+    /**
+     * Disposes the frame block.
+     */
+    @ApiStatus.Internal
+    public void disposeFrameBlock() {
+        if (frameBlock != null) {
+            frameBlock.dispose();
+            frameBlock = null;
+        }
+    }
+
     /**
      * Gets the instance.
      *
@@ -0,0 +1,427 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics;
+
+import org.jetbrains.annotations.ApiStatus;
+
+import java.util.Arrays;
+
+/**
+ * The per-frame rendering statistics.
+ * <p>
+ * The counters are collected during a frame, and stored into a rolling history when the frame
+ * {@linkplain #endFrame() ends}. The accessors without a history prefix return the values of the last ended frame.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class RenderStats {
+    /**
+     * The default count of frames in the history.
+     */
+    public static final int DEFAULT_HISTORY_SIZE = 120;
+    private static final Counter[] COUNTERS = Counter.values();
+    private final long[] current = new long[COUNTERS.length];
+    private final long[] last = new long[COUNTERS.length];
+    private long[] history;
+    private long[] sortScratch;
+    private int historySize;
+    private int historyPos = 0;
+    private int historyCount = 0;
+
+    /**
+     * Creates the render stats with the given history size.
+     *
+     * @param historySize the count of frames in the history. defaults to {@value #DEFAULT_HISTORY_SIZE}.
+     */
+    public RenderStats(int historySize) {
+        setHistorySize(historySize);
+    }
+
+    /**
+     * Creates the render stats with the default history size.
+     */
+    public RenderStats() {
+        this(DEFAULT_HISTORY_SIZE);
+    }
+
+    /**
+     * The counters.
+     *
+     * @author squid233
+     * @since 0.1.0
+     */
+    public enum Counter {
+        /**
+         * The count of draw calls.
+         */
+        DRAW_CALLS,
+        /**
+         * The count of indices submitted by the draw calls.
+         */
+        INDICES,
+        /**
+         * The count of bytes uploaded to buffers and textures.
+         */
+        BYTES_UPLOADED,
+        /**
+         * The count of texture bindings issued to GL.
+         */
+        TEXTURE_BINDS,
+        /**
+         * The count of uniforms uploaded.
+         */
+        UNIFORM_UPLOADS,
+        /**
+         * The count of state calls issued to GL by {@link GLStateManager}.
+         */
+        STATE_CALLS_ISSUED,
+        /**
+         * The count of state calls elided by {@link GLStateManager}.
+         */
+        STATE_CALLS_ELIDED,
+        /**
+         * The count of flushes by {@link FlushReason#TEXTURE_SWITCH}.
+         */
+        FLUSH_TEXTURE_SWITCH,
+        /**
+         * The count of flushes by {@link FlushReason#BUFFER_FULL}.
+         */
+        FLUSH_BUFFER_FULL,
+        /**
+         * The count of flushes by {@link FlushReason#BLEND_CHANGE}.
+         */
+        FLUSH_BLEND_CHANGE,
+        /**
+         * The count of flushes by {@link FlushReason#SHADER_CHANGE}.
+         */
+        FLUSH_SHADER_CHANGE,
+        /**
+         * The count of flushes by {@link FlushReason#MATRIX_CHANGE}.
+         */
+        FLUSH_MATRIX_CHANGE,
+        /**
+         * The count of flushes by {@link FlushReason#EXPLICIT}.
+         */
+        FLUSH_EXPLICIT,
+    }
+
+    /**
+     * The reasons of flushing a batch.
+     *
+     * @author squid233
+     * @since 0.1.0
+     */
+    public enum FlushReason {
+        /**
+         * Flushed since a sprite with another texture is drawn.
+         */
+        TEXTURE_SWITCH(Counter.FLUSH_TEXTURE_SWITCH),
+        /**
+         * Flushed since the vertex buffer is full.
+         */
+        BUFFER_FULL(Counter.FLUSH_BUFFER_FULL),
+        /**
+         * Flushed since the blending state is changed.
+         */
+        BLEND_CHANGE(Counter.FLUSH_BLEND_CHANGE),
+        /**
+         * Flushed since the shader is changed.
+         */
+        SHADER_CHANGE(Counter.FLUSH_SHADER_CHANGE),
+        /**
+         * Flushed since the projection or model matrix is changed.
+         */
+        MATRIX_CHANGE(Counter.FLUSH_MATRIX_CHANGE),
+        /**
+         * Flushed by {@code flush} or {@code end}.
+         */
+        EXPLICIT(Counter.FLUSH_EXPLICIT),
+        ;
+
+        private final Counter counter;
+
+        FlushReason(Counter counter) {
+            this.counter = counter;
+        }
+
+        /**
+         * Gets the counter of this reason.
+         *
+         * @return the counter.
+         */
+        public Counter counter() {
+            return counter;
+        }
+    }
+
+    /**
+     * Sets the count of frames in the history. The history is cleared.
+     *
+     * @param historySize the count of frames in the history.
+     */
+    public void setHistorySize(int historySize) {
+        if (historySize <= 0) throw new IllegalArgumentException("History size must be positive! got: " + historySize);
+        this.historySize = historySize;
+        history = new long[historySize * COUNTERS.length];
+        sortScratch = new long[historySize];
+        historyPos = 0;
+        historyCount = 0;
+    }
+
+    /**
+     * Records a draw call.
+     *
+     * @param indexCount the count of indices submitted.
+     */
+    @ApiStatus.Internal
+    public void drawCall(long indexCount) {
+        current[Counter.DRAW_CALLS.ordinal()]++;
+        current[Counter.INDICES.ordinal()] += indexCount;
+    }
+
+    /**
+     * Records uploaded bytes.
+     *
+     * @param bytes the count of bytes.
+     */
+    @ApiStatus.Internal
+    public void upload(long bytes) {
+        current[Counter.BYTES_UPLOADED.ordinal()] += bytes;
+    }
+
+    /**
+     * Records a texture binding which is issued to GL.
+     */
+    @ApiStatus.Internal
+    public void textureBind() {
+        current[Counter.TEXTURE_BINDS.ordinal()]++;
+    }
+
+    /**
+     * Records a uniform uploading.
+     */
+    @ApiStatus.Internal
+    public void uniformUpload() {
+        current[Counter.UNIFORM_UPLOADS.ordinal()]++;
+    }
+
+    /**
+     * Records a GL state call which is issued by {@link GLStateManager}.
+     */
+    @ApiStatus.Internal
+    public void stateCallIssued() {
+        current[Counter.STATE_CALLS_ISSUED.ordinal()]++;
+    }
+
+    /**
+     * Records a GL state call which is elided by {@link GLStateManager} since the state is unchanged.
+     */
+    @ApiStatus.Internal
+    public void stateCallElided() {
+        current[Counter.STATE_CALLS_ELIDED.ordinal()]++;
+    }
+
+    /**
+     * Records a flushing of a batch.
+     *
+     * @param reason the reason.
+     */
+    @ApiStatus.Internal
+    public void flush(FlushReason reason) {
+        current[reason.counter().ordinal()]++;
+    }
+
+    /**
+     * Ends the current frame, and stores the counters into the history.
+     */
+    @ApiStatus.Internal
+    public void endFrame() {
+        System.arraycopy(current, 0, last, 0, current.length);
+        System.arraycopy(current, 0, history, historyPos * COUNTERS.length, current.length);
+        Arrays.fill(current, 0);
+        historyPos = (historyPos + 1) % historySize;
+        if (historyCount < historySize) {
+            historyCount++;
+        }
+    }
+
+    /**
+     * Gets the value of the given counter of the last frame.
+     *
+     * @param counter the counter.
+     * @return the value.
+     */
+    public long get(Counter counter) {
+        return last[counter.ordinal()];
+    }
+
+    /**
+     * Gets the count of flushing with the given reason of the last frame.
+     *
+     * @param reason the reason.
+     * @return the count.
+     */
+    public long flushes(FlushReason reason) {
+        return get(reason.counter());
+    }
+
+    /**
+     * Gets the count of draw calls of the last frame.
+     *
+     * @return the count of draw calls.
+     */
+    public long drawCalls() {
+        return get(Counter.DRAW_CALLS);
+    }
+
+    /**
+     * Gets the count of indices submitted of the last frame.
+     *
+     * @return the count of indices.
+     */
+    public long indices() {
+        return get(Counter.INDICES);
+    }
+
+    /**
+     * Gets the count of bytes uploaded of the last frame.
+     *
+     * @return the count of bytes.
+     */
+    public long bytesUploaded() {
+        return get(Counter.BYTES_UPLOADED);
+    }
+
+    /**
+     * Gets the count of texture bindings of the last frame.
+     *
+     * @return the count of texture bindings.
+     */
+    public long textureBinds() {
+        return get(Counter.TEXTURE_BINDS);
+    }
+
+    /**
+     * Gets the count of uniform uploadings of the last frame.
+     *
+     * @return the count of uniform uploadings.
+     */
+    public long uniformUploads() {
+        return get(Counter.UNIFORM_UPLOADS);
+    }
+
+    /**
+     * Gets the count of issued GL state calls of the last frame.
+     *
+     * @return the count of issued GL state calls.
+     */
+    public long stateCallsIssued() {
+        return get(Counter.STATE_CALLS_ISSUED);
+    }
+
+    /**
+     * Gets the count of elided GL state calls of the last frame.
+     *
+     * @return the count of elided GL state calls.
+     */
+    public long stateCallsElided() {
+        return get(Counter.STATE_CALLS_ELIDED);
+    }
+
+    /**
+     * Gets the count of frames in the history.
+     *
+     * @return the count of frames.
+     */
+    public int historyCount() {
+        return historyCount;
+    }
+
+    /**
+     * Gets the minimum value of the given counter in the history.
+     *
+     * @param counter the counter.
+     * @return the minimum value, or {@code 0} if the history is empty.
+     */
+    public long historyMin(Counter counter) {
+        if (historyCount == 0) return 0;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < historyCount; i++) {
+            min = Math.min(min, history[i * COUNTERS.length + counter.ordinal()]);
+        }
+        return min;
+    }
+
+    /**
+     * Gets the maximum value of the given counter in the history.
+     *
+     * @param counter the counter.
+     * @return the maximum value, or {@code 0} if the history is empty.
+     */
+    public long historyMax(Counter counter) {
+        long max = 0;
+        for (int i = 0; i < historyCount; i++) {
+            max = Math.max(max, history[i * COUNTERS.length + counter.ordinal()]);
+        }
+        return max;
+    }
+
+    /**
+     * Gets the average value of the given counter in the history.
+     *
+     * @param counter the counter.
+     * @return the average value, or {@code 0} if the history is empty.
+     */
+    public double historyAverage(Counter counter) {
+        if (historyCount == 0) return 0;
+        long sum = 0;
+        for (int i = 0; i < historyCount; i++) {
+            sum += history[i * COUNTERS.length + counter.ordinal()];
+        }
+        return (double) sum / historyCount;
+    }
+
+    /**
+     * Gets the percentile value of the given counter in the history, with the nearest-rank method.
+     *
+     * @param counter    the counter.
+     * @param percentile the percentile, between 0 and 100.
+     * @return the percentile value, or {@code 0} if the history is empty.
+     */
+    public long historyPercentile(Counter counter, double percentile) {
+        if (historyCount == 0) return 0;
+        for (int i = 0; i < historyCount; i++) {
+            sortScratch[i] = history[i * COUNTERS.length + counter.ordinal()];
+        }
+        Arrays.sort(sortScratch, 0, historyCount);
+        int rank = (int) Math.ceil(percentile / 100.0 * historyCount);
+        return sortScratch[Math.max(0, Math.min(historyCount - 1, rank - 1))];
+    }
+
+    /**
+     * Gets the 99th percentile value of the given counter in the history.
+     *
+     * @param counter the counter.
+     * @return the 99th percentile value, or {@code 0} if the history is empty.
+     */
+    public long historyP99(Counter counter) {
+        return historyPercentile(counter, 99.0);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics;
+
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryStack;
+import union.xenfork.fe2d.Fe2D;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL41C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The on-disk cache of linked program binaries, which is disabled by default.
+ * <p>
+ * When {@linkplain #enable(Path) enabled}, {@link ShaderProgram} tries to load the program binary with a key
+ * hashed from the sources, the attribute bindings and the vendor, renderer and version of the driver before
+ * compiling, and stores the binary after linking. A binary that is rejected by the driver is deleted, and the program
+ * is compiled again.
+ * <p>
+ * Requires OpenGL 4.1 or {@code ARB_get_program_binary}, and at least one program binary format.
+ * The cache is not enabled otherwise.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class ShaderCache {
+    private static final String EXTENSION = ".bin";
+    private static @Nullable Path directory;
+    private static String driver;
+
+    private ShaderCache() {
+        //no instance
+    }
+
+    /**
+     * Returns {@code true} if the current context supports program binaries.
+     *
+     * @return {@code true} if the current context supports program binaries.
+     */
+    public static boolean isSupported() {
+        GLCapabilities caps = GL.getCapabilities();
+        return (caps.OpenGL41 || caps.GL_ARB_get_program_binary) &&
+               glGetInteger(GL_NUM_PROGRAM_BINARY_FORMATS) > 0;
+    }
+
+    /**
+     * Enables the cache with the given directory, which is created if not exists.
+     *
+     * @param directory the directory of the binaries.
+     * @return {@code true} if the cache is enabled; {@code false} if program binaries are not supported or
+     * the directory can't be created.
+     */
+    public static boolean enable(Path directory) {
+        if (!isSupported()) {
+            Fe2D.logger.warn("Program binaries are not supported; the shader cache is disabled");
+            return false;
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            Fe2D.logger.warn("Failed to create the shader cache directory " + directory, e);
+            return false;
+        }
+        ShaderCache.directory = directory;
+        driver = glGetString(GL_VENDOR) + '\n' + glGetString(GL_RENDERER) + '\n' + glGetString(GL_VERSION);
+        return true;
+    }
+
+    /**
+     * Disables the cache. The stored binaries are kept.
+     */
+    public static void disable() {
+        directory = null;
+    }
+
+    /**
+     * Returns {@code true} if the cache is enabled.
+     *
+     * @return {@code true} if the cache is enabled.
+     */
+    public static boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Computes the key of a program.
+     *
+     * @param vertexShader   the source of vertex shader.
+     * @param fragmentShader the source of fragment shader.
+     * @param attributes     the attribute bindings.
+     * @return the key.
+     */
+    static String key(String vertexShader, String fragmentShader, Map<String, Integer> attributes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(driver.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(vertexShader.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(fragmentShader.getBytes(StandardCharsets.UTF_8));
+            for (var e : attributes.entrySet()) {
+                digest.update((byte) 0);
+                digest.update((e.getKey() + '=' + e.getValue()).getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Loads the program with the given key.
+     *
+     * @param key the key.
+     * @return the linked program, or {@code 0} if not cached or the binary is rejected.
+     */
+    static int load(String key) {
+        Path dir = directory;
+        if (dir == null) return 0;
+        Path path = dir.resolve(key + EXTENSION);
+        if (!Files.isReadable(path)) return 0;
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(path);
+        } catch (IOException e) {
+            Fe2D.logger.warn("Failed to read the program binary " + path, e);
+            return 0;
+        }
+        if (bytes.length <= Integer.BYTES) {
+            deleteQuietly(path);
+            return 0;
+        }
+        ByteBuffer binary = memAlloc(bytes.length - Integer.BYTES);
+        try {
+            binary.put(0, bytes, Integer.BYTES, binary.capacity());
+            int format = ByteBuffer.wrap(bytes).getInt(0);
+            int program = glCreateProgram();
+            glProgramBinary(program, format, binary);
+            if (glGetProgrami(program, GL_LINK_STATUS) == GL_FALSE) {
+                // the driver is updated or the binary is broken
+                glDeleteProgram(program);
+                deleteQuietly(path);
+                return 0;
+            }
+            return program;
+        } finally {
+            memFree(binary);
+        }
+    }
+
+    /**
+     * Stores the binary of the given program, which is linked with {@code GL_PROGRAM_BINARY_RETRIEVABLE_HINT}.
+     *
+     * @param key     the key.
+     * @param program the program.
+     */
+    static void store(String key, int program) {
+        Path dir = directory;
+        if (dir == null) return;
+        int length = glGetProgrami(program, GL_PROGRAM_BINARY_LENGTH);
+        if (length <= 0) return;
+        byte[] bytes = new byte[Integer.BYTES + length];
+        ByteBuffer binary = memAlloc(length);
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer pLength = stack.mallocInt(1);
+            IntBuffer pFormat = stack.mallocInt(1);
+            glGetProgramBinary(program, pLength, pFormat, binary);
+            ByteBuffer.wrap(bytes).putInt(0, pFormat.get(0));
+            binary.get(0, bytes, Integer.BYTES, pLength.get(0));
+        } finally {
+            memFree(binary);
+        }
+        Path path = dir.resolve(key + EXTENSION);
+        Path temp = null;
+        try {
+            // writes to a temporary file first, so that a partial file is never read
+            temp = Files.createTempFile(dir, key, ".tmp");
+            Files.write(temp, bytes);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Fe2D.logger.warn("Failed to write the program binary " + path, e);
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            Fe2D.logger.warn("Failed to delete the program binary " + path, e);
+        }
+    }
+}
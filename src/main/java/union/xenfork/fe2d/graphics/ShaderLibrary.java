@@ -0,0 +1,424 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics;
+
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.opengl.ARBParallelShaderCompile;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL41C;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.opengl.KHRParallelShaderCompile;
+import union.xenfork.fe2d.Disposable;
+import union.xenfork.fe2d.graphics.vertex.VertexLayout;
+
+import java.util.*;
+
+import static org.lwjgl.opengl.GL20C.*;
+
+/**
+ * The shader library that creates variants of a shader program from a source template with {@code #define} switches.
+ * <p>
+ * Each switch is assigned a bit in the order given to the constructor, and a variant is keyed by the bitmask of
+ * the defined switches. The {@link Variant} of a key is interned, so it can be kept and checked without looking up
+ * the key again. The source of a variant is the template with a {@code #define} line for each defined switch
+ * inserted after the {@code #version} line.
+ * <p>
+ * Variants are compiled on demand. When {@code KHR_parallel_shader_compile} or {@code ARB_parallel_shader_compile}
+ * is available, a {@linkplain Variant#request() requested} variant is compiled in the background, and
+ * {@link Variant#poll()} returns {@code null} until it is linked; otherwise the variant is compiled when it is
+ * first polled. The {@linkplain ShaderCache shader cache} is used if enabled.
+ * <p>
+ * Creating a library and looking up its variants don't touch the GL context; the context is only required
+ * when a variant is requested.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class ShaderLibrary implements Disposable {
+    /**
+     * The max count of switches.
+     */
+    public static final int MAX_DEFINES = Integer.SIZE - 1;
+    private static boolean compilerThreadsSet = false;
+    private final String vertexTemplate;
+    private final String fragmentTemplate;
+    private final Map<String, Integer> attributeMap = new LinkedHashMap<>();
+    private final String[] defines;
+    private final Map<String, Integer> defineBits = new HashMap<>();
+    private final Map<Integer, Variant> variants = new HashMap<>();
+    private boolean parallelChecked = false;
+    private boolean parallel = false;
+    private boolean disposed = false;
+
+    /**
+     * Creates a shader library with the given templates.
+     *
+     * @param vertexTemplate   the template of vertex shader.
+     * @param fragmentTemplate the template of fragment shader.
+     * @param attributeMap     the attribute locations to be bound.
+     * @param defines          the switches, which are assigned bits in order.
+     * @throws IllegalArgumentException if there are more than {@value MAX_DEFINES} switches, or a switch is duplicated.
+     */
+    public ShaderLibrary(String vertexTemplate,
+                         String fragmentTemplate,
+                         Map<String, Integer> attributeMap,
+                         String... defines) {
+        if (defines.length > MAX_DEFINES) {
+            throw new IllegalArgumentException("Too many defines! count: " + defines.length + ", max: " + MAX_DEFINES);
+        }
+        this.vertexTemplate = vertexTemplate;
+        this.fragmentTemplate = fragmentTemplate;
+        this.attributeMap.putAll(attributeMap);
+        this.defines = defines.clone();
+        for (int i = 0; i < defines.length; i++) {
+            if (defineBits.putIfAbsent(defines[i], 1 << i) != null) {
+                throw new IllegalArgumentException("Duplicated define " + defines[i]);
+            }
+        }
+    }
+
+    /**
+     * Creates a shader library with the given templates.
+     *
+     * @param vertexTemplate   the template of vertex shader.
+     * @param fragmentTemplate the template of fragment shader.
+     * @param layout           the attribute locations to be bound.
+     * @param defines          the switches, which are assigned bits in order.
+     * @throws IllegalArgumentException if there are more than {@value MAX_DEFINES} switches, or a switch is duplicated.
+     */
+    public ShaderLibrary(String vertexTemplate,
+                         String fragmentTemplate,
+                         VertexLayout layout,
+                         String... defines) {
+        this(vertexTemplate, fragmentTemplate, attributeMap(layout), defines);
+    }
+
+    private static Map<String, Integer> attributeMap(VertexLayout layout) {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        layout.forEachAttribute((attribute, index) -> map.put(attribute.name(), index));
+        return map;
+    }
+
+    /**
+     * Returns {@code true} if the current context supports compiling shaders in the background.
+     *
+     * @return {@code true} if the current context supports compiling shaders in the background.
+     */
+    public static boolean isParallelSupported() {
+        GLCapabilities caps = GL.getCapabilities();
+        return caps.GL_KHR_parallel_shader_compile || caps.GL_ARB_parallel_shader_compile;
+    }
+
+    /**
+     * Checks the parallel compiling support once, and lets the driver choose the count of compiler threads.
+     *
+     * @return {@code true} if the variants are compiled in the background.
+     */
+    private boolean parallel() {
+        if (!parallelChecked) {
+            parallelChecked = true;
+            parallel = isParallelSupported();
+            if (parallel && !compilerThreadsSet) {
+                compilerThreadsSet = true;
+                // 0xFFFFFFFF lets the implementation choose the count of threads
+                if (GL.getCapabilities().GL_KHR_parallel_shader_compile) {
+                    KHRParallelShaderCompile.glMaxShaderCompilerThreadsKHR(0xFFFFFFFF);
+                } else {
+                    ARBParallelShaderCompile.glMaxShaderCompilerThreadsARB(0xFFFFFFFF);
+                }
+            }
+        }
+        return parallel;
+    }
+
+    /**
+     * Gets the bit of the given switch.
+     *
+     * @param define the name of the switch.
+     * @return the bit.
+     * @throws IllegalArgumentException if the switch is not in this library.
+     */
+    public int bit(String define) {
+        Integer bit = defineBits.get(define);
+        if (bit == null) {
+            throw new IllegalArgumentException("Unknown define " + define);
+        }
+        return bit;
+    }
+
+    /**
+     * Gets the bitmask of the given switches.
+     *
+     * @param defines the names of the switches.
+     * @return the bitmask.
+     * @throws IllegalArgumentException if a switch is not in this library.
+     */
+    public int mask(String... defines) {
+        int mask = 0;
+        for (String define : defines) {
+            mask |= bit(define);
+        }
+        return mask;
+    }
+
+    /**
+     * Gets the interned variant with the given bitmask. The variant is not compiled until it is requested.
+     *
+     * @param mask the bitmask of the defined switches.
+     * @return the variant.
+     * @throws IllegalArgumentException if the bitmask has bits that are not assigned.
+     */
+    public Variant variant(int mask) {
+        if ((mask & ~((1 << defines.length) - 1)) != 0) {
+            throw new IllegalArgumentException("Unknown bits in the mask: 0x" + Integer.toHexString(mask));
+        }
+        Variant variant = variants.get(mask);
+        if (variant == null) {
+            variant = new Variant(mask);
+            variants.put(mask, variant);
+        }
+        return variant;
+    }
+
+    /**
+     * Gets the interned variant with the given switches defined.
+     *
+     * @param defines the names of the defined switches.
+     * @return the variant.
+     * @throws IllegalArgumentException if a switch is not in this library.
+     */
+    public Variant variant(String... defines) {
+        return variant(mask(defines));
+    }
+
+    /**
+     * Gets the count of switches.
+     *
+     * @return the count of switches.
+     */
+    public int defineCount() {
+        return defines.length;
+    }
+
+    /**
+     * Gets the name of the switch with the given index.
+     *
+     * @param index the index of the switch, which is the index of its bit.
+     * @return the name of the switch.
+     */
+    public String define(int index) {
+        return defines[index];
+    }
+
+    /**
+     * Inserts the defines after the {@code #version} line of the template.
+     *
+     * @param template the template.
+     * @param defines  the define lines.
+     * @return the source.
+     */
+    static String inject(String template, String defines) {
+        if (defines.isEmpty()) return template;
+        int version = template.indexOf("#version");
+        if (version < 0) {
+            return defines + template;
+        }
+        int eol = template.indexOf('\n', version);
+        if (eol < 0) {
+            return template + '\n' + defines;
+        }
+        return template.substring(0, eol + 1) + defines + template.substring(eol + 1);
+    }
+
+    @Override
+    public void dispose() {
+        if (disposed) return;
+        disposed = true;
+        for (Variant variant : variants.values()) {
+            variant.dispose();
+        }
+        variants.clear();
+    }
+
+    /**
+     * A variant of the shader program with a set of switches defined.
+     *
+     * @author squid233
+     * @since 0.1.0
+     */
+    public final class Variant {
+        private final int mask;
+        private int program = 0;
+        private int vertexShader = 0;
+        private int fragmentShader = 0;
+        private @Nullable String cacheKey;
+        private @Nullable ShaderProgram shaderProgram;
+        private @Nullable String error;
+
+        private Variant(int mask) {
+            this.mask = mask;
+        }
+
+        /**
+         * Gets the bitmask of the defined switches.
+         *
+         * @return the bitmask.
+         */
+        public int mask() {
+            return mask;
+        }
+
+        /**
+         * Returns {@code true} if the given switch is defined in this variant.
+         *
+         * @param define the name of the switch.
+         * @return {@code true} if the switch is defined.
+         */
+        public boolean isDefined(String define) {
+            return (mask & bit(define)) != 0;
+        }
+
+        /**
+         * Starts compiling this variant if not started. The status is not checked, so this method doesn't wait
+         * for the compiler when compiling in the background.
+         */
+        public void request() {
+            if (disposed) {
+                throw new IllegalStateException("The shader library is disposed!");
+            }
+            if (program != 0 || shaderProgram != null || error != null) return;
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < defines.length; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    sb.append("#define ").append(defines[i]).append('\n');
+                }
+            }
+            String defineLines = sb.toString();
+            String vsh = inject(vertexTemplate, defineLines);
+            String fsh = inject(fragmentTemplate, defineLines);
+            if (ShaderCache.isEnabled()) {
+                cacheKey = ShaderCache.key(vsh, fsh, attributeMap);
+                int cached = ShaderCache.load(cacheKey);
+                if (cached != 0) {
+                    shaderProgram = new ShaderProgram(cached, attributeMap);
+                    return;
+                }
+            }
+            parallel();
+            program = glCreateProgram();
+            vertexShader = glCreateShader(GL_VERTEX_SHADER);
+            fragmentShader = glCreateShader(GL_FRAGMENT_SHADER);
+            glShaderSource(vertexShader, vsh);
+            glShaderSource(fragmentShader, fsh);
+            glCompileShader(vertexShader);
+            glCompileShader(fragmentShader);
+            glAttachShader(program, vertexShader);
+            glAttachShader(program, fragmentShader);
+            for (var e : attributeMap.entrySet()) {
+                glBindAttribLocation(program, e.getValue(), e.getKey());
+            }
+            if (cacheKey != null) {
+                GL41C.glProgramParameteri(program, GL41C.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+            }
+            glLinkProgram(program);
+        }
+
+        /**
+         * Returns {@code true} if this variant is linked. This method {@linkplain #request() requests} this variant,
+         * and doesn't wait for the compiler when compiling in the background.
+         *
+         * @return {@code true} if this variant is linked.
+         * @throws IllegalStateException if this variant failed to compile or link.
+         */
+        public boolean isReady() {
+            return poll() != null;
+        }
+
+        /**
+         * Gets the shader program if this variant is linked. This method {@linkplain #request() requests} this variant,
+         * and doesn't wait for the compiler when compiling in the background.
+         *
+         * @return the shader program, or {@code null} if it is still being compiled.
+         * @throws IllegalStateException if this variant failed to compile or link.
+         */
+        public @Nullable ShaderProgram poll() {
+            request();
+            if (shaderProgram == null && error == null &&
+                parallel && glGetProgrami(program, KHRParallelShaderCompile.GL_COMPLETION_STATUS_KHR) == GL_FALSE) {
+                return null;
+            }
+            return program();
+        }
+
+        /**
+         * Gets the shader program, and waits for the compiler if it is still being compiled.
+         *
+         * @return the shader program.
+         * @throws IllegalStateException if this variant failed to compile or link.
+         */
+        public ShaderProgram program() {
+            request();
+            if (shaderProgram == null && error == null) {
+                finish();
+            }
+            if (error != null) {
+                throw new IllegalStateException(error);
+            }
+            return shaderProgram;
+        }
+
+        private void finish() {
+            if (glGetShaderi(vertexShader, GL_COMPILE_STATUS) == GL_FALSE) {
+                error = "Failed to compile the vertex shader! " + glGetShaderInfoLog(vertexShader);
+            } else if (glGetShaderi(fragmentShader, GL_COMPILE_STATUS) == GL_FALSE) {
+                error = "Failed to compile the fragment shader! " + glGetShaderInfoLog(fragmentShader);
+            } else if (glGetProgrami(program, GL_LINK_STATUS) == GL_FALSE) {
+                error = "Failed to link the shader program! " + glGetProgramInfoLog(program);
+            }
+            glDetachShader(program, vertexShader);
+            glDetachShader(program, fragmentShader);
+            glDeleteShader(vertexShader);
+            glDeleteShader(fragmentShader);
+            vertexShader = 0;
+            fragmentShader = 0;
+            if (error != null) {
+                glDeleteProgram(program);
+            } else {
+                if (cacheKey != null) {
+                    ShaderCache.store(cacheKey, program);
+                }
+                shaderProgram = new ShaderProgram(program, attributeMap);
+            }
+            program = 0;
+        }
+
+        private void dispose() {
+            if (program != 0) {
+                glDeleteShader(vertexShader);
+                glDeleteShader(fragmentShader);
+                glDeleteProgram(program);
+                program = 0;
+            }
+            if (shaderProgram != null) {
+                shaderProgram.dispose();
+                shaderProgram = null;
+            }
+        }
+    }
+}
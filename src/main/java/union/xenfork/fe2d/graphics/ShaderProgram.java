@@ -19,6 +19,7 @@
 package union.xenfork.fe2d.graphics;
 
 import org.joml.*;
+import org.lwjgl.opengl.GL41C;
 import union.xenfork.fe2d.Disposable;
 import union.xenfork.fe2d.graphics.vertex.VertexLayout;
 
@@ -41,10 +42,18 @@ import static org.lwjgl.opengl.GL20C.*;
  *     <li>{@value U_VIEW_MODEL_MATRIX}</li>
  *     <li>{@value U_PROJECTION_VIEW_MODEL_MATRIX}</li>
  * </ul>
+ * The builtin shaders read {@value U_PROJECTION_MATRIX}, {@value U_VIEW_MATRIX} and {@value U_PROJECTION_VIEW_MATRIX}
+ * from the {@linkplain UniformBlock#FRAME_BLOCK_SOURCE frame block} instead, which is shared by all programs,
+ * and only keep {@value U_MODEL_MATRIX} per program. See {@link #setMatrices(Matrix4fc, Matrix4fc)}.
+ * <p>
  * These uniforms are passed with arguments:
  * <ul>
  *     <li>{@value U_SAMPLER}: required a texture unit number appended at the end of the uniform name</li>
  * </ul>
+ * <h2 id="Uniform_Handles">Uniform Handles</h2>
+ * A {@link UniformHandle} {@linkplain #uniform(String, ShaderUniform.Type) resolved} once can be set without
+ * looking up the uniform by name. The uniforms that are set are kept in a dirty list, and
+ * {@link #uploadUniforms()} only uploads the uniforms in that list.
  *
  * @author squid233
  * @since 0.1.0
@@ -85,6 +94,14 @@ public final class ShaderProgram implements Disposable {
     private final int id;
     private final Map<String, Integer> attributeIndexMap = new LinkedHashMap<>();
     private final Map<String, ShaderUniform> uniformMap = new HashMap<>();
+    private final Map<String, UniformHandle> handleMap = new HashMap<>();
+    private ShaderUniform[] dirtyUniforms = new ShaderUniform[8];
+    private int dirtyCount = 0;
+    private UniformHandle projectionViewModelMatrix;
+    private UniformHandle modelMatrixHandle;
+    private UniformHandle matricesCombinedHandle;
+    private Matrix4f matricesCombined;
+    private boolean frameBlockBound = false;
     private boolean disposed = false;
 
     private static int compileShader(String typeName, int typeEnum, String source)
@@ -155,11 +172,9 @@ public final class ShaderProgram implements Disposable {
     public ShaderProgram(String vertexShader,
                          String fragmentShader,
                          VertexLayout layout) {
+        layout.forEachAttribute((attribute, index) -> attributeIndexMap.put(attribute.name(), index));
         this.id = init(vertexShader, fragmentShader, id ->
-            layout.forEachAttribute((attribute, index) -> {
-                attributeIndexMap.put(attribute.name(), index);
-                glBindAttribLocation(id, index, attribute.name());
-            }));
+            layout.forEachAttribute((attribute, index) -> glBindAttribLocation(id, index, attribute.name())));
     }
 
     /**
@@ -173,7 +188,29 @@ public final class ShaderProgram implements Disposable {
         this.id = init(vertexShader, fragmentShader, null);
     }
 
+    /**
+     * Creates a shader program with the given linked program, such as a {@link ShaderLibrary} variant.
+     *
+     * @param id           the id of the linked program.
+     * @param attributeMap the bound attribute locations.
+     */
+    ShaderProgram(int id, Map<String, Integer> attributeMap) {
+        this.id = id;
+        attributeIndexMap.putAll(attributeMap);
+        UniformBlock.bindBlocks(id);
+    }
+
     private int init(String vertexShader, String fragmentShader, IntConsumer action) {
+        String cacheKey = null;
+        if (ShaderCache.isEnabled()) {
+            // the bound attributes are collected before init
+            cacheKey = ShaderCache.key(vertexShader, fragmentShader, attributeIndexMap);
+            int cached = ShaderCache.load(cacheKey);
+            if (cached != 0) {
+                UniformBlock.bindBlocks(cached);
+                return cached;
+            }
+        }
         int id = glCreateProgram();
         int vsh, fsh;
         try {
@@ -188,6 +225,9 @@ public final class ShaderProgram implements Disposable {
         if (action != null) {
             action.accept(id);
         }
+        if (cacheKey != null) {
+            GL41C.glProgramParameteri(id, GL41C.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+        }
         glLinkProgram(id);
         if (glGetProgrami(id, GL_LINK_STATUS) == GL_FALSE) {
             try {
@@ -202,6 +242,10 @@ public final class ShaderProgram implements Disposable {
         glDetachShader(id, fsh);
         glDeleteShader(vsh);
         glDeleteShader(fsh);
+        if (cacheKey != null) {
+            ShaderCache.store(cacheKey, id);
+        }
+        UniformBlock.bindBlocks(id);
         return id;
     }
 
@@ -234,9 +278,57 @@ public final class ShaderProgram implements Disposable {
         }
         ShaderUniform uniform = new ShaderUniform(location, type);
         uniformMap.put(name, uniform);
+        // a new uniform is dirty
+        addDirty(uniform);
         return Optional.of(uniform);
     }
 
+    /**
+     * Gets the handle of a uniform with the given name. The handle is created on the first call with the name
+     * and reused later.
+     *
+     * @param name the name of the uniform.
+     * @param type the type of the uniform.
+     * @return the handle, which might be not {@linkplain UniformHandle#isPresent() present}.
+     */
+    public UniformHandle uniform(String name, ShaderUniform.Type type) {
+        UniformHandle handle = handleMap.get(name);
+        if (handle == null) {
+            handle = new UniformHandle(this, name, type, getUniform(name, type).orElse(null));
+            handleMap.put(name, handle);
+        }
+        return handle;
+    }
+
+    private UniformHandle requireUniform(String name, ShaderUniform.Type type) {
+        UniformHandle handle = uniform(name, type);
+        if (!handle.isPresent()) {
+            throw new NoSuchElementException("Uniform " + name + " not found");
+        }
+        return handle;
+    }
+
+    private void addDirty(ShaderUniform uniform) {
+        if (dirtyCount == dirtyUniforms.length) {
+            dirtyUniforms = Arrays.copyOf(dirtyUniforms, dirtyCount * 2);
+        }
+        dirtyUniforms[dirtyCount++] = uniform;
+    }
+
+    /**
+     * Marks the given uniform dirty, and adds it to the dirty list if it is not dirty.
+     *
+     * @param uniform the uniform.
+     * @return the uniform.
+     */
+    ShaderUniform markDirty(ShaderUniform uniform) {
+        if (!uniform.isDirty()) {
+            uniform.markDirty();
+            addDirty(uniform);
+        }
+        return uniform;
+    }
+
     /**
      * Sets the uniform with the given value.
      *
@@ -254,9 +346,7 @@ public final class ShaderProgram implements Disposable {
      * @param value the value.
      */
     public void setUniform(String name, int value) {
-        getUniform(name, ShaderUniform.Type.INT).orElseThrow()
-            .markDirty()
-            .buffer.putInt(0, value);
+        requireUniform(name, ShaderUniform.Type.INT).set(value);
     }
 
     /**
@@ -266,9 +356,7 @@ public final class ShaderProgram implements Disposable {
      * @param value the value.
      */
     public void setUniform(String name, float value) {
-        getUniform(name, ShaderUniform.Type.FLOAT).orElseThrow()
-            .markDirty()
-            .buffer.putFloat(0, value);
+        requireUniform(name, ShaderUniform.Type.FLOAT).set(value);
     }
 
     /**
@@ -279,9 +367,7 @@ public final class ShaderProgram implements Disposable {
      * @param y    the value y.
      */
     public void setUniform(String name, float x, float y) {
-        getUniform(name, ShaderUniform.Type.VEC2).orElseThrow()
-            .markDirty()
-            .buffer.putFloat(0, x).putFloat(4, y);
+        requireUniform(name, ShaderUniform.Type.VEC2).set(x, y);
     }
 
     /**
@@ -293,9 +379,7 @@ public final class ShaderProgram implements Disposable {
      * @param z    the value z.
      */
     public void setUniform(String name, float x, float y, float z) {
-        getUniform(name, ShaderUniform.Type.VEC3).orElseThrow()
-            .markDirty()
-            .buffer.putFloat(0, x).putFloat(4, y).putFloat(8, z);
+        requireUniform(name, ShaderUniform.Type.VEC3).set(x, y, z);
     }
 
     /**
@@ -308,9 +392,7 @@ public final class ShaderProgram implements Disposable {
      * @param w    the value w.
      */
     public void setUniform(String name, float x, float y, float z, float w) {
-        getUniform(name, ShaderUniform.Type.VEC4).orElseThrow()
-            .markDirty()
-            .buffer.putFloat(0, x).putFloat(4, y).putFloat(8, z).putFloat(12, w);
+        requireUniform(name, ShaderUniform.Type.VEC4).set(x, y, z, w);
     }
 
     /**
@@ -350,11 +432,7 @@ public final class ShaderProgram implements Disposable {
      * @param value the value.
      */
     public void setUniform(String name, Matrix2fc value) {
-        value.get(
-            getUniform(name, ShaderUniform.Type.MAT2).orElseThrow()
-                .markDirty()
-                .buffer
-        );
+        requireUniform(name, ShaderUniform.Type.MAT2).set(value);
     }
 
     /**
@@ -364,11 +442,7 @@ public final class ShaderProgram implements Disposable {
      * @param value the value.
      */
     public void setUniform(String name, Matrix3fc value) {
-        value.get(
-            getUniform(name, ShaderUniform.Type.MAT3).orElseThrow()
-                .markDirty()
-                .buffer
-        );
+        requireUniform(name, ShaderUniform.Type.MAT3).set(value);
     }
 
     /**
@@ -378,11 +452,7 @@ public final class ShaderProgram implements Disposable {
      * @param value the value.
      */
     public void setUniform(String name, Matrix4fc value) {
-        value.get(
-            getUniform(name, ShaderUniform.Type.MAT4).orElseThrow()
-                .markDirty()
-                .buffer
-        );
+        requireUniform(name, ShaderUniform.Type.MAT4).set(value);
     }
 
     /**
@@ -436,7 +506,54 @@ public final class ShaderProgram implements Disposable {
      * @param value the value.
      */
     public void setProjectionViewModelMatrix(Matrix4fc value) {
-        setUniform(U_PROJECTION_VIEW_MODEL_MATRIX, value);
+        if (projectionViewModelMatrix == null) {
+            projectionViewModelMatrix = requireUniform(U_PROJECTION_VIEW_MODEL_MATRIX, ShaderUniform.Type.MAT4);
+        }
+        projectionViewModelMatrix.set(value);
+    }
+
+    /**
+     * Sets up the matrices for drawing with this program.
+     * <p>
+     * The builtin shaders compute the position with {@value U_PROJECTION_VIEW_MATRIX} from the
+     * {@linkplain Graphics#frameBlock() frame block}, which is shared and uploaded once per frame, and the
+     * {@value U_MODEL_MATRIX} of this program. If the given projection matrix is the uploaded projection view
+     * matrix, the model matrix is set as is; otherwise the difference is folded into the model uniform, so that
+     * the position is still transformed by the given projection matrix without changing the frame block.
+     * A program that still declares {@value U_PROJECTION_VIEW_MODEL_MATRIX} gets the product of the given matrices.
+     * The uniforms are uploaded by {@link #uploadUniforms()}.
+     *
+     * @param projectionMatrix the projection matrix.
+     * @param modelMatrix      the model matrix.
+     */
+    public void setMatrices(Matrix4fc projectionMatrix, Matrix4fc modelMatrix) {
+        Graphics graphics = Graphics.getInstance();
+        if (!frameBlockBound) {
+            // the program might be linked before the frame block is created
+            graphics.frameBlock().bind(this);
+            frameBlockBound = true;
+            modelMatrixHandle = uniform(U_MODEL_MATRIX, ShaderUniform.Type.MAT4);
+            matricesCombinedHandle = uniform(U_PROJECTION_VIEW_MODEL_MATRIX, ShaderUniform.Type.MAT4);
+        }
+        UniformHandle model = modelMatrixHandle;
+        UniformHandle combined = matricesCombinedHandle;
+        if (model.isPresent()) {
+            if (projectionMatrix.equals(graphics.uploadedProjectionViewMatrix())) {
+                model.set(modelMatrix);
+            } else {
+                model.set(graphics.uploadedInverseMatrix().mul(projectionMatrix, matrices()).mul(modelMatrix));
+            }
+        }
+        if (combined.isPresent()) {
+            combined.set(projectionMatrix.mul(modelMatrix, matrices()));
+        }
+    }
+
+    private Matrix4f matrices() {
+        if (matricesCombined == null) {
+            matricesCombined = new Matrix4f();
+        }
+        return matricesCombined;
     }
 
     /**
@@ -449,14 +566,14 @@ public final class ShaderProgram implements Disposable {
     }
 
     /**
-     * Uploads the uniforms that are set.
+     * Uploads the uniforms that are set since the last uploading.
      */
     public void uploadUniforms() {
-        for (ShaderUniform uniform : uniformMap.values()) {
-            if (uniform != null) {
-                uniform.upload(this);
-            }
+        for (int i = 0; i < dirtyCount; i++) {
+            dirtyUniforms[i].upload(this);
+            dirtyUniforms[i] = null;
         }
+        dirtyCount = 0;
     }
 
     /**
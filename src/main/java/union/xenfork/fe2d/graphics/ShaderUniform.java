@@ -57,6 +57,10 @@ public final class ShaderUniform implements Disposable {
         return this;
     }
 
+    boolean isDirty() {
+        return dirty;
+    }
+
     /**
      * Uploads the uniform.
      *
@@ -67,6 +71,7 @@ public final class ShaderUniform implements Disposable {
             return;
         }
         dirty = false;
+        Graphics.getInstance().renderStats().uniformUpload();
         int currPrg = GLStateManager.currentProgram();
         boolean arb = program != null && GL.getCapabilities().GL_ARB_separate_shader_objects;
         if (!arb && program != null) {
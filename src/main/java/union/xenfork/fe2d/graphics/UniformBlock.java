@@ -0,0 +1,512 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics;
+
+import org.jetbrains.annotations.Nullable;
+import org.joml.Matrix2fc;
+import org.joml.Matrix3fc;
+import org.joml.Matrix4fc;
+import org.lwjgl.opengl.GL;
+import union.xenfork.fe2d.Disposable;
+import union.xenfork.fe2d.graphics.mesh.RingBufferAllocator;
+import union.xenfork.fe2d.graphics.mesh.SyncFences;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static org.lwjgl.opengl.GL32C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The uniform block, which is stored in a uniform buffer object with the std140 layout and shared by all programs.
+ * <p>
+ * The block is {@linkplain #builder(String) built} with its members, and is assigned to a binding point.
+ * The programs created after the block are bound to the binding point automatically if they declare the block;
+ * the other programs can be bound with {@link #bind(ShaderProgram)}.
+ * <p>
+ * The values are written into a copy in the memory, and {@linkplain #upload() uploaded} once per frame into
+ * the next region of a ring of regions, so the GPU doesn't have to finish the previous frame before the next
+ * upload. Sync objects are core since OpenGL 3.2; below that, the buffer is orphaned before each upload instead.
+ * <p>
+ * The {@linkplain #createFrameBlock() frame block} holds the camera matrices, and is declared by
+ * {@link #FRAME_BLOCK_SOURCE}:
+ * <pre>{@code
+ * layout(std140) uniform fe_Frame {
+ *     mat4 fe_ProjMatrix;
+ *     mat4 fe_ViewMatrix;
+ *     mat4 fe_ProjViewMatrix;
+ * };
+ * }</pre>
+ * The engine keeps it in {@link Graphics#frameBlock()}.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class UniformBlock implements Disposable {
+    /**
+     * The name of the frame block.
+     */
+    public static final String FRAME_BLOCK = "fe_Frame";
+    /**
+     * The GLSL declaration of the frame block.
+     */
+    public static final String FRAME_BLOCK_SOURCE = String.format("""
+        layout(std140) uniform %s {
+            mat4 %s;
+            mat4 %s;
+            mat4 %s;
+        };
+        """, FRAME_BLOCK, ShaderProgram.U_PROJECTION_MATRIX, ShaderProgram.U_VIEW_MATRIX, ShaderProgram.U_PROJECTION_VIEW_MATRIX);
+    /**
+     * The default count of regions of the ring.
+     */
+    public static final int DEFAULT_FRAMES = 3;
+    private static final BitSet USED_BINDINGS = new BitSet();
+    private static final List<UniformBlock> BLOCKS = new ArrayList<>();
+    private final String name;
+    private final int binding;
+    private final String[] memberNames;
+    private final ShaderUniform.Type[] memberTypes;
+    private final int[] memberOffsets;
+    private final int size;
+    private final ByteBuffer data;
+    private final int ubo;
+    private final @Nullable RingBufferAllocator ring;
+    private boolean dirty = true;
+    private boolean disposed = false;
+
+    private UniformBlock(String name,
+                         int binding,
+                         String[] memberNames,
+                         ShaderUniform.Type[] memberTypes,
+                         int[] memberOffsets,
+                         int size,
+                         int frames) {
+        this.name = name;
+        this.binding = binding;
+        this.memberNames = memberNames;
+        this.memberTypes = memberTypes;
+        this.memberOffsets = memberOffsets;
+        this.size = size;
+        this.data = memCalloc(size);
+        this.ubo = glGenBuffers();
+        glBindBuffer(GL_UNIFORM_BUFFER, ubo);
+        if (GL.getCapabilities().OpenGL32) {
+            int alignment = Math.max(1, glGetInteger(GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT));
+            long regionSize = (size + alignment - 1L) / alignment * alignment;
+            this.ring = new RingBufferAllocator(regionSize, frames, alignment, new SyncFences());
+            nglBufferData(GL_UNIFORM_BUFFER, ring.capacity(), NULL, GL_STREAM_DRAW);
+        } else {
+            this.ring = null;
+            nglBufferData(GL_UNIFORM_BUFFER, size, NULL, GL_STREAM_DRAW);
+        }
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+        USED_BINDINGS.set(binding);
+        BLOCKS.add(this);
+    }
+
+    /**
+     * Creates a builder of a uniform block.
+     *
+     * @param name the name of the block in the shaders.
+     * @return the builder.
+     */
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * Creates the {@value #FRAME_BLOCK} block with the projection, view and projection view matrices,
+     * at the next free binding point.
+     *
+     * @return the frame block.
+     */
+    public static UniformBlock createFrameBlock() {
+        return builder(FRAME_BLOCK)
+            .add(ShaderProgram.U_PROJECTION_MATRIX, ShaderUniform.Type.MAT4)
+            .add(ShaderProgram.U_VIEW_MATRIX, ShaderUniform.Type.MAT4)
+            .add(ShaderProgram.U_PROJECTION_VIEW_MATRIX, ShaderUniform.Type.MAT4)
+            .build();
+    }
+
+    /**
+     * The builder of a uniform block, which lays out the members with the std140 rules.
+     *
+     * @author squid233
+     * @since 0.1.0
+     */
+    public static final class Builder {
+        private final String name;
+        private final List<String> names = new ArrayList<>();
+        private final List<ShaderUniform.Type> types = new ArrayList<>();
+        private final List<Integer> offsets = new ArrayList<>();
+        private int size = 0;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        private static int std140Alignment(ShaderUniform.Type type) {
+            return switch (type) {
+                case INT, FLOAT -> 4;
+                case VEC2 -> 8;
+                case VEC3, VEC4, MAT2, MAT3, MAT4 -> 16;
+            };
+        }
+
+        private static int std140Size(ShaderUniform.Type type) {
+            return switch (type) {
+                case INT, FLOAT -> 4;
+                case VEC2 -> 8;
+                case VEC3 -> 12;
+                case VEC4 -> 16;
+                // the columns of matrices are padded to vec4
+                case MAT2 -> 32;
+                case MAT3 -> 48;
+                case MAT4 -> 64;
+            };
+        }
+
+        /**
+         * Adds a member.
+         *
+         * @param name the name of the member.
+         * @param type the type of the member.
+         * @return this.
+         */
+        public Builder add(String name, ShaderUniform.Type type) {
+            if (names.contains(name)) throw new IllegalArgumentException("Duplicated member " + name);
+            int alignment = std140Alignment(type);
+            int offset = (size + alignment - 1) / alignment * alignment;
+            names.add(name);
+            types.add(type);
+            offsets.add(offset);
+            size = offset + std140Size(type);
+            return this;
+        }
+
+        /**
+         * Builds the uniform block.
+         *
+         * @param binding the binding point. defaults to the next free binding point.
+         * @param frames  the count of regions of the ring. defaults to {@value #DEFAULT_FRAMES}.
+         * @return the uniform block.
+         * @throws IllegalStateException if the binding point is used.
+         */
+        public UniformBlock build(int binding, int frames) {
+            if (names.isEmpty()) throw new IllegalStateException("Uniform block " + name + " has no member!");
+            if (binding < 0) throw new IllegalArgumentException("Binding point must not be negative! got: " + binding);
+            if (frames <= 0) throw new IllegalArgumentException("Frames must be positive! got: " + frames);
+            int maxBindings = glGetInteger(GL_MAX_UNIFORM_BUFFER_BINDINGS);
+            if (binding >= maxBindings) {
+                throw new IllegalStateException("Binding point " + binding + " exceeds the limit " + maxBindings);
+            }
+            if (USED_BINDINGS.get(binding)) {
+                throw new IllegalStateException("Binding point " + binding + " is used!");
+            }
+            int[] offsetArray = new int[offsets.size()];
+            for (int i = 0; i < offsetArray.length; i++) {
+                offsetArray[i] = offsets.get(i);
+            }
+            return new UniformBlock(name,
+                binding,
+                names.toArray(String[]::new),
+                types.toArray(ShaderUniform.Type[]::new),
+                offsetArray,
+                // the size of a block is rounded up to a multiple of vec4
+                (size + 15) & ~15,
+                frames);
+        }
+
+        /**
+         * Builds the uniform block with the given binding point.
+         *
+         * @param binding the binding point.
+         * @return the uniform block.
+         * @see #build(int, int)
+         */
+        public UniformBlock build(int binding) {
+            return build(binding, DEFAULT_FRAMES);
+        }
+
+        /**
+         * Builds the uniform block at the next free binding point.
+         *
+         * @return the uniform block.
+         * @see #build(int, int)
+         */
+        public UniformBlock build() {
+            return build(USED_BINDINGS.nextClearBit(0));
+        }
+    }
+
+    /**
+     * Binds the blocks to the given program, which are declared in the program.
+     *
+     * @param program the id of the program.
+     */
+    static void bindBlocks(int program) {
+        for (UniformBlock block : BLOCKS) {
+            block.bind(program);
+        }
+    }
+
+    private void bind(int program) {
+        int index = glGetUniformBlockIndex(program, name);
+        if (index != GL_INVALID_INDEX) {
+            glUniformBlockBinding(program, index, binding);
+        }
+    }
+
+    /**
+     * Binds this block to the given program, if the program declares this block.
+     *
+     * @param program the shader program.
+     */
+    public void bind(ShaderProgram program) {
+        checkDisposed();
+        bind(program.id());
+    }
+
+    /**
+     * Gets the index of the member with the given name.
+     *
+     * @param name the name of the member.
+     * @return the index of the member, or -1 if not found.
+     */
+    public int member(String name) {
+        for (int i = 0; i < memberNames.length; i++) {
+            if (memberNames[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    private int offset(int member, ShaderUniform.Type type) {
+        if (memberTypes[member] != type) {
+            throw new IllegalArgumentException("Member " + memberNames[member] + " is " + memberTypes[member] + "; got: " + type);
+        }
+        dirty = true;
+        return memberOffsets[member];
+    }
+
+    /**
+     * Sets the member with the given value.
+     *
+     * @param member the index of the member.
+     * @param value  the value.
+     * @return this.
+     */
+    public UniformBlock set(int member, int value) {
+        data.putInt(offset(member, ShaderUniform.Type.INT), value);
+        return this;
+    }
+
+    /**
+     * Sets the member with the given value.
+     *
+     * @param member the index of the member.
+     * @param value  the value.
+     * @return this.
+     */
+    public UniformBlock set(int member, float value) {
+        data.putFloat(offset(member, ShaderUniform.Type.FLOAT), value);
+        return this;
+    }
+
+    /**
+     * Sets the member with the given value.
+     *
+     * @param member the index of the member.
+     * @param x      the value x.
+     * @param y      the value y.
+     * @return this.
+     */
+    public UniformBlock set(int member, float x, float y) {
+        int offset = offset(member, ShaderUniform.Type.VEC2);
+        data.putFloat(offset, x).putFloat(offset + 4, y);
+        return this;
+    }
+
+    /**
+     * Sets the member with the given value.
+     *
+     * @param member the index of the member.
+     * @param x      the value x.
+     * @param y      the value y.
+     * @param z      the value z.
+     * @return this.
+     */
+    public UniformBlock set(int member, float x, float y, float z) {
+        int offset = offset(member, ShaderUniform.Type.VEC3);
+        data.putFloat(offset, x).putFloat(offset + 4, y).putFloat(offset + 8, z);
+        return this;
+    }
+
+    /**
+     * Sets the member with the given value.
+     *
+     * @param member the index of the member.
+     * @param x      the value x.
+     * @param y      the value y.
+     * @param z      the value z.
+     * @param w      the value w.
+     * @return this.
+     */
+    public UniformBlock set(int member, float x, float y, float z, float w) {
+        int offset = offset(member, ShaderUniform.Type.VEC4);
+        data.putFloat(offset, x).putFloat(offset + 4, y).putFloat(offset + 8, z).putFloat(offset + 12, w);
+        return this;
+    }
+
+    /**
+     * Sets the member with the given value.
+     *
+     * @param member the index of the member.
+     * @param value  the value.
+     * @return this.
+     */
+    public UniformBlock set(int member, Matrix2fc value) {
+        int offset = offset(member, ShaderUniform.Type.MAT2);
+        data.putFloat(offset, value.m00()).putFloat(offset + 4, value.m01())
+            .putFloat(offset + 16, value.m10()).putFloat(offset + 20, value.m11());
+        return this;
+    }
+
+    /**
+     * Sets the member with the given value.
+     *
+     * @param member the index of the member.
+     * @param value  the value.
+     * @return this.
+     */
+    public UniformBlock set(int member, Matrix3fc value) {
+        value.get3x4(offset(member, ShaderUniform.Type.MAT3), data);
+        return this;
+    }
+
+    /**
+     * Sets the member with the given value.
+     *
+     * @param member the index of the member.
+     * @param value  the value.
+     * @return this.
+     */
+    public UniformBlock set(int member, Matrix4fc value) {
+        value.get(offset(member, ShaderUniform.Type.MAT4), data);
+        return this;
+    }
+
+    /**
+     * Uploads the values if any is set, and binds the uploaded range to the binding point.
+     * This should be called once per frame, before drawing with the programs that read this block.
+     */
+    public void upload() {
+        checkDisposed();
+        if (!dirty) return;
+        dirty = false;
+        Graphics.getInstance().renderStats().upload(size);
+        glBindBuffer(GL_UNIFORM_BUFFER, ubo);
+        long offset;
+        if (ring != null) {
+            offset = ring.allocate(size);
+            long address = nglMapBufferRange(GL_UNIFORM_BUFFER, offset, size,
+                GL_MAP_WRITE_BIT | GL_MAP_INVALIDATE_RANGE_BIT | GL_MAP_UNSYNCHRONIZED_BIT);
+            memCopy(memAddress(data), address, size);
+            glUnmapBuffer(GL_UNIFORM_BUFFER);
+        } else {
+            offset = 0;
+            nglBufferData(GL_UNIFORM_BUFFER, size, NULL, GL_STREAM_DRAW);
+            nglBufferSubData(GL_UNIFORM_BUFFER, 0, size, memAddress(data));
+        }
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+        glBindBufferRange(GL_UNIFORM_BUFFER, binding, ubo, offset, size);
+    }
+
+    private void checkDisposed() {
+        if (disposed) throw new IllegalStateException("The uniform block is disposed!");
+    }
+
+    /**
+     * Gets the name of this block.
+     *
+     * @return the name.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Gets the binding point.
+     *
+     * @return the binding point.
+     */
+    public int binding() {
+        return binding;
+    }
+
+    /**
+     * Gets the size of this block in bytes.
+     *
+     * @return the size.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the offset of the given member in bytes.
+     *
+     * @param member the index of the member.
+     * @return the offset.
+     */
+    public int memberOffset(int member) {
+        return memberOffsets[member];
+    }
+
+    /**
+     * Gets the count of members.
+     *
+     * @return the count of members.
+     */
+    public int memberCount() {
+        return memberNames.length;
+    }
+
+    /**
+     * Gets the uniform buffer object.
+     *
+     * @return the uniform buffer object.
+     */
+    public int id() {
+        return ubo;
+    }
+
+    @Override
+    public void dispose() {
+        if (disposed) return;
+        disposed = true;
+        BLOCKS.remove(this);
+        USED_BINDINGS.clear(binding);
+        if (ring != null) {
+            ring.dispose();
+        }
+        memFree(data);
+        glDeleteBuffers(ubo);
+    }
+}
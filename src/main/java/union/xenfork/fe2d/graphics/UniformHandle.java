@@ -0,0 +1,241 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics;
+
+import org.jetbrains.annotations.Nullable;
+import org.joml.*;
+
+import static org.lwjgl.opengl.GL11C.*;
+
+/**
+ * The handle of a uniform resolved once from a {@link ShaderProgram}.
+ * <p>
+ * The {@code set} methods don't look up the uniform or allocate. The scalar and vector values are compared with
+ * the current value, and the uniform is only marked dirty when the value changes. The dirty uniforms are uploaded
+ * by the next {@link ShaderProgram#uploadUniforms()}.
+ * <p>
+ * If the uniform is not {@linkplain #isPresent() present} in the program, such as being optimized out,
+ * the {@code set} methods do nothing.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class UniformHandle {
+    private final ShaderProgram program;
+    private final String name;
+    private final ShaderUniform.Type type;
+    private final @Nullable ShaderUniform uniform;
+
+    UniformHandle(ShaderProgram program, String name, ShaderUniform.Type type, @Nullable ShaderUniform uniform) {
+        this.program = program;
+        this.name = name;
+        this.type = type;
+        this.uniform = uniform;
+    }
+
+    /**
+     * Sets the uniform with the given value.
+     *
+     * @param value the value.
+     * @return this.
+     */
+    public UniformHandle set(boolean value) {
+        return set(value ? GL_TRUE : GL_FALSE);
+    }
+
+    /**
+     * Sets the uniform with the given value.
+     *
+     * @param value the value.
+     * @return this.
+     */
+    public UniformHandle set(int value) {
+        if (uniform != null && uniform.buffer.getInt(0) != value) {
+            program.markDirty(uniform).buffer.putInt(0, value);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the uniform with the given value.
+     *
+     * @param value the value.
+     * @return this.
+     */
+    public UniformHandle set(float value) {
+        if (uniform != null && uniform.buffer.getFloat(0) != value) {
+            program.markDirty(uniform).buffer.putFloat(0, value);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the uniform with the given value.
+     *
+     * @param x the value x.
+     * @param y the value y.
+     * @return this.
+     */
+    public UniformHandle set(float x, float y) {
+        if (uniform != null &&
+            (uniform.buffer.getFloat(0) != x || uniform.buffer.getFloat(4) != y)) {
+            program.markDirty(uniform).buffer.putFloat(0, x).putFloat(4, y);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the uniform with the given value.
+     *
+     * @param x the value x.
+     * @param y the value y.
+     * @param z the value z.
+     * @return this.
+     */
+    public UniformHandle set(float x, float y, float z) {
+        if (uniform != null &&
+            (uniform.buffer.getFloat(0) != x || uniform.buffer.getFloat(4) != y || uniform.buffer.getFloat(8) != z)) {
+            program.markDirty(uniform).buffer.putFloat(0, x).putFloat(4, y).putFloat(8, z);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the uniform with the given value.
+     *
+     * @param x the value x.
+     * @param y the value y.
+     * @param z the value z.
+     * @param w the value w.
+     * @return this.
+     */
+    public UniformHandle set(float x, float y, float z, float w) {
+        if (uniform != null &&
+            (uniform.buffer.getFloat(0) != x || uniform.buffer.getFloat(4) != y || uniform.buffer.getFloat(8) != z ||
+             uniform.buffer.getFloat(12) != w)) {
+            program.markDirty(uniform).buffer.putFloat(0, x).putFloat(4, y).putFloat(8, z).putFloat(12, w);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the uniform with the given value.
+     *
+     * @param value the value.
+     * @return this.
+     */
+    public UniformHandle set(Vector2fc value) {
+        return set(value.x(), value.y());
+    }
+
+    /**
+     * Sets the uniform with the given value.
+     *
+     * @param value the value.
+     * @return this.
+     */
+    public UniformHandle set(Vector3fc value) {
+        return set(value.x(), value.y(), value.z());
+    }
+
+    /**
+     * Sets the uniform with the given value.
+     *
+     * @param value the value.
+     * @return this.
+     */
+    public UniformHandle set(Vector4fc value) {
+        return set(value.x(), value.y(), value.z(), value.w());
+    }
+
+    /**
+     * Sets the uniform with the given value.
+     *
+     * @param value the value.
+     * @return this.
+     */
+    public UniformHandle set(Matrix2fc value) {
+        if (uniform != null) {
+            value.get(program.markDirty(uniform).buffer);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the uniform with the given value.
+     *
+     * @param value the value.
+     * @return this.
+     */
+    public UniformHandle set(Matrix3fc value) {
+        if (uniform != null) {
+            value.get(program.markDirty(uniform).buffer);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the uniform with the given value.
+     *
+     * @param value the value.
+     * @return this.
+     */
+    public UniformHandle set(Matrix4fc value) {
+        if (uniform != null) {
+            value.get(program.markDirty(uniform).buffer);
+        }
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if the uniform is present in the program.
+     *
+     * @return {@code true} if the uniform is present.
+     */
+    public boolean isPresent() {
+        return uniform != null;
+    }
+
+    /**
+     * Gets the shader program.
+     *
+     * @return the shader program.
+     */
+    public ShaderProgram program() {
+        return program;
+    }
+
+    /**
+     * Gets the name of the uniform.
+     *
+     * @return the name.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Gets the type of the uniform.
+     *
+     * @return the type.
+     */
+    public ShaderUniform.Type type() {
+        return type;
+    }
+}
@@ -18,12 +18,19 @@
 
 package union.xenfork.fe2d.graphics;
 
+import org.jetbrains.annotations.Nullable;
 import org.lwjgl.system.MemoryUtil;
+import union.xenfork.fe2d.graphics.vertex.VertexLayout;
+import union.xenfork.fe2d.graphics.vertex.VertexWriter;
 
 import java.nio.ByteBuffer;
 
 /**
  * The vertex builder.
+ * <p>
+ * A vertex builder created with a {@link VertexLayout} can write whole vertices with the {@link VertexWriter}
+ * of the layout. The fixed-arity overloads of {@link #floats(float, float)} and {@link #ints(int)} don't create
+ * varargs arrays.
  *
  * @author squid233
  * @since 0.1.0
@@ -31,11 +38,22 @@ import java.nio.ByteBuffer;
 public final class VertexBuilder {
     private ByteBuffer buffer;
     private long position;
+    private final @Nullable VertexWriter writer;
 
     /**
      * Creates a vertex builder.
      */
     public VertexBuilder() {
+        this.writer = null;
+    }
+
+    /**
+     * Creates a vertex builder with the given layout.
+     *
+     * @param layout the vertex layout.
+     */
+    public VertexBuilder(VertexLayout layout) {
+        this.writer = layout.writer();
     }
 
     /**
@@ -45,6 +63,18 @@ public final class VertexBuilder {
      */
     public VertexBuilder(ByteBuffer buffer) {
         this.buffer = buffer;
+        this.writer = null;
+    }
+
+    /**
+     * Creates a vertex builder with the given buffer and layout.
+     *
+     * @param buffer the buffer.
+     * @param layout the vertex layout.
+     */
+    public VertexBuilder(ByteBuffer buffer, VertexLayout layout) {
+        this.buffer = buffer;
+        this.writer = layout.writer();
     }
 
     private void growBuffer(long grown) {
@@ -55,6 +85,139 @@ public final class VertexBuilder {
         }
     }
 
+    private long address() {
+        return MemoryUtil.memAddress(buffer) + position;
+    }
+
+    private VertexWriter checkWriter() {
+        if (writer == null) throw new IllegalStateException("The vertex builder is not created with a layout!");
+        return writer;
+    }
+
+    /**
+     * Writes a vertex with a 2D position with the layout.
+     *
+     * @param x     the x position.
+     * @param y     the y position.
+     * @param color the packed ABGR color.
+     * @param u     the texture coordinate u.
+     * @param v     the texture coordinate v.
+     * @return this.
+     * @see VertexWriter#vertex(long, float, float, int, float, float)
+     */
+    public VertexBuilder vertex(float x, float y, int color, float u, float v) {
+        VertexWriter w = checkWriter();
+        growBuffer(w.stride());
+        position = w.vertex(address(), x, y, color, u, v) - MemoryUtil.memAddress(buffer);
+        return this;
+    }
+
+    /**
+     * Writes a vertex with a 3D position with the layout.
+     *
+     * @param x     the x position.
+     * @param y     the y position.
+     * @param z     the z position.
+     * @param color the packed ABGR color.
+     * @param u     the texture coordinate u.
+     * @param v     the texture coordinate v.
+     * @return this.
+     * @see VertexWriter#vertex(long, float, float, float, int, float, float)
+     */
+    public VertexBuilder vertex(float x, float y, float z, int color, float u, float v) {
+        VertexWriter w = checkWriter();
+        growBuffer(w.stride());
+        position = w.vertex(address(), x, y, z, color, u, v) - MemoryUtil.memAddress(buffer);
+        return this;
+    }
+
+    public VertexBuilder ints(int v) {
+        growBuffer(4L);
+        MemoryUtil.memPutInt(address(), v);
+        position += 4L;
+        return this;
+    }
+
+    public VertexBuilder floats(float v) {
+        growBuffer(4L);
+        MemoryUtil.memPutFloat(address(), v);
+        position += 4L;
+        return this;
+    }
+
+    public VertexBuilder floats(float v0, float v1) {
+        growBuffer(8L);
+        long address = address();
+        MemoryUtil.memPutFloat(address, v0);
+        MemoryUtil.memPutFloat(address + 4, v1);
+        position += 8L;
+        return this;
+    }
+
+    public VertexBuilder floats(float v0, float v1, float v2) {
+        growBuffer(12L);
+        long address = address();
+        MemoryUtil.memPutFloat(address, v0);
+        MemoryUtil.memPutFloat(address + 4, v1);
+        MemoryUtil.memPutFloat(address + 8, v2);
+        position += 12L;
+        return this;
+    }
+
+    public VertexBuilder floats(float v0, float v1, float v2, float v3) {
+        growBuffer(16L);
+        long address = address();
+        MemoryUtil.memPutFloat(address, v0);
+        MemoryUtil.memPutFloat(address + 4, v1);
+        MemoryUtil.memPutFloat(address + 8, v2);
+        MemoryUtil.memPutFloat(address + 12, v3);
+        position += 16L;
+        return this;
+    }
+
+    /**
+     * Writes 2 half-float components.
+     *
+     * @param v0 the first component.
+     * @param v1 the second component.
+     * @return this.
+     * @see VertexWriter#halfFloat(float)
+     */
+    public VertexBuilder halfFloats(float v0, float v1) {
+        growBuffer(4L);
+        long address = address();
+        MemoryUtil.memPutShort(address, VertexWriter.halfFloat(v0));
+        MemoryUtil.memPutShort(address + 2, VertexWriter.halfFloat(v1));
+        position += 4L;
+        return this;
+    }
+
+    /**
+     * Writes 2 normalized unsigned short components.
+     *
+     * @param v0 the first component, in [0, 1].
+     * @param v1 the second component, in [0, 1].
+     * @return this.
+     * @see VertexWriter#normalizedUnsignedShort(float)
+     */
+    public VertexBuilder normalizedUnsignedShorts(float v0, float v1) {
+        growBuffer(4L);
+        long address = address();
+        MemoryUtil.memPutShort(address, VertexWriter.normalizedUnsignedShort(v0));
+        MemoryUtil.memPutShort(address + 2, VertexWriter.normalizedUnsignedShort(v1));
+        position += 4L;
+        return this;
+    }
+
+    public VertexBuilder shorts(short... shorts) {
+        growBuffer(shorts.length * 2L);
+        for (short v : shorts) {
+            buffer.putShort((int) position, v);
+            position += 2L;
+        }
+        return this;
+    }
+
     public VertexBuilder bytes(byte... bytes) {
         growBuffer(bytes.length);
         for (byte v : bytes) {
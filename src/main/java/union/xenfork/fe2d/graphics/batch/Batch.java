@@ -20,12 +20,18 @@ package union.xenfork.fe2d.graphics.batch;
 
 import org.joml.Matrix4f;
 import org.joml.Matrix4fc;
+import org.lwjgl.system.MemoryStack;
 import union.xenfork.fe2d.Disposable;
 import union.xenfork.fe2d.graphics.Color;
 import union.xenfork.fe2d.graphics.ShaderProgram;
+import union.xenfork.fe2d.graphics.sprite.Sprite;
 import union.xenfork.fe2d.graphics.texture.Texture;
 import union.xenfork.fe2d.graphics.texture.TextureRegion;
 
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
 /**
  * The base batch.
  *
@@ -33,6 +39,12 @@ import union.xenfork.fe2d.graphics.texture.TextureRegion;
  * @since 0.1.0
  */
 public interface Batch extends Disposable {
+    /**
+     * The count of raw vertices copied at once by the default implementations, which fits the default
+     * {@link MemoryStack} size.
+     */
+    int RAW_CHUNK_VERTICES = 256 * Sprite.SPRITE_VERTEX;
+
     /**
      * Begins drawing. Can only be called before drawing.
      */
@@ -66,6 +78,82 @@ public interface Batch extends Disposable {
 
     void draw(Texture texture, float x, float y, TextureRegion region);
 
+    /**
+     * Draws the quads with the given pre-built vertices in {@link Sprite#LAYOUT}.
+     * <p>
+     * Each vertex is {@code (x, y, color, u, v)} with normalized texture coordinates, where the color is
+     * the packed ABGR color as {@linkplain Float#intBitsToFloat(int) float bits} and is written as is; the color of
+     * the batch is ignored. Every {@value Sprite#SPRITE_VERTEX} vertices form a quad, in order around the quad,
+     * which is drawn as the triangles {@code (0, 1, 2)} and {@code (2, 3, 0)}. The quads are not culled,
+     * and are split across flushes as needed.
+     * <p>
+     * The vertices are drawn as given, including the color of each vertex. The default implementation throws
+     * {@link UnsupportedOperationException}, for the batches that can't represent arbitrary quads.
+     *
+     * @param texture the texture, or {@code null} for no texture.
+     * @param address the address of the first vertex.
+     * @param count   the count of vertices. must be a multiple of {@value Sprite#SPRITE_VERTEX}.
+     * @throws IllegalArgumentException      if the count is not a multiple of {@value Sprite#SPRITE_VERTEX}.
+     * @throws UnsupportedOperationException if this batch doesn't support pre-built vertices.
+     */
+    default void draw(Texture texture, long address, int count) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " doesn't support pre-built vertices");
+    }
+
+    /**
+     * Draws the quads with the given pre-built vertices in {@link Sprite#LAYOUT}. A direct buffer must be in
+     * the native byte order.
+     *
+     * @param texture  the texture, or {@code null} for no texture.
+     * @param vertices the vertices.
+     * @param offset   the offset of the first vertex in floats, relative to the start of the buffer.
+     * @param count    the count of vertices. must be a multiple of {@value Sprite#SPRITE_VERTEX}.
+     * @throws IllegalArgumentException if the count is not a multiple of {@value Sprite#SPRITE_VERTEX}.
+     * @see #draw(Texture, long, int)
+     */
+    default void draw(Texture texture, FloatBuffer vertices, int offset, int count) {
+        if (vertices.isDirect()) {
+            draw(texture, memAddress(vertices, offset), count);
+        } else if (vertices.hasArray()) {
+            draw(texture, vertices.array(), vertices.arrayOffset() + offset, count);
+        } else {
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                FloatBuffer chunk = stack.mallocFloat(RAW_CHUNK_VERTICES * Sprite.VERTEX_FLOATS);
+                for (int first = 0; first < count; first += RAW_CHUNK_VERTICES) {
+                    int n = Math.min(RAW_CHUNK_VERTICES, count - first);
+                    chunk.put(0, vertices, offset + first * Sprite.VERTEX_FLOATS, n * Sprite.VERTEX_FLOATS);
+                    draw(texture, memAddress(chunk), n);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the quads with the given pre-built vertices in {@link Sprite#LAYOUT}.
+     * <p>
+     * The default implementation copies the vertices in chunks through a buffer on the {@link MemoryStack}.
+     *
+     * @param texture  the texture, or {@code null} for no texture.
+     * @param vertices the vertices.
+     * @param offset   the offset of the first vertex in floats.
+     * @param count    the count of vertices. must be a multiple of {@value Sprite#SPRITE_VERTEX}.
+     * @throws IllegalArgumentException if the count is not a multiple of {@value Sprite#SPRITE_VERTEX}.
+     * @see #draw(Texture, long, int)
+     */
+    default void draw(Texture texture, float[] vertices, int offset, int count) {
+        if (count < 0 || count % Sprite.SPRITE_VERTEX != 0) {
+            throw new IllegalArgumentException("Vertex count must be a non-negative multiple of " + Sprite.SPRITE_VERTEX + "! got: " + count);
+        }
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            FloatBuffer chunk = stack.mallocFloat(RAW_CHUNK_VERTICES * Sprite.VERTEX_FLOATS);
+            for (int first = 0; first < count; first += RAW_CHUNK_VERTICES) {
+                int n = Math.min(RAW_CHUNK_VERTICES, count - first);
+                chunk.put(0, vertices, offset + first * Sprite.VERTEX_FLOATS, n * Sprite.VERTEX_FLOATS);
+                draw(texture, memAddress(chunk), n);
+            }
+        }
+    }
+
     /**
      * Sets the custom shader.
      * <p>
@@ -0,0 +1,747 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.batch;
+
+import org.jetbrains.annotations.Nullable;
+import org.joml.Math;
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.joml.Vector3f;
+import union.xenfork.fe2d.Fe2D;
+import union.xenfork.fe2d.graphics.Color;
+import union.xenfork.fe2d.graphics.GLStateManager;
+import union.xenfork.fe2d.graphics.Graphics;
+import union.xenfork.fe2d.graphics.RenderStats;
+import union.xenfork.fe2d.graphics.ShaderProgram;
+import union.xenfork.fe2d.graphics.ShaderUniform;
+import union.xenfork.fe2d.graphics.UniformHandle;
+import union.xenfork.fe2d.graphics.mesh.Mesh;
+import union.xenfork.fe2d.graphics.sprite.Sprite;
+import union.xenfork.fe2d.graphics.texture.Texture;
+import union.xenfork.fe2d.graphics.texture.TextureRegion;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static union.xenfork.fe2d.graphics.GLStateManager.*;
+
+/**
+ * The deferred sprite batch, which records the sprites between {@link #begin()} and {@link #end()}
+ * instead of writing vertices immediately.
+ * <p>
+ * On {@link #flush() flushing}, the recorded sprites are sorted by the layer, shader, blend function and texture,
+ * and then drawn with the minimum count of draw calls. Changing the shader, blend function or texture while drawing
+ * doesn't cause flushing.
+ * <p>
+ * The sprites in the same {@linkplain #setLayer(int) layer} might be reordered. Use different layers if
+ * the drawing order matters, such as overlapping translucent sprites.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public class DeferredSpriteBatch implements Batch {
+    /**
+     * The default value of max sprites per draw call.
+     */
+    public static final int DEFAULT_MAX_SPRITES = SpriteBatch.DEFAULT_MAX_SPRITES;
+    // layout of the sort key, from the highest bit:
+    // layer (16 bits), shader (8 bits), blend function (8 bits), texture (16 bits)
+    private static final int KEY_BITS = 48;
+    private static final long STATE_MASK = 0xFFFFFFFFL;
+    private static final int MAX_SHADERS = 0x100;
+    private static final int MAX_BLEND_STATES = 0x100;
+    private static final int MAX_TEXTURES = 0x10000;
+    private static final long BLEND_DISABLED = -1L;
+    // x, y, u, v of 4 vertices
+    private static final int COMMAND_FLOATS = 16;
+    private final Mesh mesh;
+    private final int maxSprites;
+    private final Matrix4f projectionMatrix = new Matrix4f();
+    private final Matrix4f modelMatrix = new Matrix4f();
+    private final Vector3f spriteRotation = new Vector3f();
+    final ShaderProgram shader;
+    private ShaderProgram customShader;
+    private final boolean ownsShader;
+    private int blendSrcRGB = GL_SRC_ALPHA;
+    private int blendDstRGB = GL_ONE_MINUS_SRC_ALPHA;
+    private int blendSrcAlpha = GL_SRC_ALPHA;
+    private int blendDstAlpha = GL_ONE_MINUS_SRC_ALPHA;
+    private boolean blendDisabled = false;
+    private boolean drawing = false;
+    private int colorBits = Color.WHITE_BITS;
+    private int layer = 0;
+    private ShaderProgram uniformShader;
+    private UniformHandle hasTexture0Uniform;
+    private boolean disposed = false;
+
+    // recorded commands
+    private int commandCount = 0;
+    private float[] commandVertices;
+    // the color of each vertex
+    private int[] commandColors;
+    private long[] commandKeys;
+    private long[] sortedKeys;
+    private int[] commandIndices;
+    private int[] sortedIndices;
+    private final int[] radixCounts = new int[256];
+
+    // the states used by the recorded commands, indexed by the sort key
+    private final ShaderProgram[] shaders = new ShaderProgram[MAX_SHADERS];
+    private int shaderCount = 0;
+    private final long[] blendStates = new long[MAX_BLEND_STATES];
+    private int blendStateCount = 0;
+    private Texture[] textures = new Texture[16];
+    private int textureCount = 0;
+    private boolean stateDirty = true;
+    private long stateKey;
+    private Texture lastTexture;
+
+    /**
+     * Creates the deferred sprite batch with the given shader and size.
+     *
+     * @param defaultShader the custom shader to be used. if no custom shader provided, {@link SpriteBatch#createDefaultShader()} is used.
+     * @param maxSprites    the max sprite count per draw call. defaults to {@value #DEFAULT_MAX_SPRITES}.
+     *                      the count of recorded sprites is not limited.
+     */
+    public DeferredSpriteBatch(@Nullable ShaderProgram defaultShader, int maxSprites) {
+        int size = Math.clamp(1, SpriteBatch.MAX_SPRITES, maxSprites);
+        this.maxSprites = size;
+        this.mesh = Mesh.quads(Sprite.LAYOUT, size, Mesh.DEFAULT_STREAM_REGIONS);
+        this.shader = defaultShader != null ? defaultShader : SpriteBatch.createDefaultShader();
+        this.ownsShader = defaultShader == null;
+
+        projectionMatrix.setOrtho2D(0, Fe2D.graphics.width(), 0, Fe2D.graphics.height());
+
+        int capacity = size;
+        commandVertices = new float[capacity * COMMAND_FLOATS];
+        commandColors = new int[capacity * Sprite.SPRITE_VERTEX];
+        commandKeys = new long[capacity];
+        sortedKeys = new long[capacity];
+        commandIndices = new int[capacity];
+        sortedIndices = new int[capacity];
+    }
+
+    /**
+     * Creates the deferred sprite batch with the given size.
+     *
+     * @param maxSprites the max sprite count per draw call.
+     */
+    public DeferredSpriteBatch(int maxSprites) {
+        this(null, maxSprites);
+    }
+
+    /**
+     * Creates the deferred sprite batch with the given shader.
+     *
+     * @param defaultShader the custom shader to be used. if no custom shader provided, {@link SpriteBatch#createDefaultShader()} is used.
+     */
+    public DeferredSpriteBatch(@Nullable ShaderProgram defaultShader) {
+        this(defaultShader, DEFAULT_MAX_SPRITES);
+    }
+
+    /**
+     * Creates the deferred sprite batch with the default size.
+     */
+    public DeferredSpriteBatch() {
+        this(null, DEFAULT_MAX_SPRITES);
+    }
+
+    @Override
+    public void begin() {
+        if (drawing) throw new IllegalStateException("Cannot call DeferredSpriteBatch.begin while drawing");
+        drawing = true;
+        commandCount = 0;
+    }
+
+    @Override
+    public void end() {
+        if (!drawing) throw new IllegalStateException("Can only call DeferredSpriteBatch.end while drawing");
+        flush(RenderStats.FlushReason.EXPLICIT);
+        drawing = false;
+    }
+
+    /**
+     * Sorts and draws the recorded sprites without ending drawing. Can only be called while drawing.
+     */
+    @Override
+    public void flush() {
+        flush(RenderStats.FlushReason.EXPLICIT);
+    }
+
+    private void flush(RenderStats.FlushReason reason) {
+        if (commandCount == 0) return;
+        checkDrawing();
+        Graphics.getInstance().renderStats().flush(reason);
+        sortCommands();
+        int currPrg = currentProgram();
+        int currTex = textureBinding2D();
+        boolean blend = isBlendEnabled();
+        int sRGB = blendSrcRGB();
+        int dRGB = blendDstRGB();
+        int sAlpha = blendSrcAlpha();
+        int dAlpha = blendDstAlpha();
+
+        ByteBuffer buffer = mesh.vertexBuffer();
+        long runState = -1L;
+        int spriteCount = 0;
+        int pos = 0;
+        for (int i = 0; i < commandCount; i++) {
+            long state = commandKeys[i] & STATE_MASK;
+            if (state != runState || spriteCount == maxSprites) {
+                renderRun(runState, spriteCount, pos);
+                runState = state;
+                spriteCount = 0;
+                pos = 0;
+            }
+            int index = commandIndices[i];
+            int base = index * COMMAND_FLOATS;
+            int colorBase = index * Sprite.SPRITE_VERTEX;
+            for (int v = 0; v < Sprite.SPRITE_VERTEX; v++, base += 4, pos += 20) {
+                buffer.putFloat(pos, commandVertices[base]).putFloat(pos + 4, commandVertices[base + 1])
+                    .putInt(pos + 8, commandColors[colorBase + v])
+                    .putFloat(pos + 12, commandVertices[base + 2]).putFloat(pos + 16, commandVertices[base + 3]);
+            }
+            spriteCount++;
+        }
+        renderRun(runState, spriteCount, pos);
+
+        bindTexture2D(currTex);
+        useProgram(currPrg);
+        if (blend) {
+            GLStateManager.enableBlend();
+        } else {
+            GLStateManager.disableBlend();
+        }
+        blendFuncSeparate(sRGB, dRGB, sAlpha, dAlpha);
+
+        commandCount = 0;
+        Arrays.fill(shaders, 0, shaderCount, null);
+        Arrays.fill(textures, 0, textureCount, null);
+        shaderCount = 0;
+        blendStateCount = 0;
+        textureCount = 0;
+        stateDirty = true;
+    }
+
+    private void renderRun(long state, int spriteCount, int size) {
+        if (spriteCount == 0) return;
+        ShaderProgram program = shaders[(int) (state >>> 24) & 0xFF];
+        long blendState = blendStates[(int) (state >>> 16) & 0xFF];
+        Texture texture = textures[(int) state & 0xFFFF];
+        mesh.updateVertices(size);
+        if (blendState == BLEND_DISABLED) {
+            GLStateManager.disableBlend();
+        } else {
+            GLStateManager.enableBlend();
+            blendFuncSeparate((int) (blendState >>> 48),
+                (int) (blendState >>> 32) & 0xFFFF,
+                (int) (blendState >>> 16) & 0xFFFF,
+                (int) blendState & 0xFFFF);
+        }
+        program.use();
+        boolean hasTexture = texture != null;
+        resolveUniforms(program);
+        hasTexture0Uniform.set(hasTexture);
+        program.setMatrices(projectionMatrix, modelMatrix);
+        program.uploadUniforms();
+        if (hasTexture) {
+            texture.bind();
+        }
+        mesh.render(GL_TRIANGLES, spriteCount * 6);
+    }
+
+    /**
+     * Resolves the uniform handles of the given shader. The handles are resolved again after the shader changes.
+     *
+     * @param program the shader of the run.
+     */
+    private void resolveUniforms(ShaderProgram program) {
+        if (program != uniformShader) {
+            uniformShader = program;
+            hasTexture0Uniform = program.uniform("HasTexture0", ShaderUniform.Type.INT);
+        }
+    }
+
+    /**
+     * Sorts the recorded commands by the keys with LSD radix sort, which is stable and doesn't allocate.
+     */
+    private void sortCommands() {
+        int count = commandCount;
+        long[] keys = commandKeys;
+        long[] keysTmp = sortedKeys;
+        int[] indices = commandIndices;
+        int[] indicesTmp = sortedIndices;
+        int[] counts = radixCounts;
+        for (int shift = 0; shift < KEY_BITS; shift += 8) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < count; i++) {
+                counts[(int) (keys[i] >>> shift) & 0xFF]++;
+            }
+            // skips this digit if all keys are the same
+            if (counts[(int) (keys[0] >>> shift) & 0xFF] == count) {
+                continue;
+            }
+            for (int d = 0, sum = 0; d < counts.length; d++) {
+                int c = counts[d];
+                counts[d] = sum;
+                sum += c;
+            }
+            for (int i = 0; i < count; i++) {
+                int dst = counts[(int) (keys[i] >>> shift) & 0xFF]++;
+                keysTmp[dst] = keys[i];
+                indicesTmp[dst] = indices[i];
+            }
+            long[] tk = keys;
+            keys = keysTmp;
+            keysTmp = tk;
+            int[] ti = indices;
+            indices = indicesTmp;
+            indicesTmp = ti;
+        }
+        commandKeys = keys;
+        sortedKeys = keysTmp;
+        commandIndices = indices;
+        sortedIndices = indicesTmp;
+    }
+
+    private void checkDrawing() {
+        if (!drawing)
+            throw new IllegalStateException("Can only call DeferredSpriteBatch.draw or flush between begin and end (while drawing)");
+    }
+
+    private long computeStateKey(Texture texture) {
+        // makes sure that each registry has space for a new state
+        if (shaderCount == MAX_SHADERS || blendStateCount == MAX_BLEND_STATES || textureCount == MAX_TEXTURES) {
+            flush(RenderStats.FlushReason.BUFFER_FULL);
+        }
+        ShaderProgram program = shader();
+        int shaderId = -1;
+        for (int i = 0; i < shaderCount; i++) {
+            if (shaders[i] == program) {
+                shaderId = i;
+                break;
+            }
+        }
+        if (shaderId == -1) {
+            shaderId = shaderCount;
+            shaders[shaderCount++] = program;
+        }
+
+        long blendState = blendDisabled ? BLEND_DISABLED :
+            ((long) blendSrcRGB << 48) | ((long) blendDstRGB << 32) | ((long) blendSrcAlpha << 16) | blendDstAlpha;
+        int blendId = -1;
+        for (int i = 0; i < blendStateCount; i++) {
+            if (blendStates[i] == blendState) {
+                blendId = i;
+                break;
+            }
+        }
+        if (blendId == -1) {
+            blendId = blendStateCount;
+            blendStates[blendStateCount++] = blendState;
+        }
+
+        int textureId = -1;
+        for (int i = 0; i < textureCount; i++) {
+            if (textures[i] == texture) {
+                textureId = i;
+                break;
+            }
+        }
+        if (textureId == -1) {
+            if (textureCount == textures.length) {
+                textures = Arrays.copyOf(textures, Math.min(textures.length * 2, MAX_TEXTURES));
+            }
+            textureId = textureCount;
+            textures[textureCount++] = texture;
+        }
+
+        return ((long) (layer - Short.MIN_VALUE) << 32) |
+               ((long) shaderId << 24) |
+               ((long) blendId << 16) |
+               textureId;
+    }
+
+    /**
+     * Records a command with the current states.
+     *
+     * @param texture the texture.
+     * @return the base offset of the command in {@link #commandVertices}.
+     */
+    private int addCommand(Texture texture) {
+        checkDrawing();
+        if (stateDirty || texture != lastTexture) {
+            stateKey = computeStateKey(texture);
+            lastTexture = texture;
+            stateDirty = false;
+        }
+        int index = commandCount;
+        if (index == commandKeys.length) {
+            int capacity = index + (index >> 1) + 1;
+            commandVertices = Arrays.copyOf(commandVertices, capacity * COMMAND_FLOATS);
+            commandColors = Arrays.copyOf(commandColors, capacity * Sprite.SPRITE_VERTEX);
+            commandKeys = Arrays.copyOf(commandKeys, capacity);
+            sortedKeys = new long[capacity];
+            commandIndices = Arrays.copyOf(commandIndices, capacity);
+            sortedIndices = new int[capacity];
+        }
+        commandKeys[index] = stateKey;
+        commandIndices[index] = index;
+        Arrays.fill(commandColors, index * Sprite.SPRITE_VERTEX, (index + 1) * Sprite.SPRITE_VERTEX, colorBits);
+        commandCount++;
+        return index * COMMAND_FLOATS;
+    }
+
+    private void putVertex(int offset, float x, float y, float u, float v) {
+        commandVertices[offset] = x;
+        commandVertices[offset + 1] = y;
+        commandVertices[offset + 2] = u;
+        commandVertices[offset + 3] = v;
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation, float u0, float v0, float u1, float v1, boolean flipX, boolean flipY) {
+        int base = addCommand(texture);
+
+        // bottom left and top right corner points relative to origin
+        final float worldOriginX = x + originX;
+        final float worldOriginY = y + originY;
+        float fx = -originX;
+        float fy = -originY;
+        float fx2 = width - originX;
+        float fy2 = height - originY;
+
+        // scale
+        if (scaleX != 1 || scaleY != 1) {
+            fx *= scaleX;
+            fy *= scaleY;
+            fx2 *= scaleX;
+            fy2 *= scaleY;
+        }
+
+        float x1, y1, x2, y2, x3, y3, x4, y4;
+
+        // rotate
+        if (rotation != 0) {
+            final float sin = Math.sin(rotation);
+            final float cos = Math.cosFromSin(sin, rotation);
+
+            x1 = cos * fx - sin * fy;
+            y1 = sin * fx + cos * fy;
+
+            x2 = cos * fx - sin * fy2;
+            y2 = sin * fx + cos * fy2;
+
+            x3 = cos * fx2 - sin * fy2;
+            y3 = sin * fx2 + cos * fy2;
+
+            x4 = x1 + (x3 - x2);
+            y4 = y3 - (y2 - y1);
+        } else {
+            x1 = fx;
+            y1 = fy;
+
+            x2 = fx;
+            y2 = fy2;
+
+            x3 = fx2;
+            y3 = fy2;
+
+            x4 = fx2;
+            y4 = fy;
+        }
+
+        if (flipX) {
+            float tmp = u0;
+            u0 = u1;
+            u1 = tmp;
+        }
+
+        if (flipY) {
+            float tmp = v0;
+            v0 = v1;
+            v1 = tmp;
+        }
+
+        putVertex(base, x1 + worldOriginX, y1 + worldOriginY, u0, v1);
+        putVertex(base + 4, x2 + worldOriginX, y2 + worldOriginY, u0, v0);
+        putVertex(base + 8, x3 + worldOriginX, y3 + worldOriginY, u1, v0);
+        putVertex(base + 12, x4 + worldOriginX, y4 + worldOriginY, u1, v1);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, float u0, float v0, float u1, float v1, boolean flipX, boolean flipY) {
+        if (flipX) {
+            float tmp = u0;
+            u0 = u1;
+            u1 = tmp;
+        }
+
+        if (flipY) {
+            float tmp = v0;
+            v0 = v1;
+            v1 = tmp;
+        }
+
+        draw(texture, x, y, width, height, u0, v0, u1, v1);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, float u0, float v0, float u1, float v1) {
+        int base = addCommand(texture);
+        final float fx2 = x + width;
+        final float fy2 = y + height;
+        // left-top
+        putVertex(base, x, fy2, u0, v0);
+        // left-bottom
+        putVertex(base + 4, x, y, u0, v1);
+        // right-bottom
+        putVertex(base + 8, fx2, y, u1, v1);
+        // right-top
+        putVertex(base + 12, fx2, fy2, u1, v0);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height) {
+        draw(texture, x, y, width, height, 0f, 0f, 1f, 1f);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y) {
+        draw(texture, x, y, texture.width(), texture.height());
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation, TextureRegion region, boolean flipX, boolean flipY) {
+        float invTexWidth = 1f / texture.width();
+        float invTexHeight = 1f / texture.height();
+        draw(texture, x, y, originX, originY, width, height, scaleX, scaleY, rotation,
+            region.u0() * invTexWidth, region.v0() * invTexHeight,
+            region.u1() * invTexWidth, region.v1() * invTexHeight,
+            flipX, flipY);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, TextureRegion region, boolean flipX, boolean flipY) {
+        float invTexWidth = 1f / texture.width();
+        float invTexHeight = 1f / texture.height();
+        draw(texture, x, y, width, height,
+            region.u0() * invTexWidth, region.v0() * invTexHeight,
+            region.u1() * invTexWidth, region.v1() * invTexHeight,
+            flipX, flipY);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, TextureRegion region) {
+        draw(texture, x, y, width, height, region, false, false);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, TextureRegion region) {
+        draw(texture, x, y, region.u1() - region.u0(), region.v1() - region.v0(), region);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each quad is recorded as a command with the vertices and their colors as given.
+     */
+    @Override
+    public void draw(Texture texture, long address, int count) {
+        checkDrawing();
+        if (count < 0 || count % Sprite.SPRITE_VERTEX != 0) {
+            throw new IllegalArgumentException("Vertex count must be a non-negative multiple of " + Sprite.SPRITE_VERTEX + "! got: " + count);
+        }
+        for (int i = 0, spriteCount = count / Sprite.SPRITE_VERTEX; i < spriteCount; i++, address += Sprite.SPRITE_SIZE) {
+            int base = addCommand(texture);
+            int colorBase = base / COMMAND_FLOATS * Sprite.SPRITE_VERTEX;
+            for (long v = address, end = address + Sprite.SPRITE_SIZE; v < end; v += Sprite.VERTEX_FLOATS * Float.BYTES, base += 4) {
+                putVertex(base, memGetFloat(v), memGetFloat(v + 4), memGetFloat(v + 12), memGetFloat(v + 16));
+                commandColors[colorBase++] = memGetInt(v + 8);
+            }
+        }
+    }
+
+    /**
+     * Draws a sprite. FlipX and flipY specify whether the texture portion should be flipped horizontally or vertically.
+     *
+     * @param sprite the sprite to be drawn.
+     * @param flipX  whether to flip the sprite horizontally.
+     * @param flipY  whether to flip the sprite vertically.
+     */
+    public void draw(Sprite sprite, boolean flipX, boolean flipY) {
+        int currColor = spriteColor();
+        setSpriteColor(sprite.color);
+        draw(sprite.texture,
+            sprite.position.x(), sprite.position.y(),
+            sprite.anchor.x(), sprite.anchor.y(),
+            sprite.size.x(), sprite.size.y(),
+            sprite.scale.x(), sprite.scale.y(),
+            sprite.rotation.getEulerAnglesZYX(spriteRotation).z(),
+            sprite.textureRegion,
+            flipX, flipY);
+        setSpriteColor(currColor);
+    }
+
+    /**
+     * Draws a sprite.
+     *
+     * @param sprite the sprite to be drawn.
+     */
+    public void draw(Sprite sprite) {
+        draw(sprite, false, false);
+    }
+
+    /**
+     * Sets the layer of the sprites to be drawn. The sprites in higher layers are drawn after lower layers.
+     *
+     * @param layer the layer, clamped between {@value Short#MIN_VALUE} and {@value Short#MAX_VALUE}. defaults to 0.
+     */
+    public void setLayer(int layer) {
+        int clamped = Math.clamp(Short.MIN_VALUE, Short.MAX_VALUE, layer);
+        if (this.layer != clamped) {
+            this.layer = clamped;
+            stateDirty = true;
+        }
+    }
+
+    /**
+     * Gets the layer of the sprites to be drawn.
+     *
+     * @return the layer.
+     */
+    public int layer() {
+        return layer;
+    }
+
+    /**
+     * Gets the count of the recorded sprites that are not drawn yet.
+     *
+     * @return the count of the recorded sprites.
+     */
+    public int recordedCount() {
+        return commandCount;
+    }
+
+    /**
+     * Sets the custom shader.
+     * <p>
+     * This operation doesn't cause flushing.
+     *
+     * @param shader the custom shader.
+     */
+    @Override
+    public void setShader(ShaderProgram shader) {
+        if (shader == customShader) return;
+        customShader = shader;
+        stateDirty = true;
+    }
+
+    @Override
+    public ShaderProgram shader() {
+        return customShader != null ? customShader : shader;
+    }
+
+    @Override
+    public Matrix4f projectionMatrix() {
+        return projectionMatrix;
+    }
+
+    @Override
+    public Matrix4f modelMatrix() {
+        return modelMatrix;
+    }
+
+    @Override
+    public void setProjectionMatrix(Matrix4fc projectionMatrix) {
+        if (drawing) flush(RenderStats.FlushReason.MATRIX_CHANGE);
+        this.projectionMatrix.set(projectionMatrix);
+    }
+
+    @Override
+    public void setModelMatrix(Matrix4fc modelMatrix) {
+        if (drawing) flush(RenderStats.FlushReason.MATRIX_CHANGE);
+        this.modelMatrix.set(modelMatrix);
+    }
+
+    @Override
+    public void enableBlend() {
+        if (!blendDisabled) return;
+        blendDisabled = false;
+        stateDirty = true;
+    }
+
+    @Override
+    public void disableBlend() {
+        if (blendDisabled) return;
+        blendDisabled = true;
+        stateDirty = true;
+    }
+
+    @Override
+    public void setBlendFuncSeparate(int srcRGB, int dstRGB, int srcAlpha, int dstAlpha) {
+        if (blendSrcRGB != srcRGB ||
+            blendDstRGB != dstRGB ||
+            blendSrcAlpha != srcAlpha ||
+            blendDstAlpha != dstAlpha) {
+            blendSrcRGB = srcRGB;
+            blendDstRGB = dstRGB;
+            blendSrcAlpha = srcAlpha;
+            blendDstAlpha = dstAlpha;
+            stateDirty = true;
+        }
+    }
+
+    @Override
+    public void setBlendFunc(int srcFactor, int dstFactor) {
+        setBlendFuncSeparate(srcFactor, dstFactor, srcFactor, dstFactor);
+    }
+
+    @Override
+    public void setSpriteColor(int packedColor) {
+        this.colorBits = packedColor;
+    }
+
+    @Override
+    public int spriteColor() {
+        return colorBits;
+    }
+
+    @Override
+    public boolean isBlendDisabled() {
+        return blendDisabled;
+    }
+
+    @Override
+    public boolean isDrawing() {
+        return drawing;
+    }
+
+    @Override
+    public void dispose() {
+        if (disposed) return;
+        disposed = true;
+        mesh.dispose();
+        if (ownsShader && shader != null) {
+            shader.dispose();
+        }
+    }
+}
@@ -0,0 +1,678 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.batch;
+
+import org.jetbrains.annotations.Nullable;
+import org.joml.Math;
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.joml.Vector3f;
+import org.lwjgl.opengl.ARBInstancedArrays;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import union.xenfork.fe2d.Fe2D;
+import union.xenfork.fe2d.graphics.Color;
+import union.xenfork.fe2d.graphics.DataType;
+import union.xenfork.fe2d.graphics.GLStateManager;
+import union.xenfork.fe2d.graphics.Graphics;
+import union.xenfork.fe2d.graphics.RenderStats;
+import union.xenfork.fe2d.graphics.ShaderProgram;
+import union.xenfork.fe2d.graphics.ShaderUniform;
+import union.xenfork.fe2d.graphics.UniformBlock;
+import union.xenfork.fe2d.graphics.UniformHandle;
+import union.xenfork.fe2d.graphics.sprite.Sprite;
+import union.xenfork.fe2d.graphics.texture.Texture;
+import union.xenfork.fe2d.graphics.texture.TextureRegion;
+import union.xenfork.fe2d.graphics.vertex.VertexAttribute;
+import union.xenfork.fe2d.graphics.vertex.VertexLayout;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL33C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static union.xenfork.fe2d.graphics.GLStateManager.*;
+
+/**
+ * The instanced sprite batch.
+ * <p>
+ * Each sprite is written as one instance record ({@link #INSTANCE_LAYOUT}) of {@value #INSTANCE_SIZE} bytes,
+ * instead of 4 vertices of {@link Sprite#SPRITE_SIZE} bytes in total, and a static unit quad is expanded
+ * in the vertex shader.
+ * <p>
+ * Requires OpenGL 3.3, or OpenGL 3.2 with {@code ARB_instanced_arrays}.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public class InstancedSpriteBatch implements Batch {
+    /**
+     * The name of the unit quad corner attribute.
+     */
+    public static final String CORNER_ATTRIB = "fe_Corner";
+    /**
+     * The name of the instance position attribute, which is the world position of the origin.
+     */
+    public static final String INSTANCE_POSITION_ATTRIB = "fe_InstancePosition";
+    /**
+     * The name of the instance size attribute, which is scaled.
+     */
+    public static final String INSTANCE_SIZE_ATTRIB = "fe_InstanceSize";
+    /**
+     * The name of the instance origin attribute, which is scaled and relative to the bottom left corner.
+     */
+    public static final String INSTANCE_ORIGIN_ATTRIB = "fe_InstanceOrigin";
+    /**
+     * The name of the instance rotation attribute, in radians.
+     */
+    public static final String INSTANCE_ROTATION_ATTRIB = "fe_InstanceRotation";
+    /**
+     * The name of the instance texture coordinate rectangle attribute, in {@code (u0, v0, u1, v1)}.
+     */
+    public static final String INSTANCE_UV_ATTRIB = "fe_InstanceUV";
+    /**
+     * The vertex layout of the unit quad.
+     */
+    public static final VertexLayout QUAD_LAYOUT = new VertexLayout(
+        VertexAttribute.ofDirect(0, CORNER_ATTRIB, 2, DataType.FLOAT, false)
+    );
+    /**
+     * The layout of the instance record.
+     */
+    public static final VertexLayout INSTANCE_LAYOUT = new VertexLayout(
+        VertexAttribute.ofDirect(1, INSTANCE_POSITION_ATTRIB, 2, DataType.FLOAT, false),
+        VertexAttribute.ofDirect(2, INSTANCE_SIZE_ATTRIB, 2, DataType.FLOAT, false),
+        VertexAttribute.ofDirect(3, INSTANCE_ORIGIN_ATTRIB, 2, DataType.FLOAT, false),
+        VertexAttribute.ofDirect(4, INSTANCE_ROTATION_ATTRIB, 1, DataType.FLOAT, false),
+        VertexAttribute.colorPacked().getDirect(5),
+        VertexAttribute.ofDirect(6, INSTANCE_UV_ATTRIB, 4, DataType.FLOAT, false)
+    );
+    /**
+     * The instance record size in bytes.
+     */
+    public static final int INSTANCE_SIZE = 7 * Float.BYTES + 4 * Byte.BYTES + 4 * Float.BYTES;
+    /**
+     * The default value of max sprites.
+     */
+    public static final int DEFAULT_MAX_SPRITES = SpriteBatch.DEFAULT_MAX_SPRITES;
+    /**
+     * The max sprites.
+     */
+    public static final int MAX_SPRITES = Integer.MAX_VALUE / INSTANCE_SIZE;
+    private final int vao, quadVbo, instanceVbo, ebo;
+    private final ByteBuffer instanceBuffer;
+    private final int maxInstanceBytesSize;
+    private final Matrix4f projectionMatrix = new Matrix4f();
+    private final Matrix4f modelMatrix = new Matrix4f();
+    private final Vector3f spriteRotation = new Vector3f();
+    final ShaderProgram shader;
+    private ShaderProgram customShader;
+    private final boolean ownsShader;
+    private int blendSrcRGB = GL_SRC_ALPHA;
+    private int blendDstRGB = GL_ONE_MINUS_SRC_ALPHA;
+    private int blendSrcAlpha = GL_SRC_ALPHA;
+    private int blendDstAlpha = GL_ONE_MINUS_SRC_ALPHA;
+    private boolean blendDisabled = false;
+    private boolean drawing = false;
+    private int colorBits = Color.WHITE_BITS;
+    private int instanceBufferPos = 0;
+    private int drawnSpriteCount = 0;
+    private Texture lastTexture;
+    private float invTexWidth, invTexHeight;
+    private ShaderProgram uniformShader;
+    private UniformHandle hasTexture0Uniform;
+    private boolean disposed = false;
+
+    /**
+     * Creates the instanced sprite batch with the given shader and size.
+     *
+     * @param defaultShader the custom shader to be used. if no custom shader provided, {@link #createDefaultShader()} is used.
+     * @param maxSprites    the max sprite count. defaults to {@value #DEFAULT_MAX_SPRITES}.
+     * @throws IllegalStateException if instanced arrays are not supported.
+     */
+    public InstancedSpriteBatch(@Nullable ShaderProgram defaultShader, int maxSprites) {
+        GLCapabilities caps = GL.getCapabilities();
+        if (!isSupported()) {
+            throw new IllegalStateException("Instanced sprite batch requires OpenGL 3.3, or OpenGL 3.2 with ARB_instanced_arrays!");
+        }
+        int size = Math.clamp(1, MAX_SPRITES, maxSprites);
+        this.maxInstanceBytesSize = size * INSTANCE_SIZE;
+        this.instanceBuffer = memCalloc(maxInstanceBytesSize);
+        this.shader = defaultShader != null ? defaultShader : createDefaultShader();
+        this.ownsShader = defaultShader == null;
+
+        projectionMatrix.setOrtho2D(0, Fe2D.graphics.width(), 0, Fe2D.graphics.height());
+
+        vao = glGenVertexArrays();
+        quadVbo = glGenBuffers();
+        instanceVbo = glGenBuffers();
+        ebo = glGenBuffers();
+        int currBinding = vertexArrayBinding();
+        bindVertexArray(vao);
+
+        // bottom left, top left, top right, bottom right
+        bindArrayBuffer(quadVbo);
+        glBufferData(GL_ARRAY_BUFFER, new float[]{0f, 0f, 0f, 1f, 1f, 1f, 1f, 0f}, GL_STATIC_DRAW);
+        QUAD_LAYOUT.forEachAttribute((attribute, index) -> {
+            glEnableVertexAttribArray(index);
+            glVertexAttribPointer(index,
+                attribute.size(),
+                attribute.type().typeEnum(),
+                attribute.normalized(),
+                QUAD_LAYOUT.stride(),
+                QUAD_LAYOUT.getPointer(index));
+        });
+
+        bindArrayBuffer(instanceVbo);
+        nglBufferData(GL_ARRAY_BUFFER, maxInstanceBytesSize, NULL, GL_STREAM_DRAW);
+        INSTANCE_LAYOUT.forEachAttribute((attribute, index) -> {
+            glEnableVertexAttribArray(index);
+            glVertexAttribPointer(index,
+                attribute.size(),
+                attribute.type().typeEnum(),
+                attribute.normalized(),
+                INSTANCE_LAYOUT.stride(),
+                INSTANCE_LAYOUT.getPointer(index));
+            if (caps.OpenGL33) {
+                glVertexAttribDivisor(index, 1);
+            } else {
+                ARBInstancedArrays.glVertexAttribDivisorARB(index, 1);
+            }
+        });
+        bindArrayBuffer(0);
+
+        bindElementArrayBuffer(ebo);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, new int[]{0, 1, 2, 2, 3, 0}, GL_STATIC_DRAW);
+        bindVertexArray(currBinding);
+    }
+
+    /**
+     * Creates the instanced sprite batch with the given size.
+     *
+     * @param maxSprites the max sprite count.
+     */
+    public InstancedSpriteBatch(int maxSprites) {
+        this(null, maxSprites);
+    }
+
+    /**
+     * Creates the instanced sprite batch with the given shader.
+     *
+     * @param defaultShader the custom shader to be used. if no custom shader provided, {@link #createDefaultShader()} is used.
+     */
+    public InstancedSpriteBatch(@Nullable ShaderProgram defaultShader) {
+        this(defaultShader, DEFAULT_MAX_SPRITES);
+    }
+
+    /**
+     * Creates the instanced sprite batch with the default size.
+     */
+    public InstancedSpriteBatch() {
+        this(null, DEFAULT_MAX_SPRITES);
+    }
+
+    /**
+     * Returns {@code true} if the current context supports instanced sprite batch. The default shader requires
+     * GLSL 1.50, so OpenGL 3.2 is required with {@code ARB_instanced_arrays}.
+     *
+     * @return {@code true} if the current context supports instanced sprite batch.
+     */
+    public static boolean isSupported() {
+        GLCapabilities caps = GL.getCapabilities();
+        return caps.OpenGL33 || (caps.OpenGL32 && caps.GL_ARB_instanced_arrays);
+    }
+
+    /**
+     * Creates the default shader program for instanced sprites.
+     * <p>
+     * The attributes in {@link #QUAD_LAYOUT} and {@link #INSTANCE_LAYOUT} and
+     * builtin <a href="../ShaderProgram.html#Builtin_Uniforms">uniforms</a> are used.
+     * <p>
+     * An additional uniform {@code HasTexture0} is used.
+     *
+     * @return the shader program.
+     */
+    public static ShaderProgram createDefaultShader() {
+        Map<String, Integer> attributeMap = new HashMap<>();
+        QUAD_LAYOUT.forEachAttribute((attribute, index) -> attributeMap.put(attribute.name(), index));
+        INSTANCE_LAYOUT.forEachAttribute((attribute, index) -> attributeMap.put(attribute.name(), index));
+        return new ShaderProgram(String.format("""
+            #version 150 core
+            in vec2 %1$s;
+            in vec2 %2$s;
+            in vec2 %3$s;
+            in vec2 %4$s;
+            in float %5$s;
+            in vec4 %6$s;
+            in vec4 %7$s;
+            out vec4 vertexColor;
+            out vec2 UV0;
+            %9$s
+            uniform mat4 %8$s;
+            void main() {
+                vec2 local = %1$s * %3$s - %4$s;
+                float s = sin(%5$s);
+                float c = cos(%5$s);
+                vec2 pos = %2$s + vec2(c * local.x - s * local.y, s * local.x + c * local.y);
+                gl_Position = %10$s * %8$s * vec4(pos, 0.0, 1.0);
+                vertexColor = %6$s;
+                UV0 = vec2(mix(%7$s.x, %7$s.z, %1$s.x), mix(%7$s.w, %7$s.y, %1$s.y));
+            }
+            """, CORNER_ATTRIB, INSTANCE_POSITION_ATTRIB, INSTANCE_SIZE_ATTRIB, INSTANCE_ORIGIN_ATTRIB,
+            INSTANCE_ROTATION_ATTRIB, VertexAttribute.COLOR_ATTRIB, INSTANCE_UV_ATTRIB,
+            ShaderProgram.U_MODEL_MATRIX,
+            UniformBlock.FRAME_BLOCK_SOURCE, ShaderProgram.U_PROJECTION_VIEW_MATRIX
+        ), String.format("""
+            #version 150 core
+            in vec4 vertexColor;
+            in vec2 UV0;
+            out vec4 FragColor;
+            uniform sampler2D %1$s;
+            uniform int HasTexture0;
+            void main() {
+                // If HasTexture0 is 0, only 1.0 will be multiplier.
+                FragColor = vertexColor * (HasTexture0 * (texture(%1$s, UV0) - 1.0) + 1.0);
+            }
+            """, ShaderProgram.U_SAMPLER + '0'),
+            attributeMap);
+    }
+
+    @Override
+    public void begin() {
+        if (drawing) throw new IllegalStateException("Cannot call InstancedSpriteBatch.begin while drawing");
+        drawing = true;
+        instanceBufferPos = 0;
+        drawnSpriteCount = 0;
+    }
+
+    @Override
+    public void end() {
+        if (!drawing) throw new IllegalStateException("Can only call InstancedSpriteBatch.end while drawing");
+        if (instanceBufferPos > 0) flush(RenderStats.FlushReason.EXPLICIT);
+        lastTexture = null;
+        drawing = false;
+    }
+
+    @Override
+    public void flush() {
+        flush(RenderStats.FlushReason.EXPLICIT);
+    }
+
+    private void flush(RenderStats.FlushReason reason) {
+        if (instanceBufferPos == 0) return;
+        checkDrawing();
+        Graphics.getInstance().renderStats().flush(reason);
+        bindArrayBuffer(instanceVbo);
+        // orphans the buffer, so the previous draw doesn't have to be finished
+        nglBufferData(GL_ARRAY_BUFFER, maxInstanceBytesSize, NULL, GL_STREAM_DRAW);
+        nglBufferSubData(GL_ARRAY_BUFFER, 0, instanceBufferPos, memAddress(instanceBuffer));
+        bindArrayBuffer(0);
+        Graphics.getInstance().renderStats().upload(instanceBufferPos);
+        int currPrg = currentProgram();
+        int currTex = textureBinding2D();
+        boolean blend = isBlendEnabled();
+        int sRGB = blendSrcRGB();
+        int dRGB = blendDstRGB();
+        int sAlpha = blendSrcAlpha();
+        int dAlpha = blendDstAlpha();
+        if (blendDisabled && blend) {
+            GLStateManager.disableBlend();
+        } else if (!blendDisabled) {
+            if (!blend) {
+                GLStateManager.enableBlend();
+            }
+            blendFuncSeparate(blendSrcRGB, blendDstRGB, blendSrcAlpha, blendDstAlpha);
+        }
+        shader().use();
+        boolean hasTexture = lastTexture != null;
+        resolveUniforms();
+        hasTexture0Uniform.set(hasTexture);
+        setupMatrices();
+        if (hasTexture) {
+            lastTexture.bind();
+        }
+        int currBinding = vertexArrayBinding();
+        bindVertexArray(vao);
+        glDrawElementsInstanced(GL_TRIANGLES, 6, GL_UNSIGNED_INT, 0, drawnSpriteCount);
+        Graphics.getInstance().renderStats().drawCall(6L * drawnSpriteCount);
+        bindVertexArray(currBinding);
+        bindTexture2D(currTex);
+        drawnSpriteCount = 0;
+        instanceBufferPos = 0;
+        useProgram(currPrg);
+        if (blendDisabled && blend) {
+            GLStateManager.enableBlend();
+        } else if (!blendDisabled) {
+            if (!blend) {
+                GLStateManager.disableBlend();
+            }
+            blendFuncSeparate(sRGB, dRGB, sAlpha, dAlpha);
+        }
+    }
+
+    private void checkDrawing() {
+        if (!drawing)
+            throw new IllegalStateException("Can only call InstancedSpriteBatch.draw or flush between begin and end (while drawing)");
+    }
+
+    private void switchTexture(Texture texture) {
+        flush(RenderStats.FlushReason.TEXTURE_SWITCH);
+        lastTexture = texture;
+        if (texture != null) {
+            invTexWidth = 1f / texture.width();
+            invTexHeight = 1f / texture.height();
+        } else {
+            invTexWidth = 0;
+            invTexHeight = 0;
+        }
+    }
+
+    private void putInstance(float x, float y,
+                             float width, float height,
+                             float originX, float originY,
+                             float rotation,
+                             float u0, float v0, float u1, float v1) {
+        int pos = instanceBufferPos;
+        instanceBuffer.putFloat(pos, x).putFloat(pos + 4, y)
+            .putFloat(pos + 8, width).putFloat(pos + 12, height)
+            .putFloat(pos + 16, originX).putFloat(pos + 20, originY)
+            .putFloat(pos + 24, rotation)
+            .putInt(pos + 28, colorBits)
+            .putFloat(pos + 32, u0).putFloat(pos + 36, v0).putFloat(pos + 40, u1).putFloat(pos + 44, v1);
+        instanceBufferPos += INSTANCE_SIZE;
+        drawnSpriteCount++;
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation, float u0, float v0, float u1, float v1, boolean flipX, boolean flipY) {
+        checkDrawing();
+        if (texture != lastTexture)
+            switchTexture(texture);
+        else if (instanceBufferPos >= maxInstanceBytesSize)
+            flush(RenderStats.FlushReason.BUFFER_FULL);
+
+        if (flipX) {
+            float tmp = u0;
+            u0 = u1;
+            u1 = tmp;
+        }
+
+        if (flipY) {
+            float tmp = v0;
+            v0 = v1;
+            v1 = tmp;
+        }
+
+        // the scale is baked into the size and the origin
+        putInstance(x + originX, y + originY,
+            width * scaleX, height * scaleY,
+            originX * scaleX, originY * scaleY,
+            rotation,
+            u0, v0, u1, v1);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, float u0, float v0, float u1, float v1, boolean flipX, boolean flipY) {
+        if (flipX) {
+            float tmp = u0;
+            u0 = u1;
+            u1 = tmp;
+        }
+
+        if (flipY) {
+            float tmp = v0;
+            v0 = v1;
+            v1 = tmp;
+        }
+
+        draw(texture, x, y, width, height, u0, v0, u1, v1);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, float u0, float v0, float u1, float v1) {
+        checkDrawing();
+        if (texture != lastTexture)
+            switchTexture(texture);
+        else if (instanceBufferPos >= maxInstanceBytesSize)
+            flush(RenderStats.FlushReason.BUFFER_FULL);
+
+        putInstance(x, y, width, height, 0f, 0f, 0f, u0, v0, u1, v1);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height) {
+        draw(texture, x, y, width, height, 0f, 0f, 1f, 1f);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y) {
+        draw(texture, x, y, texture.width(), texture.height());
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation, TextureRegion region, boolean flipX, boolean flipY) {
+        checkDrawing();
+        if (texture != lastTexture)
+            switchTexture(texture);
+        draw(texture, x, y, originX, originY, width, height, scaleX, scaleY, rotation,
+            region.u0() * invTexWidth, region.v0() * invTexHeight,
+            region.u1() * invTexWidth, region.v1() * invTexHeight,
+            flipX, flipY);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, TextureRegion region, boolean flipX, boolean flipY) {
+        checkDrawing();
+        if (texture != lastTexture)
+            switchTexture(texture);
+        draw(texture, x, y, width, height,
+            region.u0() * invTexWidth, region.v0() * invTexHeight,
+            region.u1() * invTexWidth, region.v1() * invTexHeight,
+            flipX, flipY);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, TextureRegion region) {
+        draw(texture, x, y, width, height, region, false, false);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, TextureRegion region) {
+        draw(texture, x, y, region.u1() - region.u0(), region.v1() - region.v0(), region);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * An instance is a rotated rectangle with one color, which can't represent arbitrary quads,
+     * so this batch doesn't support pre-built vertices. Use {@link SpriteBatch} instead.
+     *
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void draw(Texture texture, long address, int count) {
+        throw new UnsupportedOperationException("InstancedSpriteBatch doesn't support pre-built vertices");
+    }
+
+    /**
+     * Draws a sprite. FlipX and flipY specify whether the texture portion should be flipped horizontally or vertically.
+     *
+     * @param sprite the sprite to be drawn.
+     * @param flipX  whether to flip the sprite horizontally.
+     * @param flipY  whether to flip the sprite vertically.
+     */
+    public void draw(Sprite sprite, boolean flipX, boolean flipY) {
+        int currColor = spriteColor();
+        setSpriteColor(sprite.color);
+        draw(sprite.texture,
+            sprite.position.x(), sprite.position.y(),
+            sprite.anchor.x(), sprite.anchor.y(),
+            sprite.size.x(), sprite.size.y(),
+            sprite.scale.x(), sprite.scale.y(),
+            sprite.rotation.getEulerAnglesZYX(spriteRotation).z(),
+            sprite.textureRegion,
+            flipX, flipY);
+        setSpriteColor(currColor);
+    }
+
+    /**
+     * Draws a sprite.
+     *
+     * @param sprite the sprite to be drawn.
+     */
+    public void draw(Sprite sprite) {
+        draw(sprite, false, false);
+    }
+
+    /**
+     * Resolves the uniform handles of the current shader. The handles are resolved again after the shader changes.
+     */
+    private void resolveUniforms() {
+        ShaderProgram program = shader();
+        if (program != uniformShader) {
+            uniformShader = program;
+            hasTexture0Uniform = program.uniform("HasTexture0", ShaderUniform.Type.INT);
+        }
+    }
+
+    private void setupMatrices() {
+        shader().setMatrices(projectionMatrix, modelMatrix);
+        shader().uploadUniforms();
+    }
+
+    @Override
+    public void setShader(ShaderProgram shader) {
+        if (shader == customShader) return;
+        if (drawing) flush(RenderStats.FlushReason.SHADER_CHANGE);
+        customShader = shader;
+        if (drawing) {
+            int currProgram = currentProgram();
+            shader().use();
+            setupMatrices();
+            useProgram(currProgram);
+        }
+    }
+
+    @Override
+    public ShaderProgram shader() {
+        return customShader != null ? customShader : shader;
+    }
+
+    @Override
+    public Matrix4f projectionMatrix() {
+        return projectionMatrix;
+    }
+
+    @Override
+    public Matrix4f modelMatrix() {
+        return modelMatrix;
+    }
+
+    @Override
+    public void setProjectionMatrix(Matrix4fc projectionMatrix) {
+        if (drawing) flush(RenderStats.FlushReason.MATRIX_CHANGE);
+        this.projectionMatrix.set(projectionMatrix);
+        if (drawing) {
+            int currProgram = currentProgram();
+            shader().use();
+            setupMatrices();
+            useProgram(currProgram);
+        }
+    }
+
+    @Override
+    public void setModelMatrix(Matrix4fc modelMatrix) {
+        if (drawing) flush(RenderStats.FlushReason.MATRIX_CHANGE);
+        this.modelMatrix.set(modelMatrix);
+        if (drawing) {
+            int currProgram = currentProgram();
+            shader().use();
+            setupMatrices();
+            useProgram(currProgram);
+        }
+    }
+
+    @Override
+    public void enableBlend() {
+        if (!blendDisabled) return;
+        flush(RenderStats.FlushReason.BLEND_CHANGE);
+        blendDisabled = false;
+    }
+
+    @Override
+    public void disableBlend() {
+        if (blendDisabled) return;
+        flush(RenderStats.FlushReason.BLEND_CHANGE);
+        blendDisabled = true;
+    }
+
+    @Override
+    public void setBlendFuncSeparate(int srcRGB, int dstRGB, int srcAlpha, int dstAlpha) {
+        if (blendSrcRGB != srcRGB ||
+            blendDstRGB != dstRGB ||
+            blendSrcAlpha != srcAlpha ||
+            blendDstAlpha != dstAlpha) {
+            flush(RenderStats.FlushReason.BLEND_CHANGE);
+            blendSrcRGB = srcRGB;
+            blendDstRGB = dstRGB;
+            blendSrcAlpha = srcAlpha;
+            blendDstAlpha = dstAlpha;
+        }
+    }
+
+    @Override
+    public void setBlendFunc(int srcFactor, int dstFactor) {
+        setBlendFuncSeparate(srcFactor, dstFactor, srcFactor, dstFactor);
+    }
+
+    @Override
+    public void setSpriteColor(int packedColor) {
+        this.colorBits = packedColor;
+    }
+
+    @Override
+    public int spriteColor() {
+        return colorBits;
+    }
+
+    @Override
+    public boolean isBlendDisabled() {
+        return blendDisabled;
+    }
+
+    @Override
+    public boolean isDrawing() {
+        return drawing;
+    }
+
+    @Override
+    public void dispose() {
+        if (disposed) return;
+        disposed = true;
+        memFree(instanceBuffer);
+        deleteVertexArray(vao);
+        deleteBuffer(quadVbo);
+        deleteBuffer(instanceVbo);
+        deleteBuffer(ebo);
+        if (ownsShader && shader != null) {
+            shader.dispose();
+        }
+    }
+}
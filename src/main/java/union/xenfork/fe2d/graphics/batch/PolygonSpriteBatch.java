@@ -0,0 +1,729 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.batch;
+
+import org.jetbrains.annotations.Nullable;
+import org.joml.Math;
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import org.joml.Vector3f;
+import union.xenfork.fe2d.Fe2D;
+import union.xenfork.fe2d.graphics.Color;
+import union.xenfork.fe2d.graphics.GLStateManager;
+import union.xenfork.fe2d.graphics.Graphics;
+import union.xenfork.fe2d.graphics.RenderStats;
+import union.xenfork.fe2d.graphics.ShaderProgram;
+import union.xenfork.fe2d.graphics.ShaderUniform;
+import union.xenfork.fe2d.graphics.UniformHandle;
+import union.xenfork.fe2d.graphics.mesh.Mesh;
+import union.xenfork.fe2d.graphics.sprite.Sprite;
+import union.xenfork.fe2d.graphics.texture.PolygonRegion;
+import union.xenfork.fe2d.graphics.texture.Texture;
+import union.xenfork.fe2d.graphics.texture.TextureRegion;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL20C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static union.xenfork.fe2d.graphics.GLStateManager.*;
+
+/**
+ * The polygon sprite batch.
+ * <p>
+ * Unlike {@link SpriteBatch}, which draws every sprite as a quad with a fixed index pattern, this batch accepts
+ * arbitrary triangulated polygons and streams the indices with the vertices. Drawing the
+ * {@linkplain PolygonRegion#convexHull convex hull} of a mostly transparent sprite
+ * instead of its rectangle reduces the fragments to be shaded.
+ * <p>
+ * The vertex layout is {@link Sprite#LAYOUT}, so the shaders of {@link SpriteBatch} can be used.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public class PolygonSpriteBatch implements Batch {
+    /**
+     * The default value of max vertices.
+     */
+    public static final int DEFAULT_MAX_VERTICES = SpriteBatch.DEFAULT_MAX_SPRITES * Sprite.SPRITE_VERTEX;
+    /**
+     * The default value of max triangles.
+     */
+    public static final int DEFAULT_MAX_TRIANGLES = SpriteBatch.DEFAULT_MAX_SPRITES * 2;
+    private final Mesh mesh;
+    private final int vertexSize;
+    private final int maxVertices;
+    private final int maxIndices;
+    private final Matrix4f projectionMatrix = new Matrix4f();
+    private final Matrix4f modelMatrix = new Matrix4f();
+    private final Vector3f spriteRotation = new Vector3f();
+    final ShaderProgram shader;
+    private ShaderProgram customShader;
+    private final boolean ownsShader;
+    private int blendSrcRGB = GL_SRC_ALPHA;
+    private int blendDstRGB = GL_ONE_MINUS_SRC_ALPHA;
+    private int blendSrcAlpha = GL_SRC_ALPHA;
+    private int blendDstAlpha = GL_ONE_MINUS_SRC_ALPHA;
+    private boolean blendDisabled = false;
+    private boolean drawing = false;
+    private int colorBits = Color.WHITE_BITS;
+    private int vertexBufferPos = 0;
+    private int vertexCount = 0;
+    private int indexCount = 0;
+    private Texture lastTexture;
+    private float invTexWidth, invTexHeight;
+    private ShaderProgram uniformShader;
+    private UniformHandle hasTexture0Uniform;
+    private boolean disposed = false;
+
+    /**
+     * Creates the polygon sprite batch with the given shader and size.
+     *
+     * @param defaultShader the custom shader to be used. if no custom shader provided,
+     *                      {@link SpriteBatch#createDefaultShader()} is used.
+     * @param maxVertices   the max vertex count per flush. defaults to {@value #DEFAULT_MAX_VERTICES}.
+     * @param maxTriangles  the max triangle count per flush. defaults to {@value #DEFAULT_MAX_TRIANGLES}.
+     */
+    public PolygonSpriteBatch(@Nullable ShaderProgram defaultShader, int maxVertices, int maxTriangles) {
+        this.vertexSize = Sprite.LAYOUT.stride();
+        this.maxVertices = Math.clamp(Sprite.SPRITE_VERTEX, Integer.MAX_VALUE / vertexSize, maxVertices);
+        this.maxIndices = Math.clamp(2, Integer.MAX_VALUE / 3 / Integer.BYTES, maxTriangles) * 3;
+        this.mesh = Mesh.fixedSize(Sprite.LAYOUT, this.maxVertices, this.maxIndices, Mesh.DEFAULT_STREAM_REGIONS);
+        this.shader = defaultShader != null ? defaultShader : SpriteBatch.createDefaultShader();
+        this.ownsShader = defaultShader == null;
+        projectionMatrix.setOrtho2D(0, Fe2D.graphics.width(), 0, Fe2D.graphics.height());
+    }
+
+    /**
+     * Creates the polygon sprite batch with the given size.
+     *
+     * @param maxVertices  the max vertex count per flush.
+     * @param maxTriangles the max triangle count per flush.
+     */
+    public PolygonSpriteBatch(int maxVertices, int maxTriangles) {
+        this(null, maxVertices, maxTriangles);
+    }
+
+    /**
+     * Creates the polygon sprite batch with the given shader.
+     *
+     * @param defaultShader the custom shader to be used. if no custom shader provided,
+     *                      {@link SpriteBatch#createDefaultShader()} is used.
+     */
+    public PolygonSpriteBatch(@Nullable ShaderProgram defaultShader) {
+        this(defaultShader, DEFAULT_MAX_VERTICES, DEFAULT_MAX_TRIANGLES);
+    }
+
+    /**
+     * Creates the polygon sprite batch with the default size.
+     */
+    public PolygonSpriteBatch() {
+        this(null, DEFAULT_MAX_VERTICES, DEFAULT_MAX_TRIANGLES);
+    }
+
+    @Override
+    public void begin() {
+        if (drawing) throw new IllegalStateException("Cannot call PolygonSpriteBatch.begin while drawing");
+        drawing = true;
+        vertexBufferPos = 0;
+        vertexCount = 0;
+        indexCount = 0;
+    }
+
+    @Override
+    public void end() {
+        if (!drawing) throw new IllegalStateException("Can only call PolygonSpriteBatch.end while drawing");
+        if (indexCount > 0) flush(RenderStats.FlushReason.EXPLICIT);
+        lastTexture = null;
+        drawing = false;
+    }
+
+    @Override
+    public void flush() {
+        flush(RenderStats.FlushReason.EXPLICIT);
+    }
+
+    private void flush(RenderStats.FlushReason reason) {
+        if (indexCount == 0) return;
+        checkDrawing();
+        Graphics.getInstance().renderStats().flush(reason);
+        mesh.updateVertices(vertexBufferPos);
+        mesh.updateIndices(indexCount);
+        int currPrg = currentProgram();
+        int currTex = textureBinding2D();
+        boolean blend = isBlendEnabled();
+        int sRGB = blendSrcRGB();
+        int dRGB = blendDstRGB();
+        int sAlpha = blendSrcAlpha();
+        int dAlpha = blendDstAlpha();
+        if (blendDisabled && blend) {
+            GLStateManager.disableBlend();
+        } else if (!blendDisabled) {
+            if (!blend) {
+                GLStateManager.enableBlend();
+            }
+            blendFuncSeparate(blendSrcRGB, blendDstRGB, blendSrcAlpha, blendDstAlpha);
+        }
+        shader().use();
+        boolean hasTexture = lastTexture != null;
+        resolveUniforms();
+        hasTexture0Uniform.set(hasTexture);
+        setupMatrices();
+        if (hasTexture) {
+            lastTexture.bind();
+        }
+        mesh.render(GL_TRIANGLES, indexCount);
+        bindTexture2D(currTex);
+        vertexBufferPos = 0;
+        vertexCount = 0;
+        indexCount = 0;
+        useProgram(currPrg);
+        if (blendDisabled && blend) {
+            GLStateManager.enableBlend();
+        } else if (!blendDisabled) {
+            if (!blend) {
+                GLStateManager.disableBlend();
+            }
+            blendFuncSeparate(sRGB, dRGB, sAlpha, dAlpha);
+        }
+    }
+
+    private void checkDrawing() {
+        if (!drawing)
+            throw new IllegalStateException("Can only call PolygonSpriteBatch.draw or flush between begin and end (while drawing)");
+    }
+
+    private void switchTexture(Texture texture) {
+        flush(RenderStats.FlushReason.TEXTURE_SWITCH);
+        lastTexture = texture;
+        if (texture != null) {
+            invTexWidth = 1f / texture.width();
+            invTexHeight = 1f / texture.height();
+        } else {
+            invTexWidth = 0;
+            invTexHeight = 0;
+        }
+    }
+
+    /**
+     * Prepares for writing the given count of vertices and indices.
+     *
+     * @param texture  the texture.
+     * @param vertices the count of vertices.
+     * @param indices  the count of indices.
+     */
+    private void prepare(Texture texture, int vertices, int indices) {
+        if (vertices > maxVertices || indices > maxIndices) {
+            throw new IllegalArgumentException("Polygon too large! got " + vertices + " vertices and " + indices +
+                                               " indices; max " + maxVertices + " and " + maxIndices);
+        }
+        if (texture != lastTexture)
+            switchTexture(texture);
+        else if (vertexCount + vertices > maxVertices || indexCount + indices > maxIndices)
+            flush(RenderStats.FlushReason.BUFFER_FULL);
+    }
+
+    private void putVertex(ByteBuffer buffer, float x, float y, float u, float v) {
+        buffer.putFloat(vertexBufferPos, x).putFloat(vertexBufferPos + 4, y)
+            .putInt(vertexBufferPos + 8, colorBits)
+            .putFloat(vertexBufferPos + 12, u).putFloat(vertexBufferPos + 16, v);
+        vertexBufferPos += vertexSize;
+    }
+
+    private void putQuad(float x1, float y1, float x2, float y2, float x3, float y3, float x4, float y4,
+                         float u0, float v0, float u1, float v1) {
+        ByteBuffer buffer = mesh.vertexBuffer();
+        IntBuffer indices = mesh.indexBuffer();
+        // left-top
+        putVertex(buffer, x1, y1, u0, v1);
+        // left-bottom
+        putVertex(buffer, x2, y2, u0, v0);
+        // right-bottom
+        putVertex(buffer, x3, y3, u1, v0);
+        // right-top
+        putVertex(buffer, x4, y4, u1, v1);
+        indices.put(indexCount, vertexCount)
+            .put(indexCount + 1, vertexCount + 1)
+            .put(indexCount + 2, vertexCount + 2)
+            .put(indexCount + 3, vertexCount + 2)
+            .put(indexCount + 4, vertexCount + 3)
+            .put(indexCount + 5, vertexCount);
+        vertexCount += 4;
+        indexCount += 6;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The vertices are copied with one bulk copy per flush.
+     */
+    @Override
+    public void draw(Texture texture, long address, int count) {
+        checkDrawing();
+        if (count < 0 || count % Sprite.SPRITE_VERTEX != 0) {
+            throw new IllegalArgumentException("Vertex count must be a non-negative multiple of " + Sprite.SPRITE_VERTEX + "! got: " + count);
+        }
+        if (texture != lastTexture)
+            switchTexture(texture);
+        int spriteCount = count / Sprite.SPRITE_VERTEX;
+        while (spriteCount > 0) {
+            int capacity = Math.min((maxVertices - vertexCount) / Sprite.SPRITE_VERTEX, (maxIndices - indexCount) / 6);
+            if (capacity <= 0) {
+                flush(RenderStats.FlushReason.BUFFER_FULL);
+                continue;
+            }
+            int n = Math.min(capacity, spriteCount);
+            long size = (long) n * Sprite.SPRITE_SIZE;
+            memCopy(address, memAddress(mesh.vertexBuffer()) + vertexBufferPos, size);
+            IntBuffer indices = mesh.indexBuffer();
+            for (int i = 0; i < n; i++, indexCount += 6, vertexCount += 4) {
+                indices.put(indexCount, vertexCount)
+                    .put(indexCount + 1, vertexCount + 1)
+                    .put(indexCount + 2, vertexCount + 2)
+                    .put(indexCount + 3, vertexCount + 2)
+                    .put(indexCount + 4, vertexCount + 3)
+                    .put(indexCount + 5, vertexCount);
+            }
+            address += size;
+            vertexBufferPos += (int) size;
+            spriteCount -= n;
+        }
+    }
+
+    /**
+     * Draws the triangles with the given vertices and indices.
+     *
+     * @param texture        the texture.
+     * @param vertices       the vertices in {@code (x, y, u, v)}, with normalized texture coordinates.
+     * @param vertexOffset   the offset of the first vertex in floats.
+     * @param vertexCount    the count of vertices.
+     * @param triangles      the indices of the vertices of each triangle, relative to the first vertex.
+     * @param triangleOffset the offset of the first index.
+     * @param indexCount     the count of indices.
+     * @throws IllegalArgumentException if the vertices or the indices cannot be held by the buffer.
+     */
+    public void draw(Texture texture,
+                     float[] vertices, int vertexOffset, int vertexCount,
+                     int[] triangles, int triangleOffset, int indexCount) throws IllegalArgumentException {
+        checkDrawing();
+        prepare(texture, vertexCount, indexCount);
+        ByteBuffer buffer = mesh.vertexBuffer();
+        IntBuffer indices = mesh.indexBuffer();
+        for (int i = 0, j = vertexOffset; i < vertexCount; i++, j += 4) {
+            putVertex(buffer, vertices[j], vertices[j + 1], vertices[j + 2], vertices[j + 3]);
+        }
+        for (int i = 0; i < indexCount; i++) {
+            indices.put(this.indexCount + i, this.vertexCount + triangles[triangleOffset + i]);
+        }
+        this.vertexCount += vertexCount;
+        this.indexCount += indexCount;
+    }
+
+    /**
+     * Draws the polygon region.
+     *
+     * @param region   the polygon region.
+     * @param texture  the texture of the region.
+     * @param x        the x position.
+     * @param y        the y position.
+     * @param originX  the x origin, relative to the bottom left corner, for scaling and rotating.
+     * @param originY  the y origin, relative to the bottom left corner, for scaling and rotating.
+     * @param width    the width to be drawn. the polygon is stretched from the size of the texture region.
+     * @param height   the height to be drawn.
+     * @param scaleX   the x scale.
+     * @param scaleY   the y scale.
+     * @param rotation the rotation in radians, counterclockwise around the origin.
+     * @throws IllegalArgumentException if the polygon cannot be held by the buffer.
+     */
+    public void draw(PolygonRegion region, Texture texture, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation)
+        throws IllegalArgumentException {
+        checkDrawing();
+        final float[] polygonVertices = region.vertices();
+        final int[] triangles = region.triangles();
+        final int polygonVertexCount = region.vertexCount();
+        prepare(texture, polygonVertexCount, triangles.length);
+
+        final TextureRegion textureRegion = region.region();
+        final float regionU0 = textureRegion.u0();
+        final float regionV1 = textureRegion.v1();
+        final float sizeX = width / (textureRegion.u1() - textureRegion.u0());
+        final float sizeY = height / (textureRegion.v1() - textureRegion.v0());
+        final float worldOriginX = x + originX;
+        final float worldOriginY = y + originY;
+        final float sin, cos;
+        if (rotation != 0) {
+            sin = Math.sin(rotation);
+            cos = Math.cosFromSin(sin, rotation);
+        } else {
+            sin = 0f;
+            cos = 1f;
+        }
+
+        ByteBuffer buffer = mesh.vertexBuffer();
+        for (int i = 0; i < polygonVertexCount; i++) {
+            final float vx = polygonVertices[i * 2];
+            final float vy = polygonVertices[i * 2 + 1];
+            final float fx = (vx * sizeX - originX) * scaleX;
+            final float fy = (vy * sizeY - originY) * scaleY;
+            putVertex(buffer,
+                cos * fx - sin * fy + worldOriginX,
+                sin * fx + cos * fy + worldOriginY,
+                (regionU0 + vx) * invTexWidth,
+                (regionV1 - vy) * invTexHeight);
+        }
+        IntBuffer indices = mesh.indexBuffer();
+        for (int i = 0; i < triangles.length; i++) {
+            indices.put(indexCount + i, vertexCount + triangles[i]);
+        }
+        vertexCount += polygonVertexCount;
+        indexCount += triangles.length;
+    }
+
+    /**
+     * Draws the polygon region.
+     *
+     * @param region  the polygon region.
+     * @param texture the texture of the region.
+     * @param x       the x position.
+     * @param y       the y position.
+     * @param width   the width to be drawn. the polygon is stretched from the size of the texture region.
+     * @param height  the height to be drawn.
+     * @throws IllegalArgumentException if the polygon cannot be held by the buffer.
+     */
+    public void draw(PolygonRegion region, Texture texture, float x, float y, float width, float height)
+        throws IllegalArgumentException {
+        draw(region, texture, x, y, 0f, 0f, width, height, 1f, 1f, 0f);
+    }
+
+    /**
+     * Draws the polygon region with the size of the texture region.
+     *
+     * @param region  the polygon region.
+     * @param texture the texture of the region.
+     * @param x       the x position.
+     * @param y       the y position.
+     * @throws IllegalArgumentException if the polygon cannot be held by the buffer.
+     */
+    public void draw(PolygonRegion region, Texture texture, float x, float y) throws IllegalArgumentException {
+        TextureRegion textureRegion = region.region();
+        draw(region, texture, x, y,
+            textureRegion.u1() - textureRegion.u0(),
+            textureRegion.v1() - textureRegion.v0());
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation, float u0, float v0, float u1, float v1, boolean flipX, boolean flipY) {
+        checkDrawing();
+        prepare(texture, 4, 6);
+
+        // bottom left and top right corner points relative to origin
+        final float worldOriginX = x + originX;
+        final float worldOriginY = y + originY;
+        float fx = -originX;
+        float fy = -originY;
+        float fx2 = width - originX;
+        float fy2 = height - originY;
+
+        // scale
+        if (scaleX != 1 || scaleY != 1) {
+            fx *= scaleX;
+            fy *= scaleY;
+            fx2 *= scaleX;
+            fy2 *= scaleY;
+        }
+
+        float x1, y1, x2, y2, x3, y3, x4, y4;
+
+        // rotate
+        if (rotation != 0) {
+            final float sin = Math.sin(rotation);
+            final float cos = Math.cosFromSin(sin, rotation);
+
+            x1 = cos * fx - sin * fy;
+            y1 = sin * fx + cos * fy;
+
+            x2 = cos * fx - sin * fy2;
+            y2 = sin * fx + cos * fy2;
+
+            x3 = cos * fx2 - sin * fy2;
+            y3 = sin * fx2 + cos * fy2;
+
+            x4 = x1 + (x3 - x2);
+            y4 = y3 - (y2 - y1);
+        } else {
+            x1 = fx;
+            y1 = fy;
+
+            x2 = fx;
+            y2 = fy2;
+
+            x3 = fx2;
+            y3 = fy2;
+
+            x4 = fx2;
+            y4 = fy;
+        }
+
+        if (flipX) {
+            float tmp = u0;
+            u0 = u1;
+            u1 = tmp;
+        }
+
+        if (flipY) {
+            float tmp = v0;
+            v0 = v1;
+            v1 = tmp;
+        }
+
+        putQuad(x1 + worldOriginX, y1 + worldOriginY,
+            x2 + worldOriginX, y2 + worldOriginY,
+            x3 + worldOriginX, y3 + worldOriginY,
+            x4 + worldOriginX, y4 + worldOriginY,
+            u0, v0, u1, v1);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, float u0, float v0, float u1, float v1, boolean flipX, boolean flipY) {
+        if (flipX) {
+            float tmp = u0;
+            u0 = u1;
+            u1 = tmp;
+        }
+
+        if (flipY) {
+            float tmp = v0;
+            v0 = v1;
+            v1 = tmp;
+        }
+        draw(texture, x, y, width, height, u0, v0, u1, v1);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, float u0, float v0, float u1, float v1) {
+        checkDrawing();
+        prepare(texture, 4, 6);
+        final float fx2 = x + width;
+        final float fy2 = y + height;
+        putQuad(x, y, x, fy2, fx2, fy2, fx2, y, u0, v0, u1, v1);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height) {
+        draw(texture, x, y, width, height, 0f, 0f, 1f, 1f);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y) {
+        draw(texture, x, y, texture.width(), texture.height());
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation, TextureRegion region, boolean flipX, boolean flipY) {
+        checkDrawing();
+        if (texture != lastTexture)
+            switchTexture(texture);
+        draw(texture, x, y, originX, originY, width, height, scaleX, scaleY, rotation,
+            region.u0() * invTexWidth, region.v0() * invTexHeight,
+            region.u1() * invTexWidth, region.v1() * invTexHeight,
+            flipX, flipY);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, TextureRegion region, boolean flipX, boolean flipY) {
+        checkDrawing();
+        if (texture != lastTexture)
+            switchTexture(texture);
+        draw(texture, x, y, width, height,
+            region.u0() * invTexWidth, region.v0() * invTexHeight,
+            region.u1() * invTexWidth, region.v1() * invTexHeight,
+            flipX, flipY);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, TextureRegion region) {
+        draw(texture, x, y, width, height, region, false, false);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, TextureRegion region) {
+        draw(texture, x, y, region.u1() - region.u0(), region.v1() - region.v0(), region);
+    }
+
+    /**
+     * Draws a sprite. FlipX and flipY specify whether the texture portion should be flipped horizontally or vertically.
+     *
+     * @param sprite the sprite to be drawn.
+     * @param flipX  whether to flip the sprite horizontally.
+     * @param flipY  whether to flip the sprite vertically.
+     */
+    public void draw(Sprite sprite, boolean flipX, boolean flipY) {
+        int currColor = spriteColor();
+        setSpriteColor(sprite.color);
+        draw(sprite.texture,
+            sprite.position.x(), sprite.position.y(),
+            sprite.anchor.x(), sprite.anchor.y(),
+            sprite.size.x(), sprite.size.y(),
+            sprite.scale.x(), sprite.scale.y(),
+            sprite.rotation.getEulerAnglesZYX(spriteRotation).z(),
+            sprite.textureRegion,
+            flipX, flipY);
+        setSpriteColor(currColor);
+    }
+
+    /**
+     * Draws a sprite.
+     *
+     * @param sprite the sprite to be drawn.
+     */
+    public void draw(Sprite sprite) {
+        draw(sprite, false, false);
+    }
+
+    /**
+     * Resolves the uniform handles of the current shader. The handles are resolved again after the shader changes.
+     */
+    private void resolveUniforms() {
+        ShaderProgram program = shader();
+        if (program != uniformShader) {
+            uniformShader = program;
+            hasTexture0Uniform = program.uniform("HasTexture0", ShaderUniform.Type.INT);
+        }
+    }
+
+    private void setupMatrices() {
+        shader().setMatrices(projectionMatrix, modelMatrix);
+        shader().uploadUniforms();
+    }
+
+    @Override
+    public void setShader(ShaderProgram shader) {
+        if (shader == customShader) return;
+        if (drawing) flush(RenderStats.FlushReason.SHADER_CHANGE);
+        customShader = shader;
+        if (drawing) {
+            int currProgram = currentProgram();
+            shader().use();
+            setupMatrices();
+            useProgram(currProgram);
+        }
+    }
+
+    @Override
+    public ShaderProgram shader() {
+        return customShader != null ? customShader : shader;
+    }
+
+    @Override
+    public Matrix4f projectionMatrix() {
+        return projectionMatrix;
+    }
+
+    @Override
+    public Matrix4f modelMatrix() {
+        return modelMatrix;
+    }
+
+    @Override
+    public void setProjectionMatrix(Matrix4fc projectionMatrix) {
+        if (drawing) flush(RenderStats.FlushReason.MATRIX_CHANGE);
+        this.projectionMatrix.set(projectionMatrix);
+        if (drawing) {
+            int currProgram = currentProgram();
+            shader().use();
+            setupMatrices();
+            useProgram(currProgram);
+        }
+    }
+
+    @Override
+    public void setModelMatrix(Matrix4fc modelMatrix) {
+        if (drawing) flush(RenderStats.FlushReason.MATRIX_CHANGE);
+        this.modelMatrix.set(modelMatrix);
+        if (drawing) {
+            int currProgram = currentProgram();
+            shader().use();
+            setupMatrices();
+            useProgram(currProgram);
+        }
+    }
+
+    @Override
+    public void enableBlend() {
+        if (!blendDisabled) return;
+        flush(RenderStats.FlushReason.BLEND_CHANGE);
+        blendDisabled = false;
+    }
+
+    @Override
+    public void disableBlend() {
+        if (blendDisabled) return;
+        flush(RenderStats.FlushReason.BLEND_CHANGE);
+        blendDisabled = true;
+    }
+
+    @Override
+    public void setBlendFuncSeparate(int srcRGB, int dstRGB, int srcAlpha, int dstAlpha) {
+        if (blendSrcRGB != srcRGB ||
+            blendDstRGB != dstRGB ||
+            blendSrcAlpha != srcAlpha ||
+            blendDstAlpha != dstAlpha) {
+            flush(RenderStats.FlushReason.BLEND_CHANGE);
+            blendSrcRGB = srcRGB;
+            blendDstRGB = dstRGB;
+            blendSrcAlpha = srcAlpha;
+            blendDstAlpha = dstAlpha;
+        }
+    }
+
+    @Override
+    public void setBlendFunc(int srcFactor, int dstFactor) {
+        setBlendFuncSeparate(srcFactor, dstFactor, srcFactor, dstFactor);
+    }
+
+    @Override
+    public void setSpriteColor(int packedColor) {
+        this.colorBits = packedColor;
+    }
+
+    @Override
+    public int spriteColor() {
+        return colorBits;
+    }
+
+    @Override
+    public boolean isBlendDisabled() {
+        return blendDisabled;
+    }
+
+    @Override
+    public boolean isDrawing() {
+        return drawing;
+    }
+
+    @Override
+    public void dispose() {
+        if (disposed) return;
+        disposed = true;
+        mesh.dispose();
+        if (ownsShader && shader != null) {
+            shader.dispose();
+        }
+    }
+}
@@ -23,21 +23,74 @@ import org.joml.Math;
 import org.joml.Matrix4f;
 import org.joml.Matrix4fc;
 import org.joml.Vector3f;
+import org.lwjgl.opengl.GL20C;
 import union.xenfork.fe2d.Fe2D;
 import union.xenfork.fe2d.graphics.Color;
 import union.xenfork.fe2d.graphics.GLStateManager;
+import union.xenfork.fe2d.graphics.Graphics;
+import union.xenfork.fe2d.graphics.RenderStats;
+import union.xenfork.fe2d.graphics.ShaderLibrary;
 import union.xenfork.fe2d.graphics.ShaderProgram;
+import union.xenfork.fe2d.graphics.ShaderUniform;
+import union.xenfork.fe2d.graphics.UniformBlock;
+import union.xenfork.fe2d.graphics.UniformHandle;
+import union.xenfork.fe2d.graphics.mesh.IndexType;
 import union.xenfork.fe2d.graphics.mesh.Mesh;
 import union.xenfork.fe2d.graphics.sprite.Sprite;
+import union.xenfork.fe2d.graphics.texture.NativeImage;
 import union.xenfork.fe2d.graphics.texture.Texture;
+import union.xenfork.fe2d.graphics.texture.TextureAtlas;
+import union.xenfork.fe2d.graphics.texture.TextureParam;
 import union.xenfork.fe2d.graphics.texture.TextureRegion;
 import union.xenfork.fe2d.graphics.vertex.VertexAttribute;
+import union.xenfork.fe2d.graphics.vertex.VertexLayout;
+import union.xenfork.fe2d.graphics.vertex.VertexWriter;
 
-import static org.lwjgl.opengl.GL11C.*;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.lwjgl.opengl.GL20C.*;
+import static org.lwjgl.system.MemoryUtil.*;
 import static union.xenfork.fe2d.graphics.GLStateManager.*;
 
 /**
  * The sprite batch.
+ * <p>
+ * By default, the sprite batch flushes whenever the texture changes. If it is created with more than one
+ * {@linkplain #SpriteBatch(ShaderProgram, int, int) max textures}, it works in multi-texture mode, which binds
+ * up to that count of textures to separated texture units per flush and writes the texture slot into each vertex
+ * ({@link Sprite#MULTI_TEXTURE_LAYOUT}), so drawing with several textures alternately causes only one flush.
+ * <p>
+ * The capacity can be {@linkplain #enableAdaptiveCapacity(int, int, boolean) adaptive}, which grows the buffers
+ * between frames to hold the largest run of sprites between two non-full flushes, so that large scenes on a single
+ * texture are drawn with one draw call.
+ * <p>
+ * Culling is optional; see {@link #setCullRect(float, float, float, float)} and {@link #enableAutoCulling()}.
+ * <p>
+ * In {@linkplain #setPremultipliedAlpha(boolean) premultiplied alpha mode}, the batch blends with
+ * {@code GL_ONE, GL_ONE_MINUS_SRC_ALPHA}, and the {@linkplain #setAdditiveBlend(float) additive blend factor}
+ * is carried by the alpha of each vertex, so additive and alpha-blended sprites can be drawn without flushing.
+ * <p>
+ * In {@linkplain #SpriteBatch(ShaderProgram, int, int, boolean) two-pass mode}, each sprite gets a depth value
+ * ({@link Sprite#DEPTH_LAYOUT}) so that the later sprites are nearer. The {@linkplain #setOpaque(boolean) opaque}
+ * sprites, and the sprites with a {@linkplain TextureAtlas#isOpaque(TextureRegion) fully opaque} atlas region,
+ * are drawn front-to-back with blending disabled and depth writing, then the translucent sprites are drawn
+ * back-to-front with depth test only, so the covered pixels are rejected before shading. A sprite is only
+ * drawn as opaque if its color alpha is {@code 1} and the {@linkplain #setAdditiveBlend(float) additive blend factor}
+ * is {@code 0}. The target must have a depth buffer which is cleared before {@link #begin()}, and the projection
+ * must map z like {@link Matrix4f#setOrtho2D(float, float, float, float) setOrtho2D}.
+ * {@link #drawAll(SpriteSource, int, ForkJoinPool) drawAll} is not supported in two-pass mode.
+ * <p>
+ * In {@linkplain #SpriteBatch(ShaderProgram, int, int, boolean, boolean) compact mode}, the vertices are written with
+ * {@link Sprite#COMPACT_LAYOUT}, which takes 48 bytes per sprite instead of 80. The positions are half-floats and
+ * the texture coordinates are clamped to [0, 1], so it suits pixel-aligned UI on screens up to 2048 pixels.
+ * <p>
+ * Without a custom shader and multi-texture mode, the batch uses the textured and untextured variants of
+ * {@link #createShaderLibrary(VertexLayout)} instead of a uniform branch. The untextured variant is requested when
+ * the batch is created and compiled in the background if supported. Until it is linked, sprites without texture are
+ * drawn by the textured variant with a white texture, so flushing never waits for the compiler.
  *
  * @author squid233
  * @since 0.1.0
@@ -51,13 +104,59 @@ public class SpriteBatch implements Batch {
      * The max sprites.
      */
     public static final int MAX_SPRITES = Integer.MAX_VALUE / Sprite.SPRITE_SIZE / Sprite.SPRITE_VERTEX;
-    private final Mesh mesh;
-    private final int maxVertexBytesSize;
+    /**
+     * The suggested value of max textures in multi-texture mode.
+     */
+    public static final int DEFAULT_MAX_TEXTURES = 8;
+    /**
+     * The count of sprites with different depth values per {@link #begin()} in two-pass mode.
+     * The later sprites share the nearest depth.
+     */
+    public static final int MAX_DEPTH_SPRITES = 1 << 20;
+    /**
+     * The count of consecutive frames with low usage before shrinking in adaptive mode.
+     */
+    public static final int ADAPTIVE_SHRINK_FRAMES = 300;
+    /**
+     * The switch of {@link #createShaderLibrary(VertexLayout)} that samples {@code fe_Sampler0}.
+     */
+    public static final String DEFINE_TEXTURED = "TEXTURED";
+    /**
+     * The switch of {@link #createShaderLibrary(VertexLayout)} that takes the depth from the position.
+     */
+    public static final String DEFINE_DEPTH = "DEPTH";
+    private final VertexLayout layout;
+    private final int spriteSizeLimit;
+    private Mesh mesh;
+    private int maxSprites;
+    private final boolean twoPass;
+    private final boolean compact;
+    // the opaque sprites in two-pass mode, whose indices are baked in reversed order
+    private Mesh opaqueMesh;
+    private final int vertexSize;
+    private int maxVertexBytesSize;
+    private boolean adaptive = false;
+    private boolean adaptiveShrink = false;
+    private int adaptiveMinSprites;
+    private int adaptiveMaxSprites;
+    // the sprites since the last flush which is not caused by a full buffer
+    private int runSpriteCount = 0;
+    private int framePeakSprites = 0;
+    private int lowPeakSprites = 0;
+    private int lowFrameCount = 0;
+    private final Texture[] textureSlots;
+    private final int[] textureSlotBindings;
+    private int textureSlotCount = 0;
+    private float textureSlot = 0f;
     private final Matrix4f projectionMatrix = new Matrix4f();
     private final Matrix4f modelMatrix = new Matrix4f();
     private final Matrix4f combinedMatrix = new Matrix4f();
     private final Vector3f spriteRotation = new Vector3f();
     final ShaderProgram shader;
+    private final @Nullable ShaderLibrary shaderLibrary;
+    private final ShaderLibrary.@Nullable Variant untexturedVariant;
+    private ShaderProgram variantShader;
+    private @Nullable Texture whiteTexture;
     private ShaderProgram customShader;
     private final boolean ownsShader;
     private int blendSrcRGB = GL_SRC_ALPHA;
@@ -67,40 +166,169 @@ public class SpriteBatch implements Batch {
     private boolean blendDisabled = false;
     private boolean drawing = false;
     private int colorBits = Color.WHITE_BITS;
+    private int vertexColorBits = Color.WHITE_BITS;
+    private boolean premultipliedAlpha = false;
+    private float additiveBlend = 0f;
     private int vertexBufferPos = 0;
     private int drawnSpriteCount = 0;
+    private int opaqueBufferPos = 0;
+    private int opaqueSpriteCount = 0;
+    private boolean opaque = false;
+    private boolean regionOpaque = false;
+    private boolean writingOpaque = false;
+    private int writePos = 0;
+    private int depthCounter = 0;
+    private float spriteDepth = 0f;
     private Texture lastTexture;
-    private float invTexWidth, invTexHeight;
-    private boolean lastHasTexture = false;
+    private ShaderProgram uniformShader;
+    private UniformHandle hasTexture0Uniform;
+    private boolean culling = false;
+    private boolean autoCullRect = false;
+    private boolean cullRectDirty = true;
+    private final Vector3f cullMin = new Vector3f();
+    private final Vector3f cullMax = new Vector3f();
+    private float cullMinX, cullMinY, cullMaxX, cullMaxY;
+    private int culledSpriteCount = 0;
+    private int submittedSpriteCount = 0;
     private boolean disposed = false;
 
     /**
-     * Creates the sprite batch with the given shader and size.
+     * Creates the sprite batch with the given shader, size, max textures and modes.
      *
-     * @param defaultShader the custom shader to be used. if no custom shader provided, {@link #createDefaultShader()} is used.
+     * @param defaultShader the custom shader to be used. if no custom shader provided, the variants of
+     *                      {@link #createShaderLibrary(VertexLayout)} or {@link #createMultiTextureShader(int)} are used.
      * @param maxSprites    the max sprite count. defaults to {@value #DEFAULT_MAX_SPRITES}.
+     * @param maxTextures   the max texture count per flush. {@code 1} disables multi-texture mode.
+     *                      clamped to {@link GL20C#GL_MAX_TEXTURE_IMAGE_UNITS GL_MAX_TEXTURE_IMAGE_UNITS}. defaults to {@code 1}.
+     * @param twoPass       whether to enable two-pass mode. defaults to {@code false}.
+     * @param compact       whether to enable compact mode. defaults to {@code false}.
+     * @throws IllegalArgumentException if more than one of two-pass mode, multi-texture mode and compact mode are enabled.
      */
-    public SpriteBatch(@Nullable ShaderProgram defaultShader, int maxSprites) {
+    public SpriteBatch(@Nullable ShaderProgram defaultShader, int maxSprites, int maxTextures, boolean twoPass, boolean compact) {
+        int textures = Math.clamp(1, glGetInteger(GL_MAX_TEXTURE_IMAGE_UNITS), maxTextures);
+        if (twoPass && textures > 1) {
+            throw new IllegalArgumentException("Two-pass mode can't be used with multi-texture mode! max textures: " + textures);
+        }
+        if (compact && (twoPass || textures > 1)) {
+            throw new IllegalArgumentException("Compact mode can't be used with two-pass mode or multi-texture mode!");
+        }
+        VertexLayout layout;
+        int spriteSize;
+        if (twoPass) {
+            layout = Sprite.DEPTH_LAYOUT;
+            spriteSize = Sprite.DEPTH_SPRITE_SIZE;
+        } else if (textures > 1) {
+            layout = Sprite.MULTI_TEXTURE_LAYOUT;
+            spriteSize = Sprite.MULTI_TEXTURE_SPRITE_SIZE;
+        } else if (compact) {
+            layout = Sprite.COMPACT_LAYOUT;
+            spriteSize = Sprite.COMPACT_SPRITE_SIZE;
+        } else {
+            layout = Sprite.LAYOUT;
+            spriteSize = Sprite.SPRITE_SIZE;
+        }
         // note: since 0x7FFFFFFF / 4 * SPRITE_SIZE overflows,
         // we use 0x7FFFFFFF / SPRITE_SIZE / SPRITE_VERTEX as the max count.
-        int size = Math.clamp(1, MAX_SPRITES, maxSprites);
-        this.mesh = Mesh.fixedSize(Sprite.LAYOUT, size * Sprite.SPRITE_VERTEX, size * 6);
-        this.maxVertexBytesSize = mesh.vertexCount() * Sprite.LAYOUT.stride();
-        this.shader = defaultShader != null ? defaultShader : createDefaultShader();
+        this.spriteSizeLimit = Integer.MAX_VALUE / spriteSize / Sprite.SPRITE_VERTEX;
+        this.layout = layout;
+        this.twoPass = twoPass;
+        this.compact = compact;
+        this.vertexSize = layout.stride();
+        allocate(Math.clamp(1, spriteSizeLimit, maxSprites));
+        if (textures > 1) {
+            this.textureSlots = new Texture[textures];
+            this.textureSlotBindings = new int[textures];
+        } else {
+            this.textureSlots = null;
+            this.textureSlotBindings = null;
+        }
+        if (defaultShader == null && textures == 1) {
+            this.shaderLibrary = createShaderLibrary(layout);
+            int base = twoPass ? shaderLibrary.bit(DEFINE_DEPTH) : 0;
+            ShaderLibrary.Variant textured = shaderLibrary.variant(base | shaderLibrary.bit(DEFINE_TEXTURED));
+            this.untexturedVariant = shaderLibrary.variant(base);
+            // both are requested before waiting for the textured one
+            textured.request();
+            untexturedVariant.request();
+            this.shader = textured.program();
+        } else {
+            this.shaderLibrary = null;
+            this.untexturedVariant = null;
+            this.shader = defaultShader != null ? defaultShader : createMultiTextureShader(textures);
+        }
+        this.variantShader = shader;
         this.ownsShader = defaultShader == null;
 
         projectionMatrix.setOrtho2D(0, Fe2D.graphics.width(), 0, Fe2D.graphics.height());
+    }
 
-        int[] indices = new int[size * 6];
-        for (int i = 0, j = 0; i < indices.length; i += 6, j += 4) {
-            indices[i] = j;
-            indices[i + 1] = j + 1;
-            indices[i + 2] = j + 2;
-            indices[i + 3] = j + 2;
-            indices[i + 4] = j + 3;
-            indices[i + 5] = j;
+    /**
+     * Creates the meshes with the given size. The quad indices are shared, and the reversed indices of
+     * the opaque mesh are baked.
+     *
+     * @param size the max sprite count.
+     */
+    private void allocate(int size) {
+        this.maxSprites = size;
+        this.mesh = Mesh.quads(layout, size, Mesh.DEFAULT_STREAM_REGIONS);
+        this.maxVertexBytesSize = mesh.vertexCount() * vertexSize;
+        if (twoPass) {
+            this.opaqueMesh = Mesh.fixedSize(layout,
+                size * Sprite.SPRITE_VERTEX,
+                size * 6,
+                Mesh.DEFAULT_STREAM_REGIONS,
+                IndexType.fitting((long) size * Sprite.SPRITE_VERTEX));
+            int[] indices = new int[size * 6];
+            // the last quad is drawn first, so that the opaque sprites are drawn front-to-back
+            for (int i = 0, j = (size - 1) * 4; i < indices.length; i += 6, j -= 4) {
+                indices[i] = j;
+                indices[i + 1] = j + 1;
+                indices[i + 2] = j + 2;
+                indices[i + 3] = j + 2;
+                indices[i + 4] = j + 3;
+                indices[i + 5] = j;
+            }
+            opaqueMesh.setIndices(indices);
         }
-        mesh.setIndices(indices);
+    }
+
+    /**
+     * Creates the sprite batch with the given shader, size, max textures and mode.
+     *
+     * @param defaultShader the custom shader to be used. if no custom shader provided, the variants of
+     *                      {@link #createShaderLibrary(VertexLayout)} or {@link #createMultiTextureShader(int)} are used.
+     * @param maxSprites    the max sprite count. defaults to {@value #DEFAULT_MAX_SPRITES}.
+     * @param maxTextures   the max texture count per flush. {@code 1} disables multi-texture mode.
+     *                      clamped to {@link GL20C#GL_MAX_TEXTURE_IMAGE_UNITS GL_MAX_TEXTURE_IMAGE_UNITS}. defaults to {@code 1}.
+     * @param twoPass       whether to enable two-pass mode. defaults to {@code false}.
+     * @throws IllegalArgumentException if both two-pass mode and multi-texture mode are enabled.
+     */
+    public SpriteBatch(@Nullable ShaderProgram defaultShader, int maxSprites, int maxTextures, boolean twoPass) {
+        this(defaultShader, maxSprites, maxTextures, twoPass, false);
+    }
+
+    /**
+     * Creates the sprite batch with the given shader, size and max textures.
+     *
+     * @param defaultShader the custom shader to be used. if no custom shader provided, the variants of
+     *                      {@link #createShaderLibrary(VertexLayout)} or {@link #createMultiTextureShader(int)} are used.
+     * @param maxSprites    the max sprite count. defaults to {@value #DEFAULT_MAX_SPRITES}.
+     * @param maxTextures   the max texture count per flush. {@code 1} disables multi-texture mode.
+     *                      clamped to {@link GL20C#GL_MAX_TEXTURE_IMAGE_UNITS GL_MAX_TEXTURE_IMAGE_UNITS}. defaults to {@code 1}.
+     */
+    public SpriteBatch(@Nullable ShaderProgram defaultShader, int maxSprites, int maxTextures) {
+        this(defaultShader, maxSprites, maxTextures, false);
+    }
+
+    /**
+     * Creates the sprite batch with the given shader and size.
+     *
+     * @param defaultShader the custom shader to be used. if no custom shader provided, the variants of
+     *                      {@link #createShaderLibrary(VertexLayout)} are used.
+     * @param maxSprites    the max sprite count. defaults to {@value #DEFAULT_MAX_SPRITES}.
+     */
+    public SpriteBatch(@Nullable ShaderProgram defaultShader, int maxSprites) {
+        this(defaultShader, maxSprites, 1);
     }
 
     /**
@@ -115,7 +343,8 @@ public class SpriteBatch implements Batch {
     /**
      * Creates the sprite batch with the given shader.
      *
-     * @param defaultShader the custom shader to be used. if no custom shader provided, {@link #createDefaultShader()} is used.
+     * @param defaultShader the custom shader to be used. if no custom shader provided, the variants of
+     *                      {@link #createShaderLibrary(VertexLayout)} are used.
      */
     public SpriteBatch(@Nullable ShaderProgram defaultShader) {
         this(defaultShader, DEFAULT_MAX_SPRITES);
@@ -145,13 +374,15 @@ public class SpriteBatch implements Batch {
             in vec2 %3$s;
             out vec4 vertexColor;
             out vec2 UV0;
+            %5$s
             uniform mat4 %4$s;
             void main() {
-                gl_Position = %4$s * vec4(%1$s, 0.0, 1.0);
+                gl_Position = %6$s * %4$s * vec4(%1$s, 0.0, 1.0);
                 vertexColor = %2$s;
                 UV0 = %3$s;
             }
-            """, VertexAttribute.POSITION_ATTRIB, VertexAttribute.COLOR_ATTRIB, VertexAttribute.TEX_COORD_ATTRIB + '0', ShaderProgram.U_PROJECTION_VIEW_MODEL_MATRIX
+            """, VertexAttribute.POSITION_ATTRIB, VertexAttribute.COLOR_ATTRIB, VertexAttribute.TEX_COORD_ATTRIB + '0', ShaderProgram.U_MODEL_MATRIX,
+            UniformBlock.FRAME_BLOCK_SOURCE, ShaderProgram.U_PROJECTION_VIEW_MATRIX
         ), String.format("""
             #version 150 core
             in vec4 vertexColor;
@@ -167,27 +398,240 @@ public class SpriteBatch implements Batch {
             Sprite.LAYOUT);
     }
 
+    /**
+     * Creates the shader library of the default sprite shader.
+     * <p>
+     * Builtin vertex attributes and <a href="../ShaderProgram.html#Builtin_Uniforms">uniforms</a> are used.
+     * The switches are {@value #DEFINE_TEXTURED}, which multiplies the vertex color with {@code fe_Sampler0},
+     * and {@value #DEFINE_DEPTH}, which takes a 3-component position for two-pass mode.
+     *
+     * @param layout the attribute locations to be bound.
+     * @return the shader library.
+     */
+    public static ShaderLibrary createShaderLibrary(VertexLayout layout) {
+        return new ShaderLibrary(String.format("""
+            #version 150 core
+            #ifdef %5$s
+            in vec3 %1$s;
+            #else
+            in vec2 %1$s;
+            #endif
+            in vec4 %2$s;
+            in vec2 %3$s;
+            out vec4 vertexColor;
+            out vec2 UV0;
+            %6$s
+            uniform mat4 %4$s;
+            void main() {
+            #ifdef %5$s
+                gl_Position = %7$s * %4$s * vec4(%1$s, 1.0);
+            #else
+                gl_Position = %7$s * %4$s * vec4(%1$s, 0.0, 1.0);
+            #endif
+                vertexColor = %2$s;
+                UV0 = %3$s;
+            }
+            """, VertexAttribute.POSITION_ATTRIB, VertexAttribute.COLOR_ATTRIB, VertexAttribute.TEX_COORD_ATTRIB + '0',
+            ShaderProgram.U_MODEL_MATRIX, DEFINE_DEPTH, UniformBlock.FRAME_BLOCK_SOURCE, ShaderProgram.U_PROJECTION_VIEW_MATRIX
+        ), String.format("""
+            #version 150 core
+            in vec4 vertexColor;
+            in vec2 UV0;
+            out vec4 FragColor;
+            #ifdef %2$s
+            uniform sampler2D %1$s;
+            #endif
+            void main() {
+            #ifdef %2$s
+                FragColor = vertexColor * texture(%1$s, UV0);
+            #else
+                FragColor = vertexColor;
+            #endif
+            }
+            """, ShaderProgram.U_SAMPLER + '0', DEFINE_TEXTURED),
+            layout, DEFINE_TEXTURED, DEFINE_DEPTH);
+    }
+
+    /**
+     * Creates the default shader program for multi-texture mode.
+     * <p>
+     * Builtin vertex attributes and <a href="../ShaderProgram.html#Builtin_Uniforms">uniforms</a> are used.
+     * The samplers {@code fe_Sampler0} to {@code fe_Sampler<maxTextures - 1>} are bound to the texture units
+     * with the same number, and texture slot {@code 0} means no texture.
+     *
+     * @param maxTextures the max texture count.
+     * @return the shader program.
+     */
+    public static ShaderProgram createMultiTextureShader(int maxTextures) {
+        StringBuilder samplers = new StringBuilder();
+        StringBuilder branches = new StringBuilder();
+        for (int i = 0; i < maxTextures; i++) {
+            samplers.append("uniform sampler2D ").append(ShaderProgram.U_SAMPLER).append(i).append(";\n");
+            branches.append(i == 0 ? "    if" : "    else if")
+                .append(" (slot == ").append(i + 1).append(") texColor = texture(")
+                .append(ShaderProgram.U_SAMPLER).append(i).append(", UV0);\n");
+        }
+        ShaderProgram program = new ShaderProgram(String.format("""
+            #version 150 core
+            in vec2 %1$s;
+            in vec4 %2$s;
+            in vec2 %3$s;
+            in float %4$s;
+            out vec4 vertexColor;
+            out vec2 UV0;
+            flat out float TexSlot;
+            %6$s
+            uniform mat4 %5$s;
+            void main() {
+                gl_Position = %7$s * %5$s * vec4(%1$s, 0.0, 1.0);
+                vertexColor = %2$s;
+                UV0 = %3$s;
+                TexSlot = %4$s;
+            }
+            """, VertexAttribute.POSITION_ATTRIB, VertexAttribute.COLOR_ATTRIB, VertexAttribute.TEX_COORD_ATTRIB + '0',
+            VertexAttribute.TEX_SLOT_ATTRIB, ShaderProgram.U_MODEL_MATRIX,
+            UniformBlock.FRAME_BLOCK_SOURCE, ShaderProgram.U_PROJECTION_VIEW_MATRIX
+        ), String.format("""
+            #version 150 core
+            in vec4 vertexColor;
+            in vec2 UV0;
+            flat in float TexSlot;
+            out vec4 FragColor;
+            %1$s
+            void main() {
+                // If the slot is 0, only 1.0 will be multiplier.
+                int slot = int(TexSlot + 0.5);
+                vec4 texColor = vec4(1.0);
+            %2$s
+                FragColor = vertexColor * texColor;
+            }
+            """, samplers, branches),
+            Sprite.MULTI_TEXTURE_LAYOUT);
+        for (int i = 0; i < maxTextures; i++) {
+            program.addSampler(i);
+        }
+        return program;
+    }
+
+    /**
+     * Enables adaptive capacity. The batch tracks the largest run of sprites between two flushes which are
+     * not caused by a full buffer, and reallocates the buffers at {@link #end()} when the run exceeds the capacity.
+     *
+     * @param minSprites the min sprite count.
+     * @param maxSprites the max sprite count.
+     * @param shrink     whether to shrink the buffers after {@value #ADAPTIVE_SHRINK_FRAMES} consecutive frames
+     *                   using less than a quarter of the capacity.
+     */
+    public void enableAdaptiveCapacity(int minSprites, int maxSprites, boolean shrink) {
+        if (minSprites > maxSprites) {
+            throw new IllegalArgumentException("Min sprites must not be greater than max sprites! got: " + minSprites + " > " + maxSprites);
+        }
+        adaptive = true;
+        adaptiveShrink = shrink;
+        adaptiveMinSprites = Math.clamp(1, spriteSizeLimit, minSprites);
+        adaptiveMaxSprites = Math.clamp(1, spriteSizeLimit, maxSprites);
+        runSpriteCount = 0;
+        framePeakSprites = 0;
+        lowPeakSprites = 0;
+        lowFrameCount = 0;
+    }
+
+    /**
+     * Disables adaptive capacity. The current capacity is kept.
+     */
+    public void disableAdaptiveCapacity() {
+        adaptive = false;
+    }
+
+    /**
+     * Returns {@code true} if adaptive capacity is enabled.
+     *
+     * @return {@code true} if adaptive capacity is enabled.
+     */
+    public boolean isAdaptiveCapacity() {
+        return adaptive;
+    }
+
+    /**
+     * Gets the current max sprite count per flush.
+     *
+     * @return the max sprite count.
+     */
+    public int capacity() {
+        return maxSprites;
+    }
+
+    /**
+     * Grows or shrinks the buffers by the usage of the last frame.
+     */
+    private void adapt() {
+        int peak = framePeakSprites;
+        framePeakSprites = 0;
+        int size;
+        if (peak > maxSprites) {
+            size = peak + (peak >> 1);
+            lowFrameCount = 0;
+            lowPeakSprites = 0;
+        } else if (adaptiveShrink && peak < maxSprites >> 2) {
+            lowPeakSprites = Math.max(lowPeakSprites, peak);
+            if (++lowFrameCount < ADAPTIVE_SHRINK_FRAMES) return;
+            size = lowPeakSprites << 1;
+            lowFrameCount = 0;
+            lowPeakSprites = 0;
+        } else {
+            lowFrameCount = 0;
+            lowPeakSprites = 0;
+            return;
+        }
+        size = Math.clamp(adaptiveMinSprites, adaptiveMaxSprites, size);
+        if (size != maxSprites) {
+            mesh.dispose();
+            if (opaqueMesh != null) {
+                opaqueMesh.dispose();
+            }
+            allocate(size);
+        }
+    }
+
     @Override
     public void begin() {
         if (drawing) throw new IllegalStateException("Cannot call SpriteBatch.begin while drawing");
         drawing = true;
         vertexBufferPos = 0;
         drawnSpriteCount = 0;
+        opaqueBufferPos = 0;
+        opaqueSpriteCount = 0;
+        depthCounter = 0;
+        culledSpriteCount = 0;
+        submittedSpriteCount = 0;
+        // the matrices might be modified directly
+        cullRectDirty = true;
+        resetTextureSlots();
     }
 
     @Override
     public void end() {
         if (!drawing) throw new IllegalStateException("Can only call SpriteBatch.end while drawing");
-        if (vertexBufferPos > 0) flush();
+        if (vertexBufferPos > 0 || opaqueBufferPos > 0) flush(RenderStats.FlushReason.EXPLICIT);
         lastTexture = null;
+        resetTextureSlots();
         drawing = false;
+        framePeakSprites = Math.max(framePeakSprites, runSpriteCount);
+        runSpriteCount = 0;
+        if (adaptive) adapt();
     }
 
     @Override
     public void flush() {
-        if (vertexBufferPos == 0) return;
+        flush(RenderStats.FlushReason.EXPLICIT);
+    }
+
+    private void flush(RenderStats.FlushReason reason) {
+        if (vertexBufferPos == 0 && opaqueBufferPos == 0) return;
         checkDrawing();
-        mesh.updateVertices(vertexBufferPos);
+        Graphics.getInstance().renderStats().flush(reason);
+        if (vertexBufferPos > 0) mesh.updateVertices(vertexBufferPos);
+        if (opaqueBufferPos > 0) opaqueMesh.updateVertices(opaqueBufferPos);
         int currPrg = currentProgram();
         int currTex = textureBinding2D();
         boolean blend = isBlendEnabled();
@@ -195,29 +639,78 @@ public class SpriteBatch implements Batch {
         int dRGB = blendDstRGB();
         int sAlpha = blendSrcAlpha();
         int dAlpha = blendDstAlpha();
+        boolean depthTest = isDepthTestEnabled();
+        boolean depthMask = depthMask();
+        int depthFunc = depthFunc();
+        if (twoPass) {
+            enableDepthTest();
+            depthFunc(GL_LESS);
+        }
         if (blendDisabled && blend) {
             GLStateManager.disableBlend();
         } else if (!blendDisabled) {
             if (!blend) {
                 GLStateManager.enableBlend();
             }
-            blendFuncSeparate(blendSrcRGB, blendDstRGB, blendSrcAlpha, blendDstAlpha);
+            if (premultipliedAlpha) {
+                blendFuncSeparate(GL_ONE, GL_ONE_MINUS_SRC_ALPHA, GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
+            } else {
+                blendFuncSeparate(blendSrcRGB, blendDstRGB, blendSrcAlpha, blendDstAlpha);
+            }
+        }
+        Texture texture = lastTexture;
+        if (untexturedVariant != null) {
+            ShaderProgram untextured = texture != null ? null : untexturedVariant.poll();
+            if (untextured != null) {
+                variantShader = untextured;
+            } else {
+                variantShader = shader;
+                if (texture == null && customShader == null) {
+                    // the untextured variant is still being compiled
+                    texture = whiteTexture();
+                }
+            }
         }
         shader().use();
-        boolean hasTexture = lastTexture != null;
-        if (lastHasTexture != hasTexture) {
-            lastHasTexture = hasTexture;
-            shader().setUniform("HasTexture0", hasTexture ? 1 : 0);
+        if (textureSlots != null) {
+            setupMatrices();
+            flushTextureSlots();
+        } else {
+            boolean hasTexture = texture != null;
+            resolveUniforms();
+            hasTexture0Uniform.set(hasTexture);
+            setupMatrices();
+            if (hasTexture) {
+                texture.bind();
+            }
+            if (opaqueSpriteCount > 0) {
+                boolean blendPass = isBlendEnabled();
+                if (blendPass) GLStateManager.disableBlend();
+                depthMask(true);
+                opaqueMesh.render(GL_TRIANGLES, (maxSprites - opaqueSpriteCount) * 6, opaqueSpriteCount * 6);
+                if (blendPass) GLStateManager.enableBlend();
+            }
+            if (drawnSpriteCount > 0) {
+                if (twoPass) depthMask(false);
+                mesh.render(GL_TRIANGLES, drawnSpriteCount * 6);
+            }
+            bindTexture2D(currTex);
         }
-        setupMatrices();
-        if (hasTexture) {
-            lastTexture.bind();
+        runSpriteCount += drawnSpriteCount + opaqueSpriteCount;
+        if (reason != RenderStats.FlushReason.BUFFER_FULL) {
+            framePeakSprites = Math.max(framePeakSprites, runSpriteCount);
+            runSpriteCount = 0;
         }
-        mesh.render(GL_TRIANGLES, drawnSpriteCount * 6);
-        bindTexture2D(currTex);
         drawnSpriteCount = 0;
         vertexBufferPos = 0;
+        opaqueSpriteCount = 0;
+        opaqueBufferPos = 0;
         useProgram(currPrg);
+        if (twoPass) {
+            if (!depthTest) disableDepthTest();
+            depthMask(depthMask);
+            depthFunc(depthFunc);
+        }
         if (blendDisabled && blend) {
             GLStateManager.enableBlend();
         } else if (!blendDisabled) {
@@ -228,30 +721,172 @@ public class SpriteBatch implements Batch {
         }
     }
 
+    /**
+     * Gets the white texture that the textured variant samples until the untextured variant is linked.
+     *
+     * @return the 1x1 white texture.
+     */
+    private Texture whiteTexture() {
+        if (whiteTexture == null) {
+            ByteBuffer pixel = memAlloc(4);
+            pixel.putInt(0, 0xffffffff);
+            NativeImage image = NativeImage.ofRawBuffer(1, 1, pixel);
+            whiteTexture = Texture.ofImage(image);
+            image.dispose();
+        }
+        return whiteTexture;
+    }
+
+    private void flushTextureSlots() {
+        assert textureSlots != null && textureSlotBindings != null;
+        int currUnit = activeTexture();
+        for (int i = 0; i < textureSlotCount; i++) {
+            activeTexture(i);
+            textureSlotBindings[i] = textureBinding2D();
+            textureSlots[i].bind();
+        }
+        mesh.render(GL_TRIANGLES, drawnSpriteCount * 6);
+        for (int i = 0; i < textureSlotCount; i++) {
+            activeTexture(i);
+            bindTexture2D(textureSlotBindings[i]);
+            textureSlots[i] = null;
+        }
+        activeTexture(currUnit);
+        // keeps the current texture, since the next sprite might not switch texture
+        textureSlotCount = 0;
+        if (lastTexture != null) {
+            textureSlots[textureSlotCount++] = lastTexture;
+            textureSlot = textureSlotCount;
+        }
+    }
+
+    /**
+     * Clears the texture slots, so that the first sprite of a frame doesn't sample a texture of the last frame.
+     */
+    private void resetTextureSlots() {
+        textureSlotCount = 0;
+        textureSlot = 0f;
+        if (textureSlots != null) {
+            Arrays.fill(textureSlots, null);
+        }
+    }
+
+    private float findTextureSlot(Texture texture) {
+        assert textureSlots != null;
+        for (int i = 0; i < textureSlotCount; i++) {
+            if (textureSlots[i] == texture) {
+                return i + 1;
+            }
+        }
+        if (textureSlotCount == textureSlots.length) {
+            flush(RenderStats.FlushReason.TEXTURE_SWITCH);
+        }
+        textureSlots[textureSlotCount++] = texture;
+        return textureSlotCount;
+    }
+
+    private void updateCullRect() {
+        if (autoCullRect && cullRectDirty) {
+            cullRectDirty = false;
+            projectionMatrix.mul(modelMatrix, combinedMatrix).frustumAabb(cullMin, cullMax);
+            cullMinX = cullMin.x();
+            cullMinY = cullMin.y();
+            cullMaxX = cullMax.x();
+            cullMaxY = cullMax.y();
+        }
+    }
+
+    private boolean isCulled(float minX, float minY, float maxX, float maxY) {
+        updateCullRect();
+        if (maxX < cullMinX || minX > cullMaxX || maxY < cullMinY || minY > cullMaxY) {
+            culledSpriteCount++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Enables culling with the given rectangle. The sprites which are fully outside the rectangle are rejected
+     * before writing any vertices.
+     *
+     * @param x      the left of the rectangle, in the same space as the sprites.
+     * @param y      the bottom of the rectangle.
+     * @param width  the width of the rectangle.
+     * @param height the height of the rectangle.
+     * @see #enableAutoCulling()
+     */
+    public void setCullRect(float x, float y, float width, float height) {
+        culling = true;
+        autoCullRect = false;
+        cullMinX = x;
+        cullMinY = y;
+        cullMaxX = x + width;
+        cullMaxY = y + height;
+    }
+
+    /**
+     * Enables culling with the rectangle derived from the visible area of
+     * {@link #projectionMatrix()} &times; {@link #modelMatrix()}.
+     *
+     * @see #setCullRect(float, float, float, float)
+     */
+    public void enableAutoCulling() {
+        culling = true;
+        autoCullRect = true;
+        cullRectDirty = true;
+    }
+
+    /**
+     * Disables culling.
+     */
+    public void disableCulling() {
+        culling = false;
+    }
+
+    /**
+     * Returns {@code true} if culling is enabled.
+     *
+     * @return {@code true} if culling is enabled.
+     */
+    public boolean isCullingEnabled() {
+        return culling;
+    }
+
+    /**
+     * Gets the count of the culled sprites since the last {@link #begin()}.
+     *
+     * @return the count of the culled sprites.
+     */
+    public int culledSpriteCount() {
+        return culledSpriteCount;
+    }
+
+    /**
+     * Gets the count of the submitted sprites, which are not culled, since the last {@link #begin()}.
+     *
+     * @return the count of the submitted sprites.
+     */
+    public int submittedSpriteCount() {
+        return submittedSpriteCount;
+    }
+
     private void checkDrawing() {
         if (!drawing)
             throw new IllegalStateException("Can only call SpriteBatch.draw or flush between begin and end (while drawing)");
     }
 
     private void switchTexture(Texture texture) {
-        flush();
-        lastTexture = texture;
-        if (texture != null) {
-            invTexWidth = 1f / texture.width();
-            invTexHeight = 1f / texture.height();
+        if (textureSlots == null) {
+            flush(RenderStats.FlushReason.TEXTURE_SWITCH);
         } else {
-            invTexWidth = 0;
-            invTexHeight = 0;
+            textureSlot = texture != null ? findTextureSlot(texture) : 0f;
         }
+        lastTexture = texture;
     }
 
     @Override
     public void draw(Texture texture, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation, float u0, float v0, float u1, float v1, boolean flipX, boolean flipY) {
         checkDrawing();
-        if (texture != lastTexture)
-            switchTexture(texture);
-        else if (vertexBufferPos >= maxVertexBytesSize)
-            flush();
 
         // bottom left and top right corner points relative to origin
         final float worldOriginX = x + originX;
@@ -320,6 +955,20 @@ public class SpriteBatch implements Batch {
         x4 += worldOriginX;
         y4 += worldOriginY;
 
+        if (culling && isCulled(Math.min(Math.min(x1, x2), Math.min(x3, x4)),
+            Math.min(Math.min(y1, y2), Math.min(y3, y4)),
+            Math.max(Math.max(x1, x2), Math.max(x3, x4)),
+            Math.max(Math.max(y1, y2), Math.max(y3, y4)))) {
+            return;
+        }
+        submittedSpriteCount++;
+
+        if (texture != lastTexture)
+            switchTexture(texture);
+        // a texture switch doesn't flush in multi-texture mode until the slots are full
+        if (vertexBufferPos >= maxVertexBytesSize || opaqueBufferPos >= maxVertexBytesSize)
+            flush(RenderStats.FlushReason.BUFFER_FULL);
+
         if (flipX) {
             float tmp = u0;
             u0 = u1;
@@ -332,38 +981,35 @@ public class SpriteBatch implements Batch {
             v1 = tmp;
         }
 
-        mesh.vertexBuffer()
-            // left-top
-            .putFloat(vertexBufferPos, x1).putFloat(vertexBufferPos + 4, y1)
-            .putInt(vertexBufferPos + 8, colorBits)
-            .putFloat(vertexBufferPos + 12, u0).putFloat(vertexBufferPos + 16, v1)
-            // left-bottom
-            .putFloat(vertexBufferPos + 20, x2).putFloat(vertexBufferPos + 24, y2)
-            .putInt(vertexBufferPos + 28, colorBits)
-            .putFloat(vertexBufferPos + 32, u0).putFloat(vertexBufferPos + 36, v0)
-            // right-bottom
-            .putFloat(vertexBufferPos + 40, x3).putFloat(vertexBufferPos + 44, y3)
-            .putInt(vertexBufferPos + 48, colorBits)
-            .putFloat(vertexBufferPos + 52, u1).putFloat(vertexBufferPos + 56, v0)
-            // right-top
-            .putFloat(vertexBufferPos + 60, x4).putFloat(vertexBufferPos + 64, y4)
-            .putInt(vertexBufferPos + 68, colorBits)
-            .putFloat(vertexBufferPos + 72, u1).putFloat(vertexBufferPos + 76, v1);
-        vertexBufferPos += Sprite.SPRITE_SIZE;
-        drawnSpriteCount++;
+        ByteBuffer buffer = beginSprite();
+        // left-top
+        putVertex(buffer, x1, y1, u0, v1);
+        // left-bottom
+        putVertex(buffer, x2, y2, u0, v0);
+        // right-bottom
+        putVertex(buffer, x3, y3, u1, v0);
+        // right-top
+        putVertex(buffer, x4, y4, u1, v1);
+        endSprite();
     }
 
     @Override
     public void draw(Texture texture, float x, float y, float width, float height, float u0, float v0, float u1, float v1, boolean flipX, boolean flipY) {
         checkDrawing();
-        if (texture != lastTexture)
-            switchTexture(texture);
-        else if (vertexBufferPos >= maxVertexBytesSize)
-            flush();
-
         final float fx2 = x + width;
         final float fy2 = y + height;
 
+        if (culling && isCulled(Math.min(x, fx2), Math.min(y, fy2), Math.max(x, fx2), Math.max(y, fy2))) {
+            return;
+        }
+        submittedSpriteCount++;
+
+        if (texture != lastTexture)
+            switchTexture(texture);
+        // a texture switch doesn't flush in multi-texture mode until the slots are full
+        if (vertexBufferPos >= maxVertexBytesSize || opaqueBufferPos >= maxVertexBytesSize)
+            flush(RenderStats.FlushReason.BUFFER_FULL);
+
         if (flipX) {
             float tmp = u0;
             u0 = u1;
@@ -376,57 +1022,45 @@ public class SpriteBatch implements Batch {
             v1 = tmp;
         }
 
-        mesh.vertexBuffer()
-            // left-top
-            .putFloat(vertexBufferPos, x).putFloat(vertexBufferPos + 4, fy2)
-            .putInt(vertexBufferPos + 8, colorBits)
-            .putFloat(vertexBufferPos + 12, u0).putFloat(vertexBufferPos + 16, v0)
-            // left-bottom
-            .putFloat(vertexBufferPos + 20, x).putFloat(vertexBufferPos + 24, y)
-            .putInt(vertexBufferPos + 28, colorBits)
-            .putFloat(vertexBufferPos + 32, u0).putFloat(vertexBufferPos + 36, v1)
-            // right-bottom
-            .putFloat(vertexBufferPos + 40, fx2).putFloat(vertexBufferPos + 44, y)
-            .putInt(vertexBufferPos + 48, colorBits)
-            .putFloat(vertexBufferPos + 52, u1).putFloat(vertexBufferPos + 56, v1)
-            // right-top
-            .putFloat(vertexBufferPos + 60, fx2).putFloat(vertexBufferPos + 64, fy2)
-            .putInt(vertexBufferPos + 68, colorBits)
-            .putFloat(vertexBufferPos + 72, u1).putFloat(vertexBufferPos + 76, v0);
-        vertexBufferPos += Sprite.SPRITE_SIZE;
-        drawnSpriteCount++;
+        ByteBuffer buffer = beginSprite();
+        // left-top
+        putVertex(buffer, x, fy2, u0, v0);
+        // left-bottom
+        putVertex(buffer, x, y, u0, v1);
+        // right-bottom
+        putVertex(buffer, fx2, y, u1, v1);
+        // right-top
+        putVertex(buffer, fx2, fy2, u1, v0);
+        endSprite();
     }
 
     @Override
     public void draw(Texture texture, float x, float y, float width, float height, float u0, float v0, float u1, float v1) {
         checkDrawing();
-        if (texture != lastTexture)
-            switchTexture(texture);
-        else if (vertexBufferPos >= maxVertexBytesSize)
-            flush();
-
         final float fx2 = x + width;
         final float fy2 = y + height;
 
-        mesh.vertexBuffer()
-            // left-top
-            .putFloat(vertexBufferPos, x).putFloat(vertexBufferPos + 4, fy2)
-            .putInt(vertexBufferPos + 8, colorBits)
-            .putFloat(vertexBufferPos + 12, u0).putFloat(vertexBufferPos + 16, v0)
-            // left-bottom
-            .putFloat(vertexBufferPos + 20, x).putFloat(vertexBufferPos + 24, y)
-            .putInt(vertexBufferPos + 28, colorBits)
-            .putFloat(vertexBufferPos + 32, u0).putFloat(vertexBufferPos + 36, v1)
-            // right-bottom
-            .putFloat(vertexBufferPos + 40, fx2).putFloat(vertexBufferPos + 44, y)
-            .putInt(vertexBufferPos + 48, colorBits)
-            .putFloat(vertexBufferPos + 52, u1).putFloat(vertexBufferPos + 56, v1)
-            // right-top
-            .putFloat(vertexBufferPos + 60, fx2).putFloat(vertexBufferPos + 64, fy2)
-            .putInt(vertexBufferPos + 68, colorBits)
-            .putFloat(vertexBufferPos + 72, u1).putFloat(vertexBufferPos + 76, v0);
-        vertexBufferPos += Sprite.SPRITE_SIZE;
-        drawnSpriteCount++;
+        if (culling && isCulled(Math.min(x, fx2), Math.min(y, fy2), Math.max(x, fx2), Math.max(y, fy2))) {
+            return;
+        }
+        submittedSpriteCount++;
+
+        if (texture != lastTexture)
+            switchTexture(texture);
+        // a texture switch doesn't flush in multi-texture mode until the slots are full
+        if (vertexBufferPos >= maxVertexBytesSize || opaqueBufferPos >= maxVertexBytesSize)
+            flush(RenderStats.FlushReason.BUFFER_FULL);
+
+        ByteBuffer buffer = beginSprite();
+        // left-top
+        putVertex(buffer, x, fy2, u0, v0);
+        // left-bottom
+        putVertex(buffer, x, y, u0, v1);
+        // right-bottom
+        putVertex(buffer, fx2, y, u1, v1);
+        // right-top
+        putVertex(buffer, fx2, fy2, u1, v0);
+        endSprite();
     }
 
     @Override
@@ -441,34 +1075,40 @@ public class SpriteBatch implements Batch {
 
     @Override
     public void draw(Texture texture, float x, float y, float originX, float originY, float width, float height, float scaleX, float scaleY, float rotation, TextureRegion region, boolean flipX, boolean flipY) {
-        // important: this.invTexWidth/Height is set in switchTexture. we must compute them first
-        if (texture != lastTexture)
-            switchTexture(texture);
+        // the texture is switched after the culling test, so the inverse size is computed here
+        final float invWidth = texture != null ? 1f / texture.width() : 0f;
+        final float invHeight = texture != null ? 1f / texture.height() : 0f;
+        regionOpaque = isOpaqueRegion(texture, region);
         draw(texture, x, y, originX, originY, width, height, scaleX, scaleY, rotation,
-            region.u0() * invTexWidth, region.v0() * invTexHeight,
-            region.u1() * invTexWidth, region.v1() * invTexHeight,
+            region.u0() * invWidth, region.v0() * invHeight,
+            region.u1() * invWidth, region.v1() * invHeight,
             flipX, flipY);
+        regionOpaque = false;
     }
 
     @Override
     public void draw(Texture texture, float x, float y, float width, float height, TextureRegion region, boolean flipX, boolean flipY) {
-        // important: this.invTexWidth/Height is set in switchTexture. we must compute them first
-        if (texture != lastTexture)
-            switchTexture(texture);
+        // the texture is switched after the culling test, so the inverse size is computed here
+        final float invWidth = texture != null ? 1f / texture.width() : 0f;
+        final float invHeight = texture != null ? 1f / texture.height() : 0f;
+        regionOpaque = isOpaqueRegion(texture, region);
         draw(texture, x, y, width, height,
-            region.u0() * invTexWidth, region.v0() * invTexHeight,
-            region.u1() * invTexWidth, region.v1() * invTexHeight,
+            region.u0() * invWidth, region.v0() * invHeight,
+            region.u1() * invWidth, region.v1() * invHeight,
             flipX, flipY);
+        regionOpaque = false;
     }
 
     @Override
     public void draw(Texture texture, float x, float y, float width, float height, TextureRegion region) {
-        // important: this.invTexWidth/Height is set in switchTexture. we must compute them first
-        if (texture != lastTexture)
-            switchTexture(texture);
+        // the texture is switched after the culling test, so the inverse size is computed here
+        final float invWidth = texture != null ? 1f / texture.width() : 0f;
+        final float invHeight = texture != null ? 1f / texture.height() : 0f;
+        regionOpaque = isOpaqueRegion(texture, region);
         draw(texture, x, y, width, height,
-            region.u0() * invTexWidth, region.v0() * invTexHeight,
-            region.u1() * invTexWidth, region.v1() * invTexHeight);
+            region.u0() * invWidth, region.v0() * invHeight,
+            region.u1() * invWidth, region.v1() * invHeight);
+        regionOpaque = false;
     }
 
     @Override
@@ -476,6 +1116,92 @@ public class SpriteBatch implements Batch {
         draw(texture, x, y, region.u1() - region.u0(), region.v1() - region.v0(), region);
     }
 
+    /**
+     * Checks the count of raw vertices and switches to the given texture.
+     *
+     * @param texture the texture.
+     * @param count   the count of vertices.
+     */
+    private void prepareRaw(Texture texture, int count) {
+        checkDrawing();
+        if (count < 0 || count % Sprite.SPRITE_VERTEX != 0) {
+            throw new IllegalArgumentException("Vertex count must be a non-negative multiple of " + Sprite.SPRITE_VERTEX + "! got: " + count);
+        }
+        if (texture != lastTexture)
+            switchTexture(texture);
+        submittedSpriteCount += count / Sprite.SPRITE_VERTEX;
+    }
+
+    /**
+     * Gets the count of sprites that can be copied into the vertex buffer before flushing.
+     *
+     * @return the count of sprites, which is positive.
+     */
+    private int rawCapacity() {
+        if (vertexBufferPos >= maxVertexBytesSize)
+            flush(RenderStats.FlushReason.BUFFER_FULL);
+        return (maxVertexBytesSize - vertexBufferPos) / Sprite.SPRITE_SIZE;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The vertices are copied with one bulk copy per flush. In multi-texture mode or two-pass mode, which use
+     * other vertex layouts, the vertices are converted one by one, and the sprites are {@linkplain #setOpaque(boolean) opaque}
+     * as the batch is if all of their vertex colors are opaque.
+     */
+    @Override
+    public void draw(Texture texture, long address, int count) {
+        prepareRaw(texture, count);
+        int spriteCount = count / Sprite.SPRITE_VERTEX;
+        if (vertexSize != Sprite.LAYOUT.stride()) {
+            for (int i = 0; i < spriteCount; i++, address += Sprite.SPRITE_SIZE) {
+                if (vertexBufferPos >= maxVertexBytesSize || opaqueBufferPos >= maxVertexBytesSize)
+                    flush(RenderStats.FlushReason.BUFFER_FULL);
+                ByteBuffer buffer = beginSprite(isOpaqueRaw(address));
+                for (long v = address, end = address + Sprite.SPRITE_SIZE; v < end; v += Sprite.VERTEX_FLOATS * Float.BYTES) {
+                    putVertex(buffer, memGetFloat(v), memGetFloat(v + 4), memGetInt(v + 8), memGetFloat(v + 12), memGetFloat(v + 16));
+                }
+                endSprite();
+            }
+            return;
+        }
+        while (spriteCount > 0) {
+            int n = Math.min(rawCapacity(), spriteCount);
+            long size = (long) n * Sprite.SPRITE_SIZE;
+            memCopy(address, memAddress(mesh.vertexBuffer()) + vertexBufferPos, size);
+            address += size;
+            vertexBufferPos += (int) size;
+            drawnSpriteCount += n;
+            spriteCount -= n;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The vertices are copied with one bulk put per flush, without a temporary buffer.
+     */
+    @Override
+    public void draw(Texture texture, float[] vertices, int offset, int count) {
+        if (vertexSize != Sprite.LAYOUT.stride()) {
+            Batch.super.draw(texture, vertices, offset, count);
+            return;
+        }
+        prepareRaw(texture, count);
+        int spriteCount = count / Sprite.SPRITE_VERTEX;
+        while (spriteCount > 0) {
+            int n = Math.min(rawCapacity(), spriteCount);
+            int length = n * Sprite.SPRITE_VERTEX * Sprite.VERTEX_FLOATS;
+            FloatBuffer buffer = mesh.vertexBuffer().asFloatBuffer();
+            buffer.put(vertexBufferPos / Float.BYTES, vertices, offset, length);
+            offset += length;
+            vertexBufferPos += n * Sprite.SPRITE_SIZE;
+            drawnSpriteCount += n;
+            spriteCount -= n;
+        }
+    }
+
     /**
      * Draws a sprite. FlipX and flipY specify whether the texture portion should be flipped horizontally or vertically.
      *
@@ -506,28 +1232,185 @@ public class SpriteBatch implements Batch {
         draw(sprite, false, false);
     }
 
+    /**
+     * Draws a large set of sprites with the same texture, computing the vertices on the given pool.
+     * <p>
+     * The sprites are split into disjoint slices of the vertex buffer, and each task writes its own slice;
+     * the buffer is uploaded once per filled buffer as usual. Small sets are written on the calling thread.
+     * The culled sprites are rejected, and the slices are compacted, so that no space is uploaded for them.
+     * <p>
+     * The color of the batch is ignored; use {@link SpriteSource.Params#color} instead.
+     *
+     * @param source the sprite source.
+     * @param count  the count of sprites.
+     * @param pool   the pool to compute the vertices.
+     * @throws IllegalStateException if two-pass mode is enabled.
+     */
+    public void drawAll(SpriteSource source, int count, ForkJoinPool pool) {
+        checkDrawing();
+        if (twoPass) throw new IllegalStateException("Can't call SpriteBatch.drawAll in two-pass mode");
+        if (count <= 0) return;
+        Texture texture = source.texture();
+        if (texture != lastTexture)
+            switchTexture(texture);
+        if (culling) updateCullRect();
+        final int spriteSize = vertexSize * Sprite.SPRITE_VERTEX;
+        SpriteVertexKernel kernel = null;
+        int first = 0;
+        while (first < count) {
+            int capacity = (maxVertexBytesSize - vertexBufferPos) / spriteSize;
+            if (capacity <= 0) {
+                flush(RenderStats.FlushReason.BUFFER_FULL);
+                continue;
+            }
+            // the texture slot might change after flushing
+            if (kernel == null || vertexBufferPos == 0) {
+                kernel = new SpriteVertexKernel(mesh.vertexBuffer(),
+                    vertexSize,
+                    compact,
+                    textureSlots != null,
+                    textureSlot,
+                    premultipliedAlpha,
+                    culling,
+                    cullMinX, cullMinY, cullMaxX, cullMaxY);
+            }
+            int sliceCount = Math.min(capacity, count - first);
+            int written;
+            if (sliceCount <= SpriteVertexKernel.PARALLEL_THRESHOLD) {
+                written = kernel.writeRange(source, first, sliceCount, vertexBufferPos);
+            } else {
+                written = pool.invoke(kernel.task(source, first, sliceCount, vertexBufferPos));
+            }
+            vertexBufferPos += written * spriteSize;
+            drawnSpriteCount += written;
+            culledSpriteCount += sliceCount - written;
+            submittedSpriteCount += written;
+            first += sliceCount;
+        }
+    }
+
+    /**
+     * Draws a large set of sprites with the same texture, computing the vertices on the
+     * {@linkplain ForkJoinPool#commonPool() common pool}.
+     *
+     * @param source the sprite source.
+     * @param count  the count of sprites.
+     * @see #drawAll(SpriteSource, int, ForkJoinPool)
+     */
+    public void drawAll(SpriteSource source, int count) {
+        drawAll(source, count, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Checks whether the colors of the given raw sprite are all opaque.
+     *
+     * @param address the address of the first vertex.
+     * @return {@code true} if the alpha of every vertex is {@code 1}.
+     */
+    private static boolean isOpaqueRaw(long address) {
+        for (long v = address + 8, end = address + Sprite.SPRITE_SIZE; v < end; v += Sprite.VERTEX_FLOATS * Float.BYTES) {
+            if ((memGetInt(v) >>> 24) != 0xff) return false;
+        }
+        return true;
+    }
+
+    private boolean isOpaqueRegion(Texture texture, TextureRegion region) {
+        return twoPass && texture instanceof TextureAtlas atlas && atlas.isOpaque(region);
+    }
+
+    /**
+     * Selects the buffer of the next sprite.
+     *
+     * @return the vertex buffer to write.
+     */
+    private ByteBuffer beginSprite() {
+        return beginSprite((colorBits >>> 24) == 0xff && additiveBlend == 0f);
+    }
+
+    /**
+     * Selects the buffer of the next sprite.
+     *
+     * @param opaqueColor whether the sprite color is opaque, without additive blending.
+     * @return the vertex buffer to write.
+     */
+    private ByteBuffer beginSprite(boolean opaqueColor) {
+        if (twoPass) {
+            // setOrtho2D maps z to -z in NDC, so the later sprites are nearer
+            spriteDepth = -1f + (Math.min(depthCounter, MAX_DEPTH_SPRITES - 1) + 1) * 0x1p-19f;
+            depthCounter++;
+            // a fading or additive sprite must be blended even if the texture is opaque
+            writingOpaque = (opaque || regionOpaque) && opaqueColor;
+            if (writingOpaque) {
+                writePos = opaqueBufferPos;
+                return opaqueMesh.vertexBuffer();
+            }
+        }
+        writePos = vertexBufferPos;
+        return mesh.vertexBuffer();
+    }
+
+    private void endSprite() {
+        if (writingOpaque) {
+            opaqueBufferPos = writePos;
+            opaqueSpriteCount++;
+        } else {
+            vertexBufferPos = writePos;
+            drawnSpriteCount++;
+        }
+    }
+
+    private void putVertex(ByteBuffer buffer, float x, float y, float u, float v) {
+        putVertex(buffer, x, y, vertexColorBits, u, v);
+    }
+
+    private void putVertex(ByteBuffer buffer, float x, float y, int color, float u, float v) {
+        if (twoPass) {
+            buffer.putFloat(writePos, x).putFloat(writePos + 4, y).putFloat(writePos + 8, spriteDepth)
+                .putInt(writePos + 12, color)
+                .putFloat(writePos + 16, u).putFloat(writePos + 20, v);
+        } else if (compact) {
+            buffer.putShort(writePos, VertexWriter.halfFloat(x)).putShort(writePos + 2, VertexWriter.halfFloat(y))
+                .putInt(writePos + 4, color)
+                .putShort(writePos + 8, VertexWriter.normalizedUnsignedShort(u))
+                .putShort(writePos + 10, VertexWriter.normalizedUnsignedShort(v));
+        } else {
+            buffer.putFloat(writePos, x).putFloat(writePos + 4, y)
+                .putInt(writePos + 8, color)
+                .putFloat(writePos + 12, u).putFloat(writePos + 16, v);
+            if (textureSlots != null) {
+                buffer.putFloat(writePos + 20, textureSlot);
+            }
+        }
+        writePos += vertexSize;
+    }
+
+    /**
+     * Resolves the uniform handles of the current shader. The handles are resolved again after the shader changes.
+     */
+    private void resolveUniforms() {
+        ShaderProgram program = shader();
+        if (program != uniformShader) {
+            uniformShader = program;
+            hasTexture0Uniform = program.uniform("HasTexture0", ShaderUniform.Type.INT);
+        }
+    }
+
     private void setupMatrices() {
-        projectionMatrix.mul(modelMatrix, combinedMatrix);
-        shader().setProjectionViewModelMatrix(combinedMatrix);
-        shader().uploadUniforms();
+        resolveUniforms();
+        uniformShader.setMatrices(projectionMatrix, modelMatrix);
+        uniformShader.uploadUniforms();
     }
 
     @Override
     public void setShader(ShaderProgram shader) {
         if (shader == customShader) return;
-        if (drawing) flush();
+        if (drawing) flush(RenderStats.FlushReason.SHADER_CHANGE);
         customShader = shader;
-        if (drawing) {
-            int currProgram = currentProgram();
-            shader().use();
-            setupMatrices();
-            useProgram(currProgram);
-        }
     }
 
     @Override
     public ShaderProgram shader() {
-        return customShader != null ? customShader : shader;
+        return customShader != null ? customShader : variantShader;
     }
 
     @Override
@@ -542,39 +1425,29 @@ public class SpriteBatch implements Batch {
 
     @Override
     public void setProjectionMatrix(Matrix4fc projectionMatrix) {
-        if (drawing) flush();
+        if (drawing) flush(RenderStats.FlushReason.MATRIX_CHANGE);
         this.projectionMatrix.set(projectionMatrix);
-        if (drawing) {
-            int currProgram = currentProgram();
-            shader().use();
-            setupMatrices();
-            useProgram(currProgram);
-        }
+        cullRectDirty = true;
     }
 
     @Override
     public void setModelMatrix(Matrix4fc modelMatrix) {
-        if (drawing) flush();
+        if (drawing) flush(RenderStats.FlushReason.MATRIX_CHANGE);
         this.modelMatrix.set(modelMatrix);
-        if (drawing) {
-            int currProgram = currentProgram();
-            shader().use();
-            setupMatrices();
-            useProgram(currProgram);
-        }
+        cullRectDirty = true;
     }
 
     @Override
     public void enableBlend() {
         if (!blendDisabled) return;
-        flush();
+        flush(RenderStats.FlushReason.BLEND_CHANGE);
         blendDisabled = false;
     }
 
     @Override
     public void disableBlend() {
         if (blendDisabled) return;
-        flush();
+        flush(RenderStats.FlushReason.BLEND_CHANGE);
         blendDisabled = true;
     }
 
@@ -584,7 +1457,7 @@ public class SpriteBatch implements Batch {
             blendDstRGB != dstRGB ||
             blendSrcAlpha != srcAlpha ||
             blendDstAlpha != dstAlpha) {
-            flush();
+            flush(RenderStats.FlushReason.BLEND_CHANGE);
             blendSrcRGB = srcRGB;
             blendDstRGB = dstRGB;
             blendSrcAlpha = srcAlpha;
@@ -600,6 +1473,111 @@ public class SpriteBatch implements Batch {
     @Override
     public void setSpriteColor(int packedColor) {
         this.colorBits = packedColor;
+        this.vertexColorBits = vertexColor(packedColor, premultipliedAlpha, additiveBlend);
+    }
+
+    /**
+     * Computes the color written into vertices.
+     *
+     * @param color              the packed color in ABGR, not premultiplied.
+     * @param premultipliedAlpha whether the premultiplied alpha mode is enabled.
+     * @param additiveBlend      the additive blend factor.
+     * @return the packed vertex color.
+     */
+    static int vertexColor(int color, boolean premultipliedAlpha, float additiveBlend) {
+        if (!premultipliedAlpha) return color;
+        int premultiplied = Color.premultiplyABGR(color);
+        if (additiveBlend == 0f) return premultiplied;
+        // under GL_ONE, GL_ONE_MINUS_SRC_ALPHA, a lower alpha keeps more of the destination, and 0 is additive
+        int alpha = (int) ((premultiplied >>> 24) * (1f - additiveBlend) + 0.5f);
+        return (alpha << 24) | (premultiplied & 0x00ffffff);
+    }
+
+    /**
+     * Sets whether to enable premultiplied alpha mode. Flushes if changed.
+     * <p>
+     * In premultiplied alpha mode, the blend function is {@code GL_ONE, GL_ONE_MINUS_SRC_ALPHA} regardless of
+     * {@link #setBlendFuncSeparate(int, int, int, int)}, the sprite colors are premultiplied on writing, and
+     * the textures are expected to be premultiplied too; see {@link TextureParam#premultipliedAlpha(boolean)}.
+     *
+     * @param premultipliedAlpha {@code true} to enable.
+     */
+    public void setPremultipliedAlpha(boolean premultipliedAlpha) {
+        if (this.premultipliedAlpha == premultipliedAlpha) return;
+        if (drawing) flush(RenderStats.FlushReason.BLEND_CHANGE);
+        this.premultipliedAlpha = premultipliedAlpha;
+        this.vertexColorBits = vertexColor(colorBits, premultipliedAlpha, additiveBlend);
+    }
+
+    /**
+     * Returns {@code true} if premultiplied alpha mode is enabled.
+     *
+     * @return {@code true} if premultiplied alpha mode is enabled.
+     */
+    public boolean isPremultipliedAlpha() {
+        return premultipliedAlpha;
+    }
+
+    /**
+     * Sets the additive blend factor for the next sprites. This does not flush.
+     * <p>
+     * {@code 0} is the alpha blending, {@code 1} is the additive blending, and the values between mix them.
+     * Only takes effect in {@linkplain #setPremultipliedAlpha(boolean) premultiplied alpha mode}.
+     *
+     * @param additiveBlend the additive blend factor. clamped to {@code [0, 1]}.
+     */
+    public void setAdditiveBlend(float additiveBlend) {
+        this.additiveBlend = Math.clamp(0f, 1f, additiveBlend);
+        this.vertexColorBits = vertexColor(colorBits, premultipliedAlpha, this.additiveBlend);
+    }
+
+    /**
+     * Gets the additive blend factor.
+     *
+     * @return the additive blend factor.
+     */
+    public float additiveBlend() {
+        return additiveBlend;
+    }
+
+    /**
+     * Sets whether the next sprites are opaque. This does not flush.
+     * <p>
+     * Only takes effect in {@linkplain #SpriteBatch(ShaderProgram, int, int, boolean) two-pass mode}, where the opaque
+     * sprites are drawn without blending. The sprites with a fully opaque atlas region are always opaque.
+     * The sprites with a translucent color or an additive blend factor are never opaque.
+     *
+     * @param opaque {@code true} if the next sprites are opaque.
+     */
+    public void setOpaque(boolean opaque) {
+        this.opaque = opaque;
+    }
+
+    /**
+     * Returns {@code true} if the next sprites are flagged opaque.
+     *
+     * @return {@code true} if the next sprites are flagged opaque.
+     */
+    public boolean isOpaque() {
+        return opaque;
+    }
+
+    /**
+     * Returns {@code true} if two-pass mode is enabled.
+     *
+     * @return {@code true} if two-pass mode is enabled.
+     */
+    public boolean isTwoPass() {
+        return twoPass;
+    }
+
+    /**
+     * Returns {@code true} if compact mode is enabled.
+     *
+     * @return {@code true} if compact mode is enabled.
+     */
+    public boolean isCompact() {
+        return compact;
     }
 
     @Override
@@ -622,7 +1600,15 @@ public class SpriteBatch implements Batch {
         if (disposed) return;
         disposed = true;
         mesh.dispose();
-        if (ownsShader && shader != null) {
+        if (opaqueMesh != null) {
+            opaqueMesh.dispose();
+        }
+        if (whiteTexture != null) {
+            whiteTexture.dispose();
+        }
+        if (shaderLibrary != null) {
+            shaderLibrary.dispose();
+        } else if (ownsShader && shader != null) {
             shader.dispose();
         }
     }
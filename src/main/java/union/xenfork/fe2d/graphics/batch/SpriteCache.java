@@ -0,0 +1,561 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.batch;
+
+import org.jetbrains.annotations.Nullable;
+import org.joml.Math;
+import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
+import union.xenfork.fe2d.Disposable;
+import union.xenfork.fe2d.Fe2D;
+import union.xenfork.fe2d.graphics.GLStateManager;
+import union.xenfork.fe2d.graphics.ShaderProgram;
+import union.xenfork.fe2d.graphics.ShaderUniform;
+import union.xenfork.fe2d.graphics.UniformHandle;
+import union.xenfork.fe2d.graphics.mesh.Mesh;
+import union.xenfork.fe2d.graphics.sprite.Sprite;
+import union.xenfork.fe2d.graphics.texture.Texture;
+import union.xenfork.fe2d.graphics.texture.TextureRegion;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static union.xenfork.fe2d.graphics.GLStateManager.*;
+
+/**
+ * The sprite cache, which retains the vertices of static sprites in a GPU buffer.
+ * <p>
+ * Each added sprite is addressed by a handle. The sprites are grouped by texture in the buffer, so drawing costs
+ * one draw call per texture. Adding a sprite or changing its texture re-uploads the whole cache on the next
+ * {@link #draw()}, while {@linkplain #move(int, float, float) moving}, {@linkplain #setColor(int, int) recoloring}
+ * or {@linkplain #setVisible(int, boolean) hiding} a sprite only re-uploads the coalesced dirty ranges.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public class SpriteCache implements Disposable {
+    /**
+     * The default value of max sprites.
+     */
+    public static final int DEFAULT_MAX_SPRITES = SpriteBatch.DEFAULT_MAX_SPRITES;
+    private static final int VERTEX_SIZE = Sprite.SPRITE_SIZE / Sprite.SPRITE_VERTEX;
+    private final Mesh mesh;
+    private final int maxSprites;
+    // the vertices in handle order
+    private final ByteBuffer spriteVertices;
+    private final Texture[] spriteTextures;
+    private final boolean[] spriteHidden;
+    private final int[] spriteSlots;
+    private int spriteCount = 0;
+    // the runs of sprites with the same texture, in slot order
+    private Texture[] runTextures = new Texture[0];
+    private int[] runStarts = new int[0];
+    private int[] runCounts = new int[0];
+    private int runCount = 0;
+    private boolean layoutDirty = false;
+    private final Matrix4f projectionMatrix = new Matrix4f();
+    private final Matrix4f modelMatrix = new Matrix4f();
+    final ShaderProgram shader;
+    private ShaderProgram customShader;
+    private final boolean ownsShader;
+    private int blendSrcRGB = GL_SRC_ALPHA;
+    private int blendDstRGB = GL_ONE_MINUS_SRC_ALPHA;
+    private int blendSrcAlpha = GL_SRC_ALPHA;
+    private int blendDstAlpha = GL_ONE_MINUS_SRC_ALPHA;
+    private boolean blendDisabled = false;
+    private ShaderProgram uniformShader;
+    private UniformHandle hasTexture0Uniform;
+    private boolean disposed = false;
+
+    /**
+     * Creates the sprite cache with the given shader and size.
+     *
+     * @param defaultShader the custom shader to be used. if no custom shader provided, {@link SpriteBatch#createDefaultShader()} is used.
+     * @param maxSprites    the max sprite count. defaults to {@value #DEFAULT_MAX_SPRITES}.
+     */
+    public SpriteCache(@Nullable ShaderProgram defaultShader, int maxSprites) {
+        int size = Math.clamp(1, SpriteBatch.MAX_SPRITES, maxSprites);
+        this.maxSprites = size;
+        this.mesh = Mesh.quads(Sprite.LAYOUT, size, 0);
+        this.spriteVertices = memCalloc(size * Sprite.SPRITE_SIZE);
+        this.spriteTextures = new Texture[size];
+        this.spriteHidden = new boolean[size];
+        this.spriteSlots = new int[size];
+        this.shader = defaultShader != null ? defaultShader : SpriteBatch.createDefaultShader();
+        this.ownsShader = defaultShader == null;
+
+        projectionMatrix.setOrtho2D(0, Fe2D.graphics.width(), 0, Fe2D.graphics.height());
+    }
+
+    /**
+     * Creates the sprite cache with the given size.
+     *
+     * @param maxSprites the max sprite count.
+     */
+    public SpriteCache(int maxSprites) {
+        this(null, maxSprites);
+    }
+
+    /**
+     * Creates the sprite cache with the default size.
+     */
+    public SpriteCache() {
+        this(null, DEFAULT_MAX_SPRITES);
+    }
+
+    private void checkHandle(int handle) {
+        if (handle < 0 || handle >= spriteCount) {
+            throw new IndexOutOfBoundsException("Invalid sprite handle " + handle + " for size " + spriteCount);
+        }
+    }
+
+    private int newHandle() {
+        if (spriteCount == maxSprites) {
+            throw new IllegalStateException("The sprite cache is full! max sprites: " + maxSprites);
+        }
+        layoutDirty = true;
+        return spriteCount++;
+    }
+
+    /**
+     * Adds a sprite with its current states. Later changes to the sprite are not reflected until {@link #set(int, Sprite)}.
+     *
+     * @param sprite the sprite.
+     * @return the handle of the sprite.
+     */
+    public int add(Sprite sprite) {
+        int handle = newHandle();
+        set(handle, sprite);
+        return handle;
+    }
+
+    /**
+     * Adds a sprite.
+     *
+     * @param texture     the texture, or {@code null} for no texture.
+     * @param x           the x coordinate.
+     * @param y           the y coordinate.
+     * @param width       the width.
+     * @param height      the height.
+     * @param u0          the left texture coordinate.
+     * @param v0          the top texture coordinate.
+     * @param u1          the right texture coordinate.
+     * @param v1          the bottom texture coordinate.
+     * @param packedColor the packed color.
+     * @return the handle of the sprite.
+     */
+    public int add(@Nullable Texture texture, float x, float y, float width, float height, float u0, float v0, float u1, float v1, int packedColor) {
+        int handle = newHandle();
+        spriteTextures[handle] = texture;
+        final float fx2 = x + width;
+        final float fy2 = y + height;
+        writeSprite(handle,
+            x, y,
+            x, fy2,
+            fx2, fy2,
+            fx2, y,
+            u0, v0, u1, v1,
+            packedColor);
+        return handle;
+    }
+
+    /**
+     * Adds a sprite.
+     *
+     * @param texture     the texture.
+     * @param x           the x coordinate.
+     * @param y           the y coordinate.
+     * @param width       the width.
+     * @param height      the height.
+     * @param region      the texture region.
+     * @param packedColor the packed color.
+     * @return the handle of the sprite.
+     */
+    public int add(Texture texture, float x, float y, float width, float height, TextureRegion region, int packedColor) {
+        float invTexWidth = 1f / texture.width();
+        float invTexHeight = 1f / texture.height();
+        return add(texture, x, y, width, height,
+            region.u0() * invTexWidth, region.v0() * invTexHeight,
+            region.u1() * invTexWidth, region.v1() * invTexHeight,
+            packedColor);
+    }
+
+    /**
+     * Replaces the sprite with the given handle by the current states of the given sprite.
+     *
+     * @param handle the handle of the sprite.
+     * @param sprite the sprite.
+     */
+    public void set(int handle, Sprite sprite) {
+        checkHandle(handle);
+        if (spriteTextures[handle] != sprite.texture) {
+            spriteTextures[handle] = sprite.texture;
+            layoutDirty = true;
+        }
+        Matrix4f mat = sprite.getTransform();
+        float width = sprite.size.x();
+        float height = sprite.size.y();
+        float u0 = 0f, v0 = 0f, u1 = 1f, v1 = 1f;
+        if (sprite.texture != null && sprite.textureRegion != null) {
+            float invW = 1f / sprite.texture.width();
+            float invH = 1f / sprite.texture.height();
+            u0 = sprite.textureRegion.u0() * invW;
+            v0 = sprite.textureRegion.v0() * invH;
+            u1 = sprite.textureRegion.u1() * invW;
+            v1 = sprite.textureRegion.v1() * invH;
+        }
+        writeSprite(handle,
+            mat.m30(), mat.m31(),
+            Math.fma(mat.m10(), height, mat.m30()), Math.fma(mat.m11(), height, mat.m31()),
+            Math.fma(mat.m00(), width, Math.fma(mat.m10(), height, mat.m30())),
+            Math.fma(mat.m01(), width, Math.fma(mat.m11(), height, mat.m31())),
+            Math.fma(mat.m00(), width, mat.m30()), Math.fma(mat.m01(), width, mat.m31()),
+            u0, v0, u1, v1,
+            sprite.color.packABGR());
+    }
+
+    private void writeSprite(int handle,
+                             float x1, float y1,
+                             float x2, float y2,
+                             float x3, float y3,
+                             float x4, float y4,
+                             float u0, float v0, float u1, float v1,
+                             int color) {
+        int pos = handle * Sprite.SPRITE_SIZE;
+        // bottom left, top left, top right, bottom right
+        putVertex(pos, x1, y1, color, u0, v1);
+        putVertex(pos + VERTEX_SIZE, x2, y2, color, u0, v0);
+        putVertex(pos + VERTEX_SIZE * 2, x3, y3, color, u1, v0);
+        putVertex(pos + VERTEX_SIZE * 3, x4, y4, color, u1, v1);
+        syncSprite(handle);
+    }
+
+    private void putVertex(int pos, float x, float y, int color, float u, float v) {
+        spriteVertices.putFloat(pos, x).putFloat(pos + 4, y)
+            .putInt(pos + 8, color)
+            .putFloat(pos + 12, u).putFloat(pos + 16, v);
+    }
+
+    /**
+     * Copies the vertices of the given sprite to its slot, and marks the range of the mesh as dirty.
+     *
+     * @param handle the handle of the sprite.
+     */
+    private void syncSprite(int handle) {
+        // the whole buffer is rebuilt later
+        if (layoutDirty) return;
+        int dst = spriteSlots[handle] * Sprite.SPRITE_SIZE;
+        long address = memAddress(mesh.vertexBuffer()) + dst;
+        if (spriteHidden[handle]) {
+            // degenerate triangles produce no fragments
+            memSet(address, 0, Sprite.SPRITE_SIZE);
+        } else {
+            memCopy(memAddress(spriteVertices) + (long) handle * Sprite.SPRITE_SIZE, address, Sprite.SPRITE_SIZE);
+        }
+        mesh.markVerticesDirty(dst, Sprite.SPRITE_SIZE);
+    }
+
+    /**
+     * Moves the sprite with the given handle.
+     *
+     * @param handle the handle of the sprite.
+     * @param dx     the x offset.
+     * @param dy     the y offset.
+     */
+    public void move(int handle, float dx, float dy) {
+        checkHandle(handle);
+        int pos = handle * Sprite.SPRITE_SIZE;
+        for (int i = 0; i < Sprite.SPRITE_VERTEX; i++, pos += VERTEX_SIZE) {
+            spriteVertices.putFloat(pos, spriteVertices.getFloat(pos) + dx)
+                .putFloat(pos + 4, spriteVertices.getFloat(pos + 4) + dy);
+        }
+        syncSprite(handle);
+    }
+
+    /**
+     * Sets the color of the sprite with the given handle.
+     *
+     * @param handle      the handle of the sprite.
+     * @param packedColor the packed color.
+     */
+    public void setColor(int handle, int packedColor) {
+        checkHandle(handle);
+        int pos = handle * Sprite.SPRITE_SIZE + 8;
+        for (int i = 0; i < Sprite.SPRITE_VERTEX; i++, pos += VERTEX_SIZE) {
+            spriteVertices.putInt(pos, packedColor);
+        }
+        syncSprite(handle);
+    }
+
+    /**
+     * Sets whether the sprite with the given handle is visible.
+     *
+     * @param handle  the handle of the sprite.
+     * @param visible {@code true} to show the sprite; {@code false} to hide the sprite.
+     */
+    public void setVisible(int handle, boolean visible) {
+        checkHandle(handle);
+        if (spriteHidden[handle] != visible) return;
+        spriteHidden[handle] = !visible;
+        syncSprite(handle);
+    }
+
+    /**
+     * Returns {@code true} if the sprite with the given handle is visible.
+     *
+     * @param handle the handle of the sprite.
+     * @return {@code true} if the sprite with the given handle is visible.
+     */
+    public boolean isVisible(int handle) {
+        checkHandle(handle);
+        return !spriteHidden[handle];
+    }
+
+    /**
+     * Removes all sprites. The handles become invalid.
+     */
+    public void clear() {
+        Arrays.fill(spriteTextures, 0, spriteCount, null);
+        Arrays.fill(spriteHidden, 0, spriteCount, false);
+        spriteCount = 0;
+        layoutDirty = true;
+    }
+
+    /**
+     * Gets the count of the sprites.
+     *
+     * @return the count of the sprites.
+     */
+    public int size() {
+        return spriteCount;
+    }
+
+    /**
+     * Gets the count of the draw calls per {@link #draw()}, which is the count of the different textures.
+     *
+     * @return the count of the draw calls.
+     */
+    public int drawCallCount() {
+        if (layoutDirty) rebuild();
+        return runCount;
+    }
+
+    /**
+     * Groups the sprites by texture, and copies all vertices to the vertex buffer.
+     */
+    private void rebuild() {
+        layoutDirty = false;
+        Map<Texture, Integer> runMap = new IdentityHashMap<>();
+        int[] counts = new int[spriteCount];
+        int[] runIds = new int[spriteCount];
+        runCount = 0;
+        for (int i = 0; i < spriteCount; i++) {
+            Integer id = runMap.get(spriteTextures[i]);
+            if (id == null) {
+                id = runCount++;
+                runMap.put(spriteTextures[i], id);
+            }
+            runIds[i] = id;
+            counts[id]++;
+        }
+        runTextures = new Texture[runCount];
+        runStarts = new int[runCount];
+        runCounts = Arrays.copyOf(counts, runCount);
+        for (var e : runMap.entrySet()) {
+            runTextures[e.getValue()] = e.getKey();
+        }
+        for (int i = 0, start = 0; i < runCount; i++) {
+            runStarts[i] = start;
+            start += runCounts[i];
+        }
+        int[] cursors = Arrays.copyOf(runStarts, runCount);
+        for (int i = 0; i < spriteCount; i++) {
+            spriteSlots[i] = cursors[runIds[i]]++;
+            syncSprite(i);
+        }
+    }
+
+    /**
+     * Uploads the dirty ranges and draws all visible sprites.
+     */
+    public void draw() {
+        if (layoutDirty) rebuild();
+        if (runCount == 0) return;
+
+        int currPrg = currentProgram();
+        int currTex = textureBinding2D();
+        boolean blend = isBlendEnabled();
+        int sRGB = blendSrcRGB();
+        int dRGB = blendDstRGB();
+        int sAlpha = blendSrcAlpha();
+        int dAlpha = blendDstAlpha();
+        if (blendDisabled && blend) {
+            GLStateManager.disableBlend();
+        } else if (!blendDisabled) {
+            if (!blend) {
+                GLStateManager.enableBlend();
+            }
+            blendFuncSeparate(blendSrcRGB, blendDstRGB, blendSrcAlpha, blendDstAlpha);
+        }
+        ShaderProgram program = shader();
+        program.use();
+        program.setMatrices(projectionMatrix, modelMatrix);
+        if (program != uniformShader) {
+            uniformShader = program;
+            hasTexture0Uniform = program.uniform("HasTexture0", ShaderUniform.Type.INT);
+        }
+        for (int i = 0; i < runCount; i++) {
+            Texture texture = runTextures[i];
+            boolean hasTexture = texture != null;
+            hasTexture0Uniform.set(hasTexture);
+            program.uploadUniforms();
+            if (hasTexture) {
+                texture.bind();
+            }
+            mesh.render(GL_TRIANGLES, runStarts[i] * 6, runCounts[i] * 6);
+        }
+        bindTexture2D(currTex);
+        useProgram(currPrg);
+        if (blendDisabled && blend) {
+            GLStateManager.enableBlend();
+        } else if (!blendDisabled) {
+            if (!blend) {
+                GLStateManager.disableBlend();
+            }
+            blendFuncSeparate(sRGB, dRGB, sAlpha, dAlpha);
+        }
+    }
+
+    /**
+     * Sets the custom shader.
+     *
+     * @param shader the custom shader.
+     */
+    public void setShader(ShaderProgram shader) {
+        customShader = shader;
+    }
+
+    /**
+     * Gets the shader.
+     *
+     * @return the custom shader user set; or the default shader.
+     */
+    public ShaderProgram shader() {
+        return customShader != null ? customShader : shader;
+    }
+
+    /**
+     * Gets the projection matrix.
+     *
+     * @return the projection matrix.
+     */
+    public Matrix4f projectionMatrix() {
+        return projectionMatrix;
+    }
+
+    /**
+     * Gets the model matrix.
+     *
+     * @return the model matrix.
+     */
+    public Matrix4f modelMatrix() {
+        return modelMatrix;
+    }
+
+    /**
+     * Sets the projection matrix used by the next draw.
+     *
+     * @param projectionMatrix the projection matrix.
+     */
+    public void setProjectionMatrix(Matrix4fc projectionMatrix) {
+        this.projectionMatrix.set(projectionMatrix);
+    }
+
+    /**
+     * Sets the model matrix used by the next draw.
+     *
+     * @param modelMatrix the model matrix.
+     */
+    public void setModelMatrix(Matrix4fc modelMatrix) {
+        this.modelMatrix.set(modelMatrix);
+    }
+
+    /**
+     * Enables blending for the next draw.
+     */
+    public void enableBlend() {
+        blendDisabled = false;
+    }
+
+    /**
+     * Disables blending for the next draw.
+     */
+    public void disableBlend() {
+        blendDisabled = true;
+    }
+
+    /**
+     * Sets the blend factors used by the next draw.
+     *
+     * @param srcRGB   the source factor of RGB.
+     * @param dstRGB   the destination factor of RGB.
+     * @param srcAlpha the source factor of alpha.
+     * @param dstAlpha the destination factor of alpha.
+     */
+    public void setBlendFuncSeparate(int srcRGB, int dstRGB, int srcAlpha, int dstAlpha) {
+        blendSrcRGB = srcRGB;
+        blendDstRGB = dstRGB;
+        blendSrcAlpha = srcAlpha;
+        blendDstAlpha = dstAlpha;
+    }
+
+    /**
+     * Sets the blend factors of both RGB and alpha used by the next draw.
+     *
+     * @param srcFactor the source factor.
+     * @param dstFactor the destination factor.
+     */
+    public void setBlendFunc(int srcFactor, int dstFactor) {
+        setBlendFuncSeparate(srcFactor, dstFactor, srcFactor, dstFactor);
+    }
+
+    /**
+     * Returns {@code true} if blending is disabled.
+     *
+     * @return {@code true} if blending is disabled.
+     */
+    public boolean isBlendDisabled() {
+        return blendDisabled;
+    }
+
+    @Override
+    public void dispose() {
+        if (disposed) return;
+        disposed = true;
+        mesh.dispose();
+        memFree(spriteVertices);
+        if (ownsShader && shader != null) {
+            shader.dispose();
+        }
+    }
+}
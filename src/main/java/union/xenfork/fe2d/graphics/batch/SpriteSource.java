@@ -0,0 +1,100 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.batch;
+
+import org.jetbrains.annotations.Nullable;
+import union.xenfork.fe2d.graphics.Color;
+import union.xenfork.fe2d.graphics.texture.Texture;
+
+/**
+ * The source of a large set of sprites with the same texture, used by {@link SpriteBatch#drawAll(SpriteSource, int)}.
+ * <p>
+ * {@link #get(int, Params)} might be called from multiple threads at the same time, so it must not modify
+ * any shared state.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public interface SpriteSource {
+    /**
+     * Gets the texture of all sprites.
+     *
+     * @return the texture, or {@code null} for no texture.
+     */
+    @Nullable Texture texture();
+
+    /**
+     * Gets the parameters of the sprite with the given index.
+     *
+     * @param index  the index of the sprite.
+     * @param params the parameters to be set, which are reset to the default values before each call.
+     */
+    void get(int index, Params params);
+
+    /**
+     * The parameters of a sprite. The texture coordinates are normalized.
+     * <p>
+     * The color is not premultiplied, and {@link #additive} is the additive blend factor in
+     * {@linkplain SpriteBatch#setPremultipliedAlpha(boolean) premultiplied alpha mode}.
+     *
+     * @author squid233
+     * @since 0.1.0
+     */
+    final class Params {
+        public float x, y;
+        public float originX, originY;
+        public float width, height;
+        public float scaleX, scaleY;
+        public float rotation;
+        public float u0, v0, u1, v1;
+        public boolean flipX, flipY;
+        public int color;
+        public float additive;
+
+        /**
+         * Creates the parameters with the default values.
+         */
+        public Params() {
+            reset();
+        }
+
+        /**
+         * Resets to the default values.
+         */
+        public void reset() {
+            x = 0f;
+            y = 0f;
+            originX = 0f;
+            originY = 0f;
+            width = 0f;
+            height = 0f;
+            scaleX = 1f;
+            scaleY = 1f;
+            rotation = 0f;
+            u0 = 0f;
+            v0 = 0f;
+            u1 = 1f;
+            v1 = 1f;
+            flipX = false;
+            flipY = false;
+            color = Color.WHITE_BITS;
+            additive = 0f;
+        }
+    }
+}
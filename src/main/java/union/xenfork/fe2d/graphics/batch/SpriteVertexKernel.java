@@ -0,0 +1,225 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.batch;
+
+import org.joml.Math;
+import union.xenfork.fe2d.graphics.sprite.Sprite;
+import union.xenfork.fe2d.graphics.sprite.SpriteArrays;
+import union.xenfork.fe2d.graphics.sprite.SpriteKernel;
+import union.xenfork.fe2d.graphics.vertex.VertexWriter;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.RecursiveTask;
+
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.system.libc.LibCString.nmemmove;
+
+/**
+ * The kernel that transforms sprites from a {@link SpriteSource} with the {@linkplain SpriteKernel#best() best}
+ * sprite kernel and writes the vertices into a buffer.
+ * <p>
+ * The kernel only writes with absolute positions, so multiple threads can write disjoint slices of the same buffer.
+ * The culled sprites are skipped, and the written sprites are packed at the start of the slice.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class SpriteVertexKernel {
+    /**
+     * The min count of sprites per parallel task.
+     */
+    static final int PARALLEL_THRESHOLD = 1024;
+    /**
+     * The count of sprites transformed by the {@link SpriteKernel} at once.
+     */
+    private static final int CHUNK_SIZE = 256;
+    private final SpriteKernel kernel = SpriteKernel.best();
+    private final ByteBuffer buffer;
+    private final int vertexSize;
+    private final int spriteSize;
+    private final boolean compact;
+    private final boolean hasTextureSlot;
+    private final float textureSlot;
+    private final boolean premultipliedAlpha;
+    private final boolean culling;
+    private final float cullMinX, cullMinY, cullMaxX, cullMaxY;
+
+    SpriteVertexKernel(ByteBuffer buffer,
+                       int vertexSize,
+                       boolean compact,
+                       boolean hasTextureSlot,
+                       float textureSlot,
+                       boolean premultipliedAlpha,
+                       boolean culling,
+                       float cullMinX, float cullMinY, float cullMaxX, float cullMaxY) {
+        this.buffer = buffer;
+        this.vertexSize = vertexSize;
+        this.spriteSize = vertexSize * Sprite.SPRITE_VERTEX;
+        this.compact = compact;
+        this.hasTextureSlot = hasTextureSlot;
+        this.textureSlot = textureSlot;
+        this.premultipliedAlpha = premultipliedAlpha;
+        this.culling = culling;
+        this.cullMinX = cullMinX;
+        this.cullMinY = cullMinY;
+        this.cullMaxX = cullMaxX;
+        this.cullMaxY = cullMaxY;
+    }
+
+    /**
+     * Writes the given range of sprites serially.
+     *
+     * @param source the sprite source.
+     * @param first  the index of the first sprite.
+     * @param count  the count of sprites.
+     * @param pos    the position in bytes of the first sprite in the buffer.
+     * @return the count of written sprites, which are not culled.
+     */
+    int writeRange(SpriteSource source, int first, int count, int pos) {
+        SpriteSource.Params params = new SpriteSource.Params();
+        SpriteArrays arrays = new SpriteArrays(Math.min(count, CHUNK_SIZE));
+        int written = 0;
+        for (int chunkFirst = 0; chunkFirst < count; chunkFirst += CHUNK_SIZE) {
+            int chunkCount = Math.min(CHUNK_SIZE, count - chunkFirst);
+            for (int i = 0; i < chunkCount; i++) {
+                params.reset();
+                source.get(first + chunkFirst + i, params);
+                arrays.x[i] = params.x;
+                arrays.y[i] = params.y;
+                arrays.originX[i] = params.originX;
+                arrays.originY[i] = params.originY;
+                arrays.width[i] = params.width;
+                arrays.height[i] = params.height;
+                arrays.scaleX[i] = params.scaleX;
+                arrays.scaleY[i] = params.scaleY;
+                arrays.rotation[i] = params.rotation;
+                arrays.u0[i] = params.flipX ? params.u1 : params.u0;
+                arrays.u1[i] = params.flipX ? params.u0 : params.u1;
+                arrays.v0[i] = params.flipY ? params.v1 : params.v0;
+                arrays.v1[i] = params.flipY ? params.v0 : params.v1;
+                arrays.colors[i] = SpriteBatch.vertexColor(params.color,
+                    premultipliedAlpha,
+                    Math.clamp(0f, 1f, params.additive));
+            }
+            kernel.transform(arrays, chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                if (write(pos, arrays, i)) {
+                    pos += spriteSize;
+                    written++;
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Writes the given range of sprites in parallel.
+     *
+     * @param source the sprite source.
+     * @param first  the index of the first sprite.
+     * @param count  the count of sprites.
+     * @param pos    the position in bytes of the first sprite in the buffer.
+     * @return the task that returns the count of written sprites.
+     */
+    RecursiveTask<Integer> task(SpriteSource source, int first, int count, int pos) {
+        return new Task(source, first, count, pos);
+    }
+
+    private final class Task extends RecursiveTask<Integer> {
+        private final SpriteSource source;
+        private final int first;
+        private final int count;
+        private final int pos;
+
+        Task(SpriteSource source, int first, int count, int pos) {
+            this.source = source;
+            this.first = first;
+            this.count = count;
+            this.pos = pos;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (count <= PARALLEL_THRESHOLD) {
+                return writeRange(source, first, count, pos);
+            }
+            int half = count / 2;
+            Task left = new Task(source, first, half, pos);
+            Task right = new Task(source, first + half, count - half, pos + half * spriteSize);
+            left.fork();
+            int rightWritten = right.compute();
+            int leftWritten = left.join();
+            if (leftWritten < half && rightWritten > 0) {
+                // closes the gap of the culled sprites; the ranges might overlap
+                long address = memAddress(buffer);
+                nmemmove(address + pos + (long) leftWritten * spriteSize,
+                    address + pos + (long) half * spriteSize,
+                    (long) rightWritten * spriteSize);
+            }
+            return leftWritten + rightWritten;
+        }
+    }
+
+    /**
+     * Writes a transformed sprite.
+     *
+     * @param pos    the position in bytes in the buffer.
+     * @param arrays the transformed sprites.
+     * @param i      the index of the sprite in the arrays.
+     * @return {@code false} if the sprite is culled and nothing is written.
+     */
+    private boolean write(int pos, SpriteArrays arrays, int i) {
+        final float x1 = arrays.x1[i], y1 = arrays.y1[i];
+        final float x2 = arrays.x2[i], y2 = arrays.y2[i];
+        final float x3 = arrays.x3[i], y3 = arrays.y3[i];
+        final float x4 = arrays.x4[i], y4 = arrays.y4[i];
+
+        if (culling &&
+            (Math.max(Math.max(x1, x2), Math.max(x3, x4)) < cullMinX ||
+             Math.min(Math.min(x1, x2), Math.min(x3, x4)) > cullMaxX ||
+             Math.max(Math.max(y1, y2), Math.max(y3, y4)) < cullMinY ||
+             Math.min(Math.min(y1, y2), Math.min(y3, y4)) > cullMaxY)) {
+            return false;
+        }
+
+        final float u0 = arrays.u0[i], v0 = arrays.v0[i], u1 = arrays.u1[i], v1 = arrays.v1[i];
+        final int color = arrays.colors[i];
+        putVertex(pos, x1, y1, color, u0, v1);
+        putVertex(pos + vertexSize, x2, y2, color, u0, v0);
+        putVertex(pos + vertexSize * 2, x3, y3, color, u1, v0);
+        putVertex(pos + vertexSize * 3, x4, y4, color, u1, v1);
+        return true;
+    }
+
+    private void putVertex(int pos, float x, float y, int color, float u, float v) {
+        if (compact) {
+            buffer.putShort(pos, VertexWriter.halfFloat(x)).putShort(pos + 2, VertexWriter.halfFloat(y))
+                .putInt(pos + 4, color)
+                .putShort(pos + 8, VertexWriter.normalizedUnsignedShort(u))
+                .putShort(pos + 10, VertexWriter.normalizedUnsignedShort(v));
+            return;
+        }
+        buffer.putFloat(pos, x).putFloat(pos + 4, y)
+            .putInt(pos + 8, color)
+            .putFloat(pos + 12, u).putFloat(pos + 16, v);
+        if (hasTextureSlot) {
+            buffer.putFloat(pos + 20, textureSlot);
+        }
+    }
+}
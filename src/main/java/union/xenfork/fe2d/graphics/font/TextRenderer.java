@@ -25,7 +25,10 @@ import union.xenfork.fe2d.Disposable;
 import union.xenfork.fe2d.Fe2D;
 import union.xenfork.fe2d.graphics.Color;
 import union.xenfork.fe2d.graphics.GLStateManager;
+import union.xenfork.fe2d.graphics.Graphics;
+import union.xenfork.fe2d.graphics.RenderStats;
 import union.xenfork.fe2d.graphics.ShaderProgram;
+import union.xenfork.fe2d.graphics.UniformBlock;
 import union.xenfork.fe2d.graphics.mesh.Mesh;
 import union.xenfork.fe2d.graphics.vertex.VertexAttribute;
 import union.xenfork.fe2d.graphics.vertex.VertexLayout;
@@ -58,7 +61,6 @@ public final class TextRenderer implements Disposable {
     private final ShaderProgram shader;
     private final Matrix4f projectionMatrix = new Matrix4f();
     private final Matrix4f modelMatrix = new Matrix4f();
-    private final Matrix4f combinedMatrix = new Matrix4f();
     private final Mesh mesh;
     private ByteBuffer buffer;
     private int width, height;
@@ -78,12 +80,14 @@ public final class TextRenderer implements Disposable {
             in vec2 %1$s;
             in vec2 %2$s;
             out vec2 UV0;
+            %4$s
             uniform mat4 %3$s;
             void main() {
-                gl_Position = %3$s * vec4(%1$s, 0.0, 1.0);
+                gl_Position = %5$s * %3$s * vec4(%1$s, 0.0, 1.0);
                 UV0 = %2$s;
             }
-            """, VertexAttribute.POSITION_ATTRIB, VertexAttribute.TEX_COORD_ATTRIB + '0', ShaderProgram.U_PROJECTION_VIEW_MODEL_MATRIX
+            """, VertexAttribute.POSITION_ATTRIB, VertexAttribute.TEX_COORD_ATTRIB + '0', ShaderProgram.U_MODEL_MATRIX,
+            UniformBlock.FRAME_BLOCK_SOURCE, ShaderProgram.U_PROJECTION_VIEW_MATRIX
         ), String.format("""
             #version 150 core
             in vec2 UV0;
@@ -106,11 +110,11 @@ public final class TextRenderer implements Disposable {
         texture = glGenTextures();
         int currTex = textureBinding2D();
         bindTexture2D(texture);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
-        glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MIN_LOD, 0f);
-        glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MAX_LOD, 0f);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, 0);
+        texParameter2D(GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        texParameter2D(GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        texParameter2D(GL_TEXTURE_MIN_LOD, 0f);
+        texParameter2D(GL_TEXTURE_MAX_LOD, 0f);
+        texParameter2D(GL_TEXTURE_MAX_LEVEL, 0);
         resize(Fe2D.graphics.width(), Fe2D.graphics.height());
         bindTexture2D(currTex);
     }
@@ -147,12 +151,17 @@ public final class TextRenderer implements Disposable {
 
     public void end() {
         if (!drawing) throw new IllegalStateException("Can only call TextRenderer.end while drawing");
-        flush();
+        flush(RenderStats.FlushReason.EXPLICIT);
         drawing = false;
     }
 
     public void flush() {
+        flush(RenderStats.FlushReason.EXPLICIT);
+    }
+
+    private void flush(RenderStats.FlushReason reason) {
         checkDrawing();
+        Graphics.getInstance().renderStats().flush(reason);
         int currPrg = currentProgram();
         int currTex = textureBinding2D();
         boolean blend = isBlendEnabled();
@@ -172,6 +181,7 @@ public final class TextRenderer implements Disposable {
         setupMatrices();
         bindTexture2D(texture);
         glTexSubImage2D(GL_TEXTURE_2D, 0, 0, 0, texWidth, texHeight, GL_RGBA, GL_UNSIGNED_BYTE, buffer);
+        Graphics.getInstance().renderStats().upload((long) texWidth * texHeight * 4);
         mesh.render();
         bindTexture2D(currTex);
         useProgram(currPrg);
@@ -191,8 +201,7 @@ public final class TextRenderer implements Disposable {
     }
 
     private void setupMatrices() {
-        projectionMatrix.mul(modelMatrix, combinedMatrix);
-        shader.setProjectionViewModelMatrix(combinedMatrix);
+        shader.setMatrices(projectionMatrix, modelMatrix);
         shader.uploadUniforms();
     }
 
@@ -257,7 +266,7 @@ public final class TextRenderer implements Disposable {
     }
 
     public void setProjectionMatrix(Matrix4fc projectionMatrix) {
-        if (drawing) flush();
+        if (drawing) flush(RenderStats.FlushReason.MATRIX_CHANGE);
         this.projectionMatrix.set(projectionMatrix);
         if (drawing) {
             int currProgram = currentProgram();
@@ -269,13 +278,13 @@ public final class TextRenderer implements Disposable {
 
     public void enableBlend() {
         if (!blendDisabled) return;
-        flush();
+        flush(RenderStats.FlushReason.BLEND_CHANGE);
         blendDisabled = false;
     }
 
     public void disableBlend() {
         if (blendDisabled) return;
-        flush();
+        flush(RenderStats.FlushReason.BLEND_CHANGE);
         blendDisabled = true;
     }
 
@@ -284,7 +293,7 @@ public final class TextRenderer implements Disposable {
             blendDstRGB != dstRGB ||
             blendSrcAlpha != srcAlpha ||
             blendDstAlpha != dstAlpha) {
-            flush();
+            flush(RenderStats.FlushReason.BLEND_CHANGE);
             blendSrcRGB = srcRGB;
             blendDstRGB = dstRGB;
             blendSrcAlpha = srcAlpha;
@@ -326,7 +335,7 @@ public final class TextRenderer implements Disposable {
         disposed = true;
         shader.dispose();
         mesh.dispose();
-        glDeleteTextures(texture);
+        deleteTexture(texture);
         memFree(buffer);
     }
 }
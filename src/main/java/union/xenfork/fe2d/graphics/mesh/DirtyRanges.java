@@ -0,0 +1,170 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.mesh;
+
+import java.util.Arrays;
+
+/**
+ * The set of dirty ranges of a buffer, which coalesces the overlapping and adjacent ranges.
+ * <p>
+ * The ranges are half-open and sorted by start. When the count of ranges exceeds the max count,
+ * the two ranges with the smallest gap are merged, which uploads the gap too but saves a call.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class DirtyRanges {
+    /**
+     * The default value of max ranges.
+     */
+    public static final int DEFAULT_MAX_RANGES = 16;
+    private final int maxRanges;
+    private int[] starts = new int[4];
+    private int[] ends = new int[4];
+    private int count = 0;
+
+    /**
+     * Creates the dirty ranges with the given max count.
+     *
+     * @param maxRanges the max count of ranges. defaults to {@value #DEFAULT_MAX_RANGES}.
+     */
+    public DirtyRanges(int maxRanges) {
+        if (maxRanges <= 0) throw new IllegalArgumentException("Max ranges must be positive! got: " + maxRanges);
+        this.maxRanges = maxRanges;
+    }
+
+    /**
+     * Creates the dirty ranges with the default max count.
+     */
+    public DirtyRanges() {
+        this(DEFAULT_MAX_RANGES);
+    }
+
+    /**
+     * Adds a range.
+     *
+     * @param start the start of the range, inclusive.
+     * @param end   the end of the range, exclusive.
+     */
+    public void add(int start, int end) {
+        if (start >= end) return;
+        // the first range which overlaps or touches the new range
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ends[mid] < start) lo = mid + 1;
+            else hi = mid;
+        }
+        int last = lo;
+        while (last < count && starts[last] <= end) {
+            start = Math.min(start, starts[last]);
+            end = Math.max(end, ends[last]);
+            last++;
+        }
+        int merged = last - lo;
+        if (merged == 0) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            System.arraycopy(starts, lo, starts, lo + 1, count - lo);
+            System.arraycopy(ends, lo, ends, lo + 1, count - lo);
+            count++;
+        } else if (merged > 1) {
+            System.arraycopy(starts, last, starts, lo + 1, count - last);
+            System.arraycopy(ends, last, ends, lo + 1, count - last);
+            count -= merged - 1;
+        }
+        starts[lo] = start;
+        ends[lo] = end;
+        if (count > maxRanges) {
+            mergeClosest();
+        }
+    }
+
+    private void mergeClosest() {
+        int index = 0;
+        int minGap = Integer.MAX_VALUE;
+        for (int i = 0; i + 1 < count; i++) {
+            int gap = starts[i + 1] - ends[i];
+            if (gap < minGap) {
+                minGap = gap;
+                index = i;
+            }
+        }
+        ends[index] = ends[index + 1];
+        System.arraycopy(starts, index + 2, starts, index + 1, count - index - 2);
+        System.arraycopy(ends, index + 2, ends, index + 1, count - index - 2);
+        count--;
+    }
+
+    /**
+     * Removes all ranges.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Returns {@code true} if there is no range.
+     *
+     * @return {@code true} if there is no range.
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Gets the count of ranges.
+     *
+     * @return the count of ranges.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets the start of the range with the given index.
+     *
+     * @param index the index of the range, in start order.
+     * @return the start of the range, inclusive.
+     */
+    public int start(int index) {
+        return starts[index];
+    }
+
+    /**
+     * Gets the end of the range with the given index.
+     *
+     * @param index the index of the range, in start order.
+     * @return the end of the range, exclusive.
+     */
+    public int end(int index) {
+        return ends[index];
+    }
+
+    /**
+     * Gets the max count of ranges.
+     *
+     * @return the max count of ranges.
+     */
+    public int maxRanges() {
+        return maxRanges;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.mesh;
+
+import java.util.Arrays;
+
+/**
+ * The CPU-side allocator of ranges in a buffer, with a sorted free list.
+ * <p>
+ * The ranges are allocated with the first fit, and the freed ranges are coalesced with the adjacent free ranges.
+ * The units are defined by the user, such as vertices or indices.
+ * <p>
+ * This class doesn't call any GL functions by itself.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class FreeListAllocator {
+    private int capacity;
+    private int[] freeStarts = new int[4];
+    private int[] freeSizes = new int[4];
+    private int freeCount = 0;
+    private int freeSize = 0;
+
+    /**
+     * Creates the allocator with the given capacity, which is fully free.
+     *
+     * @param capacity the capacity.
+     */
+    public FreeListAllocator(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("Capacity must not be negative! got: " + capacity);
+        this.capacity = capacity;
+        reset(0);
+    }
+
+    /**
+     * Allocates a range.
+     *
+     * @param size the size of the range. must be positive.
+     * @return the start of the range, or {@code -1} if no free range is large enough.
+     */
+    public int allocate(int size) {
+        if (size <= 0) throw new IllegalArgumentException("Size must be positive! got: " + size);
+        for (int i = 0; i < freeCount; i++) {
+            if (freeSizes[i] >= size) {
+                int start = freeStarts[i];
+                if (freeSizes[i] == size) {
+                    removeFree(i);
+                } else {
+                    freeStarts[i] += size;
+                    freeSizes[i] -= size;
+                }
+                freeSize -= size;
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Frees a range which was allocated.
+     *
+     * @param start the start of the range.
+     * @param size  the size of the range.
+     */
+    public void free(int start, int size) {
+        if (size <= 0) return;
+        // the first free range after the freed range
+        int lo = 0, hi = freeCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (freeStarts[mid] < start) lo = mid + 1;
+            else hi = mid;
+        }
+        freeSize += size;
+        boolean mergePrev = lo > 0 && freeStarts[lo - 1] + freeSizes[lo - 1] == start;
+        boolean mergeNext = lo < freeCount && start + size == freeStarts[lo];
+        if (mergePrev && mergeNext) {
+            freeSizes[lo - 1] += size + freeSizes[lo];
+            removeFree(lo);
+        } else if (mergePrev) {
+            freeSizes[lo - 1] += size;
+        } else if (mergeNext) {
+            freeStarts[lo] = start;
+            freeSizes[lo] += size;
+        } else {
+            insertFree(lo, start, size);
+        }
+    }
+
+    /**
+     * Grows the capacity. The new space is free.
+     *
+     * @param newCapacity the new capacity, which must not be less than the current capacity.
+     */
+    public void grow(int newCapacity) {
+        if (newCapacity < capacity) throw new IllegalArgumentException("Can't shrink from " + capacity + " to " + newCapacity);
+        int oldCapacity = capacity;
+        capacity = newCapacity;
+        free(oldCapacity, newCapacity - oldCapacity);
+    }
+
+    /**
+     * Gets the capacity to {@linkplain #grow(int) grow} to, so that a range of the given size can be allocated
+     * after growing. The free ranges before the end might be too small, so the range is placed in the new space,
+     * and the capacity is at least doubled to amortize the growing.
+     *
+     * @param size the size of the range.
+     * @return the new capacity.
+     */
+    public int capacityFor(int size) {
+        return Math.max(capacity * 2, capacity + size);
+    }
+
+    /**
+     * Resets the allocator so that the given count of units from the start are used and the rest is free,
+     * which is the state after compaction.
+     *
+     * @param used the count of used units.
+     */
+    public void reset(int used) {
+        freeCount = 0;
+        freeSize = 0;
+        if (used < capacity) {
+            insertFree(0, used, capacity - used);
+            freeSize = capacity - used;
+        }
+    }
+
+    private void insertFree(int index, int start, int size) {
+        if (freeCount == freeStarts.length) {
+            freeStarts = Arrays.copyOf(freeStarts, freeCount * 2);
+            freeSizes = Arrays.copyOf(freeSizes, freeCount * 2);
+        }
+        System.arraycopy(freeStarts, index, freeStarts, index + 1, freeCount - index);
+        System.arraycopy(freeSizes, index, freeSizes, index + 1, freeCount - index);
+        freeStarts[index] = start;
+        freeSizes[index] = size;
+        freeCount++;
+    }
+
+    private void removeFree(int index) {
+        System.arraycopy(freeStarts, index + 1, freeStarts, index, freeCount - index - 1);
+        System.arraycopy(freeSizes, index + 1, freeSizes, index, freeCount - index - 1);
+        freeCount--;
+    }
+
+    /**
+     * Gets the capacity.
+     *
+     * @return the capacity.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the total size of the free ranges.
+     *
+     * @return the free size.
+     */
+    public int freeSize() {
+        return freeSize;
+    }
+
+    /**
+     * Gets the size of the largest free range.
+     *
+     * @return the largest free size.
+     */
+    public int largestFreeSize() {
+        int max = 0;
+        for (int i = 0; i < freeCount; i++) {
+            max = Math.max(max, freeSizes[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Gets the count of the free ranges, which measures the fragmentation.
+     *
+     * @return the count of the free ranges.
+     */
+    public int freeRangeCount() {
+        return freeCount;
+    }
+}
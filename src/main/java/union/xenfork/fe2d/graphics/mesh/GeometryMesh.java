@@ -18,11 +18,12 @@
 
 package union.xenfork.fe2d.graphics.mesh;
 
-import org.joml.Math;
 import org.joml.Matrix4f;
 import org.lwjgl.opengl.GL11C;
 import union.xenfork.fe2d.graphics.VertexBuilder;
 import union.xenfork.fe2d.graphics.sprite.Sprite;
+import union.xenfork.fe2d.graphics.sprite.SpriteArrays;
+import union.xenfork.fe2d.graphics.sprite.SpriteKernel;
 import union.xenfork.fe2d.graphics.texture.Texture;
 import union.xenfork.fe2d.graphics.vertex.VertexLayout;
 
@@ -48,6 +49,17 @@ public final class GeometryMesh {
         return mesh;
     }
 
+    /**
+     * Allocates a quad mesh in the given arena, which should be rendered as triangles.
+     *
+     * @param arena    the arena.
+     * @param consumer the vertices.
+     * @return the allocation.
+     */
+    public static MeshArena.Allocation quad(MeshArena arena, Consumer<VertexBuilder> consumer) {
+        return arena.allocate(consumer, 4, new int[]{0, 1, 2, 2, 3, 0});
+    }
+
     /**
      * Creates a batched sprites mesh. The {@link Sprite#LAYOUT sprite vertex layout} is used.
      *
@@ -72,27 +84,39 @@ public final class GeometryMesh {
             indices[i + 4] = j + 3;
             indices[i + 5] = j;
         }
+        SpriteArrays arrays = new SpriteArrays(sprites.length);
+        for (int i = 0; i < sprites.length; i++) {
+            Sprite sprite = sprites[i];
+            Matrix4f mat = sprite.getTransform();
+            arrays.m00[i] = mat.m00();
+            arrays.m01[i] = mat.m01();
+            arrays.m10[i] = mat.m10();
+            arrays.m11[i] = mat.m11();
+            arrays.x[i] = mat.m30();
+            arrays.y[i] = mat.m31();
+            arrays.width[i] = sprite.size.x();
+            arrays.height[i] = sprite.size.y();
+            float invW = 1f / sprite.texture.width();
+            float invH = 1f / sprite.texture.height();
+            arrays.u0[i] = sprite.textureRegion.u0() * invW;
+            arrays.v0[i] = sprite.textureRegion.v0() * invH;
+            arrays.u1[i] = sprite.textureRegion.u1() * invW;
+            arrays.v1[i] = sprite.textureRegion.v1() * invH;
+            arrays.colors[i] = sprite.color.packABGR();
+        }
+        SpriteKernel.best().transformAffine(arrays, sprites.length);
         return Mesh.immutable(builder -> {
-            for (Sprite sprite : sprites) {
-                Matrix4f mat = sprite.getTransform();
-                float width = sprite.size.x();
-                float height = sprite.size.y();
-                float x0 = mat.m30();
-                float y0 = mat.m31();
-                float x1 = Math.fma(mat.m00(), width, Math.fma(mat.m10(), height, mat.m30()));
-                float y1 = Math.fma(mat.m01(), width, Math.fma(mat.m11(), height, mat.m31()));
-                float invW = 1f / sprite.texture.width();
-                float invH = 1f / sprite.texture.height();
-                float u0 = sprite.textureRegion.u0() * invW;
-                float v0 = sprite.textureRegion.v0() * invH;
-                float u1 = sprite.textureRegion.u1() * invW;
-                float v1 = sprite.textureRegion.v1() * invH;
-                int color = sprite.color.packABGR();
+            for (int i = 0; i < sprites.length; i++) {
+                float u0 = arrays.u0[i];
+                float v0 = arrays.v0[i];
+                float u1 = arrays.u1[i];
+                float v1 = arrays.v1[i];
+                int color = arrays.colors[i];
                 builder
-                    .floats(x0, y1).ints(color).floats(u0, v0)
-                    .floats(x0, y0).ints(color).floats(u0, v1)
-                    .floats(x1, y0).ints(color).floats(u1, v1)
-                    .floats(x1, y1).ints(color).floats(u1, v0);
+                    .vertex(arrays.x2[i], arrays.y2[i], color, u0, v0)
+                    .vertex(arrays.x1[i], arrays.y1[i], color, u0, v1)
+                    .vertex(arrays.x4[i], arrays.y4[i], color, u1, v1)
+                    .vertex(arrays.x3[i], arrays.y3[i], color, u1, v0);
             }
         }, sprites.length * Sprite.SPRITE_VERTEX, indices, Sprite.LAYOUT);
     }
@@ -0,0 +1,132 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.mesh;
+
+import union.xenfork.fe2d.graphics.DataType;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The types of the indices of a {@link Mesh}.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public enum IndexType {
+    UNSIGNED_BYTE(DataType.UNSIGNED_BYTE, 0x100L),
+    UNSIGNED_SHORT(DataType.UNSIGNED_SHORT, 0x10000L),
+    UNSIGNED_INT(DataType.UNSIGNED_INT, 0x100000000L);
+
+    private final DataType dataType;
+    private final long maxVertexCount;
+
+    IndexType(DataType dataType, long maxVertexCount) {
+        this.dataType = dataType;
+        this.maxVertexCount = maxVertexCount;
+    }
+
+    /**
+     * Gets the smallest type which can address the given count of vertices.
+     * <p>
+     * {@link #UNSIGNED_BYTE} is never returned, since some drivers convert it on the CPU.
+     *
+     * @param vertexCount the count of vertices.
+     * @return the index type.
+     */
+    public static IndexType fitting(long vertexCount) {
+        return vertexCount <= UNSIGNED_SHORT.maxVertexCount ? UNSIGNED_SHORT : UNSIGNED_INT;
+    }
+
+    /**
+     * Puts the given indices from the start of the buffer.
+     *
+     * @param buffer  the buffer.
+     * @param indices the indices.
+     * @param offset  the offset of the first index in the array.
+     * @param count   the count of indices.
+     */
+    public void put(ByteBuffer buffer, int[] indices, int offset, int count) {
+        switch (this) {
+            case UNSIGNED_BYTE -> {
+                for (int i = 0; i < count; i++) {
+                    buffer.put(i, (byte) indices[offset + i]);
+                }
+            }
+            case UNSIGNED_SHORT -> {
+                for (int i = 0; i < count; i++) {
+                    buffer.putShort(i << 1, (short) indices[offset + i]);
+                }
+            }
+            case UNSIGNED_INT -> memIntBuffer(memAddress(buffer), count).put(0, indices, offset, count);
+        }
+    }
+
+    /**
+     * Puts an index into the buffer.
+     *
+     * @param buffer the buffer.
+     * @param index  the position of the index, in indices.
+     * @param value  the index.
+     */
+    public void put(ByteBuffer buffer, int index, int value) {
+        switch (this) {
+            case UNSIGNED_BYTE -> buffer.put(index, (byte) value);
+            case UNSIGNED_SHORT -> buffer.putShort(index << 1, (short) value);
+            case UNSIGNED_INT -> buffer.putInt(index << 2, value);
+        }
+    }
+
+    /**
+     * Gets the data type.
+     *
+     * @return the data type.
+     */
+    public DataType dataType() {
+        return dataType;
+    }
+
+    /**
+     * Gets the enum value.
+     *
+     * @return the enum value.
+     */
+    public int typeEnum() {
+        return dataType.typeEnum();
+    }
+
+    /**
+     * Gets the bytes size.
+     *
+     * @return the bytes size.
+     */
+    public int bytesSize() {
+        return dataType.bytesSize();
+    }
+
+    /**
+     * Gets the max count of vertices which can be addressed by this type.
+     *
+     * @return the max count of vertices.
+     */
+    public long maxVertexCount() {
+        return maxVertexCount;
+    }
+}
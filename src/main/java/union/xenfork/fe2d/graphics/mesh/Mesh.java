@@ -18,57 +18,88 @@
 
 package union.xenfork.fe2d.graphics.mesh;
 
+import org.lwjgl.opengl.GL;
 import union.xenfork.fe2d.Disposable;
 import union.xenfork.fe2d.graphics.GLStateManager;
+import union.xenfork.fe2d.graphics.Graphics;
 import union.xenfork.fe2d.graphics.VertexBuilder;
 import union.xenfork.fe2d.graphics.vertex.VertexLayout;
 
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.util.Objects;
 import java.util.function.Consumer;
 
-import static org.lwjgl.opengl.GL30C.*;
+import static org.lwjgl.opengl.GL32C.*;
 import static org.lwjgl.system.MemoryUtil.*;
 
 /**
  * The mesh.
+ * <p>
+ * A fixed-size mesh can be created in streaming mode. In streaming mode, {@link #updateVertices(int)} writes
+ * to a fresh range of a larger buffer that is partitioned into regions with a {@link RingBufferAllocator},
+ * and {@link #render(int, int)} draws with the base vertex of that range, so the GPU doesn't have to finish
+ * the previous draw before the next update. If base vertex and fences are not supported (OpenGL 3.2),
+ * the buffer is orphaned before each update instead.
+ * <p>
+ * The indices are stored with an {@link IndexType}. A {@linkplain #quads(VertexLayout, int, int) quad mesh}
+ * attaches the {@linkplain QuadIndexBuffer shared quad index buffer} instead of owning the indices.
+ * <p>
+ * A mesh which is not in streaming mode can {@linkplain #markVerticesDirty(int, int) mark} the changed ranges of
+ * its buffers, which are coalesced with {@link DirtyRanges} and uploaded on the next {@link #render(int, int, int)}.
  *
  * @author squid233
  * @since 0.1.0
  */
 public final class Mesh implements Disposable {
+    /**
+     * The suggested count of regions in streaming mode.
+     */
+    public static final int DEFAULT_STREAM_REGIONS = 3;
     private final boolean immutable;
     private final boolean fixed;
     private final VertexLayout layout;
     private ByteBuffer vertexBuffer;
+    private final IndexType indexType;
+    private final QuadIndexBuffer quadIndices;
+    private ByteBuffer indexData;
     private IntBuffer indexBuffer;
     private int vertexCount, indexCount;
     private final int vao, vbo, ebo;
     private int defaultDrawMode = GL_TRIANGLES;
+    private RingBufferAllocator stream;
+    private boolean orphaning = false;
+    private int baseVertex = 0;
+    private DirtyRanges dirtyVertices;
+    private DirtyRanges dirtyIndices;
     private boolean disposed = false;
 
     private Mesh(boolean immutable,
                  boolean fixed,
                  VertexLayout layout,
                  ByteBuffer vertexBuffer,
-                 IntBuffer indexBuffer,
+                 IndexType indexType,
+                 QuadIndexBuffer quadIndices,
+                 ByteBuffer indexData,
                  int vertexCount,
                  int indexCount) {
         this.immutable = immutable;
         this.fixed = fixed;
         this.layout = layout;
         this.vertexBuffer = vertexBuffer;
-        this.indexBuffer = indexBuffer;
+        this.indexType = indexType;
+        this.quadIndices = quadIndices;
+        setIndexData(indexData);
         this.vertexCount = vertexCount;
         this.indexCount = indexCount;
 
         // Creates GL objects
         vao = glGenVertexArrays();
         vbo = glGenBuffers();
-        ebo = glGenBuffers();
+        ebo = quadIndices != null ? quadIndices.id() : glGenBuffers();
         GLStateManager.bindVertexArray(vao);
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
+        GLStateManager.bindArrayBuffer(vbo);
+        GLStateManager.bindElementArrayBuffer(ebo);
     }
 
     /**
@@ -82,19 +113,24 @@ public final class Mesh implements Disposable {
      * @return the mesh.
      */
     public static Mesh immutable(Consumer<VertexBuilder> consumer, int vertexCount, int[] indices, int indexCount, VertexLayout layout) {
-        VertexBuilder vertexBuilder = new VertexBuilder();
+        VertexBuilder vertexBuilder = new VertexBuilder(layout);
         consumer.accept(vertexBuilder);
         ByteBuffer vertexBuffer = vertexBuilder.buffer();
 
-        IntBuffer indexBuffer = memAllocInt(indices.length);
+        int maxIndex = 0;
         for (int index : indices) {
-            indexBuffer.put(index);
+            maxIndex = Math.max(maxIndex, index);
         }
+        IndexType indexType = IndexType.fitting(Math.max(vertexCount, maxIndex + 1L));
+        ByteBuffer indexData = memAlloc(indices.length * indexType.bytesSize());
+        indexType.put(indexData, indices, 0, indices.length);
 
         Mesh mesh = new Mesh(true, true,
             layout,
             vertexBuffer,
-            indexBuffer.flip(),
+            indexType,
+            null,
+            indexData,
             vertexCount, indexCount);
 
         glBufferData(GL_ARRAY_BUFFER, vertexBuffer, GL_STATIC_DRAW);
@@ -107,9 +143,9 @@ public final class Mesh implements Disposable {
                 layout.stride(),
                 layout.getPointer(index));
         });
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        GLStateManager.bindArrayBuffer(0);
 
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL_STATIC_DRAW);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexData, GL_STATIC_DRAW);
         GLStateManager.bindVertexArray(0);
 
         return mesh;
@@ -131,18 +167,75 @@ public final class Mesh implements Disposable {
     /**
      * Creates a fixed-size mesh with the given layout.
      *
-     * @param layout      the vertex layout.
-     * @param vertexCount the vertex count.
-     * @param indexCount  the index count.
+     * @param layout        the vertex layout.
+     * @param vertexCount   the vertex count.
+     * @param indexCount    the index count.
+     * @param streamRegions the count of regions in streaming mode, or {@code 0} to disable streaming mode.
+     *                      the suggested value is {@value #DEFAULT_STREAM_REGIONS}. defaults to {@code 0}.
+     * @param indexType     the index type. defaults to {@link IndexType#UNSIGNED_INT}.
      * @return the mesh.
      */
-    public static Mesh fixedSize(VertexLayout layout, int vertexCount, int indexCount) {
+    public static Mesh fixedSize(VertexLayout layout, int vertexCount, int indexCount, int streamRegions, IndexType indexType) {
+        return fixedSize(layout, vertexCount, indexCount, streamRegions, indexType, null);
+    }
+
+    /**
+     * Creates a fixed-size mesh with the given layout.
+     *
+     * @param layout        the vertex layout.
+     * @param vertexCount   the vertex count.
+     * @param indexCount    the index count.
+     * @param streamRegions the count of regions in streaming mode, or {@code 0} to disable streaming mode.
+     *                      the suggested value is {@value #DEFAULT_STREAM_REGIONS}. defaults to {@code 0}.
+     * @return the mesh.
+     */
+    public static Mesh fixedSize(VertexLayout layout, int vertexCount, int indexCount, int streamRegions) {
+        return fixedSize(layout, vertexCount, indexCount, streamRegions, IndexType.UNSIGNED_INT);
+    }
+
+    /**
+     * Creates a fixed-size mesh of quads, which attaches the {@linkplain QuadIndexBuffer shared quad index buffer}.
+     * Every 4 vertices form a quad, drawn as the triangles {@code (0, 1, 2)} and {@code (2, 3, 0)}.
+     * <p>
+     * The indices of the mesh cannot be modified.
+     *
+     * @param layout        the vertex layout.
+     * @param quadCount     the quad count.
+     * @param streamRegions the count of regions in streaming mode, or {@code 0} to disable streaming mode.
+     *                      the suggested value is {@value #DEFAULT_STREAM_REGIONS}.
+     * @return the mesh.
+     */
+    public static Mesh quads(VertexLayout layout, int quadCount, int streamRegions) {
+        return fixedSize(layout, quadCount * 4, quadCount * 6, streamRegions, null, QuadIndexBuffer.acquire(quadCount));
+    }
+
+    private static Mesh fixedSize(VertexLayout layout,
+                                  int vertexCount,
+                                  int indexCount,
+                                  int streamRegions,
+                                  IndexType indexType,
+                                  QuadIndexBuffer quadIndices) {
         Mesh mesh = new Mesh(false, true,
             layout,
             memCalloc(vertexCount * layout.stride()),
-            memCallocInt(indexCount),
+            quadIndices != null ? quadIndices.indexType() : indexType,
+            quadIndices,
+            quadIndices != null ? null : memCalloc(indexCount * indexType.bytesSize()),
             vertexCount, indexCount);
-        glBufferData(GL_ARRAY_BUFFER, mesh.vertexBuffer, GL_DYNAMIC_DRAW);
+        if (streamRegions > 0) {
+            if (GL.getCapabilities().OpenGL32) {
+                mesh.stream = new RingBufferAllocator(mesh.vertexBuffer.capacity(),
+                    streamRegions,
+                    layout.stride(),
+                    new SyncFences());
+                nglBufferData(GL_ARRAY_BUFFER, mesh.stream.capacity(), NULL, GL_STREAM_DRAW);
+            } else {
+                mesh.orphaning = true;
+                glBufferData(GL_ARRAY_BUFFER, mesh.vertexBuffer, GL_STREAM_DRAW);
+            }
+        } else {
+            glBufferData(GL_ARRAY_BUFFER, mesh.vertexBuffer, GL_DYNAMIC_DRAW);
+        }
         layout.forEachAttribute((attribute, index) -> {
             glEnableVertexAttribArray(index);
             glVertexAttribPointer(index,
@@ -152,12 +245,26 @@ public final class Mesh implements Disposable {
                 layout.stride(),
                 layout.getPointer(index));
         });
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, mesh.indexBuffer, GL_DYNAMIC_DRAW);
+        GLStateManager.bindArrayBuffer(0);
+        if (quadIndices == null) {
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, mesh.indexData, GL_DYNAMIC_DRAW);
+        }
         GLStateManager.bindVertexArray(0);
         return mesh;
     }
 
+    /**
+     * Creates a fixed-size mesh with the given layout.
+     *
+     * @param layout      the vertex layout.
+     * @param vertexCount the vertex count.
+     * @param indexCount  the index count.
+     * @return the mesh.
+     */
+    public static Mesh fixedSize(VertexLayout layout, int vertexCount, int indexCount) {
+        return fixedSize(layout, vertexCount, indexCount, 0);
+    }
+
     /**
      * Creates a dynamic mesh with the given layout.
      *
@@ -170,10 +277,12 @@ public final class Mesh implements Disposable {
         Mesh mesh = new Mesh(false, false,
             layout,
             null,
+            IndexType.UNSIGNED_INT,
+            null,
             null,
             vertexCount, indexCount);
         layout.forEachAttribute((attribute, index) -> glEnableVertexAttribArray(index));
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        GLStateManager.bindArrayBuffer(0);
         GLStateManager.bindVertexArray(0);
         return mesh;
     }
@@ -196,6 +305,17 @@ public final class Mesh implements Disposable {
         if (immutable) throw new IllegalStateException("Can't modify the data of an immutable mesh!");
     }
 
+    private void checkOwnIndices() {
+        if (quadIndices != null) throw new IllegalStateException("Can't modify the shared indices of a quad mesh!");
+    }
+
+    private void setIndexData(ByteBuffer indexData) {
+        this.indexData = indexData;
+        this.indexBuffer = indexData != null && indexType == IndexType.UNSIGNED_INT ?
+            memIntBuffer(memAddress(indexData), indexData.capacity() / Integer.BYTES) :
+            null;
+    }
+
     /**
      * Sets the vertex count. Only growable mesh.
      *
@@ -223,12 +343,13 @@ public final class Mesh implements Disposable {
      */
     public void setVertices(Consumer<VertexBuilder> consumer) {
         checkMutable();
-        VertexBuilder builder = new VertexBuilder(vertexBuffer);
+        VertexBuilder builder = new VertexBuilder(vertexBuffer, layout);
         consumer.accept(builder);
         ByteBuffer newVertexBuffer = builder.buffer();
+        Graphics.getInstance().renderStats().upload(builder.position());
         long oldCapacity = vertexBuffer == null ? 0 : vertexBuffer.capacity();
 
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        GLStateManager.bindArrayBuffer(vbo);
         // size not enough
         if (builder.position() > oldCapacity) {
             checkGrowable();
@@ -252,7 +373,8 @@ public final class Mesh implements Disposable {
             vertexBuffer = newVertexBuffer;
             nglBufferSubData(GL_ARRAY_BUFFER, 0, builder.position(), memAddress(vertexBuffer));
         }
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        baseVertex = 0;
+        GLStateManager.bindArrayBuffer(0);
     }
 
     /**
@@ -262,9 +384,93 @@ public final class Mesh implements Disposable {
      */
     public void updateVertices(int size) {
         checkMutable();
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
-        nglBufferSubData(GL_ARRAY_BUFFER, 0, size, memAddress(vertexBuffer));
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        Graphics.getInstance().renderStats().upload(size);
+        GLStateManager.bindArrayBuffer(vbo);
+        if (stream != null) {
+            long offset = stream.allocate(size);
+            long address = nglMapBufferRange(GL_ARRAY_BUFFER, offset, size,
+                GL_MAP_WRITE_BIT | GL_MAP_INVALIDATE_RANGE_BIT | GL_MAP_UNSYNCHRONIZED_BIT);
+            memCopy(memAddress(vertexBuffer), address, size);
+            glUnmapBuffer(GL_ARRAY_BUFFER);
+            baseVertex = (int) (offset / layout.stride());
+        } else {
+            if (orphaning) {
+                nglBufferData(GL_ARRAY_BUFFER, vertexBuffer.capacity(), NULL, GL_STREAM_DRAW);
+            }
+            nglBufferSubData(GL_ARRAY_BUFFER, 0, size, memAddress(vertexBuffer));
+        }
+        GLStateManager.bindArrayBuffer(0);
+    }
+
+    /**
+     * Updates the given range of the vertices. Not available in streaming mode.
+     *
+     * @param offset the offset in bytes to update.
+     * @param size   the size in bytes to update.
+     */
+    public void updateVertices(int offset, int size) {
+        checkMutable();
+        Graphics.getInstance().renderStats().upload(size);
+        if (isStreaming()) throw new IllegalStateException("Can't update a range of a streaming mesh!");
+        GLStateManager.bindArrayBuffer(vbo);
+        nglBufferSubData(GL_ARRAY_BUFFER, offset, size, memAddress(vertexBuffer) + offset);
+        GLStateManager.bindArrayBuffer(0);
+    }
+
+    /**
+     * Marks the given range of the {@linkplain #vertexBuffer() vertex buffer} as dirty, which is uploaded on the next
+     * render. Not available in streaming mode.
+     *
+     * @param offset the offset in bytes.
+     * @param size   the size in bytes.
+     */
+    public void markVerticesDirty(int offset, int size) {
+        checkMutable();
+        if (isStreaming()) throw new IllegalStateException("Can't mark a range of a streaming mesh!");
+        if (vertexBuffer == null) throw new IllegalStateException("Can't mark a range of a mesh without vertices!");
+        Objects.checkFromIndexSize(offset, size, vertexBuffer.capacity());
+        if (dirtyVertices == null) dirtyVertices = new DirtyRanges();
+        dirtyVertices.add(offset, offset + size);
+    }
+
+    /**
+     * Marks the given range of the {@linkplain #indexByteBuffer() index buffer} as dirty, which is uploaded on the next
+     * render.
+     *
+     * @param offset the offset in bytes.
+     * @param size   the size in bytes.
+     */
+    public void markIndicesDirty(int offset, int size) {
+        checkMutable();
+        checkOwnIndices();
+        if (indexData == null) throw new IllegalStateException("Can't mark a range of a mesh without indices!");
+        Objects.checkFromIndexSize(offset, size, indexData.capacity());
+        if (dirtyIndices == null) dirtyIndices = new DirtyRanges();
+        dirtyIndices.add(offset, offset + size);
+    }
+
+    /**
+     * Uploads the dirty ranges. The vertex array of this mesh must be bound.
+     */
+    void uploadDirtyRanges() {
+        if (dirtyVertices != null && !dirtyVertices.isEmpty()) {
+            GLStateManager.bindArrayBuffer(vbo);
+            uploadRanges(GL_ARRAY_BUFFER, dirtyVertices, memAddress(vertexBuffer));
+            GLStateManager.bindArrayBuffer(0);
+        }
+        if (dirtyIndices != null && !dirtyIndices.isEmpty()) {
+            uploadRanges(GL_ELEMENT_ARRAY_BUFFER, dirtyIndices, memAddress(indexData));
+        }
+    }
+
+    private static void uploadRanges(int target, DirtyRanges ranges, long address) {
+        for (int i = 0, count = ranges.size(); i < count; i++) {
+            int start = ranges.start(i);
+            int size = ranges.end(i) - start;
+            Graphics.getInstance().renderStats().upload(size);
+            nglBufferSubData(target, start, size, address + start);
+        }
+        ranges.clear();
     }
 
     /**
@@ -274,22 +480,64 @@ public final class Mesh implements Disposable {
      */
     public void setIndices(int... indices) {
         checkMutable();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
+        checkOwnIndices();
+        int size = indices.length * indexType.bytesSize();
+        Graphics.getInstance().renderStats().upload(size);
+        // the element array buffer binding belongs to the vertex array, so the current one must not be touched
+        int currBinding = GLStateManager.vertexArrayBinding();
+        GLStateManager.bindVertexArray(vao);
         // size not enough
-        if (indexBuffer == null || indices.length > indexBuffer.capacity()) {
+        if (indexData == null || size > indexData.capacity()) {
             checkGrowable();
-            indexBuffer = memRealloc(indexBuffer, indices.length);
-            for (int index : indices) {
-                indexBuffer.put(index);
-            }
-            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexBuffer.flip(), GL_DYNAMIC_DRAW);
+            setIndexData(memRealloc(indexData, size));
+            indexType.put(indexData, indices, 0, indices.length);
+            nglBufferData(GL_ELEMENT_ARRAY_BUFFER, size, memAddress(indexData), GL_DYNAMIC_DRAW);
         } else {
-            indexBuffer.clear();
-            for (int index : indices) {
-                indexBuffer.put(index);
-            }
-            glBufferSubData(GL_ELEMENT_ARRAY_BUFFER, 0, indexBuffer.flip());
+            indexType.put(indexData, indices, 0, indices.length);
+            nglBufferSubData(GL_ELEMENT_ARRAY_BUFFER, 0, size, memAddress(indexData));
         }
+        GLStateManager.bindVertexArray(currBinding);
+    }
+
+    /**
+     * Updates the indices from the start of the {@linkplain #indexByteBuffer() index buffer}. Only mutable mesh.
+     * <p>
+     * The buffer is orphaned before updating, since the indices are expected to change every flush.
+     *
+     * @param count the count of indices to update.
+     */
+    public void updateIndices(int count) {
+        checkMutable();
+        checkOwnIndices();
+        long size = (long) count * indexType.bytesSize();
+        Graphics.getInstance().renderStats().upload(size);
+        int currBinding = GLStateManager.vertexArrayBinding();
+        GLStateManager.bindVertexArray(vao);
+        nglBufferData(GL_ELEMENT_ARRAY_BUFFER, indexData.capacity(), NULL, GL_STREAM_DRAW);
+        nglBufferSubData(GL_ELEMENT_ARRAY_BUFFER, 0, size, memAddress(indexData));
+        GLStateManager.bindVertexArray(currBinding);
+    }
+
+    /**
+     * Renders a range of this mesh with the given primitive mode.
+     *
+     * @param primitiveMode the kind of primitives being constructed.
+     * @param firstIndex    the first index to transfer to the GL.
+     * @param indexCount    the number of vertices to transfer to the GL.
+     * @see #render(int, int)
+     */
+    public void render(int primitiveMode, int firstIndex, int indexCount) {
+        int currBinding = GLStateManager.vertexArrayBinding();
+        GLStateManager.bindVertexArray(vao);
+        uploadDirtyRanges();
+        Graphics.getInstance().renderStats().drawCall(indexCount);
+        long indices = (long) firstIndex * indexType.bytesSize();
+        if (baseVertex != 0) {
+            glDrawElementsBaseVertex(primitiveMode, indexCount, indexType.typeEnum(), indices, baseVertex);
+        } else {
+            glDrawElements(primitiveMode, indexCount, indexType.typeEnum(), indices);
+        }
+        GLStateManager.bindVertexArray(currBinding);
     }
 
     /**
@@ -297,14 +545,12 @@ public final class Mesh implements Disposable {
      *
      * @param primitiveMode the kind of primitives being constructed.
      * @param indexCount    the number of vertices to transfer to the GL.
+     * @see #render(int, int, int)
      * @see #render(int)
      * @see #render()
      */
     public void render(int primitiveMode, int indexCount) {
-        int currBinding = GLStateManager.vertexArrayBinding();
-        GLStateManager.bindVertexArray(vao);
-        glDrawElements(primitiveMode, indexCount, GL_UNSIGNED_INT, 0);
-        GLStateManager.bindVertexArray(currBinding);
+        render(primitiveMode, 0, indexCount);
     }
 
     /**
@@ -358,12 +604,57 @@ public final class Mesh implements Disposable {
     /**
      * Gets the index buffer for direct operation.
      *
-     * @return the index buffer.
+     * @return the index buffer, or {@code null} if the index type is not {@link IndexType#UNSIGNED_INT}.
      */
     public IntBuffer indexBuffer() {
         return indexBuffer;
     }
 
+    /**
+     * Gets the index buffer in bytes for direct operation, which stores the indices with the {@link #indexType()}.
+     *
+     * @return the index buffer, or {@code null} for a quad mesh.
+     */
+    public ByteBuffer indexByteBuffer() {
+        return indexData;
+    }
+
+    /**
+     * Gets the index type.
+     *
+     * @return the index type.
+     */
+    public IndexType indexType() {
+        return indexType;
+    }
+
+    /**
+     * Gets the vertex array object.
+     *
+     * @return the vertex array object.
+     */
+    public int vao() {
+        return vao;
+    }
+
+    /**
+     * Gets the base vertex of the last updated range in streaming mode.
+     *
+     * @return the base vertex, or {@code 0} if not in streaming mode.
+     */
+    public int baseVertex() {
+        return baseVertex;
+    }
+
+    /**
+     * Returns {@code true} if this mesh is in streaming mode.
+     *
+     * @return {@code true} if this mesh is in streaming mode.
+     */
+    public boolean isStreaming() {
+        return stream != null || orphaning;
+    }
+
     /**
      * Gets the vertex count.
      *
@@ -386,10 +677,17 @@ public final class Mesh implements Disposable {
     public void dispose() {
         if (disposed) return;
         disposed = true;
+        if (stream != null) {
+            stream.dispose();
+        }
         memFree(vertexBuffer);
-        memFree(indexBuffer);
-        glDeleteVertexArrays(vao);
-        glDeleteBuffers(vbo);
-        glDeleteBuffers(ebo);
+        memFree(indexData);
+        GLStateManager.deleteVertexArray(vao);
+        GLStateManager.deleteBuffer(vbo);
+        if (quadIndices != null) {
+            quadIndices.release();
+        } else {
+            GLStateManager.deleteBuffer(ebo);
+        }
     }
 }
@@ -0,0 +1,532 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.mesh;
+
+import union.xenfork.fe2d.Disposable;
+import union.xenfork.fe2d.graphics.GLStateManager;
+import union.xenfork.fe2d.graphics.Graphics;
+import union.xenfork.fe2d.graphics.VertexBuilder;
+import union.xenfork.fe2d.graphics.vertex.VertexLayout;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.lwjgl.opengl.GL32C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.system.libc.LibCString.nmemmove;
+
+/**
+ * The arena that packs many small meshes with the same vertex layout into one vertex array,
+ * one vertex buffer and one index buffer.
+ * <p>
+ * The vertex and index ranges are sub-allocated with a {@link FreeListAllocator} each. The indices of an
+ * {@linkplain Allocation allocation} are relative to its first vertex, and they are drawn with the
+ * {@linkplain Allocation#baseVertex() base vertex} and the offset of the {@linkplain Allocation#firstIndex() first index},
+ * so the vertex array is never switched between the meshes in the arena.
+ * <p>
+ * If there is no free range large enough, the arena is {@linkplain #compact() compacted} when the total free size is
+ * sufficient, or grown otherwise. The arena keeps a copy of the data in the memory, so both are done without
+ * reading back from the GL. Compaction changes the base vertex and the first index of the allocations.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class MeshArena implements Disposable {
+    /**
+     * The default vertex capacity.
+     */
+    public static final int DEFAULT_VERTEX_CAPACITY = 16384;
+    /**
+     * The default index capacity.
+     */
+    public static final int DEFAULT_INDEX_CAPACITY = 24576;
+    private final VertexLayout layout;
+    private final IndexType indexType;
+    private final int stride;
+    private final int vao, vbo, ebo;
+    private ByteBuffer vertexData;
+    private ByteBuffer indexData;
+    private final FreeListAllocator vertexAllocator;
+    private final FreeListAllocator indexAllocator;
+    private final List<Allocation> allocations = new ArrayList<>();
+    private boolean disposed = false;
+
+    /**
+     * Creates the arena with the given layout and capacities.
+     *
+     * @param layout         the vertex layout.
+     * @param vertexCapacity the initial count of vertices. defaults to {@value #DEFAULT_VERTEX_CAPACITY}.
+     * @param indexCapacity  the initial count of indices. defaults to {@value #DEFAULT_INDEX_CAPACITY}.
+     * @param indexType      the index type, which limits the count of vertices of each allocation.
+     *                       defaults to {@link IndexType#UNSIGNED_SHORT}.
+     */
+    public MeshArena(VertexLayout layout, int vertexCapacity, int indexCapacity, IndexType indexType) {
+        if (vertexCapacity <= 0) throw new IllegalArgumentException("Vertex capacity must be positive! got: " + vertexCapacity);
+        if (indexCapacity <= 0) throw new IllegalArgumentException("Index capacity must be positive! got: " + indexCapacity);
+        this.layout = layout;
+        this.indexType = indexType;
+        this.stride = layout.stride();
+        this.vertexData = memCalloc(vertexCapacity * stride);
+        this.indexData = memCalloc(indexCapacity * indexType.bytesSize());
+        this.vertexAllocator = new FreeListAllocator(vertexCapacity);
+        this.indexAllocator = new FreeListAllocator(indexCapacity);
+
+        vao = glGenVertexArrays();
+        vbo = glGenBuffers();
+        ebo = glGenBuffers();
+        int currBinding = GLStateManager.vertexArrayBinding();
+        GLStateManager.bindVertexArray(vao);
+        GLStateManager.bindArrayBuffer(vbo);
+        glBufferData(GL_ARRAY_BUFFER, vertexData, GL_DYNAMIC_DRAW);
+        layout.forEachAttribute((attribute, index) -> {
+            glEnableVertexAttribArray(index);
+            glVertexAttribPointer(index,
+                attribute.size(),
+                attribute.type().typeEnum(),
+                attribute.normalized(),
+                stride,
+                layout.getPointer(index));
+        });
+        GLStateManager.bindArrayBuffer(0);
+        GLStateManager.bindElementArrayBuffer(ebo);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexData, GL_DYNAMIC_DRAW);
+        GLStateManager.bindVertexArray(currBinding);
+    }
+
+    /**
+     * Creates the arena with the given layout and the default capacities.
+     *
+     * @param layout the vertex layout.
+     */
+    public MeshArena(VertexLayout layout) {
+        this(layout, DEFAULT_VERTEX_CAPACITY, DEFAULT_INDEX_CAPACITY, IndexType.UNSIGNED_SHORT);
+    }
+
+    /**
+     * A mesh allocated in an arena.
+     * <p>
+     * The base vertex and the first index might be changed after the arena is compacted.
+     *
+     * @author squid233
+     * @since 0.1.0
+     */
+    public static final class Allocation {
+        private final MeshArena arena;
+        private int baseVertex;
+        private final int vertexCount;
+        private int firstIndex;
+        private final int indexCount;
+        private boolean freed = false;
+
+        private Allocation(MeshArena arena, int baseVertex, int vertexCount, int firstIndex, int indexCount) {
+            this.arena = arena;
+            this.baseVertex = baseVertex;
+            this.vertexCount = vertexCount;
+            this.firstIndex = firstIndex;
+            this.indexCount = indexCount;
+        }
+
+        /**
+         * Renders this allocation with the given primitive mode.
+         *
+         * @param primitiveMode the kind of primitives being constructed.
+         * @see MeshArena#render(Allocation, int)
+         */
+        public void render(int primitiveMode) {
+            arena.render(this, primitiveMode);
+        }
+
+        /**
+         * Renders this allocation as triangles.
+         */
+        public void render() {
+            render(GL_TRIANGLES);
+        }
+
+        /**
+         * Gets the arena.
+         *
+         * @return the arena.
+         */
+        public MeshArena arena() {
+            return arena;
+        }
+
+        /**
+         * Gets the base vertex, which is added to each index.
+         *
+         * @return the base vertex.
+         */
+        public int baseVertex() {
+            return baseVertex;
+        }
+
+        /**
+         * Gets the vertex count.
+         *
+         * @return the vertex count.
+         */
+        public int vertexCount() {
+            return vertexCount;
+        }
+
+        /**
+         * Gets the position of the first index in the index buffer, in indices.
+         *
+         * @return the first index.
+         */
+        public int firstIndex() {
+            return firstIndex;
+        }
+
+        /**
+         * Gets the index count.
+         *
+         * @return the index count.
+         */
+        public int indexCount() {
+            return indexCount;
+        }
+
+        /**
+         * Returns {@code true} if this allocation is freed.
+         *
+         * @return {@code true} if this allocation is freed.
+         */
+        public boolean isFreed() {
+            return freed;
+        }
+    }
+
+    /**
+     * Allocates a mesh with the given vertices and indices.
+     *
+     * @param consumer    the vertex builder.
+     * @param vertexCount the vertex count.
+     * @param indices     the indices, which are relative to the first vertex of the mesh.
+     * @return the allocation.
+     */
+    public Allocation allocate(Consumer<VertexBuilder> consumer, int vertexCount, int[] indices) {
+        VertexBuilder builder = new VertexBuilder(layout);
+        consumer.accept(builder);
+        try {
+            return allocate(builder.buffer(), vertexCount, indices);
+        } finally {
+            memFree(builder.buffer());
+        }
+    }
+
+    /**
+     * Allocates a mesh with the given vertices and indices.
+     *
+     * @param vertices    the vertices, from the start of the buffer.
+     * @param vertexCount the vertex count.
+     * @param indices     the indices, which are relative to the first vertex of the mesh.
+     * @return the allocation.
+     */
+    public Allocation allocate(ByteBuffer vertices, int vertexCount, int[] indices) {
+        checkDisposed();
+        if (vertexCount <= 0) throw new IllegalArgumentException("Vertex count must be positive! got: " + vertexCount);
+        if (indices.length == 0) throw new IllegalArgumentException("Indices must not be empty!");
+        if (vertexCount > indexType.maxVertexCount()) {
+            throw new IllegalArgumentException("Vertex count " + vertexCount + " exceeds the limit of " + indexType);
+        }
+        final long vertexBytes = (long) vertexCount * stride;
+        if (vertices.capacity() < vertexBytes) {
+            throw new IllegalArgumentException("Expected at least " + vertexBytes + " bytes of vertices; got: " + vertices.capacity());
+        }
+
+        final int baseVertex = allocate(vertexAllocator, vertexCount, true);
+        final int firstIndex = allocate(indexAllocator, indices.length, false);
+
+        final int vertexOffset = baseVertex * stride;
+        final int indexOffset = firstIndex * indexType.bytesSize();
+        final int indexBytes = indices.length * indexType.bytesSize();
+        memCopy(memAddress(vertices), memAddress(vertexData) + vertexOffset, vertexBytes);
+        indexType.put(memByteBuffer(memAddress(indexData) + indexOffset, indexBytes), indices, 0, indices.length);
+
+        int currBinding = GLStateManager.vertexArrayBinding();
+        GLStateManager.bindVertexArray(vao);
+        GLStateManager.bindArrayBuffer(vbo);
+        nglBufferSubData(GL_ARRAY_BUFFER, vertexOffset, vertexBytes, memAddress(vertexData) + vertexOffset);
+        GLStateManager.bindArrayBuffer(0);
+        nglBufferSubData(GL_ELEMENT_ARRAY_BUFFER, indexOffset, indexBytes, memAddress(indexData) + indexOffset);
+        GLStateManager.bindVertexArray(currBinding);
+        Graphics.getInstance().renderStats().upload(vertexBytes + indexBytes);
+
+        Allocation allocation = new Allocation(this, baseVertex, vertexCount, firstIndex, indices.length);
+        allocations.add(allocation);
+        return allocation;
+    }
+
+    /**
+     * Allocates a range, and makes room for it if no free range is large enough.
+     *
+     * @param allocator the allocator.
+     * @param size      the size of the range.
+     * @param vertices  {@code true} if the allocator is the vertex allocator.
+     * @return the start of the range.
+     */
+    private int allocate(FreeListAllocator allocator, int size, boolean vertices) {
+        int start = allocator.allocate(size);
+        if (start < 0) {
+            reserve(allocator, size, vertices);
+            start = allocator.allocate(size);
+            if (start < 0) {
+                throw new IllegalStateException("Can't allocate " + size + " units after making room! capacity: " + allocator.capacity());
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Makes room for a range of the given size, by compaction if the total free size is sufficient, or by growing.
+     *
+     * @param allocator the allocator.
+     * @param size      the size of the range.
+     * @param vertices  {@code true} if the allocator is the vertex allocator.
+     */
+    private void reserve(FreeListAllocator allocator, int size, boolean vertices) {
+        if (allocator.freeSize() >= size) {
+            compact(vertices, !vertices);
+        } else {
+            grow(allocator, allocator.capacityFor(size), vertices);
+        }
+    }
+
+    private void grow(FreeListAllocator allocator, int newCapacity, boolean vertices) {
+        allocator.grow(newCapacity);
+        int currBinding = GLStateManager.vertexArrayBinding();
+        GLStateManager.bindVertexArray(vao);
+        if (vertices) {
+            vertexData = memRealloc(vertexData, newCapacity * stride);
+            GLStateManager.bindArrayBuffer(vbo);
+            glBufferData(GL_ARRAY_BUFFER, vertexData, GL_DYNAMIC_DRAW);
+            GLStateManager.bindArrayBuffer(0);
+            Graphics.getInstance().renderStats().upload(vertexData.capacity());
+        } else {
+            indexData = memRealloc(indexData, newCapacity * indexType.bytesSize());
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexData, GL_DYNAMIC_DRAW);
+            Graphics.getInstance().renderStats().upload(indexData.capacity());
+        }
+        GLStateManager.bindVertexArray(currBinding);
+    }
+
+    /**
+     * Frees the given allocation. The range can be reused by later allocations.
+     *
+     * @param allocation the allocation.
+     */
+    public void free(Allocation allocation) {
+        if (allocation.arena != this) throw new IllegalArgumentException("The allocation is not from this arena!");
+        if (allocation.freed) return;
+        allocation.freed = true;
+        allocations.remove(allocation);
+        vertexAllocator.free(allocation.baseVertex, allocation.vertexCount);
+        indexAllocator.free(allocation.firstIndex, allocation.indexCount);
+    }
+
+    /**
+     * Compacts the arena, so that the allocations are packed at the start of the buffers
+     * and all free space is in one range at the end.
+     */
+    public void compact() {
+        checkDisposed();
+        compact(true, true);
+    }
+
+    private void compact(boolean vertices, boolean indices) {
+        allocations.sort(vertices ?
+            (a, b) -> Integer.compare(a.baseVertex, b.baseVertex) :
+            (a, b) -> Integer.compare(a.firstIndex, b.firstIndex));
+        int nextVertex = 0, nextIndex = 0;
+        if (vertices) {
+            for (Allocation allocation : allocations) {
+                if (allocation.baseVertex != nextVertex) {
+                    nmemmove(memAddress(vertexData) + (long) nextVertex * stride,
+                        memAddress(vertexData) + (long) allocation.baseVertex * stride,
+                        (long) allocation.vertexCount * stride);
+                    allocation.baseVertex = nextVertex;
+                }
+                nextVertex += allocation.vertexCount;
+            }
+            vertexAllocator.reset(nextVertex);
+        }
+        if (indices) {
+            if (vertices) {
+                allocations.sort((a, b) -> Integer.compare(a.firstIndex, b.firstIndex));
+            }
+            final int bytesSize = indexType.bytesSize();
+            for (Allocation allocation : allocations) {
+                if (allocation.firstIndex != nextIndex) {
+                    nmemmove(memAddress(indexData) + (long) nextIndex * bytesSize,
+                        memAddress(indexData) + (long) allocation.firstIndex * bytesSize,
+                        (long) allocation.indexCount * bytesSize);
+                    allocation.firstIndex = nextIndex;
+                }
+                nextIndex += allocation.indexCount;
+            }
+            indexAllocator.reset(nextIndex);
+        }
+
+        int currBinding = GLStateManager.vertexArrayBinding();
+        GLStateManager.bindVertexArray(vao);
+        if (vertices && nextVertex > 0) {
+            GLStateManager.bindArrayBuffer(vbo);
+            nglBufferSubData(GL_ARRAY_BUFFER, 0, (long) nextVertex * stride, memAddress(vertexData));
+            GLStateManager.bindArrayBuffer(0);
+            Graphics.getInstance().renderStats().upload((long) nextVertex * stride);
+        }
+        if (indices && nextIndex > 0) {
+            nglBufferSubData(GL_ELEMENT_ARRAY_BUFFER, 0, (long) nextIndex * indexType.bytesSize(), memAddress(indexData));
+            Graphics.getInstance().renderStats().upload((long) nextIndex * indexType.bytesSize());
+        }
+        GLStateManager.bindVertexArray(currBinding);
+    }
+
+    /**
+     * Binds the vertex array of this arena. The binding is kept after rendering with
+     * {@link #renderBound(Allocation, int)}, so consecutive draws of the same arena don't switch the vertex array.
+     */
+    public void bind() {
+        checkDisposed();
+        GLStateManager.bindVertexArray(vao);
+    }
+
+    /**
+     * Renders the given allocation with the vertex array of this arena, which must be {@linkplain #bind() bound}.
+     *
+     * @param allocation    the allocation.
+     * @param primitiveMode the kind of primitives being constructed.
+     */
+    public void renderBound(Allocation allocation, int primitiveMode) {
+        if (allocation.arena != this) throw new IllegalArgumentException("The allocation is not from this arena!");
+        if (allocation.freed) throw new IllegalStateException("The allocation is freed!");
+        Graphics.getInstance().renderStats().drawCall(allocation.indexCount);
+        glDrawElementsBaseVertex(primitiveMode,
+            allocation.indexCount,
+            indexType.typeEnum(),
+            (long) allocation.firstIndex * indexType.bytesSize(),
+            allocation.baseVertex);
+    }
+
+    /**
+     * Renders the given allocation. The vertex array of this arena is left bound.
+     *
+     * @param allocation    the allocation.
+     * @param primitiveMode the kind of primitives being constructed.
+     */
+    public void render(Allocation allocation, int primitiveMode) {
+        bind();
+        renderBound(allocation, primitiveMode);
+    }
+
+    private void checkDisposed() {
+        if (disposed) throw new IllegalStateException("The arena is disposed!");
+    }
+
+    /**
+     * Gets the vertex layout.
+     *
+     * @return the vertex layout.
+     */
+    public VertexLayout layout() {
+        return layout;
+    }
+
+    /**
+     * Gets the index type.
+     *
+     * @return the index type.
+     */
+    public IndexType indexType() {
+        return indexType;
+    }
+
+    /**
+     * Gets the vertex array object.
+     *
+     * @return the vertex array object.
+     */
+    public int vao() {
+        return vao;
+    }
+
+    /**
+     * Gets the vertex capacity.
+     *
+     * @return the vertex capacity.
+     */
+    public int vertexCapacity() {
+        return vertexAllocator.capacity();
+    }
+
+    /**
+     * Gets the index capacity.
+     *
+     * @return the index capacity.
+     */
+    public int indexCapacity() {
+        return indexAllocator.capacity();
+    }
+
+    /**
+     * Gets the count of free vertices.
+     *
+     * @return the count of free vertices.
+     */
+    public int freeVertices() {
+        return vertexAllocator.freeSize();
+    }
+
+    /**
+     * Gets the count of free indices.
+     *
+     * @return the count of free indices.
+     */
+    public int freeIndices() {
+        return indexAllocator.freeSize();
+    }
+
+    /**
+     * Gets the count of live allocations.
+     *
+     * @return the count of allocations.
+     */
+    public int allocationCount() {
+        return allocations.size();
+    }
+
+    @Override
+    public void dispose() {
+        if (disposed) return;
+        disposed = true;
+        for (Allocation allocation : allocations) {
+            allocation.freed = true;
+        }
+        allocations.clear();
+        memFree(vertexData);
+        memFree(indexData);
+        GLStateManager.deleteVertexArray(vao);
+        GLStateManager.deleteBuffer(vbo);
+        GLStateManager.deleteBuffer(ebo);
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.mesh;
+
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.opengl.GL;
+import union.xenfork.fe2d.Disposable;
+import union.xenfork.fe2d.graphics.GLStateManager;
+import union.xenfork.fe2d.graphics.Graphics;
+
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL32C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The list of draws of ranges in the same buffers, such as the {@linkplain MeshArena.Allocation allocations} in
+ * a {@link MeshArena} or the ranges of a {@link Mesh}.
+ * <p>
+ * The draws are collected as tuples of the first index, the index count and the base vertex, and
+ * {@linkplain #submit(int) submitted} with one {@code glMultiDrawElementsBaseVertex} call. If it is not supported,
+ * the draws are submitted one by one. The vertex array is bound once for all draws, and is left bound.
+ * <p>
+ * The list is not cleared after submitting, so a list that doesn't change can be submitted in each frame.
+ * <p>
+ * The vertex array binding and the draws are issued by the given {@link Submitter}. The only GL calls made by
+ * this class itself are the uploads of the dirty ranges of the {@linkplain #add(Mesh, int, int, int) added mesh}
+ * before submitting; a list built from {@linkplain #add(int, IndexType, int, int, int) raw ranges} calls the
+ * submitter only.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class MeshDrawList implements Disposable {
+    private static final int INITIAL_CAPACITY = 16;
+    private final Submitter submitter;
+    private IntBuffer counts = memAllocInt(INITIAL_CAPACITY);
+    private IntBuffer baseVertices = memAllocInt(INITIAL_CAPACITY);
+    private PointerBuffer offsets = memAllocPointer(INITIAL_CAPACITY);
+    private int size = 0;
+    private long totalIndexCount = 0;
+    private int vao = 0;
+    private @Nullable IndexType indexType;
+    private @Nullable Mesh mesh;
+    private boolean disposed = false;
+
+    /**
+     * The draw operations.
+     *
+     * @author squid233
+     * @since 0.1.0
+     */
+    public interface Submitter {
+        /**
+         * Returns {@code true} if {@link #multiDrawElementsBaseVertex} is supported.
+         *
+         * @return {@code true} if multi-draw is supported.
+         */
+        boolean isMultiDrawSupported();
+
+        /**
+         * Binds the given vertex array.
+         *
+         * @param vao the vertex array object.
+         */
+        void bindVertexArray(int vao);
+
+        /**
+         * Draws a range of elements.
+         *
+         * @param mode       the kind of primitives being constructed.
+         * @param count      the index count.
+         * @param type       the type of the indices.
+         * @param offset     the offset in bytes of the first index.
+         * @param baseVertex the base vertex.
+         */
+        void drawElementsBaseVertex(int mode, int count, int type, long offset, int baseVertex);
+
+        /**
+         * Draws multiple ranges of elements. The draw count is the remaining of the buffers.
+         *
+         * @param mode         the kind of primitives being constructed.
+         * @param counts       the index counts.
+         * @param type         the type of the indices.
+         * @param offsets      the offsets in bytes of the first indices.
+         * @param baseVertices the base vertices.
+         */
+        void multiDrawElementsBaseVertex(int mode, IntBuffer counts, int type, PointerBuffer offsets, IntBuffer baseVertices);
+    }
+
+    /**
+     * Creates the draw list with the given submitter.
+     *
+     * @param submitter the submitter. defaults to the submitter that calls the GL.
+     */
+    public MeshDrawList(Submitter submitter) {
+        this.submitter = submitter;
+    }
+
+    /**
+     * Creates the draw list that submits to the GL.
+     */
+    public MeshDrawList() {
+        this(new GLSubmitter());
+    }
+
+    /**
+     * Adds a draw of a range of the given mesh.
+     *
+     * @param mesh       the mesh. the dirty ranges of the mesh are uploaded before submitting.
+     * @param firstIndex the first index.
+     * @param indexCount the index count.
+     * @param baseVertex the base vertex.
+     * @return this.
+     */
+    public MeshDrawList add(Mesh mesh, int firstIndex, int indexCount, int baseVertex) {
+        if (this.mesh != null && this.mesh != mesh) {
+            throw new IllegalArgumentException("All draws must be in the same mesh!");
+        }
+        add(mesh.vao(), mesh.indexType(), firstIndex, indexCount, baseVertex);
+        this.mesh = mesh;
+        return this;
+    }
+
+    /**
+     * Adds a draw of a range of the given mesh, with the {@linkplain Mesh#baseVertex() base vertex} of the mesh.
+     *
+     * @param mesh       the mesh.
+     * @param firstIndex the first index.
+     * @param indexCount the index count.
+     * @return this.
+     */
+    public MeshDrawList add(Mesh mesh, int firstIndex, int indexCount) {
+        return add(mesh, firstIndex, indexCount, mesh.baseVertex());
+    }
+
+    /**
+     * Adds a draw of the given allocation.
+     * <p>
+     * The base vertex and the first index are copied, so the list must be rebuilt after
+     * the arena is {@linkplain MeshArena#compact() compacted} or grown.
+     *
+     * @param allocation the allocation.
+     * @return this.
+     */
+    public MeshDrawList add(MeshArena.Allocation allocation) {
+        if (allocation.isFreed()) throw new IllegalArgumentException("The allocation is freed!");
+        MeshArena arena = allocation.arena();
+        add(arena.vao(), arena.indexType(), allocation.firstIndex(), allocation.indexCount(), allocation.baseVertex());
+        return this;
+    }
+
+    /**
+     * Adds a draw.
+     *
+     * @param vao        the vertex array object, which must be the same as the other draws.
+     * @param indexType  the index type, which must be the same as the other draws.
+     * @param firstIndex the first index.
+     * @param indexCount the index count.
+     * @param baseVertex the base vertex.
+     */
+    public void add(int vao, IndexType indexType, int firstIndex, int indexCount, int baseVertex) {
+        checkDisposed();
+        if (size == 0) {
+            this.vao = vao;
+            this.indexType = indexType;
+        } else if (this.vao != vao || this.indexType != indexType) {
+            throw new IllegalArgumentException("All draws must be in the same vertex array with the same index type!");
+        }
+        if (indexCount <= 0) return;
+        if (size == counts.capacity()) {
+            int capacity = size * 2;
+            counts = memRealloc(counts, capacity);
+            baseVertices = memRealloc(baseVertices, capacity);
+            offsets = memRealloc(offsets, capacity);
+        }
+        counts.put(size, indexCount);
+        baseVertices.put(size, baseVertex);
+        offsets.put(size, (long) firstIndex * indexType.bytesSize());
+        size++;
+        totalIndexCount += indexCount;
+    }
+
+    /**
+     * Submits all draws with the given primitive mode.
+     *
+     * @param primitiveMode the kind of primitives being constructed.
+     */
+    public void submit(int primitiveMode) {
+        checkDisposed();
+        if (size == 0) return;
+        submitter.bindVertexArray(vao);
+        if (mesh != null) {
+            mesh.uploadDirtyRanges();
+        }
+        final int type = indexType.typeEnum();
+        if (size > 1 && submitter.isMultiDrawSupported()) {
+            Graphics.getInstance().renderStats().drawCall(totalIndexCount);
+            submitter.multiDrawElementsBaseVertex(primitiveMode,
+                counts.limit(size),
+                type,
+                offsets.limit(size),
+                baseVertices.limit(size));
+            counts.clear();
+            offsets.clear();
+            baseVertices.clear();
+        } else {
+            for (int i = 0; i < size; i++) {
+                int count = counts.get(i);
+                Graphics.getInstance().renderStats().drawCall(count);
+                submitter.drawElementsBaseVertex(primitiveMode, count, type, offsets.get(i), baseVertices.get(i));
+            }
+        }
+    }
+
+    /**
+     * Submits all draws as triangles.
+     */
+    public void submit() {
+        submit(GL_TRIANGLES);
+    }
+
+    /**
+     * Removes all draws.
+     */
+    public void clear() {
+        size = 0;
+        totalIndexCount = 0;
+        vao = 0;
+        indexType = null;
+        mesh = null;
+    }
+
+    private void checkDisposed() {
+        if (disposed) throw new IllegalStateException("The draw list is disposed!");
+    }
+
+    /**
+     * Gets the count of draws.
+     *
+     * @return the count of draws.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the index count of the draw at the given position.
+     *
+     * @param i the position of the draw.
+     * @return the index count.
+     */
+    public int indexCount(int i) {
+        return counts.get(i);
+    }
+
+    /**
+     * Gets the offset in bytes of the first index of the draw at the given position.
+     *
+     * @param i the position of the draw.
+     * @return the offset in bytes.
+     */
+    public long indexOffset(int i) {
+        return offsets.get(i);
+    }
+
+    /**
+     * Gets the base vertex of the draw at the given position.
+     *
+     * @param i the position of the draw.
+     * @return the base vertex.
+     */
+    public int baseVertex(int i) {
+        return baseVertices.get(i);
+    }
+
+    /**
+     * Gets the total index count of all draws.
+     *
+     * @return the total index count.
+     */
+    public long totalIndexCount() {
+        return totalIndexCount;
+    }
+
+    @Override
+    public void dispose() {
+        if (disposed) return;
+        disposed = true;
+        memFree(counts);
+        memFree(baseVertices);
+        memFree(offsets);
+    }
+
+    private static final class GLSubmitter implements Submitter {
+        @Override
+        public boolean isMultiDrawSupported() {
+            return GL.getCapabilities().glMultiDrawElementsBaseVertex != NULL;
+        }
+
+        @Override
+        public void bindVertexArray(int vao) {
+            GLStateManager.bindVertexArray(vao);
+        }
+
+        @Override
+        public void drawElementsBaseVertex(int mode, int count, int type, long offset, int baseVertex) {
+            if (baseVertex != 0) {
+                glDrawElementsBaseVertex(mode, count, type, offset, baseVertex);
+            } else {
+                glDrawElements(mode, count, type, offset);
+            }
+        }
+
+        @Override
+        public void multiDrawElementsBaseVertex(int mode, IntBuffer counts, int type, PointerBuffer offsets, IntBuffer baseVertices) {
+            glMultiDrawElementsBaseVertex(mode, counts, type, offsets, baseVertices);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.mesh;
+
+import union.xenfork.fe2d.graphics.GLStateManager;
+import union.xenfork.fe2d.graphics.Graphics;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL31C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The process-wide shared index buffer of quads, which is attached by {@linkplain Mesh#quads quad meshes}.
+ * <p>
+ * Every 4 vertices form a quad, drawn as the triangles {@code (0, 1, 2)} and {@code (2, 3, 0)}. The meshes with
+ * at most {@value #MAX_SHORT_QUADS} quads share a buffer of {@link IndexType#UNSIGNED_SHORT}, and the larger
+ * meshes share a buffer of {@link IndexType#UNSIGNED_INT}. The buffers are grown in place, so the attached meshes
+ * keep working, and deleted when the last mesh releases them.
+ * <p>
+ * Must be used on the render thread.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class QuadIndexBuffer {
+    /**
+     * The max count of quads of the shared buffer of {@link IndexType#UNSIGNED_SHORT}.
+     */
+    public static final int MAX_SHORT_QUADS = (int) (IndexType.UNSIGNED_SHORT.maxVertexCount() / 4);
+    private static final int MAX_INT_QUADS = Integer.MAX_VALUE / 6 / Integer.BYTES;
+    private static QuadIndexBuffer shortBuffer;
+    private static QuadIndexBuffer intBuffer;
+    private final IndexType indexType;
+    private final int maxQuads;
+    private final int id;
+    private int quadCount = 0;
+    private int refCount = 0;
+
+    private QuadIndexBuffer(IndexType indexType, int maxQuads) {
+        this.indexType = indexType;
+        this.maxQuads = maxQuads;
+        this.id = glGenBuffers();
+    }
+
+    /**
+     * Acquires the shared buffer with at least the given count of quads, and increments its reference count.
+     *
+     * @param quadCount the count of quads.
+     * @return the shared buffer.
+     */
+    public static QuadIndexBuffer acquire(int quadCount) {
+        if (quadCount < 0 || quadCount > MAX_INT_QUADS) {
+            throw new IllegalArgumentException("Quad count out of range! got: " + quadCount);
+        }
+        QuadIndexBuffer buffer;
+        if (quadCount <= MAX_SHORT_QUADS) {
+            if (shortBuffer == null) shortBuffer = new QuadIndexBuffer(IndexType.UNSIGNED_SHORT, MAX_SHORT_QUADS);
+            buffer = shortBuffer;
+        } else {
+            if (intBuffer == null) intBuffer = new QuadIndexBuffer(IndexType.UNSIGNED_INT, MAX_INT_QUADS);
+            buffer = intBuffer;
+        }
+        buffer.ensureCapacity(quadCount);
+        buffer.refCount++;
+        return buffer;
+    }
+
+    /**
+     * Decrements the reference count, and deletes the buffer if no mesh refers to it.
+     */
+    public void release() {
+        if (refCount <= 0) throw new IllegalStateException("The quad index buffer is already released!");
+        if (--refCount == 0) {
+            GLStateManager.deleteBuffer(id);
+            if (this == shortBuffer) {
+                shortBuffer = null;
+            } else if (this == intBuffer) {
+                intBuffer = null;
+            }
+        }
+    }
+
+    private void ensureCapacity(int quads) {
+        if (quads <= quadCount) return;
+        // grows at least twice to amortize the generating
+        int count = (int) Math.min(maxQuads, Math.max(quads, quadCount * 2L));
+        ByteBuffer buffer = memAlloc(count * 6 * indexType.bytesSize());
+        for (int i = 0, j = 0; i < count * 6; i += 6, j += 4) {
+            indexType.put(buffer, i, j);
+            indexType.put(buffer, i + 1, j + 1);
+            indexType.put(buffer, i + 2, j + 2);
+            indexType.put(buffer, i + 3, j + 2);
+            indexType.put(buffer, i + 4, j + 3);
+            indexType.put(buffer, i + 5, j);
+        }
+        Graphics.getInstance().renderStats().upload(buffer.capacity());
+        // the copy target is not a part of the vertex array states
+        glBindBuffer(GL_COPY_WRITE_BUFFER, id);
+        glBufferData(GL_COPY_WRITE_BUFFER, buffer, GL_STATIC_DRAW);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+        memFree(buffer);
+        quadCount = count;
+    }
+
+    /**
+     * Gets the index type.
+     *
+     * @return the index type.
+     */
+    public IndexType indexType() {
+        return indexType;
+    }
+
+    /**
+     * Gets the count of quads which the buffer currently holds.
+     *
+     * @return the count of quads.
+     */
+    public int quadCount() {
+        return quadCount;
+    }
+
+    /**
+     * Gets the name of the GL buffer object.
+     *
+     * @return the name of the buffer.
+     */
+    public int id() {
+        return id;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.mesh;
+
+import org.jetbrains.annotations.Nullable;
+import union.xenfork.fe2d.Disposable;
+
+/**
+ * The CPU-side allocator of a streaming buffer, which is partitioned into regions of the same size.
+ * <p>
+ * The ranges are allocated linearly in the current region. When the current region has no space, a fence is inserted
+ * for it, and the allocator moves to the next region, waiting for the fence of that region if it is still in use.
+ * <p>
+ * This class doesn't call any GL functions by itself; the fences are handled by the given {@link Fences}.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class RingBufferAllocator implements Disposable {
+    private final long regionSize;
+    private final int regionCount;
+    private final long alignment;
+    private final @Nullable Fences fences;
+    private final long[] regionFences;
+    private int region = 0;
+    private long cursor = 0;
+    private boolean wrapped = false;
+    private boolean disposed = false;
+
+    /**
+     * The fence operations.
+     *
+     * @author squid233
+     * @since 0.1.0
+     */
+    public interface Fences {
+        /**
+         * Inserts a fence after the commands issued so far.
+         *
+         * @return the fence handle. must not be {@code 0}.
+         */
+        long insert();
+
+        /**
+         * Waits until the given fence is signaled.
+         *
+         * @param fence the fence handle.
+         */
+        void await(long fence);
+
+        /**
+         * Deletes the given fence.
+         *
+         * @param fence the fence handle.
+         */
+        void delete(long fence);
+    }
+
+    /**
+     * Creates the ring buffer allocator.
+     *
+     * @param regionSize  the size of each region in bytes.
+     * @param regionCount the count of regions.
+     * @param alignment   the alignment of the allocated offsets in bytes.
+     * @param fences      the fence operations. if {@code null}, the caller is responsible for the synchronization,
+     *                    such as orphaning the buffer when {@linkplain #wrapped() wrapped}.
+     */
+    public RingBufferAllocator(long regionSize, int regionCount, long alignment, @Nullable Fences fences) {
+        if (regionSize <= 0) throw new IllegalArgumentException("Region size must be positive! got: " + regionSize);
+        if (regionCount <= 0) throw new IllegalArgumentException("Region count must be positive! got: " + regionCount);
+        if (alignment <= 0) throw new IllegalArgumentException("Alignment must be positive! got: " + alignment);
+        this.regionSize = regionSize;
+        this.regionCount = regionCount;
+        this.alignment = alignment;
+        this.fences = fences;
+        this.regionFences = new long[regionCount];
+    }
+
+    /**
+     * Allocates a range with the given size.
+     *
+     * @param size the size in bytes. must not be greater than the region size.
+     * @return the offset of the range in the whole buffer.
+     */
+    public long allocate(long size) {
+        if (size > regionSize) {
+            throw new IllegalArgumentException("Size " + size + " exceeds the region size " + regionSize);
+        }
+        wrapped = false;
+        long offset = (cursor + alignment - 1) / alignment * alignment;
+        if (offset + size > regionSize) {
+            nextRegion();
+            offset = 0;
+        }
+        cursor = offset + size;
+        return region * regionSize + offset;
+    }
+
+    private void nextRegion() {
+        if (fences != null) {
+            regionFences[region] = fences.insert();
+        }
+        region = (region + 1) % regionCount;
+        if (region == 0) {
+            wrapped = true;
+        }
+        long fence = regionFences[region];
+        if (fences != null && fence != 0) {
+            fences.await(fence);
+            fences.delete(fence);
+            regionFences[region] = 0;
+        }
+        cursor = 0;
+    }
+
+    /**
+     * Returns {@code true} if the last allocation started over from the first region.
+     *
+     * @return {@code true} if the last allocation started over from the first region.
+     */
+    public boolean wrapped() {
+        return wrapped;
+    }
+
+    /**
+     * Gets the index of the current region.
+     *
+     * @return the index of the current region.
+     */
+    public int region() {
+        return region;
+    }
+
+    /**
+     * Gets the fence of the given region.
+     *
+     * @param region the index of the region.
+     * @return the fence handle, or {@code 0} if the region is not in use.
+     */
+    public long regionFence(int region) {
+        return regionFences[region];
+    }
+
+    /**
+     * Gets the size of each region.
+     *
+     * @return the size of each region in bytes.
+     */
+    public long regionSize() {
+        return regionSize;
+    }
+
+    /**
+     * Gets the count of regions.
+     *
+     * @return the count of regions.
+     */
+    public int regionCount() {
+        return regionCount;
+    }
+
+    /**
+     * Gets the total size of the buffer.
+     *
+     * @return the total size in bytes.
+     */
+    public long capacity() {
+        return regionSize * regionCount;
+    }
+
+    @Override
+    public void dispose() {
+        if (disposed) return;
+        disposed = true;
+        if (fences != null) {
+            for (int i = 0; i < regionCount; i++) {
+                if (regionFences[i] != 0) {
+                    fences.delete(regionFences[i]);
+                    regionFences[i] = 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.mesh;
+
+import static org.lwjgl.opengl.GL32C.*;
+
+/**
+ * The fences backed by GL sync objects, which requires OpenGL 3.2.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class SyncFences implements RingBufferAllocator.Fences {
+    @Override
+    public long insert() {
+        return glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+    }
+
+    @Override
+    public void await(long fence) {
+        int flags = GL_SYNC_FLUSH_COMMANDS_BIT;
+        while (true) {
+            int status = glClientWaitSync(fence, flags, 1_000_000L);
+            if (status != GL_TIMEOUT_EXPIRED) break;
+            flags = 0;
+        }
+    }
+
+    @Override
+    public void delete(long fence) {
+        glDeleteSync(fence);
+    }
+}
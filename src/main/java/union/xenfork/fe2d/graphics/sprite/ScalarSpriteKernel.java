@@ -0,0 +1,126 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.sprite;
+
+import org.joml.Math;
+import union.xenfork.fe2d.graphics.Color;
+
+/**
+ * The scalar sprite kernel.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class ScalarSpriteKernel implements SpriteKernel {
+    static final ScalarSpriteKernel INSTANCE = new ScalarSpriteKernel();
+
+    private ScalarSpriteKernel() {
+    }
+
+    static void transform(SpriteArrays a, int from, int to) {
+        for (int i = from; i < to; i++) {
+            final float originX = a.originX[i];
+            final float originY = a.originY[i];
+            final float scaleX = a.scaleX[i];
+            final float scaleY = a.scaleY[i];
+            final float worldOriginX = a.x[i] + originX;
+            final float worldOriginY = a.y[i] + originY;
+            final float fx = -originX * scaleX;
+            final float fy = -originY * scaleY;
+            final float fx2 = (a.width[i] - originX) * scaleX;
+            final float fy2 = (a.height[i] - originY) * scaleY;
+            final float rotation = a.rotation[i];
+            float x1, y1, x2, y2, x3, y3, x4, y4;
+            if (rotation != 0) {
+                final float sin = Math.sin(rotation);
+                final float cos = Math.cosFromSin(sin, rotation);
+                x1 = cos * fx - sin * fy;
+                y1 = sin * fx + cos * fy;
+                x2 = cos * fx - sin * fy2;
+                y2 = sin * fx + cos * fy2;
+                x3 = cos * fx2 - sin * fy2;
+                y3 = sin * fx2 + cos * fy2;
+                x4 = x1 + (x3 - x2);
+                y4 = y3 - (y2 - y1);
+            } else {
+                x1 = fx;
+                y1 = fy;
+                x2 = fx;
+                y2 = fy2;
+                x3 = fx2;
+                y3 = fy2;
+                x4 = fx2;
+                y4 = fy;
+            }
+            a.x1[i] = x1 + worldOriginX;
+            a.y1[i] = y1 + worldOriginY;
+            a.x2[i] = x2 + worldOriginX;
+            a.y2[i] = y2 + worldOriginY;
+            a.x3[i] = x3 + worldOriginX;
+            a.y3[i] = y3 + worldOriginY;
+            a.x4[i] = x4 + worldOriginX;
+            a.y4[i] = y4 + worldOriginY;
+        }
+    }
+
+    static void transformAffine(SpriteArrays a, int from, int to) {
+        for (int i = from; i < to; i++) {
+            final float width = a.width[i];
+            final float height = a.height[i];
+            final float tx = a.x[i];
+            final float ty = a.y[i];
+            final float x2 = Math.fma(a.m10[i], height, tx);
+            final float y2 = Math.fma(a.m11[i], height, ty);
+            a.x1[i] = tx;
+            a.y1[i] = ty;
+            a.x2[i] = x2;
+            a.y2[i] = y2;
+            a.x3[i] = Math.fma(a.m00[i], width, x2);
+            a.y3[i] = Math.fma(a.m01[i], width, y2);
+            a.x4[i] = Math.fma(a.m00[i], width, tx);
+            a.y4[i] = Math.fma(a.m01[i], width, ty);
+        }
+    }
+
+    static void packColors(SpriteArrays a, int from, int to) {
+        for (int i = from; i < to; i++) {
+            a.colors[i] = Color.rgbaPackABGR(a.red[i], a.green[i], a.blue[i], a.alpha[i]);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public void transform(SpriteArrays arrays, int count) {
+        transform(arrays, 0, count);
+    }
+
+    @Override
+    public void transformAffine(SpriteArrays arrays, int count) {
+        transformAffine(arrays, 0, count);
+    }
+
+    @Override
+    public void packColors(SpriteArrays arrays, int count) {
+        packColors(arrays, 0, count);
+    }
+}
@@ -47,10 +47,54 @@ public class Sprite {
      * The sprite vertex count.
      */
     public static final int SPRITE_VERTEX = 4;
+    /**
+     * The count of floats of a vertex in {@link #LAYOUT}, where the packed color takes one float.
+     */
+    public static final int VERTEX_FLOATS = 5;
     /**
      * The sprite vertex size in bytes.
      */
     public static final int SPRITE_SIZE = SPRITE_VERTEX * (2 * Float.BYTES + 4 * Byte.BYTES + 2 * Float.BYTES);
+    /**
+     * The vertex layout with an additional texture slot, used by multi-texture batching.
+     */
+    public static final VertexLayout MULTI_TEXTURE_LAYOUT = new VertexLayout(
+        VertexAttribute.position2().getImplicit(),
+        VertexAttribute.colorPacked().getImplicit(),
+        VertexAttribute.texCoord(0).getImplicit(),
+        VertexAttribute.texSlot().getImplicit()
+    );
+    /**
+     * The sprite vertex size in bytes with {@link #MULTI_TEXTURE_LAYOUT}.
+     */
+    public static final int MULTI_TEXTURE_SPRITE_SIZE = SPRITE_VERTEX * (2 * Float.BYTES + 4 * Byte.BYTES + 2 * Float.BYTES + Float.BYTES);
+    /**
+     * The vertex layout with an additional depth in the position, used by two-pass batching.
+     */
+    public static final VertexLayout DEPTH_LAYOUT = new VertexLayout(
+        VertexAttribute.position().getImplicit(),
+        VertexAttribute.colorPacked().getImplicit(),
+        VertexAttribute.texCoord(0).getImplicit()
+    );
+    /**
+     * The sprite vertex size in bytes with {@link #DEPTH_LAYOUT}.
+     */
+    public static final int DEPTH_SPRITE_SIZE = SPRITE_VERTEX * (3 * Float.BYTES + 4 * Byte.BYTES + 2 * Float.BYTES);
+    /**
+     * The compact vertex layout, with half-float positions and normalized unsigned short texture coordinates.
+     * <p>
+     * The positions are exact up to 2048 and the texture coordinates must be in [0, 1],
+     * so it suits pixel-aligned UI with repeat-free textures.
+     */
+    public static final VertexLayout COMPACT_LAYOUT = new VertexLayout(
+        VertexAttribute.position2Half().getImplicit(),
+        VertexAttribute.colorPacked().getImplicit(),
+        VertexAttribute.texCoordNormalized(0).getImplicit()
+    );
+    /**
+     * The sprite vertex size in bytes with {@link #COMPACT_LAYOUT}.
+     */
+    public static final int COMPACT_SPRITE_SIZE = SPRITE_VERTEX * (2 * Short.BYTES + 4 * Byte.BYTES + 2 * Short.BYTES);
     /**
      * The sprite texture.
      */
@@ -0,0 +1,114 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.sprite;
+
+/**
+ * The structure-of-arrays sprite data, which is the input and output of {@link SpriteKernel}.
+ * <p>
+ * The inputs of {@link SpriteKernel#transform(SpriteArrays, int)} are {@link #x}, {@link #y}, {@link #originX},
+ * {@link #originY}, {@link #width}, {@link #height}, {@link #scaleX}, {@link #scaleY} and {@link #rotation},
+ * which are the same as the arguments of {@code SpriteBatch.draw}.
+ * <p>
+ * The inputs of {@link SpriteKernel#transformAffine(SpriteArrays, int)} are the 2D part of the transformation
+ * matrix in {@link #m00}, {@link #m01}, {@link #m10} and {@link #m11}, the translation in {@link #x} and {@link #y},
+ * and the size in {@link #width} and {@link #height}.
+ * <p>
+ * Both of them output the corners in {@link #x1}, {@link #y1} to {@link #x4}, {@link #y4}, which are the local
+ * {@code (0, 0)}, {@code (0, height)}, {@code (width, height)} and {@code (width, 0)}.
+ * <p>
+ * The inputs of {@link SpriteKernel#packColors(SpriteArrays, int)} are the normalized {@link #red}, {@link #green},
+ * {@link #blue} and {@link #alpha}, and the output is {@link #colors} packed in ABGR.
+ * <p>
+ * {@link #u0}, {@link #v0}, {@link #u1} and {@link #v1} are not used by the kernel, and are stored here for
+ * the convenience of writing vertices.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class SpriteArrays {
+    public float[] x, y;
+    public float[] originX, originY;
+    public float[] width, height;
+    public float[] scaleX, scaleY;
+    public float[] rotation;
+    public float[] m00, m01, m10, m11;
+    public float[] red, green, blue, alpha;
+    public float[] u0, v0, u1, v1;
+    public float[] x1, y1, x2, y2, x3, y3, x4, y4;
+    public int[] colors;
+    private int capacity = 0;
+
+    /**
+     * Creates the arrays with the given capacity.
+     *
+     * @param capacity the count of sprites.
+     */
+    public SpriteArrays(int capacity) {
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * Ensures the arrays can hold the given count of sprites. The existing values are discarded on growing.
+     *
+     * @param capacity the count of sprites.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= this.capacity) return;
+        this.capacity = capacity;
+        x = new float[capacity];
+        y = new float[capacity];
+        originX = new float[capacity];
+        originY = new float[capacity];
+        width = new float[capacity];
+        height = new float[capacity];
+        scaleX = new float[capacity];
+        scaleY = new float[capacity];
+        rotation = new float[capacity];
+        m00 = new float[capacity];
+        m01 = new float[capacity];
+        m10 = new float[capacity];
+        m11 = new float[capacity];
+        red = new float[capacity];
+        green = new float[capacity];
+        blue = new float[capacity];
+        alpha = new float[capacity];
+        u0 = new float[capacity];
+        v0 = new float[capacity];
+        u1 = new float[capacity];
+        v1 = new float[capacity];
+        x1 = new float[capacity];
+        y1 = new float[capacity];
+        x2 = new float[capacity];
+        y2 = new float[capacity];
+        x3 = new float[capacity];
+        y3 = new float[capacity];
+        x4 = new float[capacity];
+        y4 = new float[capacity];
+        colors = new int[capacity];
+    }
+
+    /**
+     * Gets the capacity.
+     *
+     * @return the count of sprites.
+     */
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.sprite;
+
+/**
+ * The kernel that transforms sprite quads and packs colors in batches.
+ * <p>
+ * {@link #best()} returns a kernel with the Vector API if the {@code jdk.incubator.vector} module is present
+ * (run with {@code --add-modules jdk.incubator.vector}), or the scalar kernel otherwise.
+ * Set the system property {@code fe2d.vectorKernel} to {@code false} to always use the scalar kernel.
+ *
+ * @author squid233
+ * @see SpriteArrays
+ * @since 0.1.0
+ */
+public interface SpriteKernel {
+    /**
+     * Gets the scalar kernel.
+     *
+     * @return the scalar kernel.
+     */
+    static SpriteKernel scalar() {
+        return ScalarSpriteKernel.INSTANCE;
+    }
+
+    /**
+     * Gets the fastest available kernel.
+     *
+     * @return the kernel.
+     */
+    static SpriteKernel best() {
+        return SpriteKernels.BEST;
+    }
+
+    /**
+     * Gets the name of this kernel.
+     *
+     * @return the name.
+     */
+    String name();
+
+    /**
+     * Computes the corners from the position, origin, size, scale and rotation.
+     *
+     * @param arrays the arrays.
+     * @param count  the count of sprites.
+     */
+    void transform(SpriteArrays arrays, int count);
+
+    /**
+     * Computes the corners from the transformation matrix and size.
+     *
+     * @param arrays the arrays.
+     * @param count  the count of sprites.
+     */
+    void transformAffine(SpriteArrays arrays, int count);
+
+    /**
+     * Packs the normalized colors in ABGR.
+     *
+     * @param arrays the arrays.
+     * @param count  the count of sprites.
+     */
+    void packColors(SpriteArrays arrays, int count);
+}
@@ -0,0 +1,50 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.sprite;
+
+import union.xenfork.fe2d.Fe2D;
+
+/**
+ * The holder of the fastest available sprite kernel.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class SpriteKernels {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL = "union.xenfork.fe2d.graphics.sprite.VectorSpriteKernel";
+    static final SpriteKernel BEST = load();
+
+    private SpriteKernels() {
+    }
+
+    private static SpriteKernel load() {
+        if (!Boolean.parseBoolean(System.getProperty("fe2d.vectorKernel", "true")) ||
+            ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return ScalarSpriteKernel.INSTANCE;
+        }
+        try {
+            // loads reflectively, since the kernel cannot be linked without the module
+            return (SpriteKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            Fe2D.logger.warn("Failed to load the vector sprite kernel; falling back to scalar", e);
+            return ScalarSpriteKernel.INSTANCE;
+        }
+    }
+}
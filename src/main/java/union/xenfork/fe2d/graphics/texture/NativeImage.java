@@ -24,8 +24,10 @@ import org.lwjgl.system.MemoryUtil;
 import org.overrun.binpacking.PackerRegionSize;
 import union.xenfork.fe2d.Disposable;
 import union.xenfork.fe2d.file.FileContext;
+import union.xenfork.fe2d.graphics.Color;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.IntBuffer;
 import java.util.function.Supplier;
 
@@ -183,6 +185,42 @@ public final class NativeImage implements PackerRegionSize, Disposable {
         return height;
     }
 
+    /**
+     * Premultiplies the RGB components of each pixel by its alpha in place. The image must be in RGBA.
+     *
+     * @return this.
+     * @throws IllegalStateException if the image is not in RGBA.
+     */
+    public NativeImage premultiplyAlpha() throws IllegalStateException {
+        final int pixels = width * height;
+        if (buffer.capacity() != pixels * 4) {
+            throw new IllegalStateException("Can only premultiply alpha of images in RGBA");
+        }
+        // RGBA bytes in little-endian are ABGR integers
+        ByteBuffer view = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0, pos = 0; i < pixels; i++, pos += 4) {
+            view.putInt(pos, Color.premultiplyABGR(view.getInt(pos)));
+        }
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if all pixels are fully opaque. Images without alpha channel are always opaque.
+     *
+     * @return {@code true} if all pixels are fully opaque.
+     */
+    public boolean isOpaque() {
+        final int pixels = width * height;
+        if (pixels == 0) return false;
+        final int channels = buffer.capacity() / pixels;
+        // grey and RGB
+        if (channels == 1 || channels == 3) return true;
+        for (int pos = channels - 1, end = pixels * channels; pos < end; pos += channels) {
+            if (buffer.get(pos) != (byte) 0xff) return false;
+        }
+        return true;
+    }
+
     /**
      * Gets the buffer of this image.
      *
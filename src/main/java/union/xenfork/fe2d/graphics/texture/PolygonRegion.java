@@ -0,0 +1,177 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.texture;
+
+import java.util.Arrays;
+
+/**
+ * The triangulated polygon in a texture region, which is used to draw only the visible part of a sprite.
+ * <p>
+ * The vertices are in pixels and relative to the bottom left corner of the region, with y pointing up.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class PolygonRegion {
+    private final TextureRegion region;
+    private final float[] vertices;
+    private final int[] triangles;
+
+    /**
+     * Creates the polygon region.
+     *
+     * @param region    the texture region.
+     * @param vertices  the vertices in {@code (x, y)} pairs.
+     * @param triangles the indices of the vertices of each triangle.
+     */
+    public PolygonRegion(TextureRegion region, float[] vertices, int[] triangles) {
+        this.region = region;
+        this.vertices = vertices;
+        this.triangles = triangles;
+    }
+
+    /**
+     * Creates the polygon region which is the rectangle of the given region.
+     *
+     * @param region the texture region.
+     * @return the polygon region.
+     */
+    public static PolygonRegion ofRect(TextureRegion region) {
+        float width = region.u1() - region.u0();
+        float height = region.v1() - region.v0();
+        return new PolygonRegion(region,
+            new float[]{0f, 0f, 0f, height, width, height, width, 0f},
+            new int[]{0, 1, 2, 2, 3, 0});
+    }
+
+    /**
+     * Computes the convex hull of the pixels whose alpha is greater than the threshold, and triangulates it
+     * as a fan. The image must be in RGBA, and the whole image is mapped to the given region.
+     * <p>
+     * If no pixel is visible, the polygon has no triangles.
+     *
+     * @param image          the image.
+     * @param region         the texture region of the image.
+     * @param alphaThreshold the max alpha value of invisible pixels, between 0 and 255.
+     * @return the polygon region.
+     * @throws IllegalStateException if the image is not in RGBA.
+     */
+    public static PolygonRegion convexHull(NativeImage image, TextureRegion region, int alphaThreshold)
+        throws IllegalStateException {
+        final int width = image.width();
+        final int height = image.height();
+        if (image.buffer().capacity() != width * height * 4) {
+            throw new IllegalStateException("Can only compute the convex hull of images in RGBA");
+        }
+        // the corners of the leftmost and rightmost visible pixels of each row, packed as x << 32 | y
+        long[] points = new long[height * 4];
+        int pointCount = 0;
+        for (int row = 0; row < height; row++) {
+            int minX = -1, maxX = -1;
+            for (int x = 0, pos = row * width * 4 + 3; x < width; x++, pos += 4) {
+                if (Byte.toUnsignedInt(image.buffer().get(pos)) > alphaThreshold) {
+                    if (minX == -1) minX = x;
+                    maxX = x;
+                }
+            }
+            if (minX == -1) continue;
+            // y up
+            long top = height - row;
+            long bottom = top - 1;
+            points[pointCount++] = ((long) minX << 32) | top;
+            points[pointCount++] = ((long) minX << 32) | bottom;
+            points[pointCount++] = ((long) (maxX + 1) << 32) | top;
+            points[pointCount++] = ((long) (maxX + 1) << 32) | bottom;
+        }
+        if (pointCount == 0) {
+            return new PolygonRegion(region, new float[0], new int[0]);
+        }
+
+        // Andrew's monotone chain, counter-clockwise
+        Arrays.sort(points, 0, pointCount);
+        long[] hull = new long[pointCount * 2];
+        int k = 0;
+        for (int i = 0; i < pointCount; i++) {
+            while (k >= 2 && cross(hull[k - 2], hull[k - 1], points[i]) <= 0) k--;
+            hull[k++] = points[i];
+        }
+        for (int i = pointCount - 2, lower = k + 1; i >= 0; i--) {
+            while (k >= lower && cross(hull[k - 2], hull[k - 1], points[i]) <= 0) k--;
+            hull[k++] = points[i];
+        }
+        // the last point is the same as the first
+        final int hullCount = k - 1;
+
+        float[] vertices = new float[hullCount * 2];
+        for (int i = 0; i < hullCount; i++) {
+            vertices[i * 2] = (float) (hull[i] >>> 32);
+            vertices[i * 2 + 1] = (float) (hull[i] & 0xffffffffL);
+        }
+        int[] triangles = new int[Math.max(0, hullCount - 2) * 3];
+        for (int i = 0; i < hullCount - 2; i++) {
+            triangles[i * 3] = 0;
+            triangles[i * 3 + 1] = i + 1;
+            triangles[i * 3 + 2] = i + 2;
+        }
+        return new PolygonRegion(region, vertices, triangles);
+    }
+
+    private static long cross(long o, long a, long b) {
+        long ox = o >>> 32, oy = o & 0xffffffffL;
+        long ax = a >>> 32, ay = a & 0xffffffffL;
+        long bx = b >>> 32, by = b & 0xffffffffL;
+        return (ax - ox) * (by - oy) - (ay - oy) * (bx - ox);
+    }
+
+    /**
+     * Gets the texture region.
+     *
+     * @return the texture region.
+     */
+    public TextureRegion region() {
+        return region;
+    }
+
+    /**
+     * Gets the vertices in {@code (x, y)} pairs.
+     *
+     * @return the vertices.
+     */
+    public float[] vertices() {
+        return vertices;
+    }
+
+    /**
+     * Gets the indices of the vertices of each triangle.
+     *
+     * @return the indices.
+     */
+    public int[] triangles() {
+        return triangles;
+    }
+
+    /**
+     * Gets the count of vertices.
+     *
+     * @return the count of vertices.
+     */
+    public int vertexCount() {
+        return vertices.length / 2;
+    }
+}
@@ -67,14 +67,14 @@ public class Texture implements Disposable, PackerRegionSize {
      */
     protected static void acceptParameters(@Nullable TextureParam param) {
         if (param != null) {
-            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, param.minFilter());
-            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, param.magFilter());
-            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_BASE_LEVEL, param.baseLevel());
-            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, param.maxLevel());
-            glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MIN_LOD, param.minLod());
-            glTexParameterf(GL_TEXTURE_2D, GL_TEXTURE_MAX_LOD, param.maxLod());
+            GLStateManager.texParameter2D(GL_TEXTURE_MIN_FILTER, param.minFilter());
+            GLStateManager.texParameter2D(GL_TEXTURE_MAG_FILTER, param.magFilter());
+            GLStateManager.texParameter2D(GL_TEXTURE_BASE_LEVEL, param.baseLevel());
+            GLStateManager.texParameter2D(GL_TEXTURE_MAX_LEVEL, param.maxLevel());
+            GLStateManager.texParameter2D(GL_TEXTURE_MIN_LOD, param.minLod());
+            GLStateManager.texParameter2D(GL_TEXTURE_MAX_LOD, param.maxLod());
             for (var e : param.customParamMap().entrySet()) {
-                glTexParameteri(GL_TEXTURE_2D, e.getKey(), e.getValue());
+                GLStateManager.texParameter2D(e.getKey(), e.getValue());
             }
         }
     }
@@ -139,6 +139,9 @@ public class Texture implements Disposable, PackerRegionSize {
      */
     public static Texture ofFile(FileContext context, @Nullable TextureParam param, int internalFormat, int format) {
         NativeImage image = NativeImage.load(context);
+        if (param != null && param.premultipliedAlpha()) {
+            image.premultiplyAlpha();
+        }
         Texture texture = ofImage(image, param, internalFormat, format);
         image.dispose();
         return texture;
@@ -205,6 +208,6 @@ public class Texture implements Disposable, PackerRegionSize {
     public void dispose() {
         if (disposed) return;
         disposed = true;
-        glDeleteTextures(id);
+        GLStateManager.deleteTexture(id);
     }
 }
@@ -43,6 +43,8 @@ import static org.lwjgl.opengl.GL30C.*;
  */
 public class TextureAtlas extends Texture {
     private final Map<String, TextureRegion> regionMap = new HashMap<>();
+    private final Map<String, PolygonRegion> polygonMap = new HashMap<>();
+    private final Set<TextureRegion> opaqueRegions = new HashSet<>();
 
     /**
      * Creates a texture with the given size.
@@ -112,6 +114,8 @@ public class TextureAtlas extends Texture {
         // Uses array wrapper because lambda cannot modify outside variables
         ByteBuffer[] failBuffer = new ByteBuffer[1];
         List<Entry> entryRegion = new ArrayList<>();
+        boolean premultiply = param != null && param.premultipliedAlpha();
+        boolean failPremultiplied = false;
         for (Entry entry : entries) {
             entry.image = NativeImage.load(entry.context, fail != null ? () -> {
                 if (failBuffer[0] == null) {
@@ -119,6 +123,14 @@ public class TextureAtlas extends Texture {
                 }
                 return failBuffer[0];
             } : null);
+            if (premultiply) {
+                // the fail buffer is shared between entries
+                boolean isFail = entry.image.buffer() == failBuffer[0];
+                if (!isFail || !failPremultiplied) {
+                    entry.image.premultiplyAlpha();
+                }
+                failPremultiplied |= isFail;
+            }
             entryRegion.add(entry);
         }
         entryRegion.sort(null);
@@ -150,11 +162,18 @@ public class TextureAtlas extends Texture {
                     GL_RGBA,
                     GL_UNSIGNED_BYTE,
                     entry.image.buffer());
-                atlas.regionMap.put(entry.name,
-                    new TextureRegion(f.x(),
-                        f.y(),
-                        f.x() + r.width(),
-                        f.y() + r.height()));
+                TextureRegion region = new TextureRegion(f.x(),
+                    f.y(),
+                    f.x() + r.width(),
+                    f.y() + r.height());
+                atlas.regionMap.put(entry.name, region);
+                if (entry.image.isOpaque()) {
+                    atlas.opaqueRegions.add(region);
+                }
+                if (param != null && param.hullAlphaThreshold() >= 0) {
+                    atlas.polygonMap.put(entry.name,
+                        PolygonRegion.convexHull(entry.image, region, param.hullAlphaThreshold()));
+                }
             });
             entry.image.dispose();
         }
@@ -267,4 +286,35 @@ public class TextureAtlas extends Texture {
     public TextureRegion get(Object name) {
         return regionMap.get(String.valueOf(name));
     }
+
+    /**
+     * Returns {@code true} if all pixels of the given region are fully opaque, as detected on loading.
+     *
+     * @param region the region of this atlas.
+     * @return {@code true} if the region is fully opaque.
+     */
+    public boolean isOpaque(TextureRegion region) {
+        return opaqueRegions.contains(region);
+    }
+
+    /**
+     * Gets the polygon region with the given name.
+     * <p>
+     * The polygon is the convex hull if {@link TextureParam#hullAlphaThreshold(int)} is set on loading,
+     * or the rectangle of the region otherwise.
+     *
+     * @param name the name of the region. always converted with {@link String#valueOf(Object)}.
+     * @return the polygon region, or {@code null} if the region is not found.
+     */
+    public PolygonRegion getPolygon(Object name) {
+        String key = String.valueOf(name);
+        PolygonRegion polygon = polygonMap.get(key);
+        if (polygon == null) {
+            TextureRegion region = regionMap.get(key);
+            if (region == null) return null;
+            polygon = PolygonRegion.ofRect(region);
+            polygonMap.put(key, polygon);
+        }
+        return polygon;
+    }
 }
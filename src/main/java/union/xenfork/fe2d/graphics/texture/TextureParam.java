@@ -39,6 +39,8 @@ public final class TextureParam {
     private int maxLevel = 0;
     private float minLod = 0f;
     private float maxLod = 0f;
+    private boolean premultipliedAlpha = false;
+    private int hullAlphaThreshold = -1;
     private final Map<Integer, Integer> customParam = new HashMap<>();
 
     /**
@@ -171,6 +173,50 @@ public final class TextureParam {
         return maxLod;
     }
 
+    /**
+     * Sets whether the images should be premultiplied by alpha on loading from files.
+     * The images passed to {@link Texture#ofImage(NativeImage, TextureParam) Texture.ofImage} are not affected.
+     *
+     * @param premultipliedAlpha {@code true} to premultiply alpha.
+     * @return this.
+     * @see NativeImage#premultiplyAlpha()
+     */
+    public TextureParam premultipliedAlpha(boolean premultipliedAlpha) {
+        this.premultipliedAlpha = premultipliedAlpha;
+        return this;
+    }
+
+    /**
+     * Gets whether the images should be premultiplied by alpha on loading from files.
+     *
+     * @return {@code true} to premultiply alpha.
+     */
+    public boolean premultipliedAlpha() {
+        return premultipliedAlpha;
+    }
+
+    /**
+     * Sets the alpha threshold for computing the {@linkplain PolygonRegion#convexHull(NativeImage, TextureRegion, int)
+     * convex hulls} of the regions on loading a {@link TextureAtlas}.
+     *
+     * @param hullAlphaThreshold the max alpha value of invisible pixels, between 0 and 255,
+     *                           or a negative value to disable. defaults to {@code -1}.
+     * @return this.
+     */
+    public TextureParam hullAlphaThreshold(int hullAlphaThreshold) {
+        this.hullAlphaThreshold = hullAlphaThreshold;
+        return this;
+    }
+
+    /**
+     * Gets the alpha threshold for computing the convex hulls.
+     *
+     * @return the alpha threshold, or a negative value if disabled.
+     */
+    public int hullAlphaThreshold() {
+        return hullAlphaThreshold;
+    }
+
     /**
      * Sets a custom parameter that is currently not supported by Fe2D.
      *
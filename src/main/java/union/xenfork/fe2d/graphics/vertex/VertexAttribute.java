@@ -43,6 +43,10 @@ public final class VertexAttribute {
      * The name of vertex normal attribute.
      */
     public static final String NORMAL_ATTRIB = "fe_Normal";
+    /**
+     * The name of texture slot attribute.
+     */
+    public static final String TEX_SLOT_ATTRIB = "fe_TexSlot";
 
     private final int index;
     private final String name;
@@ -139,6 +143,26 @@ public final class VertexAttribute {
         return new Builtin(POSITION_ATTRIB, 2, DataType.FLOAT, false);
     }
 
+    /**
+     * Creates the vec2 position attribute with half-float components, which represent integers up to 2048 exactly
+     * and lose the sub-pixel precision with larger values.
+     *
+     * @return the vec2 position attribute selector.
+     */
+    public static Builtin position2Half() {
+        return new Builtin(POSITION_ATTRIB, 2, DataType.HALF_FLOAT, false);
+    }
+
+    /**
+     * Creates the vec2 position attribute with short components, which are converted to float directly,
+     * for pixel-aligned positions.
+     *
+     * @return the vec2 position attribute selector.
+     */
+    public static Builtin position2Short() {
+        return new Builtin(POSITION_ATTRIB, 2, DataType.SHORT, false);
+    }
+
     /**
      * Creates the position attribute.
      *
@@ -176,6 +200,26 @@ public final class VertexAttribute {
         return new Builtin(TEX_COORD_ATTRIB + unit, 2, DataType.FLOAT, false);
     }
 
+    /**
+     * Creates the texture coordinate attribute with normalized unsigned short components,
+     * which only represents the texture coordinates in [0, 1].
+     *
+     * @param unit the texture coordinate unit.
+     * @return the texture coordinate attribute selector.
+     */
+    public static Builtin texCoordNormalized(int unit) {
+        return new Builtin(TEX_COORD_ATTRIB + unit, 2, DataType.UNSIGNED_SHORT, true);
+    }
+
+    /**
+     * Creates the texture slot attribute, which selects a bound texture unit in multi-texture batching.
+     *
+     * @return the texture slot attribute selector.
+     */
+    public static Builtin texSlot() {
+        return new Builtin(TEX_SLOT_ATTRIB, 1, DataType.FLOAT, false);
+    }
+
     /**
      * Creates the vertex normal attribute.
      *
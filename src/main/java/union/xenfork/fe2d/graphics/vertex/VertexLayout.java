@@ -26,6 +26,9 @@ import java.util.function.ObjIntConsumer;
 
 /**
  * The vertex layout which contains a set of {@link VertexAttribute}.
+ * <p>
+ * The attributes are flattened into arrays ordered by declaration, so iterating them and getting the pointers don't
+ * look up maps. A {@link VertexWriter} is compiled from the layout on first {@linkplain #writer() use}.
  *
  * @author squid233
  * @since 0.1.0
@@ -33,8 +36,11 @@ import java.util.function.ObjIntConsumer;
 public final class VertexLayout {
     private final Map<String, Integer> indexMap = new HashMap<>();
     private final Map<Integer, VertexAttribute> attributeMap = new LinkedHashMap<>();
-    private final Map<Integer, Long> pointerMap = new HashMap<>();
+    private final int[] indices;
+    private final VertexAttribute[] attributes;
+    private final long[] pointers;
     private final int stride;
+    private VertexWriter writer;
 
     /**
      * Creates the vertex layout.
@@ -45,6 +51,11 @@ public final class VertexLayout {
     public VertexLayout(@Nullable ShaderProgram program, VertexAttribute... attributes) {
         int nextIndex = 0;
         int pointer = 0;
+        int count = 0;
+        int maxIndex = -1;
+        int[] indices = new int[attributes.length];
+        VertexAttribute[] flatAttributes = new VertexAttribute[attributes.length];
+        long[] flatPointers = new long[attributes.length];
         for (VertexAttribute attribute : attributes) {
             String name = attribute.name();
             int index;
@@ -65,11 +76,32 @@ public final class VertexLayout {
             if (index != -1) {
                 indexMap.put(name, index);
                 attributeMap.put(index, attribute);
-                pointerMap.put(index, (long) pointer);
+                int slot = index(indices, count, index);
+                if (slot == -1) {
+                    slot = count++;
+                    indices[slot] = index;
+                }
+                flatAttributes[slot] = attribute;
+                flatPointers[slot] = pointer;
+                maxIndex = Math.max(maxIndex, index);
             }
             pointer += attribute.size() * attribute.type().bytesSize();
         }
         stride = pointer;
+        this.indices = Arrays.copyOf(indices, count);
+        this.attributes = Arrays.copyOf(flatAttributes, count);
+        // pointers are looked up by the attribute index
+        this.pointers = new long[maxIndex + 1];
+        for (int i = 0; i < count; i++) {
+            this.pointers[indices[i]] = flatPointers[i];
+        }
+    }
+
+    private static int index(int[] indices, int count, int index) {
+        for (int i = 0; i < count; i++) {
+            if (indices[i] == index) return i;
+        }
+        return -1;
     }
 
     /**
@@ -116,8 +148,8 @@ public final class VertexLayout {
      * @param action the action to be performed.
      */
     public void forEachAttribute(ObjIntConsumer<VertexAttribute> action) {
-        for (var e : attributeMap.entrySet()) {
-            action.accept(e.getValue(), e.getKey());
+        for (int i = 0; i < indices.length; i++) {
+            action.accept(attributes[i], indices[i]);
         }
     }
 
@@ -128,7 +160,38 @@ public final class VertexLayout {
      * @return the offset.
      */
     public long getPointer(int index) {
-        return pointerMap.get(index);
+        return pointers[index];
+    }
+
+    /**
+     * Gets the count of the vertex attributes.
+     *
+     * @return the count of the vertex attributes.
+     */
+    public int attributeCount() {
+        return indices.length;
+    }
+
+    /**
+     * Gets the index of the vertex attribute at the given position in declaration order.
+     *
+     * @param i the position.
+     * @return the index.
+     */
+    public int attributeIndex(int i) {
+        return indices[i];
+    }
+
+    /**
+     * Gets the writer compiled from this layout.
+     *
+     * @return the vertex writer.
+     */
+    public VertexWriter writer() {
+        if (writer == null) {
+            writer = VertexWriter.compile(this);
+        }
+        return writer;
     }
 
     /**
@@ -0,0 +1,283 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.vertex;
+
+import org.jetbrains.annotations.Nullable;
+import union.xenfork.fe2d.graphics.DataType;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * The writer of vertices compiled from a {@link VertexLayout}.
+ * <p>
+ * The offsets and the encodings of the {@linkplain VertexAttribute#POSITION_ATTRIB position},
+ * {@linkplain VertexAttribute#COLOR_ATTRIB color} and the first {@linkplain VertexAttribute#TEX_COORD_ATTRIB texture
+ * coordinate} attributes are resolved once, and the typed {@code vertex} methods write straight to an address
+ * without boxing, varargs or bounds checks. The other attributes are left untouched, and the missing attributes are
+ * ignored.
+ * <p>
+ * The writer can be got with {@link VertexLayout#writer()}.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+public final class VertexWriter {
+    private static final int ABSENT = -1;
+    /**
+     * The encoding of a packed ABGR color, which is written as is.
+     */
+    private static final int COLOR_PACKED = 0;
+    /**
+     * The encoding of a color with 4 float components.
+     */
+    private static final int COLOR_FLOATS = 1;
+    /**
+     * The encoding of a color with other components, which are encoded one by one.
+     */
+    private static final int COLOR_GENERIC = 2;
+    private final int stride;
+    private final int positionOffset;
+    private final int positionSize;
+    private final @Nullable VertexAttribute position;
+    private final int colorOffset;
+    private final int colorEncoding;
+    private final @Nullable VertexAttribute color;
+    private final int texCoordOffset;
+    private final @Nullable VertexAttribute texCoord;
+    private final boolean floatPosition;
+    private final boolean floatTexCoord;
+
+    private VertexWriter(VertexLayout layout) {
+        this.stride = layout.stride();
+        int positionIndex = layout.getIndex(VertexAttribute.POSITION_ATTRIB);
+        int colorIndex = layout.getIndex(VertexAttribute.COLOR_ATTRIB);
+        int texCoordIndex = layout.getIndex(VertexAttribute.TEX_COORD_ATTRIB + 0);
+
+        position = positionIndex != -1 ? layout.getAttribute(positionIndex) : null;
+        positionOffset = positionIndex != -1 ? (int) layout.getPointer(positionIndex) : ABSENT;
+        positionSize = position != null ? Math.min(position.size(), 3) : 0;
+        floatPosition = position != null && position.type() == DataType.FLOAT && positionSize >= 2;
+
+        color = colorIndex != -1 ? layout.getAttribute(colorIndex) : null;
+        colorOffset = colorIndex != -1 ? (int) layout.getPointer(colorIndex) : ABSENT;
+        if (color == null) {
+            colorEncoding = ABSENT;
+        } else if (color.type() == DataType.UNSIGNED_BYTE && color.normalized() && color.size() == 4) {
+            colorEncoding = COLOR_PACKED;
+        } else if (color.type() == DataType.FLOAT && color.size() == 4) {
+            colorEncoding = COLOR_FLOATS;
+        } else {
+            colorEncoding = COLOR_GENERIC;
+        }
+
+        texCoord = texCoordIndex != -1 ? layout.getAttribute(texCoordIndex) : null;
+        texCoordOffset = texCoordIndex != -1 ? (int) layout.getPointer(texCoordIndex) : ABSENT;
+        floatTexCoord = texCoord != null && texCoord.type() == DataType.FLOAT;
+    }
+
+    /**
+     * Compiles the given layout.
+     *
+     * @param layout the vertex layout.
+     * @return the writer.
+     */
+    static VertexWriter compile(VertexLayout layout) {
+        return new VertexWriter(layout);
+    }
+
+    /**
+     * Writes a vertex with a 2D position.
+     *
+     * @param address the address of the vertex.
+     * @param x       the x position.
+     * @param y       the y position.
+     * @param color   the packed ABGR color.
+     * @param u       the texture coordinate u.
+     * @param v       the texture coordinate v.
+     * @return the address of the next vertex.
+     */
+    public long vertex(long address, float x, float y, int color, float u, float v) {
+        return vertex(address, x, y, 0f, color, u, v);
+    }
+
+    /**
+     * Writes a vertex with a 3D position. The z position is ignored if the position has 2 components.
+     *
+     * @param address the address of the vertex.
+     * @param x       the x position.
+     * @param y       the y position.
+     * @param z       the z position.
+     * @param color   the packed ABGR color.
+     * @param u       the texture coordinate u.
+     * @param v       the texture coordinate v.
+     * @return the address of the next vertex.
+     */
+    public long vertex(long address, float x, float y, float z, int color, float u, float v) {
+        if (floatPosition) {
+            memPutFloat(address + positionOffset, x);
+            memPutFloat(address + positionOffset + 4, y);
+            if (positionSize == 3) memPutFloat(address + positionOffset + 8, z);
+        } else if (position != null) {
+            long p = address + positionOffset;
+            int bytesSize = position.type().bytesSize();
+            putComponent(p, position, x);
+            if (positionSize >= 2) putComponent(p + bytesSize, position, y);
+            if (positionSize == 3) putComponent(p + bytesSize * 2L, position, z);
+        }
+        putColor(address, color);
+        if (floatTexCoord) {
+            memPutFloat(address + texCoordOffset, u);
+            memPutFloat(address + texCoordOffset + 4, v);
+        } else if (texCoord != null) {
+            long p = address + texCoordOffset;
+            putComponent(p, texCoord, u);
+            putComponent(p + texCoord.type().bytesSize(), texCoord, v);
+        }
+        return address + stride;
+    }
+
+    private void putColor(long address, int abgr) {
+        switch (colorEncoding) {
+            case COLOR_PACKED -> memPutInt(address + colorOffset, abgr);
+            case COLOR_FLOATS -> {
+                long p = address + colorOffset;
+                memPutFloat(p, (abgr & 0xff) / 255f);
+                memPutFloat(p + 4, (abgr >>> 8 & 0xff) / 255f);
+                memPutFloat(p + 8, (abgr >>> 16 & 0xff) / 255f);
+                memPutFloat(p + 12, (abgr >>> 24) / 255f);
+            }
+            case COLOR_GENERIC -> {
+                long p = address + colorOffset;
+                int bytesSize = color.type().bytesSize();
+                for (int i = 0, n = Math.min(color.size(), 4); i < n; i++) {
+                    putComponent(p + (long) bytesSize * i, color, (abgr >>> (i * 8) & 0xff) / 255f);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Encodes a component with the type of the given attribute.
+     *
+     * @param address   the address of the component.
+     * @param attribute the attribute.
+     * @param value     the value. normalized types take values in [0, 1] for unsigned types and [-1, 1] for signed types.
+     */
+    static void putComponent(long address, VertexAttribute attribute, float value) {
+        boolean normalized = attribute.normalized();
+        switch (attribute.type()) {
+            case BYTE -> memPutByte(address, (byte) (normalized ? Math.round(clampSigned(value) * 127f) : (int) value));
+            case UNSIGNED_BYTE -> memPutByte(address, (byte) (normalized ? Math.round(clampUnsigned(value) * 255f) : (int) value));
+            case SHORT -> memPutShort(address, (short) (normalized ? Math.round(clampSigned(value) * 32767f) : (int) value));
+            case UNSIGNED_SHORT -> memPutShort(address, normalized ? normalizedUnsignedShort(value) : (short) value);
+            case INT -> memPutInt(address, normalized ? (int) Math.round(clampSigned(value) * 2147483647.0) : (int) value);
+            case UNSIGNED_INT -> memPutInt(address, (int) (normalized ? Math.round(clampUnsigned(value) * 4294967295.0) : (long) value));
+            case HALF_FLOAT -> memPutShort(address, halfFloat(value));
+            case FLOAT -> memPutFloat(address, value);
+            case DOUBLE -> memPutDouble(address, value);
+        }
+    }
+
+    /**
+     * Converts the given value to a half-float, rounding to the nearest.
+     *
+     * @param value the value.
+     * @return the bits of the half-float.
+     */
+    public static short halfFloat(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = bits >>> 16 & 0x8000;
+        int abs = bits & 0x7fffffff;
+        if (abs >= 0x7f800000) {
+            // infinity or NaN
+            return (short) (sign | 0x7c00 | (abs > 0x7f800000 ? 0x200 : 0));
+        }
+        int rounded = abs + 0x1000;
+        if (rounded >= 0x47800000) {
+            // overflow to infinity
+            return (short) (sign | 0x7c00);
+        }
+        if (rounded >= 0x38800000) {
+            return (short) (sign | rounded - 0x38000000 >>> 13);
+        }
+        if (abs < 0x33000000) {
+            // underflow to zero
+            return (short) sign;
+        }
+        // subnormal
+        int exp = abs >>> 23;
+        return (short) (sign | ((abs & 0x7fffff | 0x800000) + (0x800000 >>> exp - 102) >>> 126 - exp));
+    }
+
+    /**
+     * Converts the given value in [0, 1] to a normalized unsigned short.
+     *
+     * @param value the value, which is clamped.
+     * @return the normalized unsigned short.
+     */
+    public static short normalizedUnsignedShort(float value) {
+        return (short) Math.round(clampUnsigned(value) * 65535f);
+    }
+
+    private static float clampSigned(float value) {
+        return Math.max(-1f, Math.min(1f, value));
+    }
+
+    private static float clampUnsigned(float value) {
+        return Math.max(0f, Math.min(1f, value));
+    }
+
+    /**
+     * Gets the stride.
+     *
+     * @return the stride.
+     */
+    public int stride() {
+        return stride;
+    }
+
+    /**
+     * Returns {@code true} if the layout has the position attribute.
+     *
+     * @return {@code true} if the layout has the position attribute.
+     */
+    public boolean hasPosition() {
+        return position != null;
+    }
+
+    /**
+     * Returns {@code true} if the layout has the color attribute.
+     *
+     * @return {@code true} if the layout has the color attribute.
+     */
+    public boolean hasColor() {
+        return color != null;
+    }
+
+    /**
+     * Returns {@code true} if the layout has the first texture coordinate attribute.
+     *
+     * @return {@code true} if the layout has the first texture coordinate attribute.
+     */
+    public boolean hasTexCoord() {
+        return texCoord != null;
+    }
+}
@@ -22,7 +22,7 @@ import org.jetbrains.annotations.Nullable;
 import union.xenfork.fe2d.Fe2D;
 import union.xenfork.fe2d.Input;
 import union.xenfork.fe2d.Updatable;
-import union.xenfork.fe2d.graphics.batch.SpriteBatch;
+import union.xenfork.fe2d.graphics.batch.Batch;
 import union.xenfork.fe2d.graphics.font.TextRenderer;
 import union.xenfork.fe2d.gui.Drawable;
 import union.xenfork.fe2d.gui.GUIElement;
@@ -126,7 +126,7 @@ public abstract class Screen implements GUIParentElement, Drawable, Updatable {
     @Override
     public void render(double delta, double cursorX, double cursorY) {
         TextRenderer textRenderer = Fe2D.textRenderer();
-        SpriteBatch spriteBatch = Fe2D.spriteRenderer();
+        Batch spriteBatch = Fe2D.spriteRenderer();
         boolean textNotDrawing = !textRenderer.isDrawing();
         boolean spriteNotDrawing = !spriteBatch.isDrawing();
         if (spriteNotDrawing) {
@@ -18,6 +18,8 @@
 
 package union.xenfork.fe2d.gui.screen;
 
+import union.xenfork.fe2d.graphics.GLStateManager;
+
 import static org.lwjgl.opengl.GL11C.*;
 
 /**
@@ -49,4 +51,30 @@ public final class ScreenUtil {
     public static void clear(int mask) {
         glClear(mask);
     }
+
+    /**
+     * Sets the clear value for the color buffers. The call is skipped if the value is unchanged.
+     *
+     * @param red   the red value.
+     * @param green the green value.
+     * @param blue  the blue value.
+     * @param alpha the alpha value.
+     * @see GLStateManager#clearColor(float, float, float, float)
+     */
+    public static void clearColor(float red, float green, float blue, float alpha) {
+        GLStateManager.clearColor(red, green, blue, alpha);
+    }
+
+    /**
+     * Sets the viewport. The call is skipped if the viewport is unchanged.
+     *
+     * @param x      the left viewport coordinate.
+     * @param y      the bottom viewport coordinate.
+     * @param width  the viewport width.
+     * @param height the viewport height.
+     * @see GLStateManager#viewport(int, int, int, int)
+     */
+    public static void viewport(int x, int y, int width, int height) {
+        GLStateManager.viewport(x, y, width, height);
+    }
 }
@@ -20,7 +20,7 @@ package union.xenfork.fe2d.gui.widget.button;
 
 import union.xenfork.fe2d.Fe2D;
 import union.xenfork.fe2d.graphics.Color;
-import union.xenfork.fe2d.graphics.batch.SpriteBatch;
+import union.xenfork.fe2d.graphics.batch.Batch;
 
 /**
  * The GUI button with a colored rectangle.
@@ -88,7 +88,7 @@ public class RectButton extends GUIButton {
 
     @Override
     public void render(double delta, double cursorX, double cursorY) {
-        SpriteBatch batch = Fe2D.spriteRenderer();
+        Batch batch = Fe2D.spriteRenderer();
         boolean notDrawing = !batch.isDrawing();
         if (notDrawing) {
             batch.begin();
@@ -19,7 +19,7 @@
 package union.xenfork.fe2d.gui.widget.button;
 
 import union.xenfork.fe2d.Fe2D;
-import union.xenfork.fe2d.graphics.batch.SpriteBatch;
+import union.xenfork.fe2d.graphics.batch.Batch;
 import union.xenfork.fe2d.graphics.texture.Texture;
 import union.xenfork.fe2d.graphics.texture.TextureRegion;
 
@@ -85,7 +85,7 @@ public class TexturedButton extends GUIButton {
      * @param textureRegion the texture region.
      */
     protected void renderTexture(boolean hovered, Texture texture, TextureRegion textureRegion) {
-        SpriteBatch batch = Fe2D.spriteRenderer();
+        Batch batch = Fe2D.spriteRenderer();
         boolean notDrawing = !batch.isDrawing();
         if (notDrawing) {
             batch.begin();
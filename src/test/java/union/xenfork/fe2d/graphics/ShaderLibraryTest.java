@@ -0,0 +1,105 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests {@link ShaderLibrary} without the GL context.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+class ShaderLibraryTest {
+    private static ShaderLibrary library(String... defines) {
+        return new ShaderLibrary("#version 150 core\nvoid main() {}\n", "#version 150 core\nvoid main() {}\n",
+            Map.of(), defines);
+    }
+
+    @Test
+    void switchesAreAssignedBitsInOrder() {
+        ShaderLibrary library = library("A", "B", "C");
+        assertEquals(3, library.defineCount());
+        assertEquals(0b001, library.bit("A"));
+        assertEquals(0b010, library.bit("B"));
+        assertEquals(0b100, library.bit("C"));
+        assertEquals("B", library.define(1));
+    }
+
+    @Test
+    void maskCombinesBits() {
+        ShaderLibrary library = library("A", "B", "C");
+        assertEquals(0, library.mask());
+        assertEquals(0b101, library.mask("A", "C"));
+        assertEquals(0b101, library.mask("C", "A", "C"));
+        assertThrows(IllegalArgumentException.class, () -> library.mask("D"));
+    }
+
+    @Test
+    void variantsAreInterned() {
+        ShaderLibrary library = library("A", "B");
+        ShaderLibrary.Variant variant = library.variant("B", "A");
+        assertSame(variant, library.variant(0b11));
+        assertSame(variant, library.variant("A", "B"));
+        assertNotSame(variant, library.variant("A"));
+        assertEquals(0b11, variant.mask());
+        assertTrue(library.variant("B").isDefined("B"));
+        assertFalse(library.variant("B").isDefined("A"));
+    }
+
+    @Test
+    void unknownBitsAreRejected() {
+        ShaderLibrary library = library("A", "B");
+        assertThrows(IllegalArgumentException.class, () -> library.variant(0b100));
+    }
+
+    @Test
+    void invalidSwitchesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> library("A", "A"));
+        assertThrows(IllegalArgumentException.class, () -> library(new String[ShaderLibrary.MAX_DEFINES + 1]));
+    }
+
+    @Test
+    void definesAreInjectedAfterVersion() {
+        assertEquals("#version 150 core\n#define A\nvoid main() {}\n",
+            ShaderLibrary.inject("#version 150 core\nvoid main() {}\n", "#define A\n"));
+        assertEquals("// header\n#version 150 core\n#define A\nvoid main() {}\n",
+            ShaderLibrary.inject("// header\n#version 150 core\nvoid main() {}\n", "#define A\n"));
+    }
+
+    @Test
+    void definesArePrependedWithoutVersion() {
+        assertEquals("#define A\nvoid main() {}\n", ShaderLibrary.inject("void main() {}\n", "#define A\n"));
+    }
+
+    @Test
+    void definesAreAppendedAfterVersionOnlyTemplate() {
+        assertEquals("#version 150 core\n#define A\n", ShaderLibrary.inject("#version 150 core", "#define A\n"));
+    }
+
+    @Test
+    void emptyDefinesKeepTemplate() {
+        String template = "#version 150 core\nvoid main() {}\n";
+        assertSame(template, ShaderLibrary.inject(template, ""));
+    }
+}
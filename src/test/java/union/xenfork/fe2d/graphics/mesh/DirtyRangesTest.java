@@ -0,0 +1,141 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.mesh;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests {@link DirtyRanges}.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+class DirtyRangesTest {
+    private static void assertRanges(DirtyRanges ranges, int... bounds) {
+        assertEquals(bounds.length / 2, ranges.size(), "count of ranges");
+        for (int i = 0; i < ranges.size(); i++) {
+            assertEquals(bounds[i * 2], ranges.start(i), "start of range " + i);
+            assertEquals(bounds[i * 2 + 1], ranges.end(i), "end of range " + i);
+        }
+    }
+
+    @Test
+    void emptyRangeIsIgnored() {
+        DirtyRanges ranges = new DirtyRanges();
+        ranges.add(4, 4);
+        ranges.add(8, 2);
+        assertTrue(ranges.isEmpty());
+    }
+
+    @Test
+    void disjointRangesAreSorted() {
+        DirtyRanges ranges = new DirtyRanges();
+        ranges.add(20, 30);
+        ranges.add(0, 5);
+        ranges.add(10, 15);
+        assertRanges(ranges, 0, 5, 10, 15, 20, 30);
+    }
+
+    @Test
+    void adjacentRangesAreCoalesced() {
+        DirtyRanges ranges = new DirtyRanges();
+        ranges.add(0, 10);
+        ranges.add(10, 20);
+        ranges.add(30, 40);
+        ranges.add(20, 30);
+        assertRanges(ranges, 0, 40);
+    }
+
+    @Test
+    void overlappingRangesAreCoalesced() {
+        DirtyRanges ranges = new DirtyRanges();
+        ranges.add(0, 10);
+        ranges.add(5, 15);
+        ranges.add(40, 50);
+        ranges.add(35, 45);
+        assertRanges(ranges, 0, 15, 35, 50);
+    }
+
+    @Test
+    void containedRangeIsAbsorbed() {
+        DirtyRanges ranges = new DirtyRanges();
+        ranges.add(0, 100);
+        ranges.add(10, 20);
+        assertRanges(ranges, 0, 100);
+    }
+
+    @Test
+    void containingRangeAbsorbsSeveral() {
+        DirtyRanges ranges = new DirtyRanges();
+        ranges.add(10, 20);
+        ranges.add(30, 40);
+        ranges.add(50, 60);
+        ranges.add(70, 80);
+        ranges.add(15, 55);
+        assertRanges(ranges, 10, 60, 70, 80);
+    }
+
+    @Test
+    void closestRangesAreMergedAtLimit() {
+        DirtyRanges ranges = new DirtyRanges(3);
+        ranges.add(0, 10);
+        ranges.add(20, 30);
+        ranges.add(32, 40);
+        assertRanges(ranges, 0, 10, 20, 30, 32, 40);
+        // the gap between [20, 30) and [32, 40) is the smallest
+        ranges.add(60, 70);
+        assertRanges(ranges, 0, 10, 20, 40, 60, 70);
+    }
+
+    @Test
+    void firstClosestRangesAreMergedOnTie() {
+        DirtyRanges ranges = new DirtyRanges(2);
+        ranges.add(0, 10);
+        ranges.add(15, 20);
+        ranges.add(25, 30);
+        assertRanges(ranges, 0, 20, 25, 30);
+    }
+
+    @Test
+    void clearRemovesAll() {
+        DirtyRanges ranges = new DirtyRanges();
+        ranges.add(0, 10);
+        ranges.clear();
+        assertTrue(ranges.isEmpty());
+        ranges.add(5, 6);
+        assertRanges(ranges, 5, 6);
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        DirtyRanges ranges = new DirtyRanges(64);
+        for (int i = 0; i < 32; i++) {
+            ranges.add(i * 10, i * 10 + 5);
+        }
+        assertEquals(32, ranges.size());
+        assertEquals(310, ranges.start(31));
+    }
+
+    @Test
+    void nonPositiveMaxRangesIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new DirtyRanges(0));
+    }
+}
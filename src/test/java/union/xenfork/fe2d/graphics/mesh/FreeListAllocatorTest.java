@@ -0,0 +1,153 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.mesh;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests {@link FreeListAllocator}.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+class FreeListAllocatorTest {
+    @Test
+    void allocatesWithFirstFit() {
+        FreeListAllocator allocator = new FreeListAllocator(10);
+        assertEquals(0, allocator.allocate(4));
+        assertEquals(4, allocator.allocate(4));
+        assertEquals(2, allocator.freeSize());
+        assertEquals(-1, allocator.allocate(3));
+        assertEquals(8, allocator.allocate(2));
+        assertEquals(0, allocator.freeSize());
+        assertEquals(0, allocator.freeRangeCount());
+    }
+
+    @Test
+    void freedRangeIsReused() {
+        FreeListAllocator allocator = new FreeListAllocator(10);
+        allocator.allocate(3);
+        int middle = allocator.allocate(3);
+        allocator.allocate(4);
+        allocator.free(middle, 3);
+        assertEquals(middle, allocator.allocate(2));
+        assertEquals(1, allocator.freeSize());
+    }
+
+    @Test
+    void freedRangesAreCoalescedWithPrevious() {
+        FreeListAllocator allocator = new FreeListAllocator(9);
+        int a = allocator.allocate(3);
+        int b = allocator.allocate(3);
+        allocator.allocate(3);
+        allocator.free(a, 3);
+        allocator.free(b, 3);
+        assertEquals(1, allocator.freeRangeCount());
+        assertEquals(6, allocator.largestFreeSize());
+    }
+
+    @Test
+    void freedRangesAreCoalescedWithNext() {
+        FreeListAllocator allocator = new FreeListAllocator(9);
+        int a = allocator.allocate(3);
+        int b = allocator.allocate(3);
+        allocator.allocate(3);
+        allocator.free(b, 3);
+        allocator.free(a, 3);
+        assertEquals(1, allocator.freeRangeCount());
+        assertEquals(6, allocator.largestFreeSize());
+    }
+
+    @Test
+    void freedRangeBridgesTwoFreeRanges() {
+        FreeListAllocator allocator = new FreeListAllocator(9);
+        int a = allocator.allocate(3);
+        int b = allocator.allocate(3);
+        int c = allocator.allocate(3);
+        allocator.free(a, 3);
+        allocator.free(c, 3);
+        assertEquals(2, allocator.freeRangeCount());
+        allocator.free(b, 3);
+        assertEquals(1, allocator.freeRangeCount());
+        assertEquals(9, allocator.largestFreeSize());
+        assertEquals(0, allocator.allocate(9));
+    }
+
+    @Test
+    void fragmentedSpaceFailsLargeAllocation() {
+        FreeListAllocator allocator = new FreeListAllocator(8);
+        int[] starts = new int[8];
+        for (int i = 0; i < 8; i++) {
+            starts[i] = allocator.allocate(1);
+        }
+        for (int i = 0; i < 8; i += 2) {
+            allocator.free(starts[i], 1);
+        }
+        assertEquals(4, allocator.freeSize());
+        assertEquals(4, allocator.freeRangeCount());
+        assertEquals(1, allocator.largestFreeSize());
+        assertEquals(-1, allocator.allocate(2));
+    }
+
+    @Test
+    void resetKeepsUsedPrefix() {
+        FreeListAllocator allocator = new FreeListAllocator(10);
+        allocator.reset(6);
+        assertEquals(4, allocator.freeSize());
+        assertEquals(1, allocator.freeRangeCount());
+        assertEquals(6, allocator.allocate(4));
+    }
+
+    @Test
+    void growCoalescesWithFreeTail() {
+        FreeListAllocator allocator = new FreeListAllocator(10);
+        allocator.allocate(6);
+        allocator.grow(16);
+        assertEquals(1, allocator.freeRangeCount());
+        assertEquals(6, allocator.allocate(10));
+    }
+
+    @Test
+    void growToCapacityForFitsWithFragmentedMiddle() {
+        FreeListAllocator allocator = new FreeListAllocator(10);
+        allocator.allocate(3);
+        int middle = allocator.allocate(3);
+        allocator.allocate(4);
+        allocator.free(middle, 3);
+        // growing by only the missing size leaves the free space split
+        int newCapacity = allocator.capacityFor(20);
+        assertTrue(newCapacity >= 10 + 20);
+        allocator.grow(newCapacity);
+        assertEquals(10, allocator.allocate(20));
+    }
+
+    @Test
+    void shrinkingIsRejected() {
+        FreeListAllocator allocator = new FreeListAllocator(10);
+        assertThrows(IllegalArgumentException.class, () -> allocator.grow(5));
+    }
+
+    @Test
+    void nonPositiveSizeIsRejected() {
+        FreeListAllocator allocator = new FreeListAllocator(10);
+        assertThrows(IllegalArgumentException.class, () -> allocator.allocate(0));
+    }
+}
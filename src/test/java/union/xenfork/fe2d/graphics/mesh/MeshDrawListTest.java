@@ -0,0 +1,191 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.mesh;
+
+import org.junit.jupiter.api.Test;
+import org.lwjgl.PointerBuffer;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests {@link MeshDrawList} with a recording submitter.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+class MeshDrawListTest {
+    private static final int MODE = 4;
+    private static final int VAO = 3;
+
+    /**
+     * Records the operations as strings.
+     */
+    private static final class RecordingSubmitter implements MeshDrawList.Submitter {
+        private final boolean multiDrawSupported;
+        private final List<String> calls = new ArrayList<>();
+
+        private RecordingSubmitter(boolean multiDrawSupported) {
+            this.multiDrawSupported = multiDrawSupported;
+        }
+
+        @Override
+        public boolean isMultiDrawSupported() {
+            return multiDrawSupported;
+        }
+
+        @Override
+        public void bindVertexArray(int vao) {
+            calls.add("bind " + vao);
+        }
+
+        @Override
+        public void drawElementsBaseVertex(int mode, int count, int type, long offset, int baseVertex) {
+            calls.add("draw " + mode + " " + count + " " + type + " " + offset + " " + baseVertex);
+        }
+
+        @Override
+        public void multiDrawElementsBaseVertex(int mode, IntBuffer counts, int type, PointerBuffer offsets, IntBuffer baseVertices) {
+            StringBuilder sb = new StringBuilder("multiDraw ").append(mode).append(' ').append(type);
+            for (int i = counts.position(); i < counts.limit(); i++) {
+                sb.append(" [").append(counts.get(i))
+                    .append(' ').append(offsets.get(i))
+                    .append(' ').append(baseVertices.get(i)).append(']');
+            }
+            calls.add(sb.toString());
+        }
+    }
+
+    private static MeshDrawList threeDraws(RecordingSubmitter submitter) {
+        MeshDrawList list = new MeshDrawList(submitter);
+        list.add(VAO, IndexType.UNSIGNED_SHORT, 0, 6, 0);
+        list.add(VAO, IndexType.UNSIGNED_SHORT, 12, 3, 40);
+        list.add(VAO, IndexType.UNSIGNED_SHORT, 6, 6, 4);
+        return list;
+    }
+
+    @Test
+    void drawsAreMergedIntoOneMultiDrawInOrder() {
+        RecordingSubmitter submitter = new RecordingSubmitter(true);
+        MeshDrawList list = threeDraws(submitter);
+        list.submit(MODE);
+        int type = IndexType.UNSIGNED_SHORT.typeEnum();
+        assertEquals(List.of(
+            "bind " + VAO,
+            "multiDraw " + MODE + " " + type + " [6 0 0] [3 24 40] [6 12 4]"
+        ), submitter.calls);
+        list.dispose();
+    }
+
+    @Test
+    void drawsAreSubmittedOneByOneWithoutMultiDraw() {
+        RecordingSubmitter submitter = new RecordingSubmitter(false);
+        MeshDrawList list = threeDraws(submitter);
+        list.submit(MODE);
+        int type = IndexType.UNSIGNED_SHORT.typeEnum();
+        assertEquals(List.of(
+            "bind " + VAO,
+            "draw " + MODE + " 6 " + type + " 0 0",
+            "draw " + MODE + " 3 " + type + " 24 40",
+            "draw " + MODE + " 6 " + type + " 12 4"
+        ), submitter.calls);
+        list.dispose();
+    }
+
+    @Test
+    void singleDrawDoesNotUseMultiDraw() {
+        RecordingSubmitter submitter = new RecordingSubmitter(true);
+        MeshDrawList list = new MeshDrawList(submitter);
+        list.add(VAO, IndexType.UNSIGNED_INT, 2, 3, 0);
+        list.submit(MODE);
+        assertEquals(List.of(
+            "bind " + VAO,
+            "draw " + MODE + " 3 " + IndexType.UNSIGNED_INT.typeEnum() + " 8 0"
+        ), submitter.calls);
+        list.dispose();
+    }
+
+    @Test
+    void listIsKeptAfterSubmitting() {
+        RecordingSubmitter submitter = new RecordingSubmitter(true);
+        MeshDrawList list = threeDraws(submitter);
+        list.submit(MODE);
+        List<String> first = List.copyOf(submitter.calls);
+        submitter.calls.clear();
+        list.submit(MODE);
+        assertEquals(first, submitter.calls);
+        assertEquals(3, list.size());
+        assertEquals(15, list.totalIndexCount());
+        list.dispose();
+    }
+
+    @Test
+    void emptyAndClearedListsSubmitNothing() {
+        RecordingSubmitter submitter = new RecordingSubmitter(true);
+        MeshDrawList list = new MeshDrawList(submitter);
+        list.add(VAO, IndexType.UNSIGNED_SHORT, 0, 0, 0);
+        list.submit(MODE);
+        assertEquals(0, list.size());
+        list.add(VAO, IndexType.UNSIGNED_SHORT, 0, 6, 0);
+        list.clear();
+        list.submit(MODE);
+        assertTrue(submitter.calls.isEmpty());
+        list.dispose();
+    }
+
+    @Test
+    void listGrowsAndKeepsOrder() {
+        RecordingSubmitter submitter = new RecordingSubmitter(false);
+        MeshDrawList list = new MeshDrawList(submitter);
+        final int count = 100;
+        for (int i = 0; i < count; i++) {
+            list.add(VAO, IndexType.UNSIGNED_BYTE, i * 6, 6, i * 4);
+        }
+        assertEquals(count, list.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(6, list.indexCount(i));
+            assertEquals(i * 6L, list.indexOffset(i));
+            assertEquals(i * 4, list.baseVertex(i));
+        }
+        list.submit(MODE);
+        assertEquals(count + 1, submitter.calls.size());
+        assertEquals("draw " + MODE + " 6 " + IndexType.UNSIGNED_BYTE.typeEnum() + " " + (count - 1) * 6 + " " + (count - 1) * 4,
+            submitter.calls.get(count));
+        list.dispose();
+    }
+
+    @Test
+    void drawsInOtherBuffersAreRejected() {
+        MeshDrawList list = new MeshDrawList(new RecordingSubmitter(true));
+        list.add(VAO, IndexType.UNSIGNED_SHORT, 0, 6, 0);
+        assertThrows(IllegalArgumentException.class, () -> list.add(VAO + 1, IndexType.UNSIGNED_SHORT, 0, 6, 0));
+        assertThrows(IllegalArgumentException.class, () -> list.add(VAO, IndexType.UNSIGNED_INT, 0, 6, 0));
+        list.dispose();
+    }
+
+    @Test
+    void disposedListIsRejected() {
+        MeshDrawList list = new MeshDrawList(new RecordingSubmitter(true));
+        list.dispose();
+        assertThrows(IllegalStateException.class, () -> list.submit(MODE));
+    }
+}
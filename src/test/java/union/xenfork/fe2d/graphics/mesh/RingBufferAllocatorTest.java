@@ -0,0 +1,156 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.mesh;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests {@link RingBufferAllocator} with recording fences.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+class RingBufferAllocatorTest {
+    /**
+     * Records the fence operations as strings.
+     */
+    private static final class RecordingFences implements RingBufferAllocator.Fences {
+        private final List<String> calls = new ArrayList<>();
+        private long nextFence = 1;
+
+        @Override
+        public long insert() {
+            long fence = nextFence++;
+            calls.add("insert " + fence);
+            return fence;
+        }
+
+        @Override
+        public void await(long fence) {
+            calls.add("await " + fence);
+        }
+
+        @Override
+        public void delete(long fence) {
+            calls.add("delete " + fence);
+        }
+    }
+
+    @Test
+    void allocatesAlignedRangesLinearly() {
+        RecordingFences fences = new RecordingFences();
+        RingBufferAllocator allocator = new RingBufferAllocator(64, 2, 16, fences);
+        assertEquals(0, allocator.allocate(10));
+        assertEquals(16, allocator.allocate(20));
+        assertEquals(48, allocator.allocate(16));
+        assertEquals(0, allocator.region());
+        assertTrue(fences.calls.isEmpty());
+    }
+
+    @Test
+    void fullRegionIsFencedAndNextRegionIsUsed() {
+        RecordingFences fences = new RecordingFences();
+        RingBufferAllocator allocator = new RingBufferAllocator(64, 3, 1, fences);
+        allocator.allocate(40);
+        assertEquals(64, allocator.allocate(40));
+        assertEquals(1, allocator.region());
+        assertEquals(1, allocator.regionFence(0));
+        assertEquals(0, allocator.regionFence(1));
+        assertEquals(List.of("insert 1"), fences.calls);
+        assertFalse(allocator.wrapped());
+    }
+
+    @Test
+    void allocationWrapsAroundToFirstRegion() {
+        RingBufferAllocator allocator = new RingBufferAllocator(64, 2, 1, new RecordingFences());
+        allocator.allocate(64);
+        assertEquals(64, allocator.allocate(64));
+        assertFalse(allocator.wrapped());
+        assertEquals(0, allocator.allocate(8));
+        assertTrue(allocator.wrapped());
+        assertEquals(0, allocator.region());
+        assertEquals(8, allocator.allocate(8));
+        assertFalse(allocator.wrapped());
+    }
+
+    @Test
+    void reusedRegionWaitsForItsFence() {
+        RecordingFences fences = new RecordingFences();
+        RingBufferAllocator allocator = new RingBufferAllocator(64, 2, 1, fences);
+        allocator.allocate(64);
+        allocator.allocate(64);
+        assertEquals(List.of("insert 1"), fences.calls);
+        fences.calls.clear();
+        allocator.allocate(64);
+        assertEquals(List.of("insert 2", "await 1", "delete 1"), fences.calls);
+        assertEquals(0, allocator.regionFence(0));
+        assertEquals(2, allocator.regionFence(1));
+        fences.calls.clear();
+        allocator.allocate(64);
+        assertEquals(List.of("insert 3", "await 2", "delete 2"), fences.calls);
+    }
+
+    @Test
+    void allocationWithoutFencesWrapsWithoutWaiting() {
+        RingBufferAllocator allocator = new RingBufferAllocator(32, 2, 1, null);
+        allocator.allocate(32);
+        allocator.allocate(32);
+        assertEquals(0, allocator.allocate(32));
+        assertTrue(allocator.wrapped());
+        assertEquals(0, allocator.regionFence(1));
+    }
+
+    @Test
+    void oversizeRequestIsRejected() {
+        RecordingFences fences = new RecordingFences();
+        RingBufferAllocator allocator = new RingBufferAllocator(64, 2, 1, fences);
+        allocator.allocate(8);
+        assertThrows(IllegalArgumentException.class, () -> allocator.allocate(65));
+        assertEquals(0, allocator.region());
+        assertTrue(fences.calls.isEmpty());
+        assertEquals(64, allocator.allocate(64));
+    }
+
+    @Test
+    void disposeDeletesPendingFences() {
+        RecordingFences fences = new RecordingFences();
+        RingBufferAllocator allocator = new RingBufferAllocator(64, 3, 1, fences);
+        allocator.allocate(64);
+        allocator.allocate(64);
+        allocator.allocate(64);
+        fences.calls.clear();
+        allocator.dispose();
+        assertEquals(List.of("delete 1", "delete 2"), fences.calls);
+        fences.calls.clear();
+        allocator.dispose();
+        assertTrue(fences.calls.isEmpty());
+    }
+
+    @Test
+    void invalidParametersAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBufferAllocator(0, 2, 1, null));
+        assertThrows(IllegalArgumentException.class, () -> new RingBufferAllocator(64, 0, 1, null));
+        assertThrows(IllegalArgumentException.class, () -> new RingBufferAllocator(64, 2, 0, null));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Fork Engine 2D
+ * Copyright (C) 2023 XenFork Union
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package union.xenfork.fe2d.graphics.sprite;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The sprite kernel with the Vector API. The tail which does not fill a vector is processed by the scalar kernel.
+ * <p>
+ * This class must only be loaded if the {@code jdk.incubator.vector} module is present.
+ *
+ * @author squid233
+ * @since 0.1.0
+ */
+final class VectorSpriteKernel implements SpriteKernel {
+    private static final VectorSpecies<Float> FLOAT = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INT = IntVector.SPECIES_PREFERRED;
+
+    VectorSpriteKernel() {
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + FLOAT.length() + "x";
+    }
+
+    @Override
+    public void transform(SpriteArrays a, int count) {
+        final int bound = FLOAT.loopBound(count);
+        int i = 0;
+        for (; i < bound; i += FLOAT.length()) {
+            final FloatVector originX = FloatVector.fromArray(FLOAT, a.originX, i);
+            final FloatVector originY = FloatVector.fromArray(FLOAT, a.originY, i);
+            final FloatVector scaleX = FloatVector.fromArray(FLOAT, a.scaleX, i);
+            final FloatVector scaleY = FloatVector.fromArray(FLOAT, a.scaleY, i);
+            final FloatVector worldOriginX = FloatVector.fromArray(FLOAT, a.x, i).add(originX);
+            final FloatVector worldOriginY = FloatVector.fromArray(FLOAT, a.y, i).add(originY);
+            final FloatVector fx = originX.neg().mul(scaleX);
+            final FloatVector fy = originY.neg().mul(scaleY);
+            final FloatVector fx2 = FloatVector.fromArray(FLOAT, a.width, i).sub(originX).mul(scaleX);
+            final FloatVector fy2 = FloatVector.fromArray(FLOAT, a.height, i).sub(originY).mul(scaleY);
+            final FloatVector rotation = FloatVector.fromArray(FLOAT, a.rotation, i);
+            FloatVector x1, y1, x2, y2, x3, y3, x4, y4;
+            if (rotation.eq(0f).allTrue()) {
+                x1 = fx;
+                y1 = fy;
+                x2 = fx;
+                y2 = fy2;
+                x3 = fx2;
+                y3 = fy2;
+                x4 = fx2;
+                y4 = fy;
+            } else {
+                final FloatVector sin = rotation.lanewise(VectorOperators.SIN);
+                final FloatVector cos = rotation.lanewise(VectorOperators.COS);
+                x1 = cos.mul(fx).sub(sin.mul(fy));
+                y1 = sin.mul(fx).add(cos.mul(fy));
+                x2 = cos.mul(fx).sub(sin.mul(fy2));
+                y2 = sin.mul(fx).add(cos.mul(fy2));
+                x3 = cos.mul(fx2).sub(sin.mul(fy2));
+                y3 = sin.mul(fx2).add(cos.mul(fy2));
+                x4 = x1.add(x3.sub(x2));
+                y4 = y3.sub(y2.sub(y1));
+            }
+            x1.add(worldOriginX).intoArray(a.x1, i);
+            y1.add(worldOriginY).intoArray(a.y1, i);
+            x2.add(worldOriginX).intoArray(a.x2, i);
+            y2.add(worldOriginY).intoArray(a.y2, i);
+            x3.add(worldOriginX).intoArray(a.x3, i);
+            y3.add(worldOriginY).intoArray(a.y3, i);
+            x4.add(worldOriginX).intoArray(a.x4, i);
+            y4.add(worldOriginY).intoArray(a.y4, i);
+        }
+        ScalarSpriteKernel.transform(a, i, count);
+    }
+
+    @Override
+    public void transformAffine(SpriteArrays a, int count) {
+        final int bound = FLOAT.loopBound(count);
+        int i = 0;
+        for (; i < bound; i += FLOAT.length()) {
+            final FloatVector width = FloatVector.fromArray(FLOAT, a.width, i);
+            final FloatVector height = FloatVector.fromArray(FLOAT, a.height, i);
+            final FloatVector tx = FloatVector.fromArray(FLOAT, a.x, i);
+            final FloatVector ty = FloatVector.fromArray(FLOAT, a.y, i);
+            final FloatVector m00 = FloatVector.fromArray(FLOAT, a.m00, i);
+            final FloatVector m01 = FloatVector.fromArray(FLOAT, a.m01, i);
+            final FloatVector x2 = FloatVector.fromArray(FLOAT, a.m10, i).fma(height, tx);
+            final FloatVector y2 = FloatVector.fromArray(FLOAT, a.m11, i).fma(height, ty);
+            tx.intoArray(a.x1, i);
+            ty.intoArray(a.y1, i);
+            x2.intoArray(a.x2, i);
+            y2.intoArray(a.y2, i);
+            m00.fma(width, x2).intoArray(a.x3, i);
+            m01.fma(width, y2).intoArray(a.y3, i);
+            m00.fma(width, tx).intoArray(a.x4, i);
+            m01.fma(width, ty).intoArray(a.y4, i);
+        }
+        ScalarSpriteKernel.transformAffine(a, i, count);
+    }
+
+    private static IntVector toByte(float[] array, int i) {
+        // same as Color.floatToByte for normalized values
+        return ((IntVector) FloatVector.fromArray(FLOAT, array, i)
+            .mul(256f)
+            .min(255f)
+            .convertShape(VectorOperators.F2I, INT, 0))
+            .and(0xff);
+    }
+
+    @Override
+    public void packColors(SpriteArrays a, int count) {
+        final int bound = Math.min(FLOAT.loopBound(count), INT.loopBound(count));
+        int i = 0;
+        if (FLOAT.length() == INT.length()) {
+            for (; i < bound; i += FLOAT.length()) {
+                toByte(a.alpha, i).lanewise(VectorOperators.LSHL, 24)
+                    .or(toByte(a.blue, i).lanewise(VectorOperators.LSHL, 16))
+                    .or(toByte(a.green, i).lanewise(VectorOperators.LSHL, 8))
+                    .or(toByte(a.red, i))
+                    .intoArray(a.colors, i);
+            }
+        }
+        ScalarSpriteKernel.packColors(a, i, count);
+    }
+}